@@ -34,7 +34,12 @@
 package org.restlet.ext.jackson;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.restlet.data.MediaType;
 import org.restlet.data.Preference;
@@ -44,14 +49,95 @@ import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
 import org.restlet.resource.Resource;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 /**
  * Converter between the JSON, JSON Smile, CSV, XML, YAML and Representation
- * classes based on Jackson.
+ * classes based on Jackson.<br>
+ * <br>
+ * Building a Jackson object mapper and introspecting a class are costly
+ * operations, so this converter shares one object mapper per supported format
+ * and caches the object readers and writers derived from it for the most
+ * recently converted classes. The {@link JacksonRepresentation} instances it
+ * creates rely on those cached readers and writers, but never expose the
+ * shared mappers: when their object mapper is requested, for example to
+ * customize it, they get their own copy and derive their reader or writer from
+ * it. The shared mappers can be customized once at startup, before any
+ * conversion happens, either by configuring the instance returned by
+ * {@link #getObjectMapper(MediaType)}, by calling
+ * {@link #setObjectMapper(MediaType, ObjectMapper)} or by overriding
+ * {@link #createObjectMapper(MediaType)}.
  * 
  * @author Jerome Louvel
  * @author Thierry Boileau
  */
 public class JacksonConverter extends ConverterHelper {
+
+    /**
+     * Jackson representation created by the converter. It uses the cached
+     * object reader or writer of its class, unless its object mapper was
+     * requested first, in which case it gets its own copy of the shared object
+     * mapper and derives its reader or writer from this copy.
+     * 
+     * @param <T>
+     *            The type to wrap.
+     */
+    private class ConverterRepresentation<T> extends JacksonRepresentation<T> {
+
+        /** Indicates if the representation has its own object mapper. */
+        private volatile boolean ownMapper;
+
+        /**
+         * Constructor.
+         * 
+         * @param mediaType
+         *            The target media type.
+         * @param object
+         *            The object to format.
+         */
+        public ConverterRepresentation(MediaType mediaType, T object) {
+            super(mediaType, object);
+        }
+
+        /**
+         * Constructor.
+         * 
+         * @param representation
+         *            The representation to parse.
+         * @param objectClass
+         *            The object class to instantiate.
+         */
+        public ConverterRepresentation(Representation representation,
+                Class<T> objectClass) {
+            super(representation, objectClass);
+        }
+
+        @Override
+        protected ObjectMapper createObjectMapper() {
+            this.ownMapper = true;
+            return copyObjectMapper(getMediaType());
+        }
+
+        @Override
+        protected ObjectReader createObjectReader() {
+            return (this.ownMapper || (getObjectClass() == null)) ? super
+                    .createObjectReader() : JacksonConverter.this
+                    .getObjectReader(getMediaType(), getObjectClass());
+        }
+
+        @Override
+        protected ObjectWriter createObjectWriter() {
+            return (this.ownMapper || (getObjectClass() == null)) ? super
+                    .createObjectWriter() : JacksonConverter.this
+                    .getObjectWriter(getMediaType(), getObjectClass());
+        }
+    }
+
+    /** The maximum number of object readers or writers cached per format. */
+    private static final int CACHE_MAX_SIZE = 1024;
+
     /** Variant with media type application/xml. */
     private static final VariantInfo VARIANT_APPLICATION_XML = new VariantInfo(
             MediaType.APPLICATION_XML);
@@ -81,7 +167,97 @@ public class JacksonConverter extends ConverterHelper {
             MediaType.TEXT_YAML);
 
     /**
-     * Creates the marshaling {@link JacksonRepresentation}.
+     * Creates a cache evicting its least recently used entries once its
+     * maximum size is reached, so that it doesn't retain the classes of
+     * undeployed applications forever.
+     * 
+     * @return The new cache.
+     */
+    private static <V> Map<Class<?>, V> createCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<Class<?>, V>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Class<?>, V> eldest) {
+                return size() > CACHE_MAX_SIZE;
+            }
+        });
+    }
+
+    /**
+     * Returns the media type identifying the object mapper to use for a given
+     * media type. Both XML media types share the same mapper and unsupported
+     * media types fall back to the JSON one, like in
+     * {@link JacksonRepresentation#createObjectMapper()}.
+     * 
+     * @param mediaType
+     *            The media type to convert.
+     * @return The media type identifying the object mapper.
+     */
+    private static MediaType getMapperType(MediaType mediaType) {
+        MediaType result = MediaType.APPLICATION_JSON;
+
+        if (MediaType.APPLICATION_JSON.isCompatible(mediaType)) {
+            result = MediaType.APPLICATION_JSON;
+        } else if (MediaType.APPLICATION_JSON_SMILE.isCompatible(mediaType)) {
+            result = MediaType.APPLICATION_JSON_SMILE;
+        } else if (MediaType.APPLICATION_XML.isCompatible(mediaType)
+                || MediaType.TEXT_XML.isCompatible(mediaType)) {
+            result = MediaType.APPLICATION_XML;
+        } else if (MediaType.APPLICATION_YAML.isCompatible(mediaType)) {
+            result = MediaType.APPLICATION_YAML;
+        } else if (MediaType.TEXT_CSV.isCompatible(mediaType)) {
+            result = MediaType.TEXT_CSV;
+        }
+
+        return result;
+    }
+
+    /** The shared object mappers, indexed by mapper media type. */
+    private final ConcurrentMap<MediaType, ObjectMapper> objectMappers;
+
+    /** The cached object readers, indexed by mapper media type and class. */
+    private final ConcurrentMap<MediaType, Map<Class<?>, ObjectReader>> objectReaders;
+
+    /** The cached object writers, indexed by mapper media type and class. */
+    private final ConcurrentMap<MediaType, Map<Class<?>, ObjectWriter>> objectWriters;
+
+    /**
+     * Constructor.
+     */
+    public JacksonConverter() {
+        this.objectMappers = new ConcurrentHashMap<MediaType, ObjectMapper>();
+        this.objectReaders = new ConcurrentHashMap<MediaType, Map<Class<?>, ObjectReader>>();
+        this.objectWriters = new ConcurrentHashMap<MediaType, Map<Class<?>, ObjectWriter>>();
+    }
+
+    /**
+     * Returns a copy of the object mapper shared by all conversions to and
+     * from a given media type. If the mapper can't be copied, a new one is
+     * created instead.
+     * 
+     * @param mediaType
+     *            The media type to convert to or from.
+     * @return The copy of the shared object mapper.
+     */
+    protected ObjectMapper copyObjectMapper(MediaType mediaType) {
+        ObjectMapper result = null;
+
+        try {
+            result = getObjectMapper(mediaType).copy();
+        } catch (IllegalStateException e) {
+            // Some mappers such as the CSV one don't support copies
+            result = createObjectMapper(getMapperType(mediaType));
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates the marshaling {@link JacksonRepresentation}. It relies on the
+     * cached object writer of the source class, unless its object mapper is
+     * customized first.
      * 
      * @param <T>
      * @param mediaType
@@ -91,11 +267,13 @@ public class JacksonConverter extends ConverterHelper {
      * @return The marshaling {@link JacksonRepresentation}.
      */
     protected <T> JacksonRepresentation<T> create(MediaType mediaType, T source) {
-        return new JacksonRepresentation<T>(mediaType, source);
+        return new ConverterRepresentation<T>(mediaType, source);
     }
 
     /**
-     * Creates the unmarshaling {@link JacksonRepresentation}.
+     * Creates the unmarshaling {@link JacksonRepresentation}. It relies on the
+     * cached object reader of the object class, unless its object mapper is
+     * customized first.
      * 
      * @param <T>
      * @param source
@@ -106,7 +284,41 @@ public class JacksonConverter extends ConverterHelper {
      */
     protected <T> JacksonRepresentation<T> create(Representation source,
             Class<T> objectClass) {
-        return new JacksonRepresentation<T>(source, objectClass);
+        return new ConverterRepresentation<T>(source, objectClass);
+    }
+
+    /**
+     * Creates the object mapper shared by all conversions to and from a given
+     * media type. By default, it is configured like the ones created by
+     * {@link JacksonRepresentation#createObjectMapper()}.
+     * 
+     * @param mediaType
+     *            The mapper media type.
+     * @return The new object mapper.
+     */
+    protected ObjectMapper createObjectMapper(MediaType mediaType) {
+        return new JacksonRepresentation<Object>(mediaType, null)
+                .createObjectMapper();
+    }
+
+    /**
+     * Creates a representation used as a template to derive object readers and
+     * writers from the shared object mapper.
+     * 
+     * @param mediaType
+     *            The mapper media type.
+     * @param objectClass
+     *            The object class to read or write.
+     * @return The template representation.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private JacksonRepresentation<?> createTemplate(MediaType mediaType,
+            Class<?> objectClass) {
+        JacksonRepresentation result = new JacksonRepresentation<Object>(
+                mediaType, null);
+        result.setObjectClass(objectClass);
+        result.setObjectMapper(getObjectMapper(mediaType));
+        return result;
     }
 
     @Override
@@ -127,6 +339,108 @@ public class JacksonConverter extends ConverterHelper {
         return result;
     }
 
+    /**
+     * Returns the object mapper shared by all conversions to and from a given
+     * media type, creating it if necessary. It can be configured at startup,
+     * but object readers and writers already cached keep the former
+     * configuration. It is never given to the representations created by the
+     * converter.
+     * 
+     * @param mediaType
+     *            The media type to convert to or from.
+     * @return The shared object mapper.
+     */
+    public ObjectMapper getObjectMapper(MediaType mediaType) {
+        MediaType mapperType = getMapperType(mediaType);
+        ObjectMapper result = this.objectMappers.get(mapperType);
+
+        if (result == null) {
+            result = createObjectMapper(mapperType);
+            ObjectMapper current = this.objectMappers.putIfAbsent(mapperType,
+                    result);
+
+            if (current != null) {
+                result = current;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cached object reader for a given media type and class,
+     * creating it if necessary. Only the readers of the most recently used
+     * classes are kept.
+     * 
+     * @param mediaType
+     *            The source media type.
+     * @param objectClass
+     *            The object class to instantiate.
+     * @return The cached object reader.
+     */
+    public ObjectReader getObjectReader(MediaType mediaType,
+            Class<?> objectClass) {
+        MediaType mapperType = getMapperType(mediaType);
+        Map<Class<?>, ObjectReader> readers = this.objectReaders.get(mapperType);
+
+        if (readers == null) {
+            readers = createCache();
+            Map<Class<?>, ObjectReader> current = this.objectReaders.putIfAbsent(
+                    mapperType, readers);
+
+            if (current != null) {
+                readers = current;
+            }
+        }
+
+        ObjectReader result = readers.get(objectClass);
+
+        if (result == null) {
+            result = createTemplate(mapperType, objectClass)
+                    .createObjectReader();
+            readers.put(objectClass, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cached object writer for a given media type and class,
+     * creating it if necessary. Only the writers of the most recently used
+     * classes are kept.
+     * 
+     * @param mediaType
+     *            The target media type.
+     * @param objectClass
+     *            The object class to marshal.
+     * @return The cached object writer.
+     */
+    public ObjectWriter getObjectWriter(MediaType mediaType,
+            Class<?> objectClass) {
+        MediaType mapperType = getMapperType(mediaType);
+        Map<Class<?>, ObjectWriter> writers = this.objectWriters.get(mapperType);
+
+        if (writers == null) {
+            writers = createCache();
+            Map<Class<?>, ObjectWriter> current = this.objectWriters.putIfAbsent(
+                    mapperType, writers);
+
+            if (current != null) {
+                writers = current;
+            }
+        }
+
+        ObjectWriter result = writers.get(objectClass);
+
+        if (result == null) {
+            result = createTemplate(mapperType, objectClass)
+                    .createObjectWriter();
+            writers.put(objectClass, result);
+        }
+
+        return result;
+    }
+
     @Override
     public List<VariantInfo> getVariants(Class<?> source) {
         List<VariantInfo> result = null;
@@ -263,6 +577,23 @@ public class JacksonConverter extends ConverterHelper {
         return result;
     }
 
+    /**
+     * Sets the object mapper shared by all conversions to and from a given
+     * media type. The object readers and writers cached for this mapper are
+     * discarded.
+     * 
+     * @param mediaType
+     *            The media type to convert to or from.
+     * @param objectMapper
+     *            The shared object mapper.
+     */
+    public void setObjectMapper(MediaType mediaType, ObjectMapper objectMapper) {
+        MediaType mapperType = getMapperType(mediaType);
+        this.objectMappers.put(mapperType, objectMapper);
+        this.objectReaders.remove(mapperType);
+        this.objectWriters.remove(mapperType);
+    }
+
     @Override
     public <T> void updatePreferences(List<Preference<MediaType>> preferences,
             Class<T> entity) {
@@ -41,7 +41,10 @@ import org.restlet.representation.Representation;
 
 /**
  * Graph composed of links. This also called a set of RDF statements or a RDF
- * model.
+ * model.<br>
+ * <br>
+ * Each addition copies the links and checks them for duplicates, so large
+ * graphs should rather use {@link IndexedGraph}.
  * 
  * @author Jerome Louvel
  */
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.rdf;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.restlet.data.Reference;
+
+/**
+ * Graph indexing its links by source, type and target. Contrary to
+ * {@link Graph}, adding a link doesn't copy the existing links nor scan them to
+ * detect duplicates, which makes it suitable for large graphs such as the ones
+ * obtained by parsing RDF documents. It must be explicitly requested, for
+ * example by overriding {@link RdfRepresentation#createGraph()} or by parsing
+ * a representation with a {@link GraphBuilder} wrapping an instance.<br>
+ * <br>
+ * Links are stored in three hash indexes (source/type/target,
+ * type/target/source and target/source/type) allowing to efficiently find them
+ * by pattern with {@link #getLinks(Object, Reference, Object)}. Note that
+ * contrary to {@link Graph} which compares links by identity, a link is
+ * considered already present if another link with equal source, type and
+ * target was added. The references and literals of added links are replaced by
+ * the equal instances already known by the graph so that each distinct
+ * resource is only kept once in memory, storing a copy of the added link when
+ * needed. As a result, a reference or literal returned by the graph may be
+ * shared by several links and must not be modified.<br>
+ * <br>
+ * The links are kept in the index instead of the array inherited from
+ * {@link java.util.concurrent.CopyOnWriteArraySet}, so all the methods of the
+ * {@link java.util.Set} interface are overridden. Methods added to this class
+ * by later Java versions, such as "forEach", "removeIf" and "spliterator",
+ * only see this empty array and must not be used, the links being available
+ * through {@link #iterator()} instead. Iterations happen in insertion order on
+ * a snapshot of the links and all other methods are synchronized.
+ * 
+ * @author Jerome Louvel
+ */
+public class IndexedGraph extends Graph {
+
+    /** The serialization unique identifier. */
+    private static final long serialVersionUID = 1L;
+
+    /** The indexed store of links. */
+    private final LinkIndex index;
+
+    /**
+     * Default constructor.
+     */
+    public IndexedGraph() {
+        this((Link) null);
+    }
+
+    /**
+     * Constructor with a default link.
+     * 
+     * @param defaultLink
+     *            The link to use when adding links with missing properties.
+     */
+    public IndexedGraph(Link defaultLink) {
+        super(defaultLink);
+        this.index = new LinkIndex();
+    }
+
+    @Override
+    public boolean add(Link link) {
+        return this.index.add(link);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Link> links) {
+        return this.index.addAll(links);
+    }
+
+    @Override
+    public void clear() {
+        this.index.clear();
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return this.index.contains(object);
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> objects) {
+        return this.index.containsAll(objects);
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        return (object == this) || this.index.equals(object);
+    }
+
+    /**
+     * Returns the links matching a pattern. Each null parameter matches any
+     * value.
+     * 
+     * @param source
+     *            The source reference, graph or link to match.
+     * @param typeRef
+     *            The type reference to match.
+     * @param target
+     *            The target reference, literal, graph or link to match.
+     * @return The list of matching links.
+     */
+    public List<Link> getLinks(Object source, Reference typeRef, Object target) {
+        return this.index.getLinks(source, typeRef, target);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.index.hashCode();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.index.isEmpty();
+    }
+
+    @Override
+    public Iterator<Link> iterator() {
+        return this.index.iterator();
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        return this.index.remove(object);
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> objects) {
+        return this.index.removeAll(objects);
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> objects) {
+        return this.index.retainAll(objects);
+    }
+
+    @Override
+    public int size() {
+        return this.index.size();
+    }
+
+    @Override
+    public Object[] toArray() {
+        return this.index.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] array) {
+        return this.index.toArray(array);
+    }
+
+}
@@ -0,0 +1,560 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.ext.rdf;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.restlet.data.Language;
+import org.restlet.data.Reference;
+
+/**
+ * Set of links indexed by source, type and target, used as the store of an
+ * {@link IndexedGraph}. Links are compared by value and the links added are
+ * never modified. Iterations happen in insertion order on a snapshot of the
+ * links and all other methods are synchronized.
+ * 
+ * @author Jerome Louvel
+ */
+class LinkIndex extends AbstractSet<Link> implements Serializable {
+
+    /**
+     * Key of a graph or a link node, compared by identity.
+     */
+    private static final class NodeKey implements Serializable {
+
+        /** The serialization unique identifier. */
+        private static final long serialVersionUID = 1L;
+
+        /** The wrapped node. */
+        private final Object node;
+
+        /**
+         * Constructor.
+         * 
+         * @param node
+         *            The wrapped node.
+         */
+        public NodeKey(Object node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return (other instanceof NodeKey)
+                    && (((NodeKey) other).node == this.node);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this.node);
+        }
+    }
+
+    /** The serialization unique identifier. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Adds the links of an index level to a list.
+     * 
+     * @param level
+     *            The index level.
+     * @param key
+     *            The key of the link to add or null to add all links.
+     * @param list
+     *            The list to complete.
+     */
+    private static void collect(Map<Object, Link> level, Object key,
+            List<Link> list) {
+        if (level != null) {
+            if (key == null) {
+                list.addAll(level.values());
+            } else if (level.get(key) != null) {
+                list.add(level.get(key));
+            }
+        }
+    }
+
+    /**
+     * Returns the key used to index a node. References are compared by value,
+     * literals by value, datatype and language and other nodes by identity.
+     * 
+     * @param node
+     *            The node.
+     * @return The index key.
+     */
+    private static Object getKey(Object node) {
+        Object result = null;
+
+        if (node instanceof Reference) {
+            result = node;
+        } else if (node instanceof Literal) {
+            Literal literal = (Literal) node;
+            result = new Triple<String, Reference, Language>(
+                    literal.getValue(), literal.getDatatypeRef(),
+                    literal.getLanguage());
+        } else if (node != null) {
+            result = new NodeKey(node);
+        }
+
+        return result;
+    }
+
+    /**
+     * Stores a link in an index.
+     * 
+     * @param index
+     *            The index.
+     * @param key1
+     *            The first level key.
+     * @param key2
+     *            The second level key.
+     * @param key3
+     *            The third level key.
+     * @param link
+     *            The link to store.
+     */
+    private static void index(
+            Map<Object, Map<Object, Map<Object, Link>>> index, Object key1,
+            Object key2, Object key3, Link link) {
+        Map<Object, Map<Object, Link>> level2 = index.get(key1);
+
+        if (level2 == null) {
+            level2 = new HashMap<Object, Map<Object, Link>>();
+            index.put(key1, level2);
+        }
+
+        Map<Object, Link> level3 = level2.get(key2);
+
+        if (level3 == null) {
+            level3 = new HashMap<Object, Link>();
+            level2.put(key2, level3);
+        }
+
+        level3.put(key3, link);
+    }
+
+    /**
+     * Looks up the link stored in an index.
+     * 
+     * @param index
+     *            The index.
+     * @param key1
+     *            The first level key.
+     * @param key2
+     *            The second level key.
+     * @param key3
+     *            The third level key.
+     * @return The link stored or null.
+     */
+    private static Link lookup(
+            Map<Object, Map<Object, Map<Object, Link>>> index, Object key1,
+            Object key2, Object key3) {
+        Map<Object, Map<Object, Link>> level2 = index.get(key1);
+        Map<Object, Link> level3 = (level2 == null) ? null : level2.get(key2);
+        return (level3 == null) ? null : level3.get(key3);
+    }
+
+    /**
+     * Removes a link from an index, as well as the index levels left empty.
+     * 
+     * @param index
+     *            The index.
+     * @param key1
+     *            The first level key.
+     * @param key2
+     *            The second level key.
+     * @param key3
+     *            The third level key.
+     */
+    private static void unindex(
+            Map<Object, Map<Object, Map<Object, Link>>> index, Object key1,
+            Object key2, Object key3) {
+        Map<Object, Map<Object, Link>> level2 = index.get(key1);
+        Map<Object, Link> level3 = (level2 == null) ? null : level2.get(key2);
+
+        if (level3 != null) {
+            level3.remove(key3);
+
+            if (level3.isEmpty()) {
+                level2.remove(key2);
+
+                if (level2.isEmpty()) {
+                    index.remove(key1);
+                }
+            }
+        }
+    }
+
+    /**
+     * The references and literals known by the index, indexed by key. Rebuilt
+     * after deserialization.
+     */
+    private transient Map<Object, Object> dictionary;
+
+    /** The links in insertion order. */
+    private final Set<Link> links;
+
+    /** The links indexed by target, source then type. */
+    private transient Map<Object, Map<Object, Map<Object, Link>>> osp;
+
+    /** The links indexed by type, target then source. */
+    private transient Map<Object, Map<Object, Map<Object, Link>>> pos;
+
+    /** The links indexed by source, type then target. */
+    private transient Map<Object, Map<Object, Map<Object, Link>>> spo;
+
+    /**
+     * Constructor.
+     */
+    public LinkIndex() {
+        this.links = new LinkedHashSet<Link>();
+        init();
+    }
+
+    /**
+     * Adds a link unless an equal one is already present. Its references and
+     * literals are replaced by the equal instances already known by the index
+     * so that each distinct resource is only kept once in memory. In this
+     * case, a copy of the link is stored, leaving the given one untouched.
+     * 
+     * @param link
+     *            The link to add.
+     * @return True if the link was added.
+     */
+    @Override
+    public synchronized boolean add(Link link) {
+        boolean result = false;
+
+        if (link != null) {
+            Object sourceKey = getKey(link.getSource());
+            Object typeKey = getKey(link.getTypeRef());
+            Object targetKey = getKey(link.getTarget());
+
+            if (lookup(this.spo, sourceKey, typeKey, targetKey) == null) {
+                Object source = intern(sourceKey, link.getSource());
+                Reference typeRef = (Reference) intern(typeKey,
+                        link.getTypeRef());
+                Object target = intern(targetKey, link.getTarget());
+                Link stored = link;
+
+                if ((source != link.getSource())
+                        || (typeRef != link.getTypeRef())
+                        || (target != link.getTarget())) {
+                    stored = new Link(link);
+                    stored.setTypeRef(typeRef);
+
+                    if (source != link.getSource()) {
+                        stored.setSource((Reference) source);
+                    }
+
+                    if (target instanceof Reference) {
+                        stored.setTarget((Reference) target);
+                    } else if (target instanceof Literal) {
+                        stored.setTarget((Literal) target);
+                    }
+                }
+
+                index(this.spo, sourceKey, typeKey, targetKey, stored);
+                index(this.pos, typeKey, targetKey, sourceKey, stored);
+                index(this.osp, targetKey, sourceKey, typeKey, stored);
+                this.links.add(stored);
+                result = true;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized boolean addAll(Collection<? extends Link> links) {
+        boolean result = false;
+
+        for (Link link : links) {
+            result |= add(link);
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        this.dictionary.clear();
+        this.links.clear();
+        this.osp.clear();
+        this.pos.clear();
+        this.spo.clear();
+    }
+
+    @Override
+    public synchronized boolean contains(Object object) {
+        return (object instanceof Link) && (getLink((Link) object) != null);
+    }
+
+    @Override
+    public synchronized boolean containsAll(Collection<?> objects) {
+        return super.containsAll(objects);
+    }
+
+    /**
+     * Returns the stored link with the same source, type and target as the
+     * given one.
+     * 
+     * @param link
+     *            The link to look for.
+     * @return The stored link or null.
+     */
+    private Link getLink(Link link) {
+        return lookup(this.spo, getKey(link.getSource()),
+                getKey(link.getTypeRef()), getKey(link.getTarget()));
+    }
+
+    /**
+     * Returns the links matching a pattern. Each null parameter matches any
+     * value.
+     * 
+     * @param source
+     *            The source reference, graph or link to match.
+     * @param typeRef
+     *            The type reference to match.
+     * @param target
+     *            The target reference, literal, graph or link to match.
+     * @return The list of matching links.
+     */
+    public synchronized List<Link> getLinks(Object source, Reference typeRef,
+            Object target) {
+        List<Link> result = new ArrayList<Link>();
+        Object sourceKey = getKey(source);
+        Object typeKey = getKey(typeRef);
+        Object targetKey = getKey(target);
+
+        if (sourceKey != null) {
+            Map<Object, Map<Object, Link>> level2 = this.spo.get(sourceKey);
+
+            if (level2 != null) {
+                if (typeKey != null) {
+                    collect(level2.get(typeKey), targetKey, result);
+                } else {
+                    for (Map<Object, Link> level3 : level2.values()) {
+                        collect(level3, targetKey, result);
+                    }
+                }
+            }
+        } else if (typeKey != null) {
+            Map<Object, Map<Object, Link>> level2 = this.pos.get(typeKey);
+
+            if (level2 != null) {
+                if (targetKey != null) {
+                    collect(level2.get(targetKey), null, result);
+                } else {
+                    for (Map<Object, Link> level3 : level2.values()) {
+                        collect(level3, null, result);
+                    }
+                }
+            }
+        } else if (targetKey != null) {
+            Map<Object, Map<Object, Link>> level2 = this.osp.get(targetKey);
+
+            if (level2 != null) {
+                for (Map<Object, Link> level3 : level2.values()) {
+                    collect(level3, null, result);
+                }
+            }
+        } else {
+            result.addAll(this.links);
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates the indexes and the dictionary.
+     */
+    private void init() {
+        this.dictionary = new HashMap<Object, Object>();
+        this.osp = new HashMap<Object, Map<Object, Map<Object, Link>>>();
+        this.pos = new HashMap<Object, Map<Object, Map<Object, Link>>>();
+        this.spo = new HashMap<Object, Map<Object, Map<Object, Link>>>();
+    }
+
+    /**
+     * Returns the equal reference or literal already known by the index, or
+     * registers the given one. Other nodes are returned as is.
+     * 
+     * @param key
+     *            The node key.
+     * @param node
+     *            The node.
+     * @return The node to store.
+     */
+    private Object intern(Object key, Object node) {
+        Object result = node;
+
+        if ((node instanceof Reference) || (node instanceof Literal)) {
+            result = this.dictionary.get(key);
+
+            if (result == null) {
+                this.dictionary.put(key, node);
+                result = node;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return this.links.isEmpty();
+    }
+
+    @Override
+    public Iterator<Link> iterator() {
+        final Iterator<Link> snapshot;
+
+        synchronized (this) {
+            snapshot = new ArrayList<Link>(this.links).iterator();
+        }
+
+        return new Iterator<Link>() {
+            private Link current;
+
+            public boolean hasNext() {
+                return snapshot.hasNext();
+            }
+
+            public Link next() {
+                this.current = snapshot.next();
+                return this.current;
+            }
+
+            public void remove() {
+                if (this.current == null) {
+                    throw new IllegalStateException();
+                }
+
+                LinkIndex.this.remove(this.current);
+                this.current = null;
+            }
+        };
+    }
+
+    /**
+     * Restores the links then rebuilds the indexes.
+     * 
+     * @param in
+     *            The input stream.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private void readObject(ObjectInputStream in) throws IOException,
+            ClassNotFoundException {
+        in.defaultReadObject();
+        List<Link> restored = new ArrayList<Link>(this.links);
+        this.links.clear();
+        init();
+        addAll(restored);
+    }
+
+    @Override
+    public synchronized boolean remove(Object object) {
+        boolean result = false;
+
+        if (object instanceof Link) {
+            Link link = getLink((Link) object);
+
+            if (link != null) {
+                Object sourceKey = getKey(link.getSource());
+                Object typeKey = getKey(link.getTypeRef());
+                Object targetKey = getKey(link.getTarget());
+                unindex(this.spo, sourceKey, typeKey, targetKey);
+                unindex(this.pos, typeKey, targetKey, sourceKey);
+                unindex(this.osp, targetKey, sourceKey, typeKey);
+                this.links.remove(link);
+                result = true;
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized boolean removeAll(Collection<?> objects) {
+        boolean result = false;
+
+        for (Object object : objects) {
+            result |= remove(object);
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized boolean retainAll(Collection<?> objects) {
+        boolean result = false;
+
+        for (Link link : this) {
+            if (!objects.contains(link)) {
+                result |= remove(link);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized int size() {
+        return this.links.size();
+    }
+
+    @Override
+    public synchronized Object[] toArray() {
+        return this.links.toArray();
+    }
+
+    @Override
+    public synchronized <T> T[] toArray(T[] array) {
+        return this.links.toArray(array);
+    }
+
+}
@@ -123,6 +123,17 @@ public class RdfRepresentation extends WriterRepresentation {
         return new GraphBuilder(this.graph);
     }
 
+    /**
+     * Creates the graph filled when parsing the inner RDF representation. By
+     * default, it returns a {@link Graph} instance. Override this method to
+     * return an {@link IndexedGraph} when parsing large representations.
+     * 
+     * @return The graph to fill.
+     */
+    protected Graph createGraph() {
+        return new Graph();
+    }
+
     /**
      * Returns an instance of a graph handler used when writing the inner set of
      * links.
@@ -218,7 +229,7 @@ public class RdfRepresentation extends WriterRepresentation {
      */
     public Graph getGraph() throws IOException {
         if (this.graph == null) {
-            this.graph = new Graph();
+            this.graph = createGraph();
             parse(createBuilder(this.graph));
         }
         return this.graph;
@@ -418,7 +418,7 @@ public class SslConnection<T extends Connector> extends Connection<T> {
                                 "Unable to handle SSL handshake", e);
                     }
 
-                    getHelper().getController().wakeup();
+                    wakeup();
                 }
             });
         }
@@ -52,6 +52,7 @@ import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.adapter.ServerCall;
 import org.restlet.engine.header.Header;
+import org.restlet.engine.util.HeaderSeries;
 import org.restlet.util.Series;
 
 /**
@@ -179,7 +180,7 @@ public class XdbServletCall extends ServerCall {
     @Override
     public Series<Header> getRequestHeaders() {
         if (this.requestHeaders == null) {
-            this.requestHeaders = new Series<Header>(Header.class);
+            this.requestHeaders = new HeaderSeries();
 
             // Copy the headers from the request object
             String headerName;
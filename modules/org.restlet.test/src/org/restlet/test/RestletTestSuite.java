@@ -80,6 +80,7 @@ import org.restlet.test.representation.RangeRepresentationTestCase;
 import org.restlet.test.routing.FilterTestCase;
 import org.restlet.test.routing.RedirectTestCase;
 import org.restlet.test.routing.RouteListTestCase;
+import org.restlet.test.routing.RouteTrieTestCase;
 import org.restlet.test.routing.ValidatorTestCase;
 import org.restlet.test.security.HttpBasicTestCase;
 import org.restlet.test.security.RoleTestCase;
@@ -129,6 +130,7 @@ public class RestletTestSuite extends TestSuite {
         addTestSuite(RestartTestCase.class);
         addTestSuite(RiapTestCase.class);
         addTestSuite(RouteListTestCase.class);
+        addTestSuite(RouteTrieTestCase.class);
         addTestSuite(DigestVerifierTestCase.class);
         addTestSuite(RecipientInfoTestCase.class);
         addTestSuite(RoleTestCase.class);
@@ -33,14 +33,28 @@
 
 package org.restlet.test.connector;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.restlet.Client;
+import org.restlet.Request;
+import org.restlet.Response;
 import org.restlet.data.LocalReference;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.ZipArchive;
+import org.restlet.engine.local.ZipFileCache;
 import org.restlet.representation.EmptyRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.ClientResource;
 import org.restlet.resource.ResourceException;
@@ -72,6 +86,71 @@ public class ZipClientTestCase extends RestletTestCase {
         // BioUtils.delete(testDir, true);
     }
 
+    public void testCachedArchives() throws Exception {
+        writeArchive("Stored content");
+        ZipFileCache cache = new ZipFileCache(1);
+        ZipArchive archive = cache.acquire(zipFile);
+        assertSame(archive, cache.acquire(zipFile));
+        assertEquals(3, archive.getEntries("").size());
+        assertEquals(2, archive.getEntries("docs/").size());
+
+        ZipEntry stored = archive.getZipFile().getEntry("docs/stored.txt");
+        long offset = archive.getDataOffset(stored);
+        assertTrue(offset > 0);
+        assertEquals(-1, archive.getDataOffset(archive.getZipFile().getEntry(
+                "docs/deflated.txt")));
+        archive.release();
+        archive.release();
+
+        // Stored entries are directly transferred from the archive file
+        LocalReference fr = LocalReference.createFileReference(zipFile);
+        String zr = "zip:" + fr.toString();
+        Client client = new Client(Protocol.ZIP);
+        client.start();
+        Response response = client.handle(new Request(Method.GET,
+                zr + "!/docs/stored.txt"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        Representation entity = response.getEntity();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        entity.write(Channels.newChannel(baos));
+        assertEquals("Stored content", baos.toString("UTF-8"));
+        assertEquals("Stored content", BioUtils.toString(Channels
+                .newInputStream(entity.getChannel())));
+        entity.release();
+
+        response = client.handle(new Request(Method.GET, zr
+                + "!/docs/deflated.txt"));
+        assertEquals("Deflated content", response.getEntity().getText());
+        response.getEntity().release();
+
+        response = client.handle(new Request(Method.GET, zr
+                + "!/docs/"));
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertTrue(response.getEntity().getText().contains("stored.txt"));
+
+        // Entities keep serving the archive they were read from
+        entity = client.handle(new Request(Method.GET, zr + "!/docs/stored.txt"))
+                .getEntity();
+        Thread.sleep(1000);
+        File replaced = new File(testDir, "replaced.zip");
+        writeArchive(replaced, "Replaced stored content");
+        assertTrue(replaced.renameTo(zipFile));
+        baos = new ByteArrayOutputStream();
+        entity.write(Channels.newChannel(baos));
+        assertEquals("Stored content", baos.toString("UTF-8"));
+        entity.release();
+
+        // Modified archives are reopened
+        Thread.sleep(1000);
+        writeArchive("Updated stored content");
+        response = client.handle(new Request(Method.GET,
+                zr + "!/docs/stored.txt"));
+        assertEquals("Updated stored content", response.getEntity().getText());
+        response.getEntity().release();
+        client.stop();
+        cache.clear();
+    }
+
     public void testFileClient() throws IOException, InterruptedException {
         String text = "Test content\r\nLine 2\r\nLine2";
         String text2 = "Test content\nLine 2";
@@ -137,4 +216,44 @@ public class ZipClientTestCase extends RestletTestCase {
         } catch (ResourceException e) {
         }
     }
+
+    /**
+     * Writes a test archive with a stored and a compressed entry.
+     * 
+     * @param file
+     *            The archive file.
+     * @param stored
+     *            The content of the stored entry.
+     * @throws IOException
+     */
+    private void writeArchive(File file, String stored) throws IOException {
+        byte[] bytes = stored.getBytes("UTF-8");
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        zos.putNextEntry(new ZipEntry("docs/"));
+        zos.closeEntry();
+        ZipEntry entry = new ZipEntry("docs/stored.txt");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(bytes.length);
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        entry.setCrc(crc.getValue());
+        zos.putNextEntry(entry);
+        zos.write(bytes);
+        zos.closeEntry();
+        zos.putNextEntry(new ZipEntry("docs/deflated.txt"));
+        zos.write("Deflated content".getBytes("UTF-8"));
+        zos.closeEntry();
+        zos.close();
+    }
+
+    /**
+     * Writes the test archive with a stored and a compressed entry.
+     * 
+     * @param stored
+     *            The content of the stored entry.
+     * @throws IOException
+     */
+    private void writeArchive(String stored) throws IOException {
+        writeArchive(zipFile, stored);
+    }
 }
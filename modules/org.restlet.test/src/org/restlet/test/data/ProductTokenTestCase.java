@@ -50,6 +50,34 @@ import org.restlet.test.RestletTestCase;
  */
 public class ProductTokenTestCase extends RestletTestCase {
 
+    public void testCachedAgentData() {
+        String userAgent = "Mozilla/4.0 (compatible; MSIE 6.0; Windows NT 5.1; SV1)";
+
+        ClientInfo clientInfo = new ClientInfo();
+        clientInfo.setAgent(userAgent);
+        Map<String, String> attributes = clientInfo.getAgentAttributes();
+        assertEquals("MSIE", attributes.get("agentName"));
+        List<Product> products = clientInfo.getAgentProducts();
+        assertEquals("Mozilla", products.get(0).getName());
+
+        // Updating one instance doesn't affect the others
+        attributes.put("agentName", "Test");
+        products.get(0).setName("Test");
+        products.clear();
+
+        clientInfo = new ClientInfo();
+        clientInfo.setAgent(userAgent);
+        assertNotSame(attributes, clientInfo.getAgentAttributes());
+        assertEquals("MSIE", clientInfo.getAgentAttributes().get("agentName"));
+        assertEquals("6.0", clientInfo.getMainAgentProduct().getVersion());
+        assertEquals("Mozilla", clientInfo.getAgentProducts().get(0)
+                .getName());
+
+        clientInfo = new ClientInfo();
+        assertTrue(clientInfo.getAgentAttributes().isEmpty());
+        assertTrue(clientInfo.getAgentProducts().isEmpty());
+    }
+
     public void testMainProduct() {
 
         final String userAgent1 = "Mozilla/4.0 (compatible; MSIE 6.0; America Online Browser 1.1; rev1.1; Windows NT 5.1;)";
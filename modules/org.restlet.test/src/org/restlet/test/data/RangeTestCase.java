@@ -34,6 +34,7 @@
 package org.restlet.test.data;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -191,6 +192,90 @@ public class RangeTestCase extends RestletTestCase {
         super.tearDown();
     }
 
+    /**
+     * Tests single and multiple ranges requests on a file.
+     * 
+     * @throws Exception
+     */
+    public void testFileRanges() throws Exception {
+        BioUtils.delete(testDir, true);
+        testDir.mkdirs();
+        FileOutputStream fos = new FileOutputStream(new File(testDir,
+                "ranges.txt"));
+        fos.write("1234567890".getBytes("US-ASCII"));
+        fos.close();
+
+        Client client = new Client(Protocol.HTTP);
+        Request request = new Request(Method.GET, "http://localhost:"
+                + TEST_PORT + "/testPut/ranges.txt");
+        request.setRanges(Arrays.asList(new Range(2, 3)));
+        Response response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("345", response.getEntity().getText());
+        assertEquals(2, response.getEntity().getRange().getIndex());
+
+        request.setRanges(Arrays.asList(new Range(Range.INDEX_LAST, 4)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("7890", response.getEntity().getText());
+
+        request.setRanges(Arrays.asList(new Range(0, 2), new Range(5, 100),
+                new Range(50, 2)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertTrue(MediaType.MULTIPART_BYTERANGES.equals(response.getEntity()
+                .getMediaType(), true));
+        String boundary = response.getEntity().getMediaType().getParameters()
+                .getFirstValue("boundary");
+        assertNotNull(boundary);
+        long size = response.getEntity().getSize();
+        String text = response.getEntity().getText();
+        assertEquals(size, text.length());
+        assertTrue(text.startsWith("--" + boundary
+                + "\r\nContent-Type: text/plain"));
+        assertTrue(text.contains("\r\nContent-Range: bytes 0-1/10\r\n\r\n12"
+                + "\r\n--" + boundary + "\r\n"));
+        assertTrue(text.endsWith("\r\nContent-Range: bytes 5-9/10\r\n\r\n"
+                + "67890\r\n--" + boundary + "--\r\n"));
+
+        request.setRanges(Arrays.asList(new Range(20, 2), new Range(30, 2)));
+        response = client.handle(request);
+        assertEquals(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE,
+                response.getStatus());
+
+        // Overlapping ranges are merged
+        request.setRanges(Arrays.asList(new Range(2, 3), new Range(0, 3)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("12345", response.getEntity().getText());
+
+        // Ranges covering the whole entity get the whole entity
+        request.setRanges(Arrays.asList(new Range(0, Range.SIZE_MAX),
+                new Range(0, Range.SIZE_MAX)));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals("1234567890", response.getEntity().getText());
+
+        // Too many disjoint ranges get the whole entity
+        fos = new FileOutputStream(new File(testDir, "many.txt"));
+        fos.write(new byte[40]);
+        fos.close();
+        Range[] ranges = new Range[20];
+
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new Range(i * 2, 1);
+        }
+
+        request = new Request(Method.GET, "http://localhost:" + TEST_PORT
+                + "/testPut/many.txt");
+        request.setRanges(Arrays.asList(ranges));
+        response = client.handle(request);
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(40, response.getEntity().exhaust());
+        client.stop();
+        BioUtils.delete(testDir, true);
+    }
+
     /**
      * Tests partial Get requests.
      * 
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.util.List;
+
+import org.restlet.data.MediaType;
+import org.restlet.engine.Engine;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.ConverterUtils;
+import org.restlet.engine.converter.DefaultConverter;
+import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
+import org.restlet.resource.Resource;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the lookup of converter helpers.
+ * 
+ * @author Jerome Louvel
+ */
+public class ConverterUtilsTestCase extends RestletTestCase {
+
+    /**
+     * Converter preferred for strings.
+     */
+    private static class StringConverter extends DefaultConverter {
+
+        @Override
+        public float score(Object source, Variant target, Resource resource) {
+            return (source instanceof String) ? 2.0F : -1.0F;
+        }
+
+        @Override
+        public <T> float score(Representation source, Class<T> target,
+                Resource resource) {
+            return String.class.equals(target) ? 2.0F : -1.0F;
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Engine.getInstance().getRegisteredConverters().clear();
+        Engine.getInstance().registerDefaultConverters();
+        super.tearDown();
+    }
+
+    public void testBestHelper() {
+        List<ConverterHelper> converters = Engine.getInstance()
+                .getRegisteredConverters();
+        converters.clear();
+        Engine.getInstance().registerDefaultConverters();
+        Variant variant = new Variant(MediaType.TEXT_PLAIN);
+        Representation rep = new StringRepresentation("test");
+
+        ConverterHelper helper = ConverterUtils.getBestHelper("test", variant,
+                null);
+        assertTrue(helper instanceof DefaultConverter);
+        assertSame(helper, ConverterUtils.getBestHelper("other", variant, null));
+        assertSame(helper,
+                ConverterUtils.getBestHelper(rep, String.class, null));
+
+        // Registering a converter renews the cached helpers
+        StringConverter stringConverter = new StringConverter();
+        converters.add(stringConverter);
+        assertSame(stringConverter,
+                ConverterUtils.getBestHelper("test", variant, null));
+        assertSame(stringConverter,
+                ConverterUtils.getBestHelper(rep, String.class, null));
+        assertSame(helper, ConverterUtils.getBestHelper(rep,
+                StringRepresentation.class, null));
+
+        // Removing it as well
+        converters.remove(stringConverter);
+        assertSame(helper, ConverterUtils.getBestHelper("test", variant, null));
+        assertSame(helper,
+                ConverterUtils.getBestHelper(rep, String.class, null));
+    }
+}
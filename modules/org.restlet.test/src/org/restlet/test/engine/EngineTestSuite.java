@@ -37,6 +37,8 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 
 import org.restlet.test.engine.connector.AsynchroneTestCase;
+import org.restlet.test.engine.connector.ClientConnectionsTestCase;
+import org.restlet.test.engine.connector.ControllerThreadsTestCase;
 import org.restlet.test.engine.connector.HttpInboundRequestTestCase;
 import org.restlet.test.engine.io.BioUtilsTestCase;
 import org.restlet.test.engine.io.BufferTestCase;
@@ -69,9 +71,13 @@ public class EngineTestSuite extends TestSuite {
         addTestSuite(BioUtilsTestCase.class);
         addTestSuite(CookiesTestCase.class);
         addTestSuite(ContentTypeTestCase.class);
+        addTestSuite(ConverterUtilsTestCase.class);
         addTestSuite(HeaderTestCase.class);
+        addTestSuite(HelperIndexTestCase.class);
         addTestSuite(HttpCallTestCase.class);
         addTestSuite(AsynchroneTestCase.class);
+        addTestSuite(ClientConnectionsTestCase.class);
+        addTestSuite(ControllerThreadsTestCase.class);
         addTestSuite(HttpInboundRequestTestCase.class);
         addTestSuite(ImmutableDateTestCase.class);
         addTestSuite(UnclosableInputStreamTestCase.class);
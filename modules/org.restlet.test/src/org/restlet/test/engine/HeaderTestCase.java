@@ -36,15 +36,20 @@ package org.restlet.test.engine;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 
 import org.restlet.data.ClientInfo;
 import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.engine.header.EncodingReader;
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderConstants;
 import org.restlet.engine.header.HeaderReader;
+import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.header.PreferenceReader;
 import org.restlet.engine.header.TokenReader;
 import org.restlet.engine.util.DateUtils;
+import org.restlet.engine.util.HeaderSeries;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -99,6 +104,57 @@ public class HeaderTestCase extends RestletTestCase {
         assertEquals(l.size(), 1);
     }
 
+    public void testHeaderName() throws Exception {
+        Header header = HeaderReader.readHeader("Content-Type: text/plain");
+        assertSame(HeaderConstants.HEADER_CONTENT_TYPE, header.getName());
+        assertEquals("text/plain", header.getValue());
+
+        header = HeaderReader.readHeader("content-type: text/plain");
+        assertEquals("content-type", header.getName());
+
+        header = HeaderReader.readHeader("X-Custom: value");
+        assertEquals("X-Custom", header.getName());
+    }
+
+    public void testHeaderSeries() {
+        HeaderSeries headers = new HeaderSeries();
+        headers.add(HeaderConstants.HEADER_ACCEPT, "text/html");
+        headers.add("accept", "text/plain");
+        headers.add(HeaderConstants.HEADER_HOST, "localhost");
+        assertEquals("text/html,text/plain",
+                headers.getValues(HeaderConstants.HEADER_ACCEPT));
+        assertEquals("text/plain", headers.getFirstValue("accept"));
+        assertEquals(2, headers.subList("ACCEPT", true).size());
+        assertEquals(0, headers.subList("ACCEPT").size());
+        assertNull(headers.getFirst("Via", true));
+
+        // The index follows the modifications of the list
+        headers.removeAll(HeaderConstants.HEADER_ACCEPT, true);
+        headers.set(0, new Header(HeaderConstants.HEADER_VIA, "proxy"));
+        headers.add(HeaderConstants.HEADER_ACCEPT, "*/*");
+        assertEquals("*/*", headers.getValues("Accept"));
+        assertNull(headers.getFirst(HeaderConstants.HEADER_HOST, true));
+        assertEquals("proxy", headers.getFirstValue("via", true));
+    }
+
+    public void testHeaderSeriesLocale() {
+        Locale defaultLocale = Locale.getDefault();
+
+        try {
+            // The dotless i of the Turkish locale must not break lookups
+            Locale.setDefault(new Locale("tr", "TR"));
+            HeaderSeries headers = new HeaderSeries();
+            headers.add("if-match", "\"xyz\"");
+            assertNotNull(headers.getFirst(HeaderConstants.HEADER_IF_MATCH,
+                    true));
+            assertEquals("\"xyz\"", headers.getFirstValue(
+                    HeaderConstants.HEADER_IF_MATCH, true));
+            assertEquals("\"xyz\"", headers.getFirstValue("IF-MATCH", true));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
     public void testInvalidDate() {
         final String headerValue = "-1";
         final Date date = DateUtils.parse(headerValue,
@@ -109,6 +165,25 @@ public class HeaderTestCase extends RestletTestCase {
         assertNull(unmodifiableDate);
     }
 
+    public void testLineBytes() throws Exception {
+        Header server = new Header(HeaderConstants.HEADER_SERVER, "Restlet");
+        byte[] line = HeaderUtils.getLineBytes(server);
+        assertEquals("Server: Restlet\r\n", new String(line, "ISO-8859-1"));
+
+        // Constant headers are encoded once
+        assertSame(line, HeaderUtils.getLineBytes(new Header(
+                HeaderConstants.HEADER_SERVER, "Restlet")));
+
+        Header custom = new Header("X-Custom", "caf\u00e9\u20ac");
+        assertEquals("X-Custom: caf\u00e9?\r\n", new String(
+                HeaderUtils.getLineBytes(custom), "ISO-8859-1"));
+
+        // Characters outside ISO-8859-1 are replaced in names too
+        custom = new Header("X-\u20ac", "1");
+        assertEquals("X-?: 1\r\n", new String(
+                HeaderUtils.getLineBytes(custom), "ISO-8859-1"));
+    }
+
     /**
      * Tests the parsing.
      */
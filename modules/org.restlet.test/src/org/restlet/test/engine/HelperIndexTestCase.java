@@ -0,0 +1,199 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.restlet.data.Method;
+import org.restlet.engine.Engine;
+import org.restlet.engine.HelperIndexGenerator;
+import org.restlet.engine.converter.ConverterHelper;
+import org.restlet.engine.converter.DefaultConverter;
+import org.restlet.engine.io.BioUtils;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the discovery of helpers based on the helper index.
+ * 
+ * @author Jerome Louvel
+ */
+public class HelperIndexTestCase extends RestletTestCase {
+
+    /**
+     * Converter only declared by the test descriptors.
+     */
+    public static class IndexedConverter extends DefaultConverter {
+    }
+
+    /** The directory containing the test descriptors. */
+    private File testDir;
+
+    /**
+     * Counts the converters of the given class.
+     * 
+     * @param converters
+     *            The converters.
+     * @param converterClass
+     *            The converter class.
+     * @return The number of converters of the given class.
+     */
+    private int count(List<ConverterHelper> converters, Class<?> converterClass) {
+        int result = 0;
+
+        for (ConverterHelper converter : converters) {
+            if (converter.getClass() == converterClass) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates an engine loading its helpers from the given class loader.
+     * 
+     * @param classLoader
+     *            The class loader.
+     * @return The engine created.
+     */
+    private Engine createEngine(final ClassLoader classLoader) {
+        return new Engine() {
+            @Override
+            protected ClassLoader createClassLoader() {
+                return classLoader;
+            }
+        };
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "HelperIndexTestCase-" + System.currentTimeMillis());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        BioUtils.delete(this.testDir, true);
+        Engine.register();
+        super.tearDown();
+    }
+
+    public void testIndex() throws Exception {
+        write(this.testDir, Engine.DESCRIPTOR_CONVERTER_PATH,
+                "# Test converter\n" + IndexedConverter.class.getName() + "\n");
+        final ClassLoader classLoader = new URLClassLoader(
+                new URL[] { this.testDir.toURI().toURL() }, getClass()
+                        .getClassLoader());
+
+        // Generate the index
+        StringWriter index = new StringWriter();
+        HelperIndexGenerator.generate(classLoader, index);
+        assertTrue(index.toString().contains(
+                Engine.DESCRIPTOR_CONVERTER + "="
+                        + IndexedConverter.class.getName() + "\n"));
+        assertTrue(index.toString().contains("\nfingerprint="));
+
+        // Count the converters discovered by scanning the descriptors
+        List<ConverterHelper> scanned = createEngine(classLoader)
+                .getRegisteredConverters();
+        assertEquals(1, count(scanned, IndexedConverter.class));
+        write(this.testDir, Engine.DESCRIPTOR_INDEX_PATH, index.toString());
+
+        // Empty the descriptor to check that only the index is read
+        write(this.testDir, Engine.DESCRIPTOR_CONVERTER_PATH,
+                "# Test converter\n");
+        List<ConverterHelper> converters = createEngine(classLoader)
+                .getRegisteredConverters();
+        assertEquals(1, count(converters, IndexedConverter.class));
+        assertEquals(scanned.size(), converters.size());
+        assertEquals(DefaultConverter.class,
+                converters.get(converters.size() - 1).getClass());
+
+        // Adding a classpath entry makes the index stale, it is scanned
+        File otherDir = new File(this.testDir, "other");
+        write(otherDir, Engine.DESCRIPTOR_CONVERTER_PATH, "# No converter\n");
+        ClassLoader staleClassLoader = new URLClassLoader(new URL[] {
+                this.testDir.toURI().toURL(), otherDir.toURI().toURL() },
+                getClass().getClassLoader());
+        converters = createEngine(staleClassLoader).getRegisteredConverters();
+        assertEquals(0, count(converters, IndexedConverter.class));
+        assertEquals(DefaultConverter.class,
+                converters.get(converters.size() - 1).getClass());
+    }
+
+    public void testMethods() {
+        // Methods are registered by the protocol helpers, discovered lazily
+        new Engine();
+        Method method = Method.valueOf("GET");
+        assertSame(Method.GET, method);
+        assertTrue(method.isSafe());
+        assertTrue(method.isIdempotent());
+        assertTrue(Method.valueOf("PUT").isIdempotent());
+        assertSame(Method.PROPFIND, Method.valueOf("PROPFIND"));
+    }
+
+    /**
+     * Writes a test descriptor.
+     * 
+     * @param dir
+     *            The base directory.
+     * @param path
+     *            The path of the descriptor.
+     * @param content
+     *            The content of the descriptor.
+     * @throws IOException
+     */
+    private void write(File dir, String path, String content)
+            throws IOException {
+        File file = new File(dir, path);
+        file.getParentFile().mkdirs();
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                "utf-8");
+
+        try {
+            writer.write(content);
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.connector.ClientConnectionHelper;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the connections of internal client connectors.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientConnectionsTestCase extends RestletTestCase {
+
+    private Client client;
+
+    private Server server;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        server = new Server(new Context(), Protocol.HTTP, 0, new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity("Hello "
+                        + request.getResourceRef().getLastSegment(),
+                        MediaType.TEXT_PLAIN);
+            }
+        });
+        server.start();
+
+        client = new Client(new Context(), Protocol.HTTP);
+        client.start();
+    }
+
+    /**
+     * Restarts the client connector with the given parameter.
+     * 
+     * @param name
+     *            The parameter name.
+     * @param value
+     *            The parameter value.
+     */
+    private void restartClient(String name, String value) throws Exception {
+        client.stop();
+        Context clientContext = new Context();
+        clientContext.getParameters().add(name, value);
+        client = new Client(clientContext, Protocol.HTTP);
+        client.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        client.stop();
+        server.stop();
+        super.tearDown();
+    }
+
+    public void testHostConnections() throws Exception {
+        ClientConnectionHelper helper = (ClientConnectionHelper) client
+                .getContext().getAttributes().get("org.restlet.engine.helper");
+
+        for (int i = 0; i < 5; i++) {
+            Response response = client.handle(new Request(Method.GET,
+                    "http://localhost:" + server.getActualPort() + "/" + i));
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("Hello " + i, response.getEntityAsText());
+        }
+
+        // The persistent connection is reused
+        assertEquals(1, helper.getConnections().size());
+        assertEquals(1,
+                helper.getHostConnections("http://localhost:"
+                        + server.getActualPort()).size());
+
+        // Connections are shared by origin, not by resolved address
+        Response response = client.handle(new Request(Method.GET, "HTTP://"
+                + "LocalHost:" + server.getActualPort() + "/5"));
+        assertEquals("Hello 5", response.getEntityAsText());
+        assertEquals(1, helper.getConnections().size());
+        assertEquals(0, helper.getDnsCacheTtlMs());
+    }
+
+    public void testPipelining() throws Exception {
+        restartClient("pipeliningConnections", "true");
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(4);
+
+        for (int t = 0; t < 4; t++) {
+            new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20; i++) {
+                            Response response = client.handle(new Request(
+                                    Method.GET, "http://localhost:"
+                                            + server.getActualPort() + "/"
+                                            + i));
+                            assertEquals(Status.SUCCESS_OK,
+                                    response.getStatus());
+                            assertEquals("Hello " + i,
+                                    response.getEntityAsText());
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        latch.await();
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.engine.connector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Client;
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.Server;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Protocol;
+import org.restlet.data.Status;
+import org.restlet.engine.Engine;
+import org.restlet.engine.connector.Connection;
+import org.restlet.engine.connector.ConnectionController;
+import org.restlet.engine.connector.HttpServerHelper;
+import org.restlet.engine.connector.HttpServerInboundWay;
+import org.restlet.engine.connector.InboundWay;
+import org.restlet.engine.connector.MessageState;
+import org.restlet.engine.io.IoState;
+import org.restlet.test.RestletTestCase;
+import org.restlet.util.SelectionRegistration;
+
+/**
+ * Unit tests for internal connectors relying on several controller threads.
+ * 
+ * @author Jerome Louvel
+ */
+public class ControllerThreadsTestCase extends RestletTestCase {
+
+    /**
+     * Server helper whose inbound ways can be kept ready without any byte to
+     * process.
+     */
+    public static class IdleReadyServerHelper extends HttpServerHelper {
+
+        /** The number of selections of the inbound ways. */
+        private static final AtomicInteger selections = new AtomicInteger();
+
+        /** Indicates if the inbound ways should be kept ready. */
+        private static volatile boolean stuck;
+
+        public IdleReadyServerHelper(Server server) {
+            super(server);
+        }
+
+        @Override
+        public InboundWay createInboundWay(Connection<Server> connection,
+                int bufferSize) {
+            return new HttpServerInboundWay(connection, bufferSize) {
+                @Override
+                public void onSelected(SelectionRegistration registration) {
+                    selections.incrementAndGet();
+                    super.onSelected(registration);
+                }
+
+                @Override
+                public void updateState() {
+                    super.updateState();
+
+                    if (stuck && (getMessageState() == MessageState.START)) {
+                        setIoState(IoState.READY);
+                    }
+                }
+            };
+        }
+    }
+
+    private Client client;
+
+    private Server server;
+
+    private void testCalls(int threads, final int count) throws Exception {
+        final List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+        final CountDownLatch latch = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            new Thread() {
+                public void run() {
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            Request request = new Request(Method.GET,
+                                    "http://localhost:"
+                                            + server.getActualPort()
+                                            + "/test/" + i);
+                            Response response = client.handle(request);
+                            assertEquals(Status.SUCCESS_OK,
+                                    response.getStatus());
+                            assertEquals("Call " + i,
+                                    response.getEntityAsText());
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            }.start();
+        }
+
+        latch.await();
+        assertTrue(errors.toString(), errors.isEmpty());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Context serverContext = new Context();
+        serverContext.getParameters().add("controllerThreads", "3");
+        server = new Server(serverContext, Protocol.HTTP, 0, new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                response.setEntity("Call "
+                        + request.getResourceRef().getLastSegment(),
+                        MediaType.TEXT_PLAIN);
+            }
+        });
+        server.start();
+
+        Context clientContext = new Context();
+        clientContext.getParameters().add("controllerThreads", "2");
+        client = new Client(clientContext, Protocol.HTTP);
+        client.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        client.stop();
+        server.stop();
+        super.tearDown();
+    }
+
+    public void testIdleReadyConnection() throws Exception {
+        IdleReadyServerHelper idleHelper = new IdleReadyServerHelper(null);
+        Engine.getInstance().getRegisteredServers().add(0, idleHelper);
+        server.stop();
+        server = new Server(server.getContext(), Arrays.asList(Protocol.HTTP),
+                null, 0, server.getNext(), IdleReadyServerHelper.class
+                        .getCanonicalName());
+        server.start();
+        Engine.getInstance().getRegisteredServers().remove(idleHelper);
+
+        // Keep a persistent connection opened on the server side
+        testCalls(1, 1);
+        HttpServerHelper helper = (HttpServerHelper) server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        Connection<?> connection = null;
+
+        for (ConnectionController controller : helper.getControllers()) {
+            for (Connection<?> current : controller.getConnections()) {
+                connection = current;
+            }
+        }
+
+        assertNotNull(connection);
+
+        // A ready way without buffered bytes can't make any progress, it
+        // shouldn't be selected again until the next control cycle
+        IdleReadyServerHelper.stuck = true;
+        IdleReadyServerHelper.selections.set(0);
+
+        try {
+            connection.wakeup();
+            Thread.sleep(500);
+            assertTrue("Idle ready way selected "
+                    + IdleReadyServerHelper.selections + " times",
+                    IdleReadyServerHelper.selections.get() < 10);
+        } finally {
+            IdleReadyServerHelper.stuck = false;
+        }
+    }
+
+    public void testLoadScoreBalancing() throws Exception {
+        server.getContext().getParameters()
+                .set("controllerBalancing", "loadScore");
+        testCalls(4, 20);
+    }
+
+    public void testRoundRobinBalancing() throws Exception {
+        HttpServerHelper helper = (HttpServerHelper) server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        assertEquals(3, helper.getControllers().size());
+        assertSame(helper.getController(), helper.getControllers().get(0));
+
+        for (ConnectionController controller : helper.getControllers()) {
+            assertTrue(controller.getConnections().isEmpty());
+        }
+
+        testCalls(4, 20);
+    }
+
+    public void testThreadPerCall() throws Exception {
+        server.stop();
+        server.getContext().getParameters().set("threadPerCall", "true");
+        server.getContext().getParameters().set("maxConcurrentCalls", "6");
+        server.start();
+
+        HttpServerHelper helper = (HttpServerHelper) server.getContext()
+                .getAttributes().get("org.restlet.engine.helper");
+        assertEquals(6, helper.getWorkerService().getMaximumPoolSize());
+        testCalls(4, 20);
+    }
+
+}
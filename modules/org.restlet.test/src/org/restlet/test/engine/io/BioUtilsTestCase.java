@@ -37,12 +37,16 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
 
 import org.restlet.data.CharacterSet;
 import org.restlet.data.MediaType;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.WriterRepresentation;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -83,4 +87,51 @@ public class BioUtilsTestCase extends RestletTestCase {
         }
     }
 
+    public void testPipeLargeContent() throws IOException {
+        // Larger than the ring buffer, so the writer has to wait
+        final byte[] content = new byte[100000];
+
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+
+        OutputRepresentation or = new OutputRepresentation(
+                MediaType.APPLICATION_OCTET_STREAM) {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                outputStream.write(content, 0, 10);
+                outputStream.write(content, 10, content.length - 10);
+            }
+        };
+
+        InputStream is = or.getStream();
+        byte[] read = new byte[content.length];
+        int total = 0;
+        int count = 0;
+
+        while ((count = is.read(read, total, read.length - total)) > 0) {
+            total += count;
+        }
+
+        assertEquals(content.length, total);
+        assertTrue(Arrays.equals(content, read));
+        assertEquals(-1, is.read());
+        is.close();
+    }
+
+    public void testPipeReader() throws IOException {
+        WriterRepresentation wr = new WriterRepresentation(
+                MediaType.TEXT_PLAIN) {
+            @Override
+            public void write(Writer writer) throws IOException {
+                writer.write("test\u00e9\u20ac");
+            }
+        };
+
+        Reader reader = wr.getReader();
+        StringWriter sw = new StringWriter();
+        BioUtils.copy(reader, sw);
+        assertEquals("test\u00e9\u20ac", sw.toString());
+    }
+
 }
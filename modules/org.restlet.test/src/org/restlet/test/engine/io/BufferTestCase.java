@@ -36,7 +36,9 @@ package org.restlet.test.engine.io;
 import java.io.IOException;
 
 import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.engine.io.BufferState;
+import org.restlet.engine.io.ByteSlice;
 import org.restlet.test.RestletTestCase;
 
 /**
@@ -46,6 +48,22 @@ import org.restlet.test.RestletTestCase;
  */
 public class BufferTestCase extends RestletTestCase {
 
+    public void testDrainLine() throws IOException {
+        Buffer buffer = new Buffer(8192);
+        buffer.fill("GET / HTTP/1.1\r\nHost: loc");
+        buffer.flip();
+
+        ByteSlice line = new ByteSlice();
+        assertTrue(buffer.drainLine(line));
+        assertEquals("GET / HTTP/1.1", line.toString());
+        assertEquals('G', line.charAt(0));
+        assertEquals("HTTP/1.1", line.subSequence(6, 14));
+
+        // Incomplete line is left in the buffer
+        assertFalse(buffer.drainLine(line));
+        assertEquals(9, buffer.remaining());
+    }
+
     public void testFlip() throws IOException {
         Buffer buffer = new Buffer(8192);
         buffer.fill("abcdefghijklm");
@@ -73,4 +91,54 @@ public class BufferTestCase extends RestletTestCase {
         buffer.drain(sb, BufferState.FILLING);
         assertEquals("Remaining buffer", "ijklmnopqrstuvwxyz", sb.toString());
     }
+
+    public void testPooledBuffer() throws IOException {
+        BufferPool pool = new BufferPool(false);
+        Buffer buffer1 = new Buffer(8192, pool);
+        Buffer buffer2 = new Buffer(8192, pool);
+
+        // No byte buffer borrowed until bytes are filled
+        assertTrue(buffer1.isEmpty());
+        assertEquals(8192, buffer1.capacity());
+        assertEquals(0, pool.getInUseCount());
+
+        buffer1.fill("abcdef");
+        buffer2.fill("ghijkl");
+        assertEquals(2, pool.getInUseCount());
+        assertEquals(2, pool.getMissCount());
+
+        // Can't release a buffer with remaining bytes
+        assertFalse(buffer1.release());
+        buffer1.flip();
+        StringBuilder sb = new StringBuilder();
+        buffer1.drain(sb, BufferState.FILLING);
+        assertTrue(buffer1.release());
+        assertEquals(1, pool.getInUseCount());
+        assertEquals(1, pool.getIdleCount());
+
+        // The released byte buffer is reused
+        buffer1.fill("mnopqr");
+        assertEquals(2, pool.getMissCount());
+        assertEquals(2, pool.getHighWaterCount());
+
+        buffer1.clear();
+        buffer2.clear();
+        assertTrue(buffer1.release());
+        assertTrue(buffer2.release());
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(2, pool.getIdleCount());
+
+        // Idle byte buffers beyond the limit are dropped
+        pool = new BufferPool(false, 1);
+        buffer1 = new Buffer(8192, pool);
+        buffer2 = new Buffer(8192, pool);
+        buffer1.fill("abcdef");
+        buffer2.fill("ghijkl");
+        buffer1.clear();
+        buffer2.clear();
+        assertTrue(buffer1.release());
+        assertTrue(buffer2.release());
+        assertEquals(0, pool.getInUseCount());
+        assertEquals(1, pool.getIdleCount());
+    }
 }
@@ -36,10 +36,16 @@ package org.restlet.test.ext.jackson;
 import java.util.Date;
 
 import org.restlet.data.MediaType;
+import org.restlet.ext.jackson.JacksonConverter;
 import org.restlet.ext.jackson.JacksonRepresentation;
+import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
+import org.restlet.representation.Variant;
 import org.restlet.test.RestletTestCase;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
 /**
  * Unit test for the Jackson extension.
  * 
@@ -78,6 +84,63 @@ public class JacksonTestCase extends RestletTestCase {
         return invoice;
     }
 
+    public void testConverterCaches() throws Exception {
+        JacksonConverter converter = new JacksonConverter();
+        assertSame(converter.getObjectMapper(MediaType.APPLICATION_XML),
+                converter.getObjectMapper(MediaType.TEXT_XML));
+        assertNotSame(converter.getObjectMapper(MediaType.APPLICATION_JSON),
+                converter.getObjectMapper(MediaType.APPLICATION_YAML));
+        assertSame(converter.getObjectWriter(MediaType.APPLICATION_JSON,
+                Customer.class), converter.getObjectWriter(
+                MediaType.APPLICATION_JSON, Customer.class));
+        assertSame(converter.getObjectReader(MediaType.TEXT_CSV,
+                Invoice.class), converter.getObjectReader(MediaType.TEXT_CSV,
+                Invoice.class));
+
+        Customer customer = createCustomer();
+        Representation rep = converter.toRepresentation(customer,
+                new Variant(MediaType.APPLICATION_JSON), null);
+        String text = rep.getText();
+        assertEquals(text, new JacksonRepresentation<Customer>(customer)
+                .getText());
+        verify(customer, converter.toObject(new StringRepresentation(text,
+                MediaType.APPLICATION_JSON), Customer.class, null));
+
+        Invoice invoice = createInvoice();
+        rep = converter.toRepresentation(invoice, new Variant(
+                MediaType.TEXT_CSV), null);
+        verify(invoice, converter.toObject(new StringRepresentation(rep
+                .getText(), MediaType.TEXT_CSV), Invoice.class, null));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testConverterMapperCustomization() throws Exception {
+        JacksonConverter converter = new JacksonConverter();
+        Customer customer = createCustomer();
+        ObjectMapper shared = converter
+                .getObjectMapper(MediaType.APPLICATION_JSON);
+        JacksonRepresentation<Customer> rep = (JacksonRepresentation<Customer>) converter
+                .toRepresentation(customer, new Variant(
+                        MediaType.APPLICATION_JSON), null);
+
+        // Customizing a representation doesn't affect the other conversions
+        ObjectMapper mapper = rep.getObjectMapper();
+        assertNotSame(shared, mapper);
+        mapper.configure(SerializationFeature.WRAP_ROOT_VALUE, true);
+        assertTrue(rep.getText().startsWith("{\"Customer\":"));
+        assertFalse(shared.isEnabled(SerializationFeature.WRAP_ROOT_VALUE));
+        assertEquals(new JacksonRepresentation<Customer>(customer).getText(),
+                converter.toRepresentation(customer,
+                        new Variant(MediaType.APPLICATION_JSON), null)
+                        .getText());
+
+        // The CSV mapper can't be copied, a new one is created
+        rep = (JacksonRepresentation<Customer>) converter.toRepresentation(
+                createInvoice(), new Variant(MediaType.TEXT_CSV), null);
+        assertNotSame(converter.getObjectMapper(MediaType.TEXT_CSV),
+                rep.getObjectMapper());
+    }
+
     public void testCsv() throws Exception {
         Invoice invoice = createInvoice();
         JacksonRepresentation<Invoice> rep = new JacksonRepresentation<Invoice>(
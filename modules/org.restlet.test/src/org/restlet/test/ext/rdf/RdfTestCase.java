@@ -33,7 +33,14 @@
 
 package org.restlet.test.ext.rdf;
 
+import java.util.Iterator;
+
 import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.ext.rdf.Graph;
+import org.restlet.ext.rdf.IndexedGraph;
+import org.restlet.ext.rdf.Link;
+import org.restlet.ext.rdf.Literal;
 import org.restlet.ext.rdf.RdfRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
@@ -44,6 +51,87 @@ import org.restlet.test.RestletTestCase;
  */
 public class RdfTestCase extends RestletTestCase {
 
+    public void testIndexedGraph() throws Exception {
+        IndexedGraph graph = new IndexedGraph();
+        Link link = graph.add("http://a", "http://knows", new Reference(
+                "http://b"));
+        graph.add("http://a", "http://name", new Literal("A"));
+        graph.add("http://b", "http://knows", new Reference("http://c"));
+        assertNotNull(graph.add("http://a", "http://knows", new Reference(
+                "http://b")));
+        assertEquals(3, graph.size());
+        assertTrue(graph.contains(new Link(new Reference("http://a"),
+                new Reference("http://knows"), new Reference("http://b"))));
+        assertFalse(graph.contains(new Link(new Reference("http://a"),
+                new Reference("http://knows"), new Reference("http://c"))));
+
+        Reference knowsRef = new Reference("http://knows");
+        assertEquals(2, graph.getLinks(null, knowsRef, null).size());
+        assertEquals(2, graph.getLinks(new Reference("http://a"), null, null)
+                .size());
+        assertEquals(1,
+                graph.getLinks(null, null, new Reference("http://c")).size());
+        assertEquals(1, graph.getLinks(null, null, new Literal("A")).size());
+        assertSame(link, graph.getLinks(new Reference("http://a"), knowsRef,
+                new Reference("http://b")).get(0));
+        assertSame(link.getTypeRef(), graph
+                .getLinks(new Reference("http://b"), null, null).get(0)
+                .getTypeRef());
+
+        // Added links are never modified
+        Reference knowsCopy = new Reference("http://knows");
+        Link added = new Link(new Reference("http://c"), knowsCopy,
+                new Reference("http://a"));
+        assertTrue(graph.add(added));
+        assertSame(knowsCopy, added.getTypeRef());
+        assertTrue(graph.contains(added));
+        assertEquals(4, graph.toArray().length);
+        assertTrue(graph.remove(added));
+
+        Iterator<Link> iter = graph.iterator();
+        assertSame(link, iter.next());
+        iter.remove();
+        assertEquals(2, graph.size());
+        assertEquals(1, graph.getLinks(null, knowsRef, null).size());
+        graph.clear();
+        assertTrue(graph.isEmpty());
+    }
+
+    public void testGraph() throws Exception {
+        Graph graph = new Graph();
+        Link link = graph.add("http://a", "http://knows", new Reference(
+                "http://b"));
+        graph.add("http://a", "http://name", new Literal("A"));
+        assertEquals(2, graph.size());
+        assertEquals(2, graph.toArray().length);
+        assertTrue(graph.contains(link));
+
+        assertSame(link, graph.iterator().next());
+        assertTrue(graph.remove(link));
+        assertEquals(1, graph.size());
+        assertFalse(graph.contains(link));
+    }
+
+    public void testIndexedParsing() throws Exception {
+        Representation rep = new StringRepresentation(
+                "@prefix ex: <http://www.example.com/>.\n"
+                        + "ex:a ex:knows ex:b.\n" + "ex:a ex:knows ex:b.\n"
+                        + "ex:b ex:knows ex:c.\n" + "ex:c ex:name \"C\".\n",
+                MediaType.APPLICATION_RDF_TURTLE);
+        assertFalse(new RdfRepresentation(rep).getGraph() instanceof
+                IndexedGraph);
+        Graph graph = new RdfRepresentation(rep) {
+            @Override
+            protected Graph createGraph() {
+                return new IndexedGraph();
+            }
+        }.getGraph();
+        assertTrue(graph instanceof IndexedGraph);
+        assertEquals(3, graph.size());
+        assertEquals(2, ((IndexedGraph) graph).getLinks(null,
+                new Reference("http://www.example.com/knows"), null).size());
+    }
+
     public void testN3() throws Exception {
         Representation rep = new StringRepresentation(
                 "@prefix rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#> ."
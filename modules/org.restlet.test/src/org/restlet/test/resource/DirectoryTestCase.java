@@ -34,7 +34,9 @@
 package org.restlet.test.resource;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
 import java.util.Date;
 
 import org.restlet.Application;
@@ -42,13 +44,21 @@ import org.restlet.Component;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Encoding;
 import org.restlet.data.Language;
 import org.restlet.data.LocalReference;
+import org.restlet.data.MediaType;
 import org.restlet.data.Method;
+import org.restlet.data.Preference;
 import org.restlet.data.Protocol;
 import org.restlet.data.Reference;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.DecodeRepresentation;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.local.CompressedFileCache;
+import org.restlet.engine.local.DirectoryServerResource;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.StringRepresentation;
 import org.restlet.resource.Directory;
@@ -163,6 +173,140 @@ public class DirectoryTestCase extends RestletTestCase {
         return response;
     }
 
+    /**
+     * Directory resource tagging the files with their modification date.
+     */
+    public static class TaggedDirectoryServerResource extends
+            DirectoryServerResource {
+        @Override
+        protected Response getRepresentation(String resourceUri,
+                MediaType acceptedMediaType) {
+            Response result = super.getRepresentation(resourceUri,
+                    acceptedMediaType);
+
+            if (result.getEntity() instanceof FileRepresentation) {
+                result.getEntity().setTag(
+                        new Tag(Long.toString(((FileRepresentation) result
+                                .getEntity()).getFile().lastModified())));
+            }
+
+            return result;
+        }
+    }
+
+    public void testCompressedFiles() throws Exception {
+        this.testDir = new File(System.getProperty("java.io.tmpdir"),
+                "DirectoryTestCase/compressed" + new Date().getTime());
+        this.testDir.mkdirs();
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < 200; i++) {
+            sb.append("body { margin: 0; }\n");
+        }
+
+        File cssFile = new File(this.testDir, "style.css");
+        FileOutputStream fos = new FileOutputStream(cssFile);
+        fos.write(sb.toString().getBytes("UTF-8"));
+        fos.close();
+
+        File gzFile = new File(this.testDir, "style.css.gz");
+        GZIPOutputStream gzos = new GZIPOutputStream(new FileOutputStream(
+                gzFile));
+        gzos.write(sb.toString().getBytes("UTF-8"));
+        gzos.close();
+        gzFile.setLastModified(cssFile.lastModified());
+
+        Component clientComponent = new Component();
+        clientComponent.getClients().add(Protocol.FILE);
+        MyApplication application = new MyApplication(this.testDir);
+        clientComponent.getDefaultHost().attach("", application);
+        clientComponent.start();
+        application.setTestDirectory(this.testDir);
+        Directory directory = application.getDirectory();
+        directory.setServingPrecompressed(true);
+        directory.setTargetClass(TaggedDirectoryServerResource.class);
+
+        try {
+            // Precompressed sibling
+            Request request = new Request(Method.GET,
+                    this.webSiteURL.concat("style.css"));
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            request.getClientInfo().getAcceptedEncodings()
+                    .add(new Preference<Encoding>(Encoding.GZIP));
+            Response response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(MediaType.TEXT_CSS, response.getEntity()
+                    .getMediaType());
+            assertTrue(response.getEntity().getEncodings()
+                    .contains(Encoding.GZIP));
+            assertEquals(gzFile, ((FileRepresentation) response.getEntity())
+                    .getFile());
+
+            // Revalidation with the tag of the compressed variant
+            Tag tag = response.getEntity().getTag();
+            assertTrue(tag.getName().endsWith("-gzip"));
+            request = new Request(Method.GET,
+                    this.webSiteURL.concat("style.css"));
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            request.getClientInfo().getAcceptedEncodings()
+                    .add(new Preference<Encoding>(Encoding.GZIP));
+            request.getConditions().getNoneMatch().add(tag);
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+
+            // Client not accepting the compression
+            request = new Request(Method.GET,
+                    this.webSiteURL.concat("style.css"));
+            request.getResourceRef().setBaseRef(this.webSiteURL);
+            response = new Response(request);
+            application.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals(cssFile, ((FileRepresentation) response.getEntity())
+                    .getFile());
+
+            // Compressed file cache
+            gzFile.delete();
+            directory.setServingPrecompressed(false);
+            CompressedFileCache cache = new CompressedFileCache(new File(
+                    this.testDir, "cache"), CompressedFileCache.DEFAULT_MAX_SIZE);
+            directory.setCompressedFileCache(cache);
+
+            for (int i = 0; i < 2; i++) {
+                request = new Request(Method.GET,
+                        this.webSiteURL.concat("style.css"));
+                request.getResourceRef().setBaseRef(this.webSiteURL);
+                request.getClientInfo().getAcceptedEncodings()
+                        .add(new Preference<Encoding>(Encoding.GZIP));
+                response = new Response(request);
+                application.handle(request, response);
+                assertEquals(Status.SUCCESS_OK, response.getStatus());
+                assertTrue(response.getEntity().getEncodings()
+                        .contains(Encoding.GZIP));
+                assertEquals(sb.toString(), new DecodeRepresentation(
+                        response.getEntity()).getText());
+            }
+
+            assertTrue(cache.getSize() > 0);
+            assertTrue(cache.getSize() < cssFile.length());
+
+            // Copies exceeding the maximum size are served without being
+            // cached, then deleted after the deletion delay
+            cache.setDeletionDelayMs(0);
+            cache.setMaxSize(1);
+            assertEquals(0, cache.getSize());
+            File copy = cache.get(cssFile);
+            assertTrue(copy.exists());
+            assertEquals(0, cache.getSize());
+            assertFalse(copy.equals(cache.get(cssFile)));
+            assertFalse(copy.exists());
+        } finally {
+            clientComponent.stop();
+            BioUtils.delete(this.testDir, true);
+        }
+    }
+
     public void testDirectory() throws Exception {
         // Create a temporary directory for the tests
         this.testDir = new File(System.getProperty("java.io.tmpdir"),
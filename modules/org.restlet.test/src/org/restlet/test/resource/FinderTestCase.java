@@ -0,0 +1,107 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.resource;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.resource.Finder;
+import org.restlet.resource.Get;
+import org.restlet.resource.ServerResource;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test the instantiation of server resources by the {@link Finder} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class FinderTestCase extends RestletTestCase {
+
+    public static class FailingResource extends ServerResource {
+        public FailingResource() {
+            throw new IllegalStateException("Failing resource");
+        }
+    }
+
+    public static class HelloResource extends ServerResource {
+        public HelloResource() {
+        }
+
+        @Get
+        public String hello() {
+            return "hello";
+        }
+    }
+
+    public static class PrivateResource extends ServerResource {
+        private PrivateResource() {
+        }
+    }
+
+    public void testCreate() throws Exception {
+        Finder finder = new Finder();
+        ServerResource first = finder.create(HelloResource.class, null, null);
+        ServerResource second = finder.create(HelloResource.class, null,
+                null);
+        assertTrue(first instanceof HelloResource);
+        assertTrue(second instanceof HelloResource);
+        assertNotSame(first, second);
+
+        // Switch to another class and back
+        assertTrue(finder.create(MyServerResource1.class, null, null)
+                instanceof MyServerResource1);
+        assertTrue(finder.create(HelloResource.class, null, null)
+                instanceof HelloResource);
+        assertNull(finder.create(FailingResource.class, null, null));
+
+        // Access checks still apply to non-public constructors
+        assertNull(finder.create(PrivateResource.class, null, null));
+    }
+
+    public void testHandle() throws Exception {
+        Finder finder = new Finder(null, HelloResource.class);
+        finder.start();
+
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request(Method.GET, "http://local/hello");
+            Response response = new Response(request);
+            finder.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("hello", response.getEntity().getText());
+        }
+
+        finder.stop();
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.routing;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.data.Reference;
+import org.restlet.routing.Route;
+import org.restlet.routing.RouteTrie;
+import org.restlet.routing.Router;
+import org.restlet.routing.Template;
+import org.restlet.routing.TemplateRoute;
+import org.restlet.routing.Variable;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Test case for the {@link RouteTrie} class.
+ * 
+ * @author Jerome Louvel
+ */
+public class RouteTrieTestCase extends RestletTestCase {
+
+    private static final String[] PATHS = { "", "/", "//", "/users",
+            "/users/", "/users/123", "/users/123/", "/users/abc",
+            "/users/123/orders", "/users/123/orders/7", "/users/a%20b",
+            "/users/a%2", "/users/a%zz/orders", "/usersXYZ", "/users//orders",
+            "/files/report.pdf", "/files/a/b/c", "/words/a_b", "/words/a-b",
+            "/users/123?page=2", "/api/v1/items/42/details", "/a+b" };
+
+    private static final String[] TEMPLATES = { "", "/", "/users",
+            "/users/", "/users/{id}", "/users/{id}/", "/users/{id}/orders",
+            "/users/{id}/orders/{order}", "/users/{x}/orders",
+            "/files/{name}.{ext}", "/files/{path}", "/words/{word}",
+            "/{a}/{a}", "/api/v1/items/{id}/details", "/a+b", "{any}",
+            "/optional/{opt}" };
+
+    private Router createRouter(int matchingMode) {
+        Router router = new Router();
+        router.setRoutingMode(Router.MODE_COMPILED_BEST_MATCH);
+        Restlet target = new Restlet() {
+        };
+
+        for (String template : TEMPLATES) {
+            router.attach(template, target, matchingMode);
+        }
+
+        for (Route route : router.getRoutes()) {
+            Template template = ((TemplateRoute) route).getTemplate();
+
+            if (template.getPattern().equals("/users/{x}/orders")) {
+                template.getVariables().put("x",
+                        new Variable(Variable.TYPE_DIGIT));
+            } else if (template.getPattern().equals("/words/{word}")) {
+                template.getVariables().put("word",
+                        new Variable(Variable.TYPE_WORD));
+            } else if (template.getPattern().equals("/files/{path}")) {
+                template.getVariables().put("path",
+                        new Variable(Variable.TYPE_URI_PATH));
+            } else if (template.getPattern().equals("/optional/{opt}")) {
+                template.getVariables().put(
+                        "opt",
+                        new Variable(Variable.TYPE_URI_SEGMENT, "", false,
+                                false));
+            }
+        }
+
+        return router;
+    }
+
+    private Request createRequest(String path) {
+        Request request = new Request(Method.GET, "http://localhost/app"
+                + path);
+        request.getResourceRef().setBaseRef(
+                new Reference("http://localhost/app"));
+        return request;
+    }
+
+    private void testBest(int matchingMode) {
+        Router router = createRouter(matchingMode);
+        RouteTrie trie = new RouteTrie(router, router.getRoutes());
+
+        for (float requiredScore : new float[] { 0.5F, 0.9F }) {
+            router.setRequiredScore(requiredScore);
+
+            for (String path : PATHS) {
+                Request request = createRequest(path);
+                Response response = new Response(request);
+                assertSame(path, router.getRoutes().getBest(request, response,
+                        requiredScore), trie.getBest(request, response,
+                        requiredScore));
+            }
+        }
+    }
+
+    public void testCompiled() {
+        Router router = createRouter(Template.MODE_STARTS_WITH);
+        RouteTrie trie = new RouteTrie(router, router.getRoutes());
+
+        for (int i = 0; i < TEMPLATES.length; i++) {
+            String pattern = TEMPLATES[i];
+            boolean fallback = pattern.equals("/files/{name}.{ext}")
+                    || pattern.equals("/files/{path}")
+                    || pattern.equals("/{a}/{a}") || pattern.equals("/a+b");
+            assertEquals(pattern, !fallback, trie.isCompiled(i));
+        }
+
+        assertTrue(trie.isUpToDate(router.getRoutes()));
+        router.attach("/other", new Restlet() {
+        });
+        assertFalse(trie.isUpToDate(router.getRoutes()));
+    }
+
+    public void testEquals() {
+        testBest(Template.MODE_EQUALS);
+    }
+
+    public void testRouting() {
+        Router router = createRouter(Template.MODE_EQUALS);
+        Restlet users = new Restlet() {
+        };
+        router.attach("/users/{id}/profile", users);
+
+        Request request = createRequest("/users/123/profile");
+        assertSame(users, ((Route) router.getNext(request, new Response(
+                request))).getNext());
+
+        // The routes are compiled again after a change
+        Restlet invoices = new Restlet() {
+        };
+        router.attach("/users/{id}/invoices", invoices);
+        request = createRequest("/users/123/invoices");
+        assertSame(invoices, ((Route) router.getNext(request, new Response(
+                request))).getNext());
+
+        router.detach(invoices);
+        request = createRequest("/users/123/invoices");
+        assertNull(router.getNext(request, new Response(request)));
+    }
+
+    public void testStartsWith() {
+        testBest(Template.MODE_STARTS_WITH);
+    }
+
+}
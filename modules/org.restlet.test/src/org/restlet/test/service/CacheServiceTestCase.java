@@ -0,0 +1,276 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.test.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.restlet.Application;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.Dimension;
+import org.restlet.data.MediaType;
+import org.restlet.data.Method;
+import org.restlet.data.Preference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.engine.application.ClientCacheFilter;
+import org.restlet.representation.StringRepresentation;
+import org.restlet.service.CacheService;
+import org.restlet.test.RestletTestCase;
+
+/**
+ * Unit tests for the cache service.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheServiceTestCase extends RestletTestCase {
+
+    /** The number of calls reaching the root Restlet. */
+    private AtomicInteger calls;
+
+    /** The tested application. */
+    private Application application;
+
+    private Response handle(Method method, String path) {
+        return handle(new Request(method, "http://localhost" + path));
+    }
+
+    private Response handle(Request request) {
+        Response response = new Response(request);
+        this.application.handle(request, response);
+        return response;
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        this.calls = new AtomicInteger();
+        this.application = new Application() {
+            @Override
+            public Restlet createInboundRoot() {
+                return new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        int count = calls.incrementAndGet();
+
+                        if (Method.GET.equals(request.getMethod())) {
+                            response.setEntity(new StringRepresentation(
+                                    "count" + count, MediaType.TEXT_PLAIN));
+                            response.getEntity().setTag(new Tag("t" + count));
+
+                            if (request.getResourceRef().getPath()
+                                    .startsWith("/nostore")) {
+                                response.getCacheDirectives().add(
+                                        CacheDirective.noStore());
+                            } else {
+                                response.getCacheDirectives().add(
+                                        CacheDirective.maxAge(60));
+                            }
+
+                            if (request.getResourceRef().getPath()
+                                    .startsWith("/vary")) {
+                                response.getDimensions().add(
+                                        Dimension.MEDIA_TYPE);
+                            }
+                        }
+                    }
+                };
+            }
+        };
+        this.application.getCacheService().setEnabled(true);
+        this.application.start();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        this.application.stop();
+        this.application = null;
+        super.tearDown();
+    }
+
+    public void testClientCollapsing() throws Exception {
+        final ClientCacheFilter filter = new ClientCacheFilter(null,
+                new Restlet() {
+                    @Override
+                    public void handle(Request request, Response response) {
+                        calls.incrementAndGet();
+
+                        try {
+                            Thread.sleep(200);
+                        } catch (InterruptedException e) {
+                        }
+
+                        response.setEntity(new StringRepresentation("content"));
+                        response.getCacheDirectives().add(
+                                CacheDirective.maxAge(60));
+                    }
+                });
+        final List<String> texts = new ArrayList<String>();
+        List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 5; i++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    Request request = new Request(Method.GET,
+                            "http://localhost/test");
+                    Response response = new Response(request);
+                    filter.handle(request, response);
+
+                    synchronized (texts) {
+                        texts.add(response.getEntityAsText());
+                    }
+                }
+            });
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(5, texts.size());
+
+        for (String text : texts) {
+            assertEquals("content", text);
+        }
+    }
+
+    public void testClientRevalidation() throws Exception {
+        ClientCacheFilter filter = new ClientCacheFilter(null, new Restlet() {
+            @Override
+            public void handle(Request request, Response response) {
+                calls.incrementAndGet();
+
+                if (request.getConditions().getNoneMatch()
+                        .contains(new Tag("t"))) {
+                    response.setStatus(Status.REDIRECTION_NOT_MODIFIED);
+                } else {
+                    response.setEntity(new StringRepresentation("content"));
+                    response.getEntity().setTag(new Tag("t"));
+                }
+            }
+        });
+
+        for (int i = 0; i < 3; i++) {
+            Request request = new Request(Method.GET, "http://localhost/test");
+            Response response = new Response(request);
+            filter.handle(request, response);
+            assertEquals(Status.SUCCESS_OK, response.getStatus());
+            assertEquals("content", response.getEntityAsText());
+            assertFalse(request.getConditions().hasSome());
+        }
+
+        assertEquals(3, calls.get());
+        assertEquals(1, filter.getResponseCache().getEntryCount());
+
+        Request request = new Request(Method.DELETE, "http://localhost/test");
+        filter.handle(request, new Response(request));
+        assertEquals(0, filter.getResponseCache().getEntryCount());
+    }
+
+    public void testConditional() throws Exception {
+        handle(Method.GET, "/test");
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getConditions().getNoneMatch().add(new Tag("t1"));
+        Response response = handle(request);
+        assertEquals(Status.REDIRECTION_NOT_MODIFIED, response.getStatus());
+        assertEquals(1, calls.get());
+    }
+
+    public void testHit() throws Exception {
+        CacheService cacheService = this.application.getCacheService();
+        assertEquals("count1", handle(Method.GET, "/test").getEntityAsText());
+        assertEquals("count1", handle(Method.GET, "/test").getEntityAsText());
+        Response response = handle(Method.HEAD, "/test");
+        assertEquals(Status.SUCCESS_OK, response.getStatus());
+        assertEquals(new Tag("t1"), response.getEntity().getTag());
+        assertEquals(1, calls.get());
+        assertEquals(2, cacheService.getHitCount());
+        assertEquals(1, cacheService.getMissCount());
+        assertEquals(1, cacheService.getEntryCount());
+        assertEquals(6, cacheService.getSize());
+
+        Request request = new Request(Method.GET, "http://localhost/test");
+        request.getCacheDirectives().add(CacheDirective.noCache());
+        assertEquals("count2", handle(request).getEntityAsText());
+        assertEquals("count2", handle(Method.GET, "/test").getEntityAsText());
+    }
+
+    public void testInvalidation() throws Exception {
+        handle(Method.GET, "/test");
+        handle(Method.PUT, "/test");
+        assertEquals(0, this.application.getCacheService().getEntryCount());
+        assertEquals("count3", handle(Method.GET, "/test").getEntityAsText());
+    }
+
+    public void testNoStore() throws Exception {
+        handle(Method.GET, "/nostore");
+        assertEquals("count2", handle(Method.GET, "/nostore")
+                .getEntityAsText());
+        assertEquals(0, this.application.getCacheService().getEntryCount());
+    }
+
+    public void testSizeEviction() throws Exception {
+        CacheService cacheService = this.application.getCacheService();
+        cacheService.setMaxSize(12);
+        handle(Method.GET, "/a");
+        handle(Method.GET, "/b");
+        handle(Method.GET, "/c");
+        assertEquals(2, cacheService.getEntryCount());
+        assertEquals("count2", handle(Method.GET, "/b").getEntityAsText());
+        assertEquals("count4", handle(Method.GET, "/a").getEntityAsText());
+    }
+
+    public void testVary() throws Exception {
+        Request request = new Request(Method.GET, "http://localhost/vary");
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.TEXT_PLAIN));
+        assertEquals("count1", handle(request).getEntityAsText());
+        request = new Request(Method.GET, "http://localhost/vary");
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.TEXT_PLAIN));
+        assertEquals("count1", handle(request).getEntityAsText());
+        assertEquals("count2", handle(Method.GET, "/vary").getEntityAsText());
+        assertEquals(2, this.application.getCacheService().getEntryCount());
+    }
+}
@@ -51,6 +51,51 @@ import org.restlet.test.RestletTestCase;
  */
 public class ConnegServiceTestCase extends RestletTestCase {
 
+    public void testCachedVariants() {
+        List<Variant> variants = new ArrayList<Variant>();
+        variants.add(new Variant(MediaType.APPLICATION_XML));
+        variants.add(new Variant(MediaType.APPLICATION_JSON));
+
+        MetadataService metadataService = new MetadataService();
+        ConnegService connegService = new ConnegService();
+        connegService.setStrict(true);
+        assertNull(connegService.getVariants("key"));
+
+        connegService.setVariants("key", variants);
+        List<Variant> cached = connegService.getVariants("key");
+        assertEquals(variants, cached);
+        assertNotSame(variants.get(0), cached.get(0));
+
+        // Changes to the returned copies don't affect the cache
+        cached.get(0).setMediaType(MediaType.TEXT_PLAIN);
+        assertEquals(variants, connegService.getVariants("key"));
+        cached = connegService.getVariants("key");
+
+        Request request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.APPLICATION_JSON));
+        Variant preferedVariant = connegService.getPreferredVariant("key",
+                cached, request, metadataService);
+        assertSame(cached.get(1), preferedVariant);
+
+        // The cached negotiation applies to other copies of the variants
+        cached = connegService.getVariants("key");
+        assertSame(cached.get(1), connegService.getPreferredVariant("key",
+                cached, request, metadataService));
+
+        // Different preferences lead to a different negotiation
+        request = new Request();
+        request.getClientInfo().getAcceptedMediaTypes()
+                .add(new Preference<MediaType>(MediaType.TEXT_HTML));
+        assertNull(connegService.getPreferredVariant("key", cached, request,
+                metadataService));
+        assertNull(connegService.getPreferredVariant("key", cached, request,
+                metadataService));
+
+        connegService.clearCache();
+        assertNull(connegService.getVariants("key"));
+    }
+
     public void testStrict() {
         List<Variant> variants = new ArrayList<Variant>();
         Variant variant = new Variant(MediaType.APPLICATION_XML);
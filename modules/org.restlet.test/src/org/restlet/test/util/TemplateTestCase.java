@@ -90,6 +90,42 @@ public class TemplateTestCase extends RestletTestCase {
         assertEquals("123/456", variables3.get("v1"));
     }
 
+    public void testSegmentMatching() {
+        Template template = new Template("/users/{user}/orders/{order}");
+        template.getVariables().put("order",
+                new Variable(Variable.TYPE_DIGIT, "", false, false));
+
+        Map<String, Object> variables1 = new HashMap<String, Object>();
+        String string1 = "/users/j%20doe/orders/123";
+        assertEquals(string1.length(), template.parse(string1, variables1));
+        assertEquals("j%20doe", variables1.get("user"));
+        assertEquals("123", variables1.get("order"));
+
+        Map<String, Object> variables2 = new HashMap<String, Object>();
+        assertEquals(-1, template.parse("/users/jdoe/orders/12a", variables2));
+        assertEquals(-1, template.parse("/users//orders/123", variables2));
+        assertTrue(variables2.isEmpty());
+
+        // Optional variables can be empty
+        assertEquals(19, template.match("/users/jdoe/orders/"));
+
+        template.setMatchingMode(Template.MODE_STARTS_WITH);
+        assertEquals(22, template.match("/users/jdoe/orders/123/items"));
+        assertEquals(-1, template.match("/users/jdoe/items"));
+
+        Map<String, Object> values = new HashMap<String, Object>();
+        values.put("user", "jdoe");
+        values.put("order", 456);
+        assertEquals("/users/jdoe/orders/456", template.format(values));
+
+        // Variables followed by a character they accept need backtracking
+        Template dotted = new Template("{name}.{ext}");
+        Map<String, Object> variables3 = new HashMap<String, Object>();
+        assertEquals(14, dotted.parse("archive.tar.gz", variables3));
+        assertEquals("archive.tar", variables3.get("name"));
+        assertEquals("gz", variables3.get("ext"));
+    }
+
     public void testVariableNames() throws Exception {
         Template tpl = new Template(
                 "http://{userId}.restlet.com/invoices/{invoiceId}");
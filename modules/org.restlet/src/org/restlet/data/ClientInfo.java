@@ -36,6 +36,10 @@ package org.restlet.data;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -132,13 +136,87 @@ import org.restlet.engine.io.IoUtils;
  */
 public final class ClientInfo {
 
+    // [ifndef gwt] member
+    /** The maximum number of user agent names whose parsed data is cached. */
+    private static final int AGENT_CACHE_MAX_SIZE = 1024;
+
+    // [ifndef gwt] member
+    /** The attributes parsed from recently seen user agent names. */
+    private static final Map<String, Map<String, String>> agentAttributesCache = createAgentCache();
+
+    // [ifndef gwt] member
+    /** The product tokens parsed from recently seen user agent names. */
+    private static final Map<String, List<Product>> agentProductsCache = createAgentCache();
+
     // [ifndef gwt] member
     /**
-     * List of user-agent templates defined in "agent.properties" file.<br>
+     * List of compiled user-agent templates defined in "agent.properties"
+     * file.<br>
      * 
      * @see The {@link ClientInfo#getAgentAttributes()} method.
      */
-    private static volatile List<String> userAgentTemplates = null;
+    private static volatile List<org.restlet.routing.Template> userAgentTemplates = null;
+
+    // [ifndef gwt] method
+    /**
+     * Creates a cache of data parsed from user agent names, evicting its least
+     * recently used entries once its maximum size is reached.
+     * 
+     * @return The new cache.
+     */
+    private static <V> Map<String, V> createAgentCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > AGENT_CACHE_MAX_SIZE;
+            }
+        });
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Creates a compiled user-agent template, with the predefined variables.
+     * 
+     * @param pattern
+     *            The template pattern.
+     * @return The compiled user-agent template.
+     */
+    private static org.restlet.routing.Template createUserAgentTemplate(
+            String pattern) {
+        // Some defined variables are used in order to catch the name,
+        // version and optional comment. Respectively, these variables are
+        // called "agentName", "agentVersion" and "agentComment".
+        org.restlet.routing.Template result = new org.restlet.routing.Template(
+                pattern, org.restlet.routing.Template.MODE_EQUALS);
+        org.restlet.routing.Variable agentCommentAttribute = new org.restlet.routing.Variable(
+                org.restlet.routing.Variable.TYPE_COMMENT_ATTRIBUTE);
+        result.getVariables().put(
+                "agentName",
+                new org.restlet.routing.Variable(
+                        org.restlet.routing.Variable.TYPE_TOKEN));
+        result.getVariables().put(
+                "agentVersion",
+                new org.restlet.routing.Variable(
+                        org.restlet.routing.Variable.TYPE_TOKEN));
+        result.getVariables().put(
+                "agentComment",
+                new org.restlet.routing.Variable(
+                        org.restlet.routing.Variable.TYPE_COMMENT));
+        result.getVariables().put("agentOs", agentCommentAttribute);
+        result.getVariables().put("commentAttribute", agentCommentAttribute);
+        result.getVariables().put(
+                "facultativeData",
+                new org.restlet.routing.Variable(
+                        org.restlet.routing.Variable.TYPE_ALL, null, false,
+                        false));
+
+        // Compile the template once
+        result.match("");
+        return result;
+    }
 
     // [ifndef gwt] method
     /**
@@ -173,16 +251,16 @@ public final class ClientInfo {
 
     // [ifndef gwt] method
     /**
-     * Returns the list of user-agent templates defined in "agent.properties"
-     * file.
+     * Returns the list of compiled user-agent templates defined in
+     * "agent.properties" file.
      * 
-     * @return The list of user-agent templates defined in "agent.properties"
-     *         file.
+     * @return The list of compiled user-agent templates defined in
+     *         "agent.properties" file.
      * @see The {@link ClientInfo#getAgentAttributes()} method.
      */
-    private static List<String> getUserAgentTemplates() {
+    private static List<org.restlet.routing.Template> getUserAgentTemplates() {
         // Lazy initialization with double-check.
-        List<String> u = ClientInfo.userAgentTemplates;
+        List<org.restlet.routing.Template> u = ClientInfo.userAgentTemplates;
         if (u == null) {
             synchronized (ClientInfo.class) {
                 u = ClientInfo.userAgentTemplates;
@@ -202,9 +280,9 @@ public final class ClientInfo {
                                 if ((line.trim().length() > 0)
                                         && !line.trim().startsWith("#")) {
                                     if (u == null) {
-                                        u = new CopyOnWriteArrayList<String>();
+                                        u = new CopyOnWriteArrayList<org.restlet.routing.Template>();
                                     }
-                                    u.add(line);
+                                    u.add(createUserAgentTemplate(line));
                                 }
                             }
                             reader.close();
@@ -228,6 +306,36 @@ public final class ClientInfo {
         return u;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Parses the attributes of a user agent name, using the first matching
+     * user-agent template.
+     * 
+     * @param agent
+     *            The user agent name.
+     * @return The attributes of the user agent name.
+     */
+    private static Map<String, String> parseAgentAttributes(String agent) {
+        Map<String, String> result = new HashMap<String, String>();
+        List<org.restlet.routing.Template> templates = getUserAgentTemplates();
+
+        if (templates != null) {
+            Map<String, Object> map = new HashMap<String, Object>();
+
+            for (org.restlet.routing.Template template : templates) {
+                // Parse the template
+                if (template.parse(agent, map) > -1) {
+                    for (String key : map.keySet()) {
+                        result.put(key, (String) map.get(key));
+                    }
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /** The character set preferences. */
     private volatile List<Preference<CharacterSet>> acceptedCharacterSets;
 
@@ -541,56 +649,25 @@ public final class ClientInfo {
      */
     public Map<String, String> getAgentAttributes() {
         if (this.agentAttributes == null) {
-            this.agentAttributes = new ConcurrentHashMap<String, String>();
-            Map<String, Object> map = new ConcurrentHashMap<String, Object>();
+            Map<String, String> attributes = new ConcurrentHashMap<String, String>();
+            String agent = getAgent();
 
             // Loop on a list of user-agent templates until a template match
             // the current user-agent string. The list of templates is
             // located in a file named "agent.properties" available on
-            // the classpath.
-            // Some defined variables are used in order to catch the name,
-            // version and optional comment. Respectively, these
-            // variables are called "agentName", "agentVersion" and
-            // "agentComment".
-            org.restlet.routing.Template template = null;
-            // Predefined variables.
-            org.restlet.routing.Variable agentName = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_TOKEN);
-            org.restlet.routing.Variable agentVersion = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_TOKEN);
-            org.restlet.routing.Variable agentComment = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_COMMENT);
-            org.restlet.routing.Variable agentCommentAttribute = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_COMMENT_ATTRIBUTE);
-            org.restlet.routing.Variable facultativeData = new org.restlet.routing.Variable(
-                    org.restlet.routing.Variable.TYPE_ALL, null, false, false);
-
-            if (ClientInfo.getUserAgentTemplates() != null) {
-                for (String string : ClientInfo.getUserAgentTemplates()) {
-                    template = new org.restlet.routing.Template(string,
-                            org.restlet.routing.Template.MODE_EQUALS);
-
-                    // Update the predefined variables.
-                    template.getVariables().put("agentName", agentName);
-                    template.getVariables().put("agentVersion", agentVersion);
-                    template.getVariables().put("agentComment", agentComment);
-                    template.getVariables().put("agentOs",
-                            agentCommentAttribute);
-                    template.getVariables().put("commentAttribute",
-                            agentCommentAttribute);
-                    template.getVariables().put("facultativeData",
-                            facultativeData);
-
-                    // Parse the template
-                    if (template.parse(getAgent(), map) > -1) {
-                        for (String key : map.keySet()) {
-                            this.agentAttributes
-                                    .put(key, (String) map.get(key));
-                        }
-                        break;
-                    }
+            // the classpath. The result is cached per user-agent string.
+            if (agent != null) {
+                Map<String, String> parsed = agentAttributesCache.get(agent);
+
+                if (parsed == null) {
+                    parsed = parseAgentAttributes(agent);
+                    agentAttributesCache.put(agent, parsed);
                 }
+
+                attributes.putAll(parsed);
             }
+
+            this.agentAttributes = attributes;
         }
 
         return this.agentAttributes;
@@ -621,8 +698,27 @@ public final class ClientInfo {
      */
     public List<Product> getAgentProducts() {
         if (this.agentProducts == null) {
-            this.agentProducts = org.restlet.engine.header.ProductReader
-                    .read(getAgent());
+            String agent = getAgent();
+            List<Product> parsed = (agent == null) ? null : agentProductsCache
+                    .get(agent);
+
+            if (parsed == null) {
+                parsed = org.restlet.engine.header.ProductReader.read(agent);
+
+                if (agent != null) {
+                    agentProductsCache.put(agent, parsed);
+                }
+            }
+
+            // Products are mutable, copy them for this instance
+            List<Product> products = new ArrayList<Product>(parsed.size());
+
+            for (Product product : parsed) {
+                products.add(new Product(product.getName(), product
+                        .getVersion(), product.getComment()));
+            }
+
+            this.agentProducts = products;
         }
         return this.agentProducts;
     }
@@ -43,6 +43,10 @@ public final class Encoding extends Metadata {
     /** All encodings acceptable. */
     public static final Encoding ALL = new Encoding("*", "All encodings");
 
+    /** The Brotli compression. */
+    public static final Encoding BROTLI = new Encoding("br",
+            "Brotli compression");
+
     /** The common Unix file compression. */
     public static final Encoding COMPRESS = new Encoding("compress",
             "Common Unix compression");
@@ -87,6 +91,8 @@ public final class Encoding extends Metadata {
                 result = GZIP;
             } else if (name.equalsIgnoreCase(ZIP.getName())) {
                 result = ZIP;
+            } else if (name.equalsIgnoreCase(BROTLI.getName())) {
+                result = BROTLI;
             } else if (name.equalsIgnoreCase(COMPRESS.getName())) {
                 result = COMPRESS;
             } else if (name.equalsIgnoreCase(DEFLATE.getName())) {
@@ -297,6 +297,8 @@ public final class Method implements Comparable<Method> {
     /**
      * Returns the method associated to a given method name. If an existing
      * constant exists then it is returned, otherwise a new instance is created.
+     * As the methods are registered by the protocol helpers, the engine is
+     * first asked to discover them if the name is unknown.
      * 
      * @param name
      *            The method name.
@@ -306,7 +308,15 @@ public final class Method implements Comparable<Method> {
         Method result = null;
 
         if ((name != null) && !name.equals("")) {
-            result = Method._methods.get(name.toLowerCase());
+            String key = name.toLowerCase();
+            result = Method._methods.get(key);
+
+            if (result == null) {
+                // Protocol helpers are discovered on first use
+                Engine.getInstance().getRegisteredProtocols();
+                result = Method._methods.get(key);
+            }
+
             if (result == null) {
                 result = new Method(name);
             }
@@ -38,9 +38,15 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -63,6 +69,11 @@ import org.restlet.engine.log.LoggerFacade;
  * , {@link ClientHelper}, {@link org.restlet.engine.converter.ConverterHelper}
  * and {@link ServerHelper} classes.<br>
  * <br>
+ * The helpers are discovered using the descriptors available in the
+ * "META-INF/services" directories of the classpath, or using the index
+ * generated by {@link HelperIndexGenerator} when available. The helpers are
+ * only discovered when first needed.<br>
+ * <br>
  * Note that by default the JULI logging mechanism is used but it is possible to
  * replace it by providing an alternate {@link LoggerFacade} implementation. For
  * this, just pass a system property named
@@ -90,6 +101,8 @@ public class Engine {
     public static final String DESCRIPTOR_CONVERTER_PATH = DESCRIPTOR + "/"
             + DESCRIPTOR_CONVERTER;
 
+    public static final String DESCRIPTOR_INDEX_PATH = "META-INF/restlet/helpers.index";
+
     public static final String DESCRIPTOR_PROTOCOL = "org.restlet.engine.ProtocolHelper";
 
     public static final String DESCRIPTOR_PROTOCOL_PATH = DESCRIPTOR + "/"
@@ -144,25 +157,22 @@ public class Engine {
 
     // [ifndef gwt] method
     /**
-     * Creates a new standalone thread with local Restlet thread variable
-     * properly set.
+     * Wraps a runnable task so that it runs with the local Restlet thread
+     * variables of the current thread, clearing them afterwards.
      * 
      * @param runnable
      *            The runnable task to execute.
-     * @param name
-     *            The thread name.
-     * @return The thread with proper variables ready to run the given runnable
-     *         task.
+     * @return The runnable task with proper variables ready to run.
      */
-    public static Thread createThreadWithLocalVariables(
-            final Runnable runnable, String name) {
+    public static Runnable createRunnableWithLocalVariables(
+            final Runnable runnable) {
         // Save the thread local variables
         final org.restlet.Application currentApplication = org.restlet.Application.getCurrent();
         final Context currentContext = Context.getCurrent();
         final Integer currentVirtualHost = org.restlet.routing.VirtualHost.getCurrent();
         final Response currentResponse = Response.getCurrent();
 
-        return new Thread(new Runnable() {
+        return new Runnable() {
 
             @Override
             public void run() {
@@ -180,7 +190,24 @@ public class Engine {
                 }
             }
 
-        }, name);
+        };
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Creates a new standalone thread with local Restlet thread variable
+     * properly set.
+     * 
+     * @param runnable
+     *            The runnable task to execute.
+     * @param name
+     *            The thread name.
+     * @return The thread with proper variables ready to run the given runnable
+     *         task.
+     */
+    public static Thread createThreadWithLocalVariables(
+            final Runnable runnable, String name) {
+        return new Thread(createRunnableWithLocalVariables(runnable), name);
     }
 
     // [ifndef gwt] method
@@ -436,13 +463,37 @@ public class Engine {
         configureLog();
     }
 
+    // [ifndef gwt] member
+    /** Indicates if the authenticator helpers have been discovered. */
+    private volatile boolean authenticatorsDiscovered;
+
     // [ifndef gwt] member
     /** Class loader to use for dynamic class loading. */
     private volatile ClassLoader classLoader;
 
+    // [ifndef gwt] member
+    /** Indicates if the client and server connectors have been discovered. */
+    private volatile boolean connectorsDiscovered;
+
+    // [ifndef gwt] member
+    /** Indicates if the converter helpers have been discovered. */
+    private volatile boolean convertersDiscovered;
+
+    // [ifndef gwt] member
+    /** The kinds of helpers being discovered by the current thread. */
+    private final ThreadLocal<Set<String>> discovering = new ThreadLocal<Set<String>>();
+
+    // [ifndef gwt] member
+    /** The helper providers read from the optional index, by descriptor. */
+    private volatile Map<String, List<String>> helperIndex;
+
     /** The logger facade to use. */
     private LoggerFacade loggerFacade;
 
+    // [ifndef gwt] member
+    /** Indicates if the protocol helpers have been discovered. */
+    private volatile boolean protocolsDiscovered;
+
     // [ifndef gwt] member
     /** List of available authenticator helpers. */
     private final List<org.restlet.engine.security.AuthenticatorHelper> registeredAuthenticators;
@@ -513,21 +564,29 @@ public class Engine {
         this.registeredConverters = new CopyOnWriteArrayList<org.restlet.engine.converter.ConverterHelper>();
         // [enddef]
 
+        // [ifndef gwt]
+        // The helpers are discovered on first use
+        this.authenticatorsDiscovered = !discoverHelpers;
+        this.connectorsDiscovered = !discoverHelpers;
+        this.convertersDiscovered = !discoverHelpers;
+        this.protocolsDiscovered = !discoverHelpers;
+        // [enddef]
+
         if (discoverHelpers) {
+            // [ifndef gwt]
             try {
-                discoverConnectors();
-                discoverProtocols();
-
-                // [ifndef gwt]
-                discoverAuthenticators();
-                discoverConverters();
-                // [enddef]
+                this.helperIndex = readHelperIndex();
             } catch (IOException e) {
                 Context.getCurrentLogger()
                         .log(Level.WARNING,
-                                "An error occured while discovering the engine helpers.",
+                                "An error occured while reading the helper index.",
                                 e);
             }
+            // [enddef]
+            // [ifdef gwt] uncomment
+            // registerDefaultConnectors();
+            // registerDefaultProtocols();
+            // [enddef]
         }
     }
 
@@ -671,54 +730,155 @@ public class Engine {
 
     // [ifndef gwt] method
     /**
-     * Discovers the authenticator helpers and register the default helpers.
-     * 
-     * @throws IOException
+     * Discovers the authenticator helpers and register the default helpers,
+     * unless it was already done.
      */
-    private void discoverAuthenticators() throws IOException {
-        registerHelpers(DESCRIPTOR_AUTHENTICATOR_PATH,
-                getRegisteredAuthenticators(), null);
-        registerDefaultAuthentications();
+    private void discoverAuthenticators() {
+        if (!this.authenticatorsDiscovered) {
+            long start = System.nanoTime();
+            List<org.restlet.engine.security.AuthenticatorHelper> helpers = new ArrayList<org.restlet.engine.security.AuthenticatorHelper>();
+
+            // Instantiate the helpers outside of the lock of the list, as
+            // their constructors may use the engine from other threads
+            discoverHelpers("authenticator", DESCRIPTOR_AUTHENTICATOR_PATH,
+                    helpers, null);
+
+            synchronized (this.registeredAuthenticators) {
+                if (!this.authenticatorsDiscovered) {
+                    this.registeredAuthenticators.addAll(helpers);
+                    registerDefaultAuthentications();
+                    this.authenticatorsDiscovered = true;
+                    logDiscovery("authenticator", start);
+                }
+            }
+        }
     }
 
+    // [ifndef gwt] method
     /**
      * Discovers the server and client connectors and register the default
-     * connectors.
-     * 
-     * @throws IOException
+     * connectors, unless it was already done or is in progress. Both lists are
+     * updated under the lock of the client connectors list.
      */
-    private void discoverConnectors() throws IOException {
-        // [ifndef gwt]
-        registerHelpers(DESCRIPTOR_CLIENT_PATH, getRegisteredClients(),
-                Client.class);
-        registerHelpers(DESCRIPTOR_SERVER_PATH, getRegisteredServers(),
-                org.restlet.Server.class);
-        // [enddef]
-        registerDefaultConnectors();
+    private void discoverConnectors() {
+        if (!this.connectorsDiscovered && !isDiscovering("client")
+                && !isDiscovering("server")
+                && !Thread.holdsLock(this.registeredClients)) {
+            long start = System.nanoTime();
+            List<ConnectorHelper<Client>> clients = new ArrayList<ConnectorHelper<Client>>();
+            List<ConnectorHelper<org.restlet.Server>> servers = new ArrayList<ConnectorHelper<org.restlet.Server>>();
+
+            // Instantiate the helpers outside of the lock of the lists, as
+            // their constructors may use the engine from other threads
+            discoverHelpers("client", DESCRIPTOR_CLIENT_PATH, clients,
+                    Client.class);
+            discoverHelpers("server", DESCRIPTOR_SERVER_PATH, servers,
+                    org.restlet.Server.class);
+
+            synchronized (this.registeredClients) {
+                if (!this.connectorsDiscovered) {
+                    this.registeredClients.addAll(clients);
+                    this.registeredServers.addAll(servers);
+                    registerDefaultConnectors();
+                    this.connectorsDiscovered = true;
+                    logDiscovery("connector", start);
+                }
+            }
+        }
     }
 
     // [ifndef gwt] method
     /**
-     * Discovers the converter helpers and register the default helpers.
-     * 
-     * @throws IOException
+     * Discovers the converter helpers and register the default helpers,
+     * unless it was already done.
      */
-    private void discoverConverters() throws IOException {
-        registerHelpers(DESCRIPTOR_CONVERTER_PATH, getRegisteredConverters(),
-                null);
-        registerDefaultConverters();
+    private void discoverConverters() {
+        if (!this.convertersDiscovered) {
+            long start = System.nanoTime();
+            List<org.restlet.engine.converter.ConverterHelper> helpers = new ArrayList<org.restlet.engine.converter.ConverterHelper>();
+
+            // Instantiate the helpers outside of the lock of the list, as
+            // their constructors may use the engine from other threads
+            discoverHelpers("converter", DESCRIPTOR_CONVERTER_PATH, helpers,
+                    null);
+
+            synchronized (this.registeredConverters) {
+                if (!this.convertersDiscovered) {
+                    this.registeredConverters.addAll(helpers);
+                    registerDefaultConverters();
+                    this.convertersDiscovered = true;
+                    logDiscovery("converter", start);
+                }
+            }
+        }
     }
 
+    // [ifndef gwt] method
     /**
-     * Discovers the protocol helpers and register the default helpers.
+     * Instantiates the helpers declared for a given descriptor, marking the
+     * current thread as discovering this kind of helpers so that they can't
+     * trigger their own discovery again.
      * 
-     * @throws IOException
+     * @param kind
+     *            The kind of helpers discovered.
+     * @param descriptorPath
+     *            Classpath to the descriptor file.
+     * @param helpers
+     *            The list of helpers to update.
+     * @param constructorClass
+     *            The constructor parameter class to look for.
      */
-    private void discoverProtocols() throws IOException {
-        // [ifndef gwt] instruction
-        registerHelpers(DESCRIPTOR_PROTOCOL_PATH, getRegisteredProtocols(),
-                null);
-        registerDefaultProtocols();
+    private void discoverHelpers(String kind, String descriptorPath,
+            List<?> helpers, Class<?> constructorClass) {
+        Set<String> kinds = this.discovering.get();
+
+        if (kinds == null) {
+            kinds = new HashSet<String>();
+            this.discovering.set(kinds);
+        }
+
+        kinds.add(kind);
+
+        try {
+            registerHelpers(descriptorPath, helpers, constructorClass);
+        } catch (IOException e) {
+            Context.getCurrentLogger().log(Level.WARNING,
+                    "An error occured while discovering the " + kind
+                            + " helpers.", e);
+        } finally {
+            kinds.remove(kind);
+
+            if (kinds.isEmpty()) {
+                this.discovering.remove();
+            }
+        }
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Discovers the protocol helpers and register the default helpers, unless
+     * it was already done or is in progress.
+     */
+    private void discoverProtocols() {
+        if (!this.protocolsDiscovered && !isDiscovering("protocol")
+                && !Thread.holdsLock(this.registeredProtocols)) {
+            long start = System.nanoTime();
+            List<ProtocolHelper> helpers = new ArrayList<ProtocolHelper>();
+
+            // Instantiate the helpers outside of the lock of the list, as
+            // their constructors may use the engine from other threads
+            discoverHelpers("protocol", DESCRIPTOR_PROTOCOL_PATH, helpers,
+                    null);
+
+            synchronized (this.registeredProtocols) {
+                if (!this.protocolsDiscovered) {
+                    this.registeredProtocols.addAll(helpers);
+                    registerDefaultProtocols();
+                    this.protocolsDiscovered = true;
+                    logDiscovery("protocol", start);
+                }
+            }
+        }
     }
 
     // [ifndef gwt] method
@@ -796,7 +956,7 @@ public class Engine {
      *            The line to parse.
      * @return The provider's class name or an empty string.
      */
-    private String getProviderClassName(String line) {
+    static String getProviderClassName(String line) {
         final int index = line.indexOf('#');
         if (index != -1) {
             line = line.substring(0, index);
@@ -811,6 +971,12 @@ public class Engine {
      * @return The list of available authentication helpers.
      */
     public List<org.restlet.engine.security.AuthenticatorHelper> getRegisteredAuthenticators() {
+        // Discover the helpers on first use, except during the discovery
+        if (!this.authenticatorsDiscovered && !isDiscovering("authenticator")
+                && !Thread.holdsLock(this.registeredAuthenticators)) {
+            discoverAuthenticators();
+        }
+
         return this.registeredAuthenticators;
     }
 
@@ -820,6 +986,10 @@ public class Engine {
      * @return The list of available client connectors.
      */
     public List<ConnectorHelper<Client>> getRegisteredClients() {
+        // Discover the helpers on first use
+        // [ifndef gwt] instruction
+        discoverConnectors();
+
         return this.registeredClients;
     }
 
@@ -830,6 +1000,12 @@ public class Engine {
      * @return The list of available converters.
      */
     public List<org.restlet.engine.converter.ConverterHelper> getRegisteredConverters() {
+        // Discover the helpers on first use, except during the discovery
+        if (!this.convertersDiscovered && !isDiscovering("converter")
+                && !Thread.holdsLock(this.registeredConverters)) {
+            discoverConverters();
+        }
+
         return registeredConverters;
     }
 
@@ -839,6 +1015,10 @@ public class Engine {
      * @return The list of available protocol connectors.
      */
     public List<ProtocolHelper> getRegisteredProtocols() {
+        // Discover the helpers on first use
+        // [ifndef gwt] instruction
+        discoverProtocols();
+
         return this.registeredProtocols;
     }
 
@@ -849,6 +1029,10 @@ public class Engine {
      * @return The list of available server connectors.
      */
     public List<ConnectorHelper<org.restlet.Server>> getRegisteredServers() {
+        // Discover the helpers on first use
+        // [ifndef gwt] instruction
+        discoverConnectors();
+
         return this.registeredServers;
     }
 
@@ -863,6 +1047,111 @@ public class Engine {
         return userClassLoader;
     }
 
+    // [ifndef gwt] method
+    /**
+     * Indicates if the current thread is discovering a given kind of helpers.
+     * 
+     * @param kind
+     *            The kind of helpers.
+     * @return True if the current thread is discovering this kind of helpers.
+     */
+    private boolean isDiscovering(String kind) {
+        Set<String> kinds = this.discovering.get();
+        return (kinds != null) && kinds.contains(kind);
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Logs the duration of a helper discovery phase.
+     * 
+     * @param helpers
+     *            The kind of helpers discovered.
+     * @param start
+     *            The start time of the phase in nanoseconds.
+     */
+    private void logDiscovery(String helpers, long start) {
+        Logger logger = Context.getCurrentLogger();
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Discovered the " + helpers + " helpers in "
+                    + ((System.nanoTime() - start) / 1000000) + " ms");
+        }
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Reads the optional helper index generated by the
+     * {@link HelperIndexGenerator} class and available at the
+     * {@link #DESCRIPTOR_INDEX_PATH} location. The index is only trusted if
+     * its fingerprint matches the one of the current classpath, in which case
+     * the descriptors aren't looked up at all.
+     * 
+     * @return The helper providers by descriptor or null if no valid index
+     *         exists.
+     * @throws IOException
+     */
+    private Map<String, List<String>> readHelperIndex() throws IOException {
+        Map<String, List<String>> result = null;
+        long start = System.nanoTime();
+        java.net.URL indexUrl = getClassLoader().getResource(
+                DESCRIPTOR_INDEX_PATH);
+
+        if (indexUrl != null) {
+            result = new HashMap<String, List<String>>();
+            BufferedReader reader = null;
+
+            try {
+                reader = new BufferedReader(new InputStreamReader(
+                        indexUrl.openStream(), "utf-8"), IoUtils.BUFFER_SIZE);
+                String line = reader.readLine();
+
+                while (line != null) {
+                    line = getProviderClassName(line);
+                    int index = line.indexOf('=');
+
+                    if (index != -1) {
+                        String descriptor = line.substring(0, index).trim();
+                        List<String> providers = result.get(descriptor);
+
+                        if (providers == null) {
+                            providers = new ArrayList<String>();
+                            result.put(descriptor, providers);
+                        }
+
+                        providers.add(line.substring(index + 1).trim());
+                    }
+
+                    line = reader.readLine();
+                }
+            } finally {
+                if (reader != null) {
+                    reader.close();
+                }
+            }
+
+            List<String> fingerprints = result
+                    .get(HelperIndexGenerator.FINGERPRINT);
+
+            if ((fingerprints != null)
+                    && fingerprints.contains(HelperIndexGenerator
+                            .getFingerprint(getClassLoader()))) {
+                Context.getCurrentLogger().info(
+                        "Using the helper index at " + indexUrl
+                                + ", read in "
+                                + ((System.nanoTime() - start) / 1000000)
+                                + " ms");
+            } else {
+                Context.getCurrentLogger().warning(
+                        "The helper index at " + indexUrl
+                                + " doesn't match the current classpath, "
+                                + "scanning the helper descriptors instead");
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
     // [ifndef gwt] method
     /**
      * Registers the default authentication helpers.
@@ -1013,13 +1302,24 @@ public class Engine {
     public void registerHelpers(String descriptorPath, List<?> helpers,
             Class<?> constructorClass) throws IOException {
         ClassLoader classLoader = getClassLoader();
-        Enumeration<java.net.URL> configUrls = classLoader
-                .getResources(descriptorPath);
-
-        if (configUrls != null) {
-            for (Enumeration<java.net.URL> configEnum = configUrls; configEnum
-                    .hasMoreElements();) {
-                registerHelpers(classLoader, configEnum.nextElement(), helpers,
+        Map<String, List<String>> index = this.helperIndex;
+
+        if (index != null) {
+            // Use the providers of the validated index instead of scanning
+            // the descriptors of the classpath
+            List<String> providers = index.get(descriptorPath
+                    .substring(descriptorPath.lastIndexOf('/') + 1));
+
+            if (providers != null) {
+                for (String provider : providers) {
+                    registerHelper(classLoader, provider, helpers,
+                            constructorClass);
+                }
+            }
+        } else {
+            for (java.net.URL configUrl : Collections.list(classLoader
+                    .getResources(descriptorPath))) {
+                registerHelpers(classLoader, configUrl, helpers,
                         constructorClass);
             }
         }
@@ -1120,6 +1420,8 @@ public class Engine {
     public void setRegisteredAuthenticators(
             List<org.restlet.engine.security.AuthenticatorHelper> registeredAuthenticators) {
         synchronized (this.registeredAuthenticators) {
+            this.authenticatorsDiscovered = true;
+
             if (registeredAuthenticators != this.registeredAuthenticators) {
                 this.registeredAuthenticators.clear();
 
@@ -1139,6 +1441,9 @@ public class Engine {
      */
     public void setRegisteredClients(
             List<ConnectorHelper<Client>> registeredClients) {
+        // [ifndef gwt] instruction
+        discoverConnectors();
+
         synchronized (this.registeredClients) {
             if (registeredClients != this.registeredClients) {
                 this.registeredClients.clear();
@@ -1160,6 +1465,8 @@ public class Engine {
     public void setRegisteredConverters(
             List<org.restlet.engine.converter.ConverterHelper> registeredConverters) {
         synchronized (this.registeredConverters) {
+            this.convertersDiscovered = true;
+
             if (registeredConverters != this.registeredConverters) {
                 this.registeredConverters.clear();
 
@@ -1177,6 +1484,9 @@ public class Engine {
      *            The list of available protocol helpers.
      */
     public void setRegisteredProtocols(List<ProtocolHelper> registeredProtocols) {
+        // [ifndef gwt] instruction
+        discoverProtocols();
+
         synchronized (this.registeredProtocols) {
             if (registeredProtocols != this.registeredProtocols) {
                 this.registeredProtocols.clear();
@@ -1197,6 +1507,9 @@ public class Engine {
      */
     public void setRegisteredServers(
             List<ConnectorHelper<org.restlet.Server>> registeredServers) {
+        // [ifndef gwt] instruction
+        discoverConnectors();
+
         synchronized (this.registeredServers) {
             if (registeredServers != this.registeredServers) {
                 this.registeredServers.clear();
@@ -0,0 +1,208 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Collections;
+import java.util.List;
+
+import org.restlet.engine.io.IoUtils;
+
+// [excludes gwt]
+/**
+ * Generates the helper index read by the {@link Engine} at startup. The index
+ * lists, in classpath order, the providers declared by the helper descriptors
+ * found in the "META-INF/services" directories. When available at the
+ * {@link Engine#DESCRIPTOR_INDEX_PATH} location, it replaces the scanning of
+ * those descriptors in all the JAR files of the classpath.<br>
+ * <br>
+ * This class is meant to be invoked when packaging an application, with the
+ * same classpath as the deployed application and the path of the index file
+ * to generate as its single argument. The index records a fingerprint of the
+ * names of the classpath entries, so it must be generated again each time a
+ * JAR file is added, removed or renamed, otherwise the engine detects the
+ * mismatch and falls back to scanning the descriptors.
+ * 
+ * @author Jerome Louvel
+ */
+public class HelperIndexGenerator {
+
+    /** The index key of the classpath fingerprint. */
+    static final String FINGERPRINT = "fingerprint";
+
+    /** The helper descriptors to index. */
+    private static final String[] DESCRIPTORS = { Engine.DESCRIPTOR_CLIENT,
+            Engine.DESCRIPTOR_SERVER, Engine.DESCRIPTOR_PROTOCOL,
+            Engine.DESCRIPTOR_AUTHENTICATOR, Engine.DESCRIPTOR_CONVERTER };
+
+    /**
+     * Writes the helper index for the descriptors available in the given
+     * class loader. Each line associates a descriptor to a provider class
+     * name, separated by an equal sign. An additional line records the
+     * fingerprint of the class loader, as returned by
+     * {@link #getFingerprint(ClassLoader)}, allowing the engine to detect a
+     * stale index without scanning the descriptors.
+     * 
+     * @param classLoader
+     *            The class loader to scan.
+     * @param writer
+     *            The writer of the index.
+     * @throws IOException
+     */
+    public static void generate(ClassLoader classLoader, Writer writer)
+            throws IOException {
+        writer.write("# Restlet helper index, generated by "
+                + HelperIndexGenerator.class.getName() + "\n");
+        writer.write(FINGERPRINT + "=" + getFingerprint(classLoader) + "\n");
+
+        for (String descriptor : DESCRIPTORS) {
+            List<java.net.URL> configUrls = Collections.list(classLoader
+                    .getResources(Engine.DESCRIPTOR + "/" + descriptor));
+
+            for (java.net.URL configUrl : configUrls) {
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(configUrl.openStream(), "utf-8"),
+                        IoUtils.BUFFER_SIZE);
+
+                try {
+                    String line = reader.readLine();
+
+                    while (line != null) {
+                        String provider = Engine.getProviderClassName(line);
+
+                        if (!provider.equals("")) {
+                            writer.write(descriptor + "=" + provider + "\n");
+                        }
+
+                        line = reader.readLine();
+                    }
+                } finally {
+                    reader.close();
+                }
+            }
+        }
+
+        writer.flush();
+    }
+
+    /**
+     * Returns a fingerprint of the classpath visible from the given class
+     * loader. It is computed from the names of the entries of the URL class
+     * loaders in the delegation chain and of the "java.class.path" system
+     * property, without their parent directories so that the index can be
+     * generated at build time and deployed elsewhere.
+     * 
+     * @param classLoader
+     *            The class loader.
+     * @return The fingerprint of the classpath.
+     */
+    static String getFingerprint(ClassLoader classLoader) {
+        StringBuilder sb = new StringBuilder();
+
+        for (ClassLoader cl = classLoader; cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    sb.append(getEntryName(url.getPath())).append('\n');
+                }
+            }
+        }
+
+        String classPath = System.getProperty("java.class.path");
+
+        if (classPath != null) {
+            for (String entry : classPath.split(File.pathSeparator)) {
+                sb.append(getEntryName(entry.replace(File.separatorChar, '/')))
+                        .append('\n');
+            }
+        }
+
+        return Integer.toHexString(sb.toString().hashCode());
+    }
+
+    /**
+     * Returns the name of a classpath entry, ignoring its parent directories.
+     * 
+     * @param path
+     *            The path of the entry, using '/' as a separator.
+     * @return The name of the entry.
+     */
+    private static String getEntryName(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        return path.substring(path.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * Generates the helper index for the current classpath.
+     * 
+     * @param args
+     *            The path of the index file to generate.
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java "
+                    + HelperIndexGenerator.class.getName() + " <index file>");
+        } else {
+            File file = new File(args[0]);
+
+            if (file.getParentFile() != null) {
+                file.getParentFile().mkdirs();
+            }
+
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file),
+                    "utf-8");
+
+            try {
+                generate(HelperIndexGenerator.class.getClassLoader(), writer);
+            } finally {
+                writer.close();
+            }
+        }
+    }
+
+    /**
+     * Private constructor to ensure that the class acts as a true utility class
+     * i.e. it isn't instantiable and extensible.
+     */
+    private HelperIndexGenerator() {
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.CharacterSet;
+import org.restlet.data.Dimension;
+import org.restlet.data.Disposition;
+import org.restlet.data.Encoding;
+import org.restlet.data.Language;
+import org.restlet.data.MediaType;
+import org.restlet.data.Reference;
+import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.representation.ByteArrayRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Response stored in a {@link ResponseCache}. It keeps the content of the
+ * response entity in memory along with its metadata, the values of the request
+ * properties the response varies on and its expiration time.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheEntry {
+
+    /**
+     * Returns the value of the request property matching a dimension, or null
+     * if the dimension can't be matched.
+     * 
+     * @param request
+     *            The request.
+     * @param dimension
+     *            The dimension.
+     * @return The value of the request property.
+     */
+    public static String getVaryValue(Request request, Dimension dimension) {
+        String result = null;
+
+        switch (dimension) {
+        case CHARACTER_SET:
+            result = request.getClientInfo().getAcceptedCharacterSets()
+                    .toString();
+            break;
+        case CLIENT_ADDRESS:
+            result = request.getClientInfo().getAddress();
+            break;
+        case CLIENT_AGENT:
+            result = request.getClientInfo().getAgent();
+            break;
+        case ENCODING:
+            result = request.getClientInfo().getAcceptedEncodings().toString();
+            break;
+        case LANGUAGE:
+            result = request.getClientInfo().getAcceptedLanguages().toString();
+            break;
+        case MEDIA_TYPE:
+            result = request.getClientInfo().getAcceptedMediaTypes()
+                    .toString();
+            break;
+        default:
+            break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if responses varying on a dimension can be cached.
+     * 
+     * @param dimension
+     *            The dimension.
+     * @return True if responses varying on a dimension can be cached.
+     */
+    public static boolean isCacheable(Dimension dimension) {
+        return (dimension != Dimension.TIME)
+                && (dimension != Dimension.UNSPECIFIED);
+    }
+
+    /** The cache directives of the response. */
+    private final List<CacheDirective> cacheDirectives;
+
+    /** The character set of the entity. */
+    private final CharacterSet characterSet;
+
+    /** The content of the entity. */
+    private final byte[] content;
+
+    /** The creation time, in milliseconds. */
+    private final long creationTime;
+
+    /** The dimensions the response varies on. */
+    private final Set<Dimension> dimensions;
+
+    /** The disposition of the entity. */
+    private final Disposition disposition;
+
+    /** The encodings of the entity. */
+    private final List<Encoding> encodings;
+
+    /** The expiration date of the entity. */
+    private final Date expirationDate;
+
+    /** The expiration time of the entry, in milliseconds. */
+    private volatile long expirationTime;
+
+    /** The languages of the entity. */
+    private final List<Language> languages;
+
+    /** The location reference of the entity. */
+    private final Reference locationRef;
+
+    /** The media type of the entity. */
+    private final MediaType mediaType;
+
+    /** The modification date of the entity. */
+    private final Date modificationDate;
+
+    /** The status of the response. */
+    private final Status status;
+
+    /** The tag of the entity. */
+    private final Tag tag;
+
+    /** The values of the request properties the response varies on. */
+    private final Map<Dimension, String> varyValues;
+
+    /**
+     * Constructor.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response with an entity.
+     * @param content
+     *            The content of the response entity.
+     * @param lifetime
+     *            The freshness lifetime, in milliseconds.
+     */
+    public CacheEntry(Request request, Response response, byte[] content,
+            long lifetime) {
+        Representation entity = response.getEntity();
+        this.cacheDirectives = new ArrayList<CacheDirective>(
+                response.getCacheDirectives());
+        this.characterSet = entity.getCharacterSet();
+        this.content = content;
+        this.creationTime = System.currentTimeMillis();
+        this.dimensions = new HashSet<Dimension>(response.getDimensions());
+        this.disposition = entity.getDisposition();
+        this.encodings = new ArrayList<Encoding>(entity.getEncodings());
+        this.expirationDate = entity.getExpirationDate();
+        this.expirationTime = this.creationTime + lifetime;
+        this.languages = new ArrayList<Language>(entity.getLanguages());
+        this.locationRef = entity.getLocationRef();
+        this.mediaType = entity.getMediaType();
+        this.modificationDate = entity.getModificationDate();
+        this.status = response.getStatus();
+        this.tag = entity.getTag();
+        this.varyValues = new HashMap<Dimension, String>();
+
+        for (Dimension dimension : this.dimensions) {
+            this.varyValues.put(dimension, getVaryValue(request, dimension));
+        }
+    }
+
+    /**
+     * Creates a new entity exposing the cached content and metadata.
+     * 
+     * @return The new entity.
+     */
+    public Representation createEntity() {
+        Representation result = new ByteArrayRepresentation(this.content,
+                this.mediaType, this.content.length);
+        result.setCharacterSet(this.characterSet);
+        result.setDisposition(this.disposition);
+        result.setEncodings(this.encodings);
+        result.setExpirationDate(this.expirationDate);
+        result.setLanguages(this.languages);
+        result.setLocationRef(this.locationRef);
+        result.setModificationDate(this.modificationDate);
+        result.setTag(this.tag);
+        return result;
+    }
+
+    /**
+     * Returns the age of the entry, in seconds.
+     * 
+     * @return The age of the entry, in seconds.
+     */
+    public int getAge() {
+        return (int) ((System.currentTimeMillis() - this.creationTime) / 1000L);
+    }
+
+    /**
+     * Returns the expiration time of the entry, in milliseconds.
+     * 
+     * @return The expiration time of the entry, in milliseconds.
+     */
+    public long getExpirationTime() {
+        return expirationTime;
+    }
+
+    /**
+     * Returns the modification date of the entity.
+     * 
+     * @return The modification date of the entity.
+     */
+    public Date getModificationDate() {
+        return modificationDate;
+    }
+
+    /**
+     * Returns the memory size of the cached content.
+     * 
+     * @return The memory size of the cached content.
+     */
+    public long getSize() {
+        return this.content.length;
+    }
+
+    /**
+     * Returns the tag of the entity.
+     * 
+     * @return The tag of the entity.
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    /**
+     * Indicates if the entry is still fresh.
+     * 
+     * @return True if the entry is still fresh.
+     */
+    public boolean isFresh() {
+        return System.currentTimeMillis() < this.expirationTime;
+    }
+
+    /**
+     * Indicates if the entry varies on the same dimensions than another one,
+     * with the same request property values.
+     * 
+     * @param entry
+     *            The other entry.
+     * @return True if the entry has the same variance.
+     */
+    public boolean isVariant(CacheEntry entry) {
+        return this.varyValues.equals(entry.varyValues);
+    }
+
+    /**
+     * Indicates if the entry can be used to answer a request, based on the
+     * values of the request properties the response varies on.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the entry can be used to answer the request.
+     */
+    public boolean matches(Request request) {
+        boolean result = true;
+
+        for (Map.Entry<Dimension, String> entry : this.varyValues.entrySet()) {
+            String value = getVaryValue(request, entry.getKey());
+            result = result
+                    && ((value == null) ? entry.getValue() == null : value
+                            .equals(entry.getValue()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Sets the expiration time of the entry, in milliseconds.
+     * 
+     * @param expirationTime
+     *            The expiration time of the entry, in milliseconds.
+     */
+    public void setExpirationTime(long expirationTime) {
+        this.expirationTime = expirationTime;
+    }
+
+    /**
+     * Updates a response with the cached status, cache directives, dimensions
+     * and entity.
+     * 
+     * @param response
+     *            The response to update.
+     */
+    public void update(Response response) {
+        response.setStatus(this.status);
+        response.setCacheDirectives(this.cacheDirectives);
+        response.setDimensions(this.dimensions);
+        response.setEntity(createEntity());
+        response.setAge(getAge());
+    }
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.routing.Filter;
+import org.restlet.service.CacheService;
+
+// [excludes gwt]
+/**
+ * Filter caching the responses to GET requests and answering the subsequent
+ * GET and HEAD requests directly from the cache, including conditional
+ * requests that lead to a "304 Not modified" status. As the cache is shared by
+ * all the clients of the application, requests with credentials are never
+ * cached.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheFilter extends Filter {
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The parent context.
+     */
+    public CacheFilter(Context context) {
+        super(context);
+    }
+
+    @Override
+    protected void afterHandle(Request request, Response response) {
+        if (getCacheService().isEnabled()) {
+            if (Method.GET.equals(request.getMethod())) {
+                if (isCacheable(request)
+                        && Status.SUCCESS_OK.equals(response.getStatus())
+                        && response.isEntityAvailable()) {
+                    store(request, response);
+                }
+            } else if (!request.getMethod().isSafe()
+                    && response.getStatus().isSuccess()) {
+                // Invalidate the responses of a modified resource
+                getResponseCache().remove(ResponseCache.getKey(request));
+            }
+        }
+    }
+
+    @Override
+    protected int beforeHandle(Request request, Response response) {
+        int result = CONTINUE;
+
+        if (getCacheService().isEnabled()
+                && (Method.GET.equals(request.getMethod()) || Method.HEAD
+                        .equals(request.getMethod())) && isCacheable(request)
+                && (ResponseCache.getCacheDirective(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_CACHE) == null)
+                && (ResponseCache.getCacheDirectiveSeconds(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_MAX_AGE) != 0)) {
+            CacheEntry entry = getResponseCache().get(
+                    ResponseCache.getKey(request), request);
+
+            if ((entry != null) && entry.isFresh()) {
+                entry.update(response);
+                Status status = request.getConditions().getStatus(
+                        request.getMethod(), true, entry.getTag(),
+                        entry.getModificationDate());
+
+                if (status != null) {
+                    response.setStatus(status);
+
+                    if (status.isError()) {
+                        response.setEntity(null);
+                    }
+                }
+
+                result = STOP;
+            } else if (ResponseCache.getCacheDirective(
+                    request.getCacheDirectives(),
+                    HeaderConstants.CACHE_ONLY_IF_CACHED) != null) {
+                response.setStatus(Status.SERVER_ERROR_GATEWAY_TIMEOUT);
+                result = STOP;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cache service of the parent application.
+     * 
+     * @return The cache service of the parent application.
+     */
+    public CacheService getCacheService() {
+        return getApplication().getCacheService();
+    }
+
+    /**
+     * Returns the response cache of the cache service.
+     * 
+     * @return The response cache of the cache service.
+     */
+    protected ResponseCache getResponseCache() {
+        return getCacheService().getResponseCache();
+    }
+
+    /**
+     * Indicates if a request can be answered from the cache or its response
+     * stored. Requests with credentials or with a "no-store" directive can't.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the request can be cached.
+     */
+    protected boolean isCacheable(Request request) {
+        return (request.getChallengeResponse() == null)
+                && (request.getProxyChallengeResponse() == null)
+                && (ResponseCache.getCacheDirective(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_STORE) == null);
+    }
+
+    /**
+     * Stores a response if it is fresh and if its entity can be read in
+     * memory. The response entity is then replaced by one based on the cached
+     * content.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response to store.
+     */
+    protected void store(Request request, Response response) {
+        long lifetime = ResponseCache.getLifetime(response, true);
+
+        if (lifetime > 0) {
+            byte[] content = ResponseCache.toByteArray(response.getEntity(),
+                    getResponseCache().getMaxEntrySize());
+
+            if (content != null) {
+                CacheEntry entry = new CacheEntry(request, response, content,
+                        lifetime);
+                response.setEntity(entry.createEntity());
+                getResponseCache().put(ResponseCache.getKey(request), entry);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Context;
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.Restlet;
+import org.restlet.data.Method;
+import org.restlet.data.Status;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.io.IoUtils;
+import org.restlet.routing.Filter;
+import org.restlet.service.CacheService;
+
+// [excludes gwt]
+/**
+ * Filter caching the responses received by a client, for example when set as
+ * the next Restlet of a {@link org.restlet.resource.ClientResource} or placed
+ * in front of a client connector. As the cache is private, "private" responses
+ * are cached but requests with credentials are not, so that a filter shared by
+ * several users doesn't leak responses between them.<br>
+ * <br>
+ * GET and HEAD requests are answered from fresh cached responses. Stale
+ * responses with a tag or a modification date are revalidated with a
+ * conditional request and reused when the server answers "304 Not modified".
+ * Concurrent GET requests for the same URI are collapsed: only one is sent
+ * while the others wait for its response to be cached. The cache is bounded by
+ * the total size of the cached entities.
+ * 
+ * @author Jerome Louvel
+ */
+public class ClientCacheFilter extends Filter {
+
+    /** The calls in progress, indexed by request key. */
+    private final ConcurrentMap<String, CountDownLatch> pendingCalls;
+
+    /** The response cache. */
+    private final ResponseCache responseCache;
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     */
+    public ClientCacheFilter(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     */
+    public ClientCacheFilter(Context context, Restlet next) {
+        this(context, next, CacheService.DEFAULT_MAX_SIZE,
+                CacheService.DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param context
+     *            The context.
+     * @param next
+     *            The next Restlet.
+     * @param maxSize
+     *            The maximum total size of the cached entities.
+     * @param maxEntrySize
+     *            The maximum size of a cached entity.
+     */
+    public ClientCacheFilter(Context context, Restlet next, long maxSize,
+            long maxEntrySize) {
+        super(context, next);
+        this.pendingCalls = new ConcurrentHashMap<String, CountDownLatch>();
+        this.responseCache = new ResponseCache(maxSize, maxEntrySize);
+    }
+
+    @Override
+    protected int doHandle(Request request, Response response) {
+        Method method = request.getMethod();
+
+        if ((Method.GET.equals(method) || Method.HEAD.equals(method))
+                && isCacheable(request)) {
+            String key = ResponseCache.getKey(request);
+            CacheEntry entry = getResponseCache().get(key, request);
+
+            if (isFresh(request, entry)) {
+                entry.update(response);
+            } else if (Method.GET.equals(method)) {
+                CountDownLatch latch = new CountDownLatch(1);
+                CountDownLatch pending = this.pendingCalls.putIfAbsent(key,
+                        latch);
+
+                if (pending != null) {
+                    // Wait for the same call in progress and check again
+                    latch = null;
+                    await(pending);
+                    entry = getResponseCache().get(key, request);
+                }
+
+                if (isFresh(request, entry)) {
+                    entry.update(response);
+                } else {
+                    try {
+                        fetch(request, response, key, entry);
+                    } finally {
+                        if (latch != null) {
+                            this.pendingCalls.remove(key, latch);
+                            latch.countDown();
+                        }
+                    }
+                }
+            } else {
+                super.doHandle(request, response);
+            }
+        } else {
+            super.doHandle(request, response);
+
+            if (!method.isSafe() && response.getStatus().isSuccess()) {
+                // Invalidate the responses of a modified resource
+                getResponseCache().remove(ResponseCache.getKey(request));
+            }
+        }
+
+        return CONTINUE;
+    }
+
+    /**
+     * Waits for a pending call to complete, at most during
+     * {@link IoUtils#TIMEOUT_MS}.
+     * 
+     * @param pending
+     *            The latch of the pending call.
+     */
+    private void await(CountDownLatch pending) {
+        try {
+            pending.await(IoUtils.TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Sends a GET request to the next Restlet, revalidating the stale cached
+     * entry if possible, then caches the response.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response.
+     * @param key
+     *            The key of the request.
+     * @param entry
+     *            The stale cached entry or null.
+     */
+    protected void fetch(Request request, Response response, String key,
+            CacheEntry entry) {
+        boolean revalidating = (entry != null)
+                && !request.getConditions().hasSome()
+                && ((entry.getTag() != null) || (entry.getModificationDate() != null));
+
+        if (revalidating) {
+            if (entry.getTag() != null) {
+                request.getConditions().getNoneMatch().add(entry.getTag());
+            } else {
+                request.getConditions().setModifiedSince(
+                        entry.getModificationDate());
+            }
+        }
+
+        super.doHandle(request, response);
+
+        if (revalidating) {
+            // Restore the original conditions
+            request.getConditions().setNoneMatch(null);
+            request.getConditions().setModifiedSince(null);
+        }
+
+        if (revalidating
+                && Status.REDIRECTION_NOT_MODIFIED.equals(response.getStatus())) {
+            entry.setExpirationTime(System.currentTimeMillis()
+                    + Math.max(0, ResponseCache.getLifetime(response, false)));
+            entry.update(response);
+        } else if (Status.SUCCESS_OK.equals(response.getStatus())
+                && response.isEntityAvailable()) {
+            store(request, response, key);
+        }
+    }
+
+    /**
+     * Returns the response cache.
+     * 
+     * @return The response cache.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Indicates if a request can be answered from the cache or its response
+     * stored. Requests with credentials or with a "no-store" directive can't.
+     * 
+     * @param request
+     *            The request.
+     * @return True if the request can be cached.
+     */
+    protected boolean isCacheable(Request request) {
+        return (request.getChallengeResponse() == null)
+                && (request.getProxyChallengeResponse() == null)
+                && (ResponseCache.getCacheDirective(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_STORE) == null);
+    }
+
+    /**
+     * Indicates if a cached entry can be used to answer a request without
+     * revalidation. The request must not have the "no-cache" or "max-age=0"
+     * directives.
+     * 
+     * @param request
+     *            The request.
+     * @param entry
+     *            The cached entry or null.
+     * @return True if the cached entry can be used without revalidation.
+     */
+    private boolean isFresh(Request request, CacheEntry entry) {
+        return (entry != null)
+                && entry.isFresh()
+                && (ResponseCache.getCacheDirective(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_NO_CACHE) == null)
+                && (ResponseCache.getCacheDirectiveSeconds(
+                        request.getCacheDirectives(),
+                        HeaderConstants.CACHE_MAX_AGE) != 0);
+    }
+
+    /**
+     * Stores a response if it is fresh or can be revalidated and if its entity
+     * can be read in memory. The response entity is then replaced by one based
+     * on the cached content.
+     * 
+     * @param request
+     *            The request.
+     * @param response
+     *            The response to store.
+     * @param key
+     *            The key of the request.
+     */
+    protected void store(Request request, Response response, String key) {
+        long lifetime = ResponseCache.getLifetime(response, false);
+
+        if ((lifetime > 0)
+                || ((lifetime == 0) && ((response.getEntity().getTag() != null) || (response
+                        .getEntity().getModificationDate() != null)))) {
+            byte[] content = ResponseCache.toByteArray(response.getEntity(),
+                    getResponseCache().getMaxEntrySize());
+
+            if (content != null) {
+                CacheEntry entry = new CacheEntry(request, response, content,
+                        lifetime);
+                response.setEntity(entry.createEntity());
+                getResponseCache().put(key, entry);
+            }
+        }
+    }
+
+}
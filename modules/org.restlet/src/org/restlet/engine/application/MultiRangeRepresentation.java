@@ -0,0 +1,201 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.restlet.data.Form;
+import org.restlet.data.MediaType;
+import org.restlet.data.Range;
+import org.restlet.engine.header.ContentType;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.engine.header.RangeWriter;
+import org.restlet.engine.io.NioUtils;
+import org.restlet.engine.util.StringUtils;
+import org.restlet.representation.OutputRepresentation;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * Representation that exposes several ranges of the content of a wrapped
+ * representation as a "multipart/byteranges" entity. Each part is written in
+ * turn from the wrapped representation without buffering, using a
+ * {@link RangeRepresentation}. As the wrapped content is read once for each
+ * range, it must not be transient.
+ * 
+ * @author Jerome Louvel
+ */
+public class MultiRangeRepresentation extends OutputRepresentation {
+
+    /** The end of line of the part headers. */
+    private static final String EOL = "\r\n";
+
+    /** The closing delimiter. */
+    private final byte[] closing;
+
+    /** The headers of each part. */
+    private final List<byte[]> headers;
+
+    /** The ranged content of each part. */
+    private final List<RangeRepresentation> parts;
+
+    /** The wrapped representation. */
+    private final Representation wrappedRepresentation;
+
+    /**
+     * Constructor.
+     * 
+     * @param wrappedRepresentation
+     *            The wrapped representation with a complete content and a
+     *            known size.
+     * @param ranges
+     *            The ranges to expose, in the order of the parts.
+     */
+    public MultiRangeRepresentation(Representation wrappedRepresentation,
+            List<Range> ranges) {
+        super(null);
+        this.wrappedRepresentation = wrappedRepresentation;
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        Form parameters = new Form();
+        parameters.add("boundary", boundary);
+        setMediaType(new MediaType(MediaType.MULTIPART_BYTERANGES.getName(),
+                parameters));
+        setModificationDate(wrappedRepresentation.getModificationDate());
+        setExpirationDate(wrappedRepresentation.getExpirationDate());
+        setTag(wrappedRepresentation.getTag());
+
+        this.headers = new ArrayList<byte[]>(ranges.size());
+        this.parts = new ArrayList<RangeRepresentation>(ranges.size());
+        long size = 0;
+
+        for (Range range : ranges) {
+            StringBuilder sb = new StringBuilder();
+
+            if (!this.parts.isEmpty()) {
+                sb.append(EOL);
+            }
+
+            sb.append("--").append(boundary).append(EOL);
+
+            if (wrappedRepresentation.getMediaType() != null) {
+                sb.append(HeaderConstants.HEADER_CONTENT_TYPE).append(": ")
+                        .append(ContentType.writeHeader(wrappedRepresentation))
+                        .append(EOL);
+            }
+
+            sb.append(HeaderConstants.HEADER_CONTENT_RANGE).append(": ")
+                    .append(RangeWriter.write(range,
+                            wrappedRepresentation.getSize()))
+                    .append(EOL).append(EOL);
+
+            byte[] header = StringUtils.getLatin1Bytes(sb.toString());
+            RangeRepresentation part = new RangeRepresentation(
+                    wrappedRepresentation, range);
+            this.headers.add(header);
+            this.parts.add(part);
+            size += header.length + part.getAvailableSize();
+        }
+
+        this.closing = StringUtils.getLatin1Bytes(EOL + "--" + boundary
+                + "--" + EOL);
+        setSize(size + this.closing.length);
+    }
+
+    /**
+     * Returns the ranged content of each part.
+     * 
+     * @return The ranged content of each part.
+     */
+    public List<RangeRepresentation> getParts() {
+        return parts;
+    }
+
+    /**
+     * Releases the wrapped representation.
+     */
+    @Override
+    public void release() {
+        this.wrappedRepresentation.release();
+        super.release();
+    }
+
+    /**
+     * Writes some bytes to a byte channel.
+     * 
+     * @param bytes
+     *            The bytes to write.
+     * @param writableChannel
+     *            A writable byte channel.
+     * @throws IOException
+     */
+    private void write(byte[] bytes, WritableByteChannel writableChannel)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        SelectableChannel selectableChannel = null;
+
+        if (writableChannel instanceof SelectableChannel) {
+            selectableChannel = (SelectableChannel) writableChannel;
+        }
+
+        while (buffer.hasRemaining()) {
+            NioUtils.waitForState(selectableChannel, SelectionKey.OP_WRITE);
+            writableChannel.write(buffer);
+        }
+    }
+
+    @Override
+    public void write(OutputStream outputStream) throws IOException {
+        write(NioUtils.getChannel(outputStream));
+        outputStream.flush();
+    }
+
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        for (int i = 0; i < this.parts.size(); i++) {
+            write(this.headers.get(i), writableChannel);
+            this.parts.get(i).write(writableChannel);
+        }
+
+        write(this.closing, writableChannel);
+    }
+
+}
@@ -33,6 +33,11 @@
 
 package org.restlet.engine.application;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
 import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
@@ -50,6 +55,12 @@ import org.restlet.service.RangeService;
  */
 public class RangeFilter extends Filter {
 
+    /**
+     * The maximum number of ranges served in a single response, once merged.
+     * Requests with more ranges get the whole entity instead.
+     */
+    private static final int MAX_RANGES = 16;
+
     /**
      * Constructor.
      * 
@@ -80,7 +91,6 @@ public class RangeFilter extends Filter {
                             // properly ranged.
                         }
                     } else {
-                        // At this time, list of ranges are not supported.
                         if (request.getRanges().size() == 1
                                 && (!request.getConditions().hasSomeRange() || request
                                         .getConditions()
@@ -117,13 +127,44 @@ public class RangeFilter extends Filter {
                                 response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
                             }
                         } else if (request.getRanges().size() > 1) {
-                            // Return a server error as this feature isn't
-                            // supported yet
-                            response.setStatus(Status.SERVER_ERROR_NOT_IMPLEMENTED);
-                            getLogger()
-                                    .warning(
-                                            "Multiple ranges are not supported at this time.");
-                            response.setEntity(null);
+                            if (request.getConditions().hasSomeRange()
+                                    && !request.getConditions()
+                                            .getRangeStatus(
+                                                    response.getEntity())
+                                            .isSuccess()) {
+                                // The whole entity is returned
+                            } else if (!rangedEntity
+                                    && response.getEntity().hasKnownSize()
+                                    && !response.getEntity().isTransient()) {
+                                List<Range> ranges = getSatisfiableRanges(
+                                        request.getRanges(), response
+                                                .getEntity().getSize());
+
+                                if (ranges.isEmpty()) {
+                                    response.setStatus(Status.CLIENT_ERROR_REQUESTED_RANGE_NOT_SATISFIABLE);
+                                    response.setEntity(null);
+                                } else if ((ranges.size() > MAX_RANGES)
+                                        || (getLength(ranges) >= response
+                                                .getEntity().getSize())) {
+                                    // Returning the whole entity is cheaper
+                                    // and prevents amplification attacks
+                                } else if (ranges.size() == 1) {
+                                    response.setEntity(new RangeRepresentation(
+                                            response.getEntity(), ranges.get(0)));
+                                    response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+                                } else {
+                                    response.setEntity(new MultiRangeRepresentation(
+                                            response.getEntity(), ranges));
+                                    response.setStatus(Status.SUCCESS_PARTIAL_CONTENT);
+                                }
+                            } else {
+                                // The content must be read once per range
+                                response.setStatus(Status.SERVER_ERROR_NOT_IMPLEMENTED);
+                                getLogger()
+                                        .warning(
+                                                "Multiple ranges are only supported for entities of known size that aren't transient.");
+                                response.setEntity(null);
+                            }
                         }
                     }
                 } else {
@@ -133,6 +174,87 @@ public class RangeFilter extends Filter {
         }
     }
 
+    /**
+     * Returns the total number of bytes covered by ranges of known index and
+     * size.
+     * 
+     * @param ranges
+     *            The ranges.
+     * @return The total number of bytes covered.
+     */
+    private long getLength(List<Range> ranges) {
+        long result = 0;
+
+        for (Range range : ranges) {
+            result += range.getSize();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the requested ranges that can be satisfied for an entity of the
+     * given size, limited to the end of the entity. The returned ranges are
+     * sorted by index, have a known index and size, and the overlapping or
+     * adjacent ones are merged. The requested ranges are left untouched.
+     * 
+     * @param ranges
+     *            The requested ranges.
+     * @param size
+     *            The size of the entity.
+     * @return The satisfiable ranges.
+     */
+    private List<Range> getSatisfiableRanges(List<Range> ranges, long size) {
+        List<Range> satisfiable = new ArrayList<Range>(ranges.size());
+
+        for (Range range : ranges) {
+            if (range.getIndex() == Range.INDEX_LAST) {
+                if ((range.getSize() == Range.SIZE_MAX)
+                        || (range.getSize() <= 0)) {
+                    // Invalid suffix range
+                } else if (range.getSize() >= size) {
+                    satisfiable.add(new Range(Range.INDEX_FIRST, size));
+                } else {
+                    satisfiable.add(new Range(size - range.getSize(), range
+                            .getSize()));
+                }
+            } else if (range.getIndex() < size) {
+                if ((range.getSize() == Range.SIZE_MAX)
+                        || (range.getIndex() + range.getSize() > size)) {
+                    satisfiable.add(new Range(range.getIndex(), size
+                            - range.getIndex()));
+                } else if (range.getSize() > 0) {
+                    satisfiable.add(new Range(range.getIndex(), range
+                            .getSize()));
+                }
+            }
+        }
+
+        Collections.sort(satisfiable, new Comparator<Range>() {
+            public int compare(Range range1, Range range2) {
+                return (range1.getIndex() < range2.getIndex()) ? -1 : ((range1
+                        .getIndex() == range2.getIndex()) ? 0 : 1);
+            }
+        });
+
+        List<Range> result = new ArrayList<Range>(satisfiable.size());
+        Range last = null;
+
+        for (Range range : satisfiable) {
+            if ((last != null)
+                    && (range.getIndex() <= last.getIndex() + last.getSize())) {
+                long end = Math.max(last.getIndex() + last.getSize(),
+                        range.getIndex() + range.getSize());
+                last.setSize(end - last.getIndex());
+            } else {
+                last = range;
+                result.add(last);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Returns the Range service of the parent application.
      * 
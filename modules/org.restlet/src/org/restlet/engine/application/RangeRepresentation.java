@@ -37,19 +37,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 import org.restlet.data.Range;
 import org.restlet.engine.io.BioUtils;
 import org.restlet.engine.io.NioUtils;
 import org.restlet.engine.io.RangeInputStream;
+import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.util.WrapperRepresentation;
 
 // [excludes gwt]
 /**
  * Representation that exposes only a range of the content of a wrapped
- * representation.
+ * representation. When the wrapped representation is a
+ * {@link FileRepresentation}, the range is directly read from a positioned
+ * file channel and written with the {@link FileChannel#transferTo} method.
  * 
  * @author Jerome Louvel
  */
@@ -94,9 +100,25 @@ public class RangeRepresentation extends WrapperRepresentation {
     @Override
     public java.nio.channels.ReadableByteChannel getChannel()
             throws IOException {
+        if (isFileRange()) {
+            FileChannel fileChannel = getFileChannel();
+            fileChannel.position(getStartIndex());
+            return new ReadableSizedChannel(fileChannel, getAvailableSize());
+        }
+
         return org.restlet.engine.io.NioUtils.getChannel(getStream());
     }
 
+    /**
+     * Returns a new channel on the wrapped file representation.
+     * 
+     * @return A new channel on the wrapped file representation.
+     * @throws IOException
+     */
+    private FileChannel getFileChannel() throws IOException {
+        return ((FileRepresentation) getWrappedRepresentation()).getChannel();
+    }
+
     /**
      * Returns the range specific to this wrapper. The wrapped representation
      * must not have a range set itself.
@@ -113,6 +135,23 @@ public class RangeRepresentation extends WrapperRepresentation {
         return BioUtils.getReader(getStream(), getCharacterSet());
     }
 
+    /**
+     * Returns the index of the first byte of the range in the wrapped content.
+     * Requires a known size when the range is relative to the end.
+     * 
+     * @return The index of the first byte of the range.
+     */
+    private long getStartIndex() {
+        long result = getRange().getIndex();
+
+        if (result == Range.INDEX_LAST) {
+            result = (getRange().getSize() == Range.SIZE_MAX) ? 0 : Math.max(
+                    0, getSize() - getRange().getSize());
+        }
+
+        return result;
+    }
+
     @Override
     public InputStream getStream() throws IOException {
         return new RangeInputStream(super.getStream(), getSize(), getRange());
@@ -123,6 +162,18 @@ public class RangeRepresentation extends WrapperRepresentation {
         return BioUtils.getText(this);
     }
 
+    /**
+     * Indicates if the range can be directly read from a file channel. This
+     * requires a file representation of known size.
+     * 
+     * @return True if the range can be directly read from a file channel.
+     */
+    private boolean isFileRange() {
+        return (getRange() != null)
+                && (getWrappedRepresentation() instanceof FileRepresentation)
+                && hasKnownSize();
+    }
+
     /**
      * Sets the range specific to this wrapper. This will not affect the wrapped
      * representation.
@@ -145,14 +196,29 @@ public class RangeRepresentation extends WrapperRepresentation {
 
     @Override
     public void write(OutputStream outputStream) throws IOException {
-        BioUtils.copy(getStream(), outputStream);
+        if (isFileRange()) {
+            write(Channels.newChannel(outputStream));
+        } else {
+            BioUtils.copy(getStream(), outputStream);
+        }
     }
 
     @Override
     public void write(WritableByteChannel writableChannel) throws IOException {
-        OutputStream os = NioUtils.getStream(writableChannel);
-        write(os);
-        os.flush();
+        if (isFileRange()) {
+            FileChannel fileChannel = getFileChannel();
+
+            try {
+                NioUtils.copy(fileChannel, getStartIndex(), getAvailableSize(),
+                        writableChannel);
+            } finally {
+                fileChannel.close();
+            }
+        } else {
+            OutputStream os = NioUtils.getStream(writableChannel);
+            write(os);
+            os.flush();
+        }
     }
 
 }
@@ -0,0 +1,480 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.CacheDirective;
+import org.restlet.data.Dimension;
+import org.restlet.engine.header.HeaderConstants;
+import org.restlet.representation.Representation;
+
+// [excludes gwt]
+/**
+ * In-memory cache of responses, bounded by the total size of the cached
+ * entities. Entries are indexed by the target URI of the request, then matched
+ * against the request properties the response varies on. When the maximum size
+ * is exceeded, the entries of the least recently used URIs are evicted.
+ * 
+ * @author Jerome Louvel
+ */
+public class ResponseCache {
+
+    /**
+     * Output stream failing when more than a maximum number of bytes are
+     * written.
+     */
+    private static class LimitedOutputStream extends ByteArrayOutputStream {
+
+        /** The maximum number of bytes. */
+        private final long maxSize;
+
+        /**
+         * Constructor.
+         * 
+         * @param maxSize
+         *            The maximum number of bytes.
+         */
+        public LimitedOutputStream(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (size() + len > this.maxSize) {
+                throw new IllegalStateException("Maximum size exceeded");
+            }
+
+            super.write(b, off, len);
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (size() + 1 > this.maxSize) {
+                throw new IllegalStateException("Maximum size exceeded");
+            }
+
+            super.write(b);
+        }
+    }
+
+    /**
+     * Returns the cache directive with the given name, or null.
+     * 
+     * @param cacheDirectives
+     *            The cache directives.
+     * @param name
+     *            The directive name.
+     * @return The cache directive found or null.
+     */
+    public static CacheDirective getCacheDirective(
+            List<CacheDirective> cacheDirectives, String name) {
+        CacheDirective result = null;
+
+        for (Iterator<CacheDirective> iter = cacheDirectives.iterator(); (result == null)
+                && iter.hasNext();) {
+            CacheDirective cacheDirective = iter.next();
+
+            if (name.equalsIgnoreCase(cacheDirective.getName())) {
+                result = cacheDirective;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the value in seconds of a cache directive, or -1.
+     * 
+     * @param cacheDirectives
+     *            The cache directives.
+     * @param name
+     *            The directive name.
+     * @return The value in seconds of the cache directive or -1.
+     */
+    public static int getCacheDirectiveSeconds(
+            List<CacheDirective> cacheDirectives, String name) {
+        int result = -1;
+        CacheDirective cacheDirective = getCacheDirective(cacheDirectives,
+                name);
+
+        if ((cacheDirective != null) && (cacheDirective.getValue() != null)) {
+            try {
+                result = Integer.parseInt(cacheDirective.getValue().trim());
+            } catch (NumberFormatException e) {
+                result = -1;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the key of a request, based on its target URI.
+     * 
+     * @param request
+     *            The request.
+     * @return The key of the request.
+     */
+    public static String getKey(Request request) {
+        return request.getResourceRef().getTargetRef().toString(true, false);
+    }
+
+    /**
+     * Returns the freshness lifetime of a response, in milliseconds, or -1 if
+     * it can't be cached. The "no-store" directive and the dimensions that
+     * can't be matched prevent caching. Shared caches also refuse "private"
+     * responses and give precedence to the "s-maxage" directive. Otherwise, the
+     * "max-age" directive is used or the expiration date of the entity. A
+     * lifetime of 0 is returned for responses with the "no-cache" directive or
+     * without freshness information, that must be revalidated before reuse.
+     * 
+     * @param response
+     *            The response.
+     * @param shared
+     *            Indicates if the cache is shared by several clients.
+     * @return The freshness lifetime, in milliseconds, or -1.
+     */
+    public static long getLifetime(Response response, boolean shared) {
+        long result = -1;
+        List<CacheDirective> cacheDirectives = response.getCacheDirectives();
+        boolean cacheable = (getCacheDirective(cacheDirectives,
+                HeaderConstants.CACHE_NO_STORE) == null)
+                && (!shared || (getCacheDirective(cacheDirectives,
+                        HeaderConstants.CACHE_PRIVATE) == null));
+
+        for (Dimension dimension : response.getDimensions()) {
+            cacheable = cacheable && CacheEntry.isCacheable(dimension);
+        }
+
+        if (cacheable
+                && (getCacheDirective(cacheDirectives,
+                        HeaderConstants.CACHE_NO_CACHE) != null)) {
+            result = 0;
+        } else if (cacheable) {
+            int seconds = shared ? getCacheDirectiveSeconds(cacheDirectives,
+                    HeaderConstants.CACHE_SHARED_MAX_AGE) : -1;
+
+            if (seconds < 0) {
+                seconds = getCacheDirectiveSeconds(cacheDirectives,
+                        HeaderConstants.CACHE_MAX_AGE);
+            }
+
+            if (seconds >= 0) {
+                result = seconds * 1000L;
+            } else if ((response.getEntity() != null)
+                    && (response.getEntity().getExpirationDate() != null)) {
+                long date = (response.getDate() == null) ? System
+                        .currentTimeMillis() : response.getDate().getTime();
+                result = Math.max(0, response.getEntity()
+                        .getExpirationDate().getTime() - date);
+            } else {
+                result = 0;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the content of an entity if it can be read in memory without
+     * exceeding a maximum size, or null. Entities of unknown size are only
+     * read if they are not transient, so that they can still be written
+     * afterwards if the maximum size is exceeded.
+     * 
+     * @param entity
+     *            The entity to read.
+     * @param maxSize
+     *            The maximum size.
+     * @return The content of the entity or null.
+     */
+    public static byte[] toByteArray(Representation entity, long maxSize) {
+        byte[] result = null;
+
+        if (entity.isAvailable()
+                && (entity.getRange() == null)
+                && (entity.hasKnownSize() ? entity.getSize() <= maxSize
+                        : !entity.isTransient())) {
+            LimitedOutputStream out = new LimitedOutputStream(maxSize);
+
+            try {
+                entity.write(out);
+                result = out.toByteArray();
+            } catch (IOException e) {
+                result = null;
+            } catch (IllegalStateException e) {
+                result = null;
+            }
+        }
+
+        return result;
+    }
+
+    /** The cached entries, indexed by URI in access order. */
+    private final Map<String, List<CacheEntry>> entries;
+
+    /** The number of requests answered by a fresh entry. */
+    private final AtomicLong hitCount;
+
+    /** The maximum size of a cached entry. */
+    private volatile long maxEntrySize;
+
+    /** The maximum total size of the cached entries. */
+    private volatile long maxSize;
+
+    /** The number of requests not answered by a fresh entry. */
+    private final AtomicLong missCount;
+
+    /** The total size of the cached entries. */
+    private long size;
+
+    /**
+     * Constructor.
+     * 
+     * @param maxSize
+     *            The maximum total size of the cached entries.
+     * @param maxEntrySize
+     *            The maximum size of a cached entry.
+     */
+    public ResponseCache(long maxSize, long maxEntrySize) {
+        this.entries = new LinkedHashMap<String, List<CacheEntry>>(16, 0.75f,
+                true);
+        this.hitCount = new AtomicLong();
+        this.maxEntrySize = maxEntrySize;
+        this.maxSize = maxSize;
+        this.missCount = new AtomicLong();
+        this.size = 0;
+    }
+
+    /**
+     * Removes all the cached entries.
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    /**
+     * Evicts the entries of the least recently used URIs until the total size
+     * doesn't exceed the maximum size.
+     */
+    private void evict() {
+        for (Iterator<List<CacheEntry>> iter = this.entries.values()
+                .iterator(); (this.size > getMaxSize()) && iter.hasNext();) {
+            for (CacheEntry entry : iter.next()) {
+                this.size -= entry.getSize();
+            }
+
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns the entry matching a request, fresh or not, or null. The hit
+     * count is incremented if a fresh entry is found, the miss count
+     * otherwise.
+     * 
+     * @param key
+     *            The key of the request.
+     * @param request
+     *            The request.
+     * @return The entry matching the request or null.
+     */
+    public synchronized CacheEntry get(String key, Request request) {
+        CacheEntry result = null;
+        List<CacheEntry> variants = this.entries.get(key);
+
+        if (variants != null) {
+            for (Iterator<CacheEntry> iter = variants.iterator(); (result == null)
+                    && iter.hasNext();) {
+                CacheEntry entry = iter.next();
+
+                if (entry.matches(request)) {
+                    result = entry;
+                }
+            }
+        }
+
+        if ((result != null) && result.isFresh()) {
+            this.hitCount.incrementAndGet();
+        } else {
+            this.missCount.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of cached entries.
+     * 
+     * @return The number of cached entries.
+     */
+    public synchronized int getEntryCount() {
+        int result = 0;
+
+        for (List<CacheEntry> variants : this.entries.values()) {
+            result += variants.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of requests answered by a fresh entry.
+     * 
+     * @return The number of requests answered by a fresh entry.
+     */
+    public long getHitCount() {
+        return this.hitCount.get();
+    }
+
+    /**
+     * Returns the maximum size of a cached entry.
+     * 
+     * @return The maximum size of a cached entry.
+     */
+    public long getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    /**
+     * Returns the maximum total size of the cached entries.
+     * 
+     * @return The maximum total size of the cached entries.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the number of requests not answered by a fresh entry.
+     * 
+     * @return The number of requests not answered by a fresh entry.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Returns the total size of the cached entries.
+     * 
+     * @return The total size of the cached entries.
+     */
+    public synchronized long getSize() {
+        return this.size;
+    }
+
+    /**
+     * Stores an entry, replacing the one with the same key and variance. The
+     * entry is ignored if it exceeds the maximum entry size.
+     * 
+     * @param key
+     *            The key of the request.
+     * @param entry
+     *            The entry to store.
+     */
+    public synchronized void put(String key, CacheEntry entry) {
+        if (entry.getSize() <= getMaxEntrySize()) {
+            List<CacheEntry> variants = this.entries.get(key);
+
+            if (variants == null) {
+                variants = new ArrayList<CacheEntry>(1);
+                this.entries.put(key, variants);
+            }
+
+            for (Iterator<CacheEntry> iter = variants.iterator(); iter
+                    .hasNext();) {
+                CacheEntry variant = iter.next();
+
+                if (variant.isVariant(entry)) {
+                    this.size -= variant.getSize();
+                    iter.remove();
+                }
+            }
+
+            variants.add(entry);
+            this.size += entry.getSize();
+            evict();
+        }
+    }
+
+    /**
+     * Removes the entries of a URI.
+     * 
+     * @param key
+     *            The key of the URI.
+     */
+    public synchronized void remove(String key) {
+        List<CacheEntry> variants = this.entries.remove(key);
+
+        if (variants != null) {
+            for (CacheEntry variant : variants) {
+                this.size -= variant.getSize();
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum size of a cached entry.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of a cached entry.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Sets the maximum total size of the cached entries. Entries are evicted
+     * if necessary.
+     * 
+     * @param maxSize
+     *            The maximum total size of the cached entries.
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+}
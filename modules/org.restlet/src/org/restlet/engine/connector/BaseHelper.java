@@ -34,10 +34,12 @@
 package org.restlet.engine.connector;
 
 import java.io.OutputStream;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -45,15 +47,19 @@ import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
+import org.restlet.Application;
 import org.restlet.Connector;
+import org.restlet.Context;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Status;
 import org.restlet.engine.ConnectorHelper;
 import org.restlet.engine.Engine;
 import org.restlet.engine.log.LoggingThreadFactory;
+import org.restlet.routing.VirtualHost;
 
 /**
  * Base connector helper. Here is the list of parameters that are supported.
@@ -80,6 +86,23 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * strictly superior to 0 is required.</td>
  * </tr>
  * <tr>
+ * <td>controllerThreads</td>
+ * <td>int</td>
+ * <td>1</td>
+ * <td>Number of controller threads, each one owning its own NIO selector and
+ * controlling a share of the connections. A value strictly superior to 0 is
+ * required.</td>
+ * </tr>
+ * <tr>
+ * <td>controllerBalancing</td>
+ * <td>String</td>
+ * <td>roundRobin</td>
+ * <td>Indicates how new connections are distributed between the controllers
+ * when several controller threads are used. Possible values are "roundRobin"
+ * and "loadScore". The latter picks the controller with the lowest load
+ * score.</td>
+ * </tr>
+ * <tr>
  * <td>minThreads</td>
  * <td>int</td>
  * <td>1</td>
@@ -129,6 +152,24 @@ import org.restlet.engine.log.LoggingThreadFactory;
  * <td>Time for an idle thread to wait for an operation before being collected.</td>
  * </tr>
  * <tr>
+ * <td>threadPerCall</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if each call should be dispatched on its own short-lived worker
+ * thread instead of being serviced by a pool of reusable threads. Suited to
+ * calls blocking on I/O such as JDBC or outbound client calls. The
+ * "maxConcurrentCalls" parameter then replaces the "minThreads", "lowThreads"
+ * and "maxThreads" ones.</td>
+ * </tr>
+ * <tr>
+ * <td>maxConcurrentCalls</td>
+ * <td>int</td>
+ * <td>1000</td>
+ * <td>Maximum number of calls serviced concurrently when "threadPerCall" is
+ * enabled. Additional calls are queued if the "maxQueued" value hasn't been
+ * reached and the connector is considered overloaded.</td>
+ * </tr>
+ * <tr>
  * <td>tracing</td>
  * <td>boolean</td>
  * <td>false</td>
@@ -189,6 +230,12 @@ public abstract class BaseHelper<T extends Connector> extends
     /** The controller task. */
     protected final ConnectionController controller;
 
+    /** The index of the next controller for round robin balancing. */
+    private final AtomicInteger controllerIndex;
+
+    /** The controllers, starting with the main one. */
+    private final List<ConnectionController> controllers;
+
     /** The controller service. */
     private volatile ExecutorService controllerService;
 
@@ -215,6 +262,9 @@ public abstract class BaseHelper<T extends Connector> extends
         this.inboundMessages = new ConcurrentLinkedQueue<Response>();
         this.outboundMessages = new ConcurrentLinkedQueue<Response>();
         this.controller = createController();
+        this.controllerIndex = new AtomicInteger();
+        this.controllers = new CopyOnWriteArrayList<ConnectionController>();
+        this.controllers.add(this.controller);
     }
 
     /**
@@ -223,21 +273,44 @@ public abstract class BaseHelper<T extends Connector> extends
      * @return Indicates if some concrete activity occurred.
      */
     protected boolean control() {
-        boolean result = false;
-        int size;
+        boolean result = controlInbound();
+        result |= controlOutbound();
+        return result;
+    }
 
-        // Control pending inbound messages
-        size = getInboundMessages().size();
+    /**
+     * Controls the helper for inbound messages to handle. As several
+     * controllers can concurrently poll the queue, it stops as soon as the
+     * queue is empty.
+     * 
+     * @return Indicates if some concrete activity occurred.
+     */
+    protected boolean controlInbound() {
+        boolean result = false;
+        int size = getInboundMessages().size();
+        Response next;
 
-        for (int i = 0; i < size; i++) {
-            handleInbound(getInboundMessages().poll());
+        for (int i = 0; (i < size)
+                && ((next = getInboundMessages().poll()) != null); i++) {
+            handleInbound(next);
         }
 
-        // Control pending outbound messages
-        size = getOutboundMessages().size();
+        return result;
+    }
+
+    /**
+     * Controls the helper for outbound messages to handle.
+     * 
+     * @return Indicates if some concrete activity occurred.
+     */
+    protected boolean controlOutbound() {
+        boolean result = false;
+        int size = getOutboundMessages().size();
+        Response next;
 
-        for (int i = 0; i < size; i++) {
-            handleOutbound(getOutboundMessages().poll());
+        for (int i = 0; (i < size)
+                && ((next = getOutboundMessages().poll()) != null); i++) {
+            handleOutbound(next);
         }
 
         return result;
@@ -251,15 +324,24 @@ public abstract class BaseHelper<T extends Connector> extends
     protected abstract ConnectionController createController();
 
     /**
-     * Creates the connector controller service.
+     * Creates the connector controller service, running one thread per
+     * controller.
      * 
      * @return The connector controller service.
      */
     protected ExecutorService createControllerService() {
-        return Executors.newSingleThreadExecutor(new LoggingThreadFactory(
-                getLogger(), isControllerDaemon()));
+        return Executors.newFixedThreadPool(getControllerThreads(),
+                new LoggingThreadFactory(getLogger(), isControllerDaemon()));
     }
 
+    /**
+     * Creates an additional controller owning its own NIO selector and a share
+     * of the connections.
+     * 
+     * @return A new additional controller.
+     */
+    protected abstract ConnectionController createSecondaryController();
+
     /**
      * Creates the request object.
      * 
@@ -275,9 +357,6 @@ public abstract class BaseHelper<T extends Connector> extends
      * @return The handler service.
      */
     protected ThreadPoolExecutor createWorkerService() {
-        int maxThreads = getMaxThreads();
-        int minThreads = getMinThreads();
-
         BlockingQueue<Runnable> queue = null;
 
         if (getMaxQueued() == 0) {
@@ -288,9 +367,24 @@ public abstract class BaseHelper<T extends Connector> extends
             queue = new ArrayBlockingQueue<Runnable>(getMaxQueued());
         }
 
-        ThreadPoolExecutor result = new ThreadPoolExecutor(minThreads,
-                maxThreads, getMaxThreadIdleTimeMs(), TimeUnit.MILLISECONDS,
-                queue, new LoggingThreadFactory(getLogger(), true));
+        ThreadPoolExecutor result = null;
+
+        if (isThreadPerCall()) {
+            // A new thread is started for each call until the maximum is
+            // reached, each thread being collected right after its call
+            result = new ThreadPoolExecutor(getMaxConcurrentCalls(),
+                    getMaxConcurrentCalls(), 1, TimeUnit.MILLISECONDS, queue,
+                    new LoggingThreadFactory(getLogger(), true));
+            result.allowCoreThreadTimeOut(true);
+        } else {
+            result = new ThreadPoolExecutor(getMinThreads(), getMaxThreads(),
+                    getMaxThreadIdleTimeMs(), TimeUnit.MILLISECONDS, queue,
+                    new LoggingThreadFactory(getLogger(), true));
+
+            // Ensure that core threads act like a minimum number of threads
+            result.prestartAllCoreThreads();
+        }
+
         result.setRejectedExecutionHandler(new RejectedExecutionHandler() {
             public void rejectedExecution(Runnable r,
                     ThreadPoolExecutor executor) {
@@ -302,8 +396,6 @@ public abstract class BaseHelper<T extends Connector> extends
             }
         });
 
-        // Ensure that core threads act like a minimum number of threads
-        result.prestartAllCoreThreads();
         return result;
     }
 
@@ -322,9 +414,12 @@ public abstract class BaseHelper<T extends Connector> extends
             }
         }
 
-        // Stops the controller
+        // Stops the controllers
         if (this.controllerService != null) {
-            this.controller.shutdown();
+            for (ConnectionController controller : getControllers()) {
+                controller.shutdown();
+            }
+
             this.controllerService.shutdown();
 
             try {
@@ -396,6 +491,72 @@ public abstract class BaseHelper<T extends Connector> extends
         return controller;
     }
 
+    /**
+     * Returns the controller that should control a new connection. With a
+     * single controller thread, the main controller is returned. Otherwise, the
+     * {@link #getControllerBalancing()} strategy is applied.
+     * 
+     * @return The controller that should control a new connection.
+     */
+    public ConnectionController getBestController() {
+        ConnectionController result = null;
+        int size = getControllers().size();
+
+        if (size == 1) {
+            result = getController();
+        } else if ("loadScore".equals(getControllerBalancing())) {
+            int bestScore = Integer.MAX_VALUE;
+
+            for (ConnectionController current : getControllers()) {
+                int currentScore = current.getLoadScore();
+
+                if (currentScore < bestScore) {
+                    bestScore = currentScore;
+                    result = current;
+                }
+            }
+        } else {
+            int index = this.controllerIndex.getAndIncrement()
+                    & Integer.MAX_VALUE;
+            result = getControllers().get(index % size);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the strategy used to distribute new connections between the
+     * controllers. Possible values are "roundRobin" and "loadScore".
+     * 
+     * @return The strategy used to distribute new connections between the
+     *         controllers.
+     */
+    public String getControllerBalancing() {
+        return getHelpedParameters().getFirstValue("controllerBalancing",
+                "roundRobin");
+    }
+
+    /**
+     * Returns the list of controllers, starting with the main one returned by
+     * {@link #getController()}.
+     * 
+     * @return The list of controllers.
+     */
+    public List<ConnectionController> getControllers() {
+        return controllers;
+    }
+
+    /**
+     * Returns the number of controller threads, each one owning its own NIO
+     * selector.
+     * 
+     * @return The number of controller threads.
+     */
+    public int getControllerThreads() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "controllerThreads", "1"));
+    }
+
     /**
      * Returns the time for the controller thread to sleep between each control.
      * 
@@ -435,6 +596,18 @@ public abstract class BaseHelper<T extends Connector> extends
                 "lowThreads", "8"));
     }
 
+    /**
+     * Returns the maximum number of calls serviced concurrently when each call
+     * is dispatched on its own worker thread.
+     * 
+     * @return The maximum number of calls serviced concurrently.
+     * @see #isThreadPerCall()
+     */
+    public int getMaxConcurrentCalls() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxConcurrentCalls", "1000"));
+    }
+
     /**
      * Returns the time for an idle IO connection or request to wait for an
      * operation before being closed. For an unlimited wait, use '0' as value.
@@ -590,6 +763,7 @@ public abstract class BaseHelper<T extends Connector> extends
                 execute(new Runnable() {
                     public void run() {
                         try {
+                            setThreadLocalVariables(response);
                             doHandleInbound(response);
                         } finally {
                             Engine.clearThreadLocalVariables();
@@ -629,6 +803,7 @@ public abstract class BaseHelper<T extends Connector> extends
                 execute(new Runnable() {
                     public void run() {
                         try {
+                            setThreadLocalVariables(response);
                             doHandleOutbound(response);
                         } finally {
                             Engine.clearThreadLocalVariables();
@@ -693,6 +868,18 @@ public abstract class BaseHelper<T extends Connector> extends
         return !isClientSide();
     }
 
+    /**
+     * Indicates if each call should be dispatched on its own short-lived worker
+     * thread, up to {@link #getMaxConcurrentCalls()}, instead of being serviced
+     * by a pool of reusable threads.
+     * 
+     * @return True if each call should be dispatched on its own worker thread.
+     */
+    public boolean isThreadPerCall() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "threadPerCall", "false"));
+    }
+
     /**
      * Indicates if console tracing is enabled.
      * 
@@ -706,13 +893,16 @@ public abstract class BaseHelper<T extends Connector> extends
     /**
      * Indicates if the worker service is busy. This state is detected by
      * checking if the number of active task running is superior or equal to the
-     * maximum pool size.
+     * number of threads for the overload state, or to the maximum number of
+     * concurrent calls when each call has its own thread.
      * 
      * @return True if the worker service is busy.
      */
     protected boolean isWorkerServiceOverloaded() {
+        int lowThreads = isThreadPerCall() ? getMaxConcurrentCalls()
+                : getLowThreads();
         return (getWorkerService() != null)
-                && getWorkerService().getActiveCount() >= getLowThreads();
+                && getWorkerService().getActiveCount() >= lowThreads;
     }
 
     /**
@@ -751,16 +941,44 @@ public abstract class BaseHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Sets the thread local variables of the current worker thread from the
+     * given message, including the values captured when it was queued.
+     * 
+     * @param response
+     *            The message to handle.
+     */
+    protected void setThreadLocalVariables(Response response) {
+        Response.setCurrent(response);
+        Application.setCurrent((Application) response.getAttributes().get(
+                "org.restlet.application"));
+        Context.setCurrent((Context) response.getAttributes().get(
+                "org.restlet.context"));
+        VirtualHost.setCurrent((Integer) response.getAttributes().get(
+                "org.restlet.virtualHost"));
+    }
+
     @Override
     public void start() throws Exception {
         super.start();
+
+        // Create the secondary controllers
+        this.controllers.clear();
+        this.controllers.add(this.controller);
+
+        for (int i = 1; i < getControllerThreads(); i++) {
+            this.controllers.add(createSecondaryController());
+        }
+
         this.controllerService = createControllerService();
 
         if (hasWorkerThreads()) {
             this.workerService = createWorkerService();
         }
 
-        this.controllerService.submit(this.controller);
+        for (ConnectionController controller : getControllers()) {
+            this.controllerService.submit(controller);
+        }
     }
 
     @Override
@@ -37,7 +37,14 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.channels.SocketChannel;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 
@@ -59,6 +66,15 @@ import org.restlet.data.Status;
  * <th>Description</th>
  * </tr>
  * <tr>
+ * <td>dnsCacheTtlMs</td>
+ * <td>int</td>
+ * <td>0</td>
+ * <td>Time during which the socket address resolved for a host domain and port
+ * is reused, or 0 to resolve it for each request. Reusing an address saves a
+ * DNS lookup per request but delays the detection of address changes, such as
+ * DNS failovers.</td>
+ * </tr>
+ * <tr>
  * <td>proxyHost</td>
  * <td>String</td>
  * <td>System property "http.proxyHost"</td>
@@ -71,6 +87,13 @@ import org.restlet.data.Status;
  * <td>The port of the HTTP proxy.</td>
  * </tr>
  * <tr>
+ * <td>pipeliningConnections</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if idempotent requests should be pipelined on the least busy
+ * persistent connection to the target host instead of opening a new one.</td>
+ * </tr>
+ * <tr>
  * <td>socketConnectTimeoutMs</td>
  * <td>int</td>
  * <td>0</td>
@@ -84,6 +107,43 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
     protected static final String CONNECTOR_LATCH = "org.restlet.engine.connector.latch";
 
+    /** The maximum number of resolved socket addresses kept. */
+    private static final int MAX_RESOLVED_ADDRESSES = 256;
+
+    /**
+     * Socket address resolved for a host domain and port.
+     */
+    private static class ResolvedAddress {
+        /** The resolved socket address. */
+        private final InetSocketAddress address;
+
+        /** The time after which the address must be resolved again. */
+        private final long expirationTime;
+
+        /**
+         * Constructor.
+         * 
+         * @param address
+         *            The resolved socket address.
+         * @param expirationTime
+         *            The time after which the address must be resolved again.
+         */
+        private ResolvedAddress(InetSocketAddress address,
+                long expirationTime) {
+            this.address = address;
+            this.expirationTime = expirationTime;
+        }
+    }
+
+    /** The origins of the active connections. */
+    private final ConcurrentMap<Connection<Client>, String> connectionOrigins;
+
+    /** The active connections indexed by origin. */
+    private final ConcurrentMap<String, Set<Connection<Client>>> hostConnections;
+
+    /** The resolved socket addresses indexed by host domain and port. */
+    private final Map<String, ResolvedAddress> resolvedAddresses;
+
     /**
      * Constructor.
      * 
@@ -92,6 +152,77 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
      */
     public ClientConnectionHelper(Client connector) {
         super(connector, true);
+        this.connectionOrigins = new ConcurrentHashMap<Connection<Client>, String>();
+        this.hostConnections = new ConcurrentHashMap<String, Set<Connection<Client>>>();
+        this.resolvedAddresses = Collections
+                .synchronizedMap(new LinkedHashMap<String, ResolvedAddress>(
+                        16, 0.75f, true) {
+                    private static final long serialVersionUID = 1L;
+
+                    @Override
+                    protected boolean removeEldestEntry(
+                            Map.Entry<String, ResolvedAddress> eldest) {
+                        return size() > MAX_RESOLVED_ADDRESSES;
+                    }
+                });
+    }
+
+    /**
+     * Adds a connection to the connections of its origin.
+     * 
+     * @param origin
+     *            The origin of the connection.
+     * @param connection
+     *            The connection to add.
+     */
+    private void addHostConnection(String origin,
+            Connection<Client> connection) {
+        Set<Connection<Client>> connections = null;
+        this.connectionOrigins.put(connection, origin);
+
+        // Retry if the set was concurrently removed after becoming empty
+        while ((connections == null)
+                || (this.hostConnections.get(origin) != connections)) {
+            connections = this.hostConnections.get(origin);
+
+            if (connections == null) {
+                connections = Collections
+                        .newSetFromMap(new ConcurrentHashMap<Connection<Client>, Boolean>());
+                Set<Connection<Client>> current = this.hostConnections
+                        .putIfAbsent(origin, connections);
+
+                if (current != null) {
+                    connections = current;
+                }
+            }
+
+            connections.add(connection);
+        }
+    }
+
+    /**
+     * Checks in the connection back into the pool, after detaching it from the
+     * connections of its origin.
+     * 
+     * @param connection
+     *            The connection to check in.
+     */
+    @Override
+    protected void checkin(Connection<?> connection) {
+        String origin = this.connectionOrigins.remove(connection);
+        Set<Connection<Client>> connections = (origin == null) ? null
+                : this.hostConnections.get(origin);
+
+        if (connections != null) {
+            connections.remove(connection);
+
+            if (connections.isEmpty()) {
+                // Don't keep an entry for each origin ever contacted
+                this.hostConnections.remove(origin, connections);
+            }
+        }
+
+        super.checkin(connection);
     }
 
     @Override
@@ -196,6 +327,13 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
                 if (bestConn != null) {
                     bestConn.getOutboundWay().handle(response);
+
+                    if (bestConn.getController() == getController()) {
+                        bestConn.markDirty();
+                    } else {
+                        // Let the owning controller update the connection
+                        bestConn.wakeup();
+                    }
                 } else {
                     getLogger().log(Level.WARNING,
                             "Unable to find a connection to send the request");
@@ -244,31 +382,32 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                             "Unable to create a socket address related to the request.");
         } else {
             // Associate the given request to the first available connection
-            // opened on the same host domain and port.
-            for (Iterator<Connection<Client>> iterator = getConnections()
+            // opened for the same origin.
+            String origin = getOrigin(request);
+            Set<Connection<Client>> connections = getHostConnections(origin);
+
+            for (Iterator<Connection<Client>> iterator = connections
                     .iterator(); !foundConn && iterator.hasNext();) {
                 Connection<Client> currConn = iterator.next();
 
-                if (socketAddress.equals(currConn.getSocketAddress())) {
-                    if (currConn.isAvailable()) {
+                if (currConn.isAvailable()) {
+                    result = currConn;
+                    foundConn = true;
+                } else if (currConn.getState()
+                        .compareTo(ConnectionState.OPEN) <= 0) {
+                    // Assign the request to the busy connection that handles
+                    // the less number of messages. This is useful in case the
+                    // maximum number of connections has been reached. As a
+                    // drawback, the message will only be handled as soon as
+                    // possible.
+                    int currScore = currConn.getLoadScore();
+
+                    if (bestScore > currScore) {
+                        bestScore = currScore;
                         result = currConn;
-                        foundConn = true;
-                    } else if (currConn.getState().compareTo(
-                            ConnectionState.OPEN) <= 0) {
-                        // Assign the request to the busy connection that
-                        // handles the less number of messages. This is useful
-                        // in case the maximum number of connections has been
-                        // reached. As a drawback, the message will only be
-                        // handled as soon as possible.
-                        int currScore = currConn.getLoadScore();
-
-                        if (bestScore > currScore) {
-                            bestScore = currScore;
-                            result = currConn;
-                        }
-
-                        hostConnectionCount++;
                     }
+
+                    hostConnectionCount++;
                 }
             }
 
@@ -279,8 +418,16 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                         Level.FINE,
                         "Reusing an existing client connection to: "
                                 + socketAddress);
+            } else if ((result != null) && result.isPipelining()
+                    && result.isPersistent()
+                    && request.getMethod().isIdempotent()) {
+                getLogger().log(
+                        Level.FINE,
+                        "Pipelining the request on an existing client "
+                                + "connection to: "
+                                + socketAddress);
             } else if ((getMaxTotalConnections() != -1)
-                    && (getConnections().size() >= getMaxTotalConnections())) {
+                    && (getActiveConnections().size() >= getMaxTotalConnections())) {
                 if (result == null) {
                     getLogger()
                             .log(Level.WARNING,
@@ -313,16 +460,87 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
                                     + socketAddress);
                 }
 
+                ConnectionController controller = getBestController();
                 result = checkout(
                         createSocketChannel(request.isConfidential(),
-                                socketAddress), getController(), socketAddress);
-                getConnections().add(result);
+                                socketAddress), controller, socketAddress);
+                getActiveConnections().add(result);
+                addHostConnection(origin, result);
+                controller.getConnections().add(result);
             }
         }
 
         return result;
     }
 
+    /**
+     * Returns the time during which the socket address resolved for a host
+     * domain and port is reused, or 0 to resolve it for each request.
+     * 
+     * @return The time during which a resolved socket address is reused.
+     */
+    public int getDnsCacheTtlMs() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "dnsCacheTtlMs", "0"));
+    }
+
+    /**
+     * Returns the active connections opened for a given origin.
+     * 
+     * @param origin
+     *            The origin, as returned by {@link #getOrigin(Request)}.
+     * @return The active connections opened for the origin, possibly empty.
+     */
+    public Set<Connection<Client>> getHostConnections(String origin) {
+        Set<Connection<Client>> result = this.hostConnections.get(origin);
+        return (result == null) ? Collections.<Connection<Client>> emptySet()
+                : result;
+    }
+
+    /**
+     * Returns the origin of the connections able to handle a given request,
+     * made of the scheme, host domain and port of its target reference, or of
+     * the proxy host if the helper relies on one. Requests of the same origin
+     * share the same connections, independently of the socket address
+     * currently resolved for the host domain.
+     * 
+     * @param request
+     *            The request.
+     * @return The origin of the connections able to handle the request.
+     * @throws UnknownHostException
+     *             If the proxy port is invalid.
+     */
+    protected String getOrigin(Request request) throws UnknownHostException {
+        Reference resourceRef = getTargetRef(request);
+        String scheme = resourceRef.getScheme();
+        StringBuilder sb = new StringBuilder();
+
+        if (scheme != null) {
+            sb.append(scheme.toLowerCase(Locale.ENGLISH));
+        } else {
+            sb.append(getProtocols().get(0).getSchemeName());
+        }
+
+        sb.append("://");
+
+        // Does this helper relies on a proxy?
+        String proxyDomain = getProxyHost();
+
+        if (proxyDomain != null && !"".equals(proxyDomain)) {
+            sb.append(proxyDomain).append(':').append(getValidProxyPort());
+        } else {
+            String hostDomain = resourceRef.getHostDomain();
+
+            if (hostDomain != null) {
+                sb.append(hostDomain.toLowerCase(Locale.ENGLISH));
+            }
+
+            sb.append(':').append(getTargetPort(resourceRef));
+        }
+
+        return sb.toString();
+    }
+
     /**
      * Returns the host name of the HTTP proxy, if specified.
      * 
@@ -373,32 +591,16 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
 
         if (proxyDomain != null && !"".equals(proxyDomain)) {
             hostDomain = proxyDomain;
-            try {
-                hostPort = getProxyPort();
-            } catch (NumberFormatException nfe) {
-                getLogger().log(Level.WARNING,
-                        "The proxy port must be a valid numeric value.", nfe);
-                throw new UnknownHostException();
-            }
+            hostPort = getValidProxyPort();
         } else {
-            // Resolve relative references
-            Reference resourceRef = request.getResourceRef().isRelative() ? request
-                    .getResourceRef().getTargetRef() : request.getResourceRef();
-
             // Extract the host info
+            Reference resourceRef = getTargetRef(request);
             hostDomain = resourceRef.getHostDomain();
-            hostPort = resourceRef.getHostPort();
-            if (hostPort == -1) {
-                if (resourceRef.getSchemeProtocol() != null) {
-                    hostPort = resourceRef.getSchemeProtocol().getDefaultPort();
-                } else {
-                    hostPort = getProtocols().get(0).getDefaultPort();
-                }
-            }
+            hostPort = getTargetPort(resourceRef);
         }
 
         if (hostDomain != null) {
-            result = new InetSocketAddress(hostDomain, hostPort);
+            result = resolve(hostDomain, hostPort);
             if (result != null && result.getAddress() == null) {
                 throw new UnknownHostException(hostDomain);
             }
@@ -423,6 +625,59 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         return result;
     }
 
+    /**
+     * Returns the port of a target reference, or the default port of its
+     * scheme if none is specified.
+     * 
+     * @param resourceRef
+     *            The target reference.
+     * @return The port of the target reference.
+     */
+    private int getTargetPort(Reference resourceRef) {
+        int result = resourceRef.getHostPort();
+
+        if (result == -1) {
+            if (resourceRef.getSchemeProtocol() != null) {
+                result = resourceRef.getSchemeProtocol().getDefaultPort();
+            } else {
+                result = getProtocols().get(0).getDefaultPort();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the target reference of a request, resolving relative
+     * references.
+     * 
+     * @param request
+     *            The request.
+     * @return The target reference of the request.
+     */
+    private Reference getTargetRef(Request request) {
+        return request.getResourceRef().isRelative() ? request
+                .getResourceRef().getTargetRef() : request.getResourceRef();
+    }
+
+    /**
+     * Returns the port of the HTTP proxy, checking that it is a valid numeric
+     * value.
+     * 
+     * @return The port of the HTTP proxy.
+     * @throws UnknownHostException
+     *             If the proxy port is invalid.
+     */
+    private int getValidProxyPort() throws UnknownHostException {
+        try {
+            return getProxyPort();
+        } catch (NumberFormatException nfe) {
+            getLogger().log(Level.WARNING,
+                    "The proxy port must be a valid numeric value.", nfe);
+            throw new UnknownHostException();
+        }
+    }
+
     @Override
     public void handle(Request request, Response response) {
         try {
@@ -476,6 +731,46 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
         return getProxyHost() != null;
     }
 
+    /**
+     * Resolves the socket address of a host domain and port. The resolved
+     * address is reused during {@link #getDnsCacheTtlMs()} milliseconds to
+     * prevent a DNS lookup for each request. Unresolved addresses aren't
+     * cached.
+     * 
+     * @param hostDomain
+     *            The host domain.
+     * @param hostPort
+     *            The host port.
+     * @return The resolved socket address.
+     */
+    protected InetSocketAddress resolve(String hostDomain, int hostPort) {
+        InetSocketAddress result = null;
+        int ttl = getDnsCacheTtlMs();
+
+        if (ttl > 0) {
+            String key = hostDomain + ':' + hostPort;
+            long now = System.currentTimeMillis();
+            ResolvedAddress resolved = this.resolvedAddresses.get(key);
+
+            if ((resolved != null) && (resolved.expirationTime > now)) {
+                result = resolved.address;
+            } else {
+                result = new InetSocketAddress(hostDomain, hostPort);
+
+                if (result.getAddress() != null) {
+                    this.resolvedAddresses.put(key, new ResolvedAddress(
+                            result, now + ttl));
+                } else if (resolved != null) {
+                    this.resolvedAddresses.remove(key);
+                }
+            }
+        } else {
+            result = new InetSocketAddress(hostDomain, hostPort);
+        }
+
+        return result;
+    }
+
     @Override
     public void start() throws Exception {
         getLogger().info("Starting the internal " + getProtocols() + " client");
@@ -486,6 +781,9 @@ public abstract class ClientConnectionHelper extends ConnectionHelper<Client> {
     public void stop() throws Exception {
         getLogger().info("Stopping the internal " + getProtocols() + " client");
         super.stop();
+        this.connectionOrigins.clear();
+        this.hostConnections.clear();
+        this.resolvedAddresses.clear();
     }
 
     /**
@@ -168,6 +168,13 @@ public abstract class ClientInboundWay extends InboundWay {
         // Add it to the helper queue
         getHelper().getInboundMessages().add(getMessage());
 
+        // Requests queued behind this response are only sent or batched
+        // once the controller updates the connection, see
+        // HttpClientOutboundWay#onFill()
+        if (!getConnection().getOutboundWay().isEmpty()) {
+            getConnection().wakeup();
+        }
+
         if (getMessage().isEntityAvailable()) {
             // Let's wait for the entity to be consumed by the caller
             setIoState(IoState.IDLE);
@@ -183,9 +190,10 @@ public abstract class ClientInboundWay extends InboundWay {
         int statusCode = -1;
         String reasonPhrase = null;
 
+        CharSequence line = getLine();
         int i = 0;
         int start = 0;
-        int size = getLineBuilder().length();
+        int size = line.length();
         char next;
 
         if (size == 0) {
@@ -193,27 +201,26 @@ public abstract class ClientInboundWay extends InboundWay {
         } else {
             // Parse the protocol version
             for (i = start; (version == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
 
                 if (HeaderUtils.isSpace(next)) {
-                    version = getLineBuilder().substring(start, i);
+                    version = line.subSequence(start, i).toString();
                     start = i + 1;
                 }
             }
 
             // Parse the status code
             for (i = start; (statusCode == -1) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
 
                 if (HeaderUtils.isSpace(next)) {
                     try {
-                        statusCode = Integer.parseInt(getLineBuilder()
-                                .substring(start, i));
+                        statusCode = Integer.parseInt(line.subSequence(
+                                start, i).toString());
                     } catch (NumberFormatException e) {
                         throw new IOException(
                                 "Unable to parse the status code. Non numeric value: "
-                                        + getLineBuilder().substring(start, i)
-                                                .toString());
+                                        + line.subSequence(start, i).toString());
                     }
 
                     start = i + 1;
@@ -227,11 +234,11 @@ public abstract class ClientInboundWay extends InboundWay {
 
             // Parse the reason phrase
             for (i = start; (reasonPhrase == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
             }
 
             if (i == size) {
-                reasonPhrase = getLineBuilder().substring(start, i);
+                reasonPhrase = line.subSequence(start, i).toString();
                 start = i + 1;
             }
 
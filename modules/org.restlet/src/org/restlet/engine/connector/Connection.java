@@ -39,6 +39,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,6 +50,7 @@ import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableSelectionChannel;
 import org.restlet.engine.io.ReadableSocketChannel;
 import org.restlet.engine.io.ReadableTraceChannel;
+import org.restlet.engine.io.WakeupListener;
 import org.restlet.engine.io.WritableSelectionChannel;
 import org.restlet.engine.io.WritableSocketChannel;
 import org.restlet.engine.io.WritableTraceChannel;
@@ -63,7 +65,17 @@ import org.restlet.util.SelectionRegistration;
  *            The parent connector type.
  * @author Jerome Louvel
  */
-public class Connection<T extends Connector> implements SelectionListener {
+public class Connection<T extends Connector> implements SelectionListener,
+        WakeupListener {
+
+    /** The IO controller. */
+    private volatile ConnectionController controller;
+
+    /**
+     * Indicates if the connection is queued for the next control cycle of its
+     * controller.
+     */
+    private final AtomicBoolean dirty;
 
     /** The parent connector helper. */
     private final ConnectionHelper<T> helper;
@@ -126,6 +138,7 @@ public class Connection<T extends Connector> implements SelectionListener {
     public Connection(ConnectionHelper<T> helper, SocketChannel socketChannel,
             ConnectionController controller, InetSocketAddress socketAddress,
             int inboundBufferSize, int outboundBufferSize) throws IOException {
+        this.dirty = new AtomicBoolean();
         this.helper = helper;
         this.inboundWay = helper.createInboundWay(this, inboundBufferSize);
         this.outboundWay = helper.createOutboundWay(this, outboundBufferSize);
@@ -137,6 +150,8 @@ public class Connection<T extends Connector> implements SelectionListener {
      * connection pool.
      */
     public void clear() {
+        this.controller = null;
+        this.dirty.set(false);
         this.inboundWay.clear();
         this.outboundWay.clear();
         this.readableSelectionChannel = null;
@@ -146,6 +161,16 @@ public class Connection<T extends Connector> implements SelectionListener {
         this.writableSelectionChannel = null;
     }
 
+    /**
+     * Clears the dirty flag. Invoked by the controller just before controlling
+     * the connection so that later state changes queue it again.
+     * 
+     * @return True if the connection was dirty.
+     */
+    protected boolean clearDirty() {
+        return this.dirty.getAndSet(false);
+    }
+
     /**
      * Closes the connection. By default, set the state to
      * {@link ConnectionState#CLOSED}.
@@ -246,6 +271,13 @@ public class Connection<T extends Connector> implements SelectionListener {
                 onActivity();
                 return super.write(src);
             }
+
+            @Override
+            public long write(ByteBuffer[] srcs, int offset, int length)
+                    throws IOException {
+                onActivity();
+                return super.write(srcs, offset, length);
+            }
         };
     }
 
@@ -260,6 +292,15 @@ public class Connection<T extends Connector> implements SelectionListener {
                         .getInetAddress().getHostAddress();
     }
 
+    /**
+     * Returns the IO controller.
+     * 
+     * @return The IO controller.
+     */
+    public ConnectionController getController() {
+        return controller;
+    }
+
     /**
      * Returns the parent connector helper.
      * 
@@ -445,6 +486,8 @@ public class Connection<T extends Connector> implements SelectionListener {
     public void init(SocketChannel socketChannel,
             ConnectionController controller, InetSocketAddress socketAddress)
             throws IOException {
+        this.controller = controller;
+        this.dirty.set(false);
         this.persistent = helper.isPersistingConnections();
         this.pipelining = helper.isPipeliningConnections();
         this.maxIoIdleTimeMs = helper.getMaxIoIdleTimeMs();
@@ -466,9 +509,11 @@ public class Connection<T extends Connector> implements SelectionListener {
                         this.writableSelectionChannel);
             }
 
-            // Setup the wakeup listener
-            getInboundWay().getRegistration().setWakeupListener(controller);
-            getOutboundWay().getRegistration().setWakeupListener(controller);
+            // Setup the wakeup listener so that the connection is marked as
+            // dirty before waking up the controller
+            this.registration.setWakeupListener(this);
+            getInboundWay().getRegistration().setWakeupListener(this);
+            getOutboundWay().getRegistration().setWakeupListener(this);
         }
 
         onActivity();
@@ -485,6 +530,16 @@ public class Connection<T extends Connector> implements SelectionListener {
                 && getOutboundWay().isAvailable();
     }
 
+    /**
+     * Indicates if the connection is queued for the next control cycle of its
+     * controller.
+     * 
+     * @return True if the connection is queued for the next control cycle.
+     */
+    public boolean isDirty() {
+        return this.dirty.get();
+    }
+
     /**
      * Indicates if it is a client-side connection.
      * 
@@ -540,6 +595,20 @@ public class Connection<T extends Connector> implements SelectionListener {
         return getHelper().isServerSide();
     }
 
+    /**
+     * Marks the connection as dirty, queuing it for the next control cycle of
+     * its controller. Invoked each time the state of the connection or of its
+     * ways changes, so that the controller only checks the connections that
+     * need it.
+     */
+    public void markDirty() {
+        ConnectionController controller = getController();
+
+        if ((controller != null) && this.dirty.compareAndSet(false, true)) {
+            controller.getDirtyConnections().add(this);
+        }
+    }
+
     /**
      * Notifies the connection that a new activity has been detected and that it
      * should be kept alive.
@@ -572,7 +641,7 @@ public class Connection<T extends Connector> implements SelectionListener {
         close(false);
 
         // Give the controller a hint to clean up the closed connection
-        getHelper().getController().wakeup();
+        wakeup();
     }
 
     /**
@@ -587,6 +656,8 @@ public class Connection<T extends Connector> implements SelectionListener {
      */
     public void onSelected(SelectionRegistration registration)
             throws IOException {
+        boolean progressed = false;
+
         try {
             onActivity();
 
@@ -611,17 +682,20 @@ public class Connection<T extends Connector> implements SelectionListener {
                 synchronized (getInboundWay().getBuffer().getLock()) {
                     getInboundWay().getRegistration().onSelected(
                             registration.getReadyOperations());
+                    progressed = getInboundWay().hasProgressed();
                 }
             } else if (registration.isWritable()) {
                 synchronized (getOutboundWay().getBuffer().getLock()) {
                     getOutboundWay().getRegistration().onSelected(
                             registration.getReadyOperations());
+                    progressed = getOutboundWay().hasProgressed();
                 }
             } else if (registration.isConnectable()) {
                 // Client-side asynchronous connection
                 try {
                     if (getSocketChannel().finishConnect()) {
                         open();
+                        progressed = true;
                     } else {
                         onError("Unable to establish a connection to "
                                 + getSocketAddress(), null,
@@ -634,7 +708,7 @@ public class Connection<T extends Connector> implements SelectionListener {
                 }
             }
 
-            // Keep looping while ways are ready
+            // Keep looping while ways are ready and make progress
             // Useful for SSL connections that can alternate between ways
             // without going back to NIO selection.
             boolean readyFound = false;
@@ -644,8 +718,6 @@ public class Connection<T extends Connector> implements SelectionListener {
 
                 synchronized (getInboundWay().getBuffer().getLock()) {
                     if (getInboundWay().getIoState() == IoState.READY) {
-                        readyFound = true;
-
                         if (getLogger().isLoggable(Level.FINEST)) {
                             getLogger().finest(
                                     "Entering into a connection READY loop");
@@ -653,13 +725,16 @@ public class Connection<T extends Connector> implements SelectionListener {
 
                         getInboundWay().onSelected(
                                 getInboundWay().getRegistration());
+
+                        if (getInboundWay().hasProgressed()) {
+                            readyFound = true;
+                            progressed = true;
+                        }
                     }
                 }
 
                 synchronized (getOutboundWay().getBuffer().getLock()) {
                     if (getOutboundWay().getIoState() == IoState.READY) {
-                        readyFound = true;
-
                         if (getLogger().isLoggable(Level.FINEST)) {
                             getLogger().finest(
                                     "Entering into a connection READY loop");
@@ -667,6 +742,11 @@ public class Connection<T extends Connector> implements SelectionListener {
 
                         getOutboundWay().onSelected(
                                 getOutboundWay().getRegistration());
+
+                        if (getOutboundWay().hasProgressed()) {
+                            readyFound = true;
+                            progressed = true;
+                        }
                     }
                 }
             } while (readyFound);
@@ -674,6 +754,19 @@ public class Connection<T extends Connector> implements SelectionListener {
             onError("Unexpected error detected. Closing the connection.", t,
                     Status.CONNECTOR_ERROR_INTERNAL);
         }
+
+        // Give the drained byte buffers back to the pool
+        getInboundWay().getBuffer().release();
+        getOutboundWay().getBuffer().release();
+
+        // The IO processing might require a new NIO interest
+        if (isReady() && progressed) {
+            // More work may be waiting, make sure it isn't left idle
+            wakeup();
+        } else {
+            // Without progress, wait for the next control cycle
+            markDirty();
+        }
     }
 
     /**
@@ -693,6 +786,16 @@ public class Connection<T extends Connector> implements SelectionListener {
         close(false);
     }
 
+    /**
+     * Invoked when one of the connection registrations needs to wake up the
+     * controller, typically when a thread blocks on it. By default, it calls
+     * {@link #wakeup()}.
+     */
+    public void onWokeup(SelectionRegistration selectionRegistration)
+            throws IOException {
+        wakeup();
+    }
+
     /**
      * Opens the connection. By default, set the IO state of the connection to
      * {@link ConnectionState#OPEN} and the IO state of the inbound way to
@@ -768,6 +871,7 @@ public class Connection<T extends Connector> implements SelectionListener {
             }
 
             this.state = state;
+            markDirty();
         }
     }
 
@@ -826,4 +930,19 @@ public class Connection<T extends Connector> implements SelectionListener {
 
         return result;
     }
+
+    /**
+     * Marks the connection as dirty and wakes up its controller thread so that
+     * it controls the connection as soon as possible. Useful when the
+     * connection state is updated from another thread.
+     */
+    public void wakeup() {
+        ConnectionController controller = getController();
+
+        if (controller != null) {
+            markDirty();
+            controller.wakeup();
+        }
+    }
+
 }
@@ -39,8 +39,11 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.logging.Level;
 
@@ -57,6 +60,21 @@ import org.restlet.util.SelectionRegistration;
 public class ConnectionController extends Controller implements Runnable,
         WakeupListener {
 
+    /**
+     * The period between two controls of all the connections, mainly to detect
+     * idle timeouts.
+     */
+    public static final long SWEEP_PERIOD_MS = 1000L;
+
+    /** The connections controlled by this controller. */
+    private final Set<Connection<?>> connections;
+
+    /** The queue of connections whose state changed since the last control. */
+    private final Queue<Connection<?>> dirtyConnections;
+
+    /** The time of the last control of all the connections. */
+    private volatile long lastSweep;
+
     /** The list of new selection registrations. */
     private final Queue<SelectionRegistration> newRegistrations;
 
@@ -74,6 +92,10 @@ public class ConnectionController extends Controller implements Runnable,
      */
     public ConnectionController(ConnectionHelper<?> helper) {
         super(helper);
+        this.connections = Collections
+                .newSetFromMap(new ConcurrentHashMap<Connection<?>, Boolean>());
+        this.dirtyConnections = new ConcurrentLinkedQueue<Connection<?>>();
+        this.lastSweep = System.currentTimeMillis();
         this.newRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
         this.updatedRegistrations = new ConcurrentLinkedQueue<SelectionRegistration>();
     }
@@ -95,28 +117,59 @@ public class ConnectionController extends Controller implements Runnable,
 
         if (conn.getState() == ConnectionState.CLOSED) {
             // Detach the connection and collect it
-            getHelper().getConnections().remove(conn);
+            getConnections().remove(conn);
+            getHelper().getActiveConnections().remove(conn);
             getHelper().checkin(conn);
         } else if ((conn.getState() == ConnectionState.CLOSING)
                 && conn.isEmpty()) {
             conn.close(false);
         } else if (conn.hasTimedOut()) {
             conn.onTimeOut();
-        } else if (conn.updateState()) {
-            getUpdatedRegistrations().add(conn.getRegistration());
-        } else if (conn.isReady()) {
-            conn.onSelected(conn.getRegistration());
+        } else {
+            if (conn.updateState()) {
+                getUpdatedRegistrations().add(conn.getRegistration());
+            }
+
+            // Bytes already buffered don't need a NIO selection. The
+            // connection wakes the controller up again only if this made
+            // progress, so an idle ready connection can't keep it busy.
+            if (conn.isReady()) {
+                conn.onSelected(conn.getRegistration());
+            }
         }
     }
 
     /**
-     * Controls all helper connections.
+     * Controls the connections of this controller. Only the dirty connections,
+     * whose state changed since the last control, are controlled at each
+     * cycle. All the connections are controlled once per
+     * {@link #SWEEP_PERIOD_MS} in order to detect idle timeouts.
      * 
      * @throws IOException
      */
     protected void controlConnections() throws IOException {
-        for (Connection<?> connection : getHelper().getConnections()) {
-            controlConnection(connection);
+        long now = System.currentTimeMillis();
+
+        if ((now - this.lastSweep) >= SWEEP_PERIOD_MS) {
+            this.lastSweep = now;
+
+            for (Connection<?> connection : getConnections()) {
+                controlConnection(connection);
+            }
+        }
+
+        // Control the dirty connections, leaving the ones marked again during
+        // this cycle for the next one
+        int size = getDirtyConnections().size();
+        Connection<?> next;
+
+        for (int i = 0; (i < size)
+                && ((next = getDirtyConnections().poll()) != null); i++) {
+            // Ignore connections recycled by another controller
+            if (next.getController() == this) {
+                next.clearDirty();
+                controlConnection(next);
+            }
         }
     }
 
@@ -141,9 +194,12 @@ public class ConnectionController extends Controller implements Runnable,
     @Override
     protected void doInit() {
         this.selector = createSelector();
-        // Done in the controller for thread safety reason regarding the byte
-        // buffers part of the pooled connections
-        getHelper().createConnectionPool();
+
+        if (isMain()) {
+            // Done in the controller for thread safety reason regarding the
+            // byte buffers part of the pooled connections
+            getHelper().createConnectionPool();
+        }
     }
 
     @Override
@@ -171,6 +227,43 @@ public class ConnectionController extends Controller implements Runnable,
         selectKeys(sleepTime);
     }
 
+    /**
+     * Returns the set of connections controlled by this controller.
+     * 
+     * @return The set of connections controlled by this controller.
+     */
+    public Set<Connection<?>> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the queue of connections whose state changed since the last
+     * control.
+     * 
+     * @return The queue of connections whose state changed since the last
+     *         control.
+     */
+    protected Queue<Connection<?>> getDirtyConnections() {
+        return dirtyConnections;
+    }
+
+    /**
+     * Returns a score representing the controller load and that could be
+     * compared with other controllers of the same parent connector. It is the
+     * number of controlled connections plus their own load score.
+     * 
+     * @return A score representing the controller load.
+     */
+    public int getLoadScore() {
+        int result = 0;
+
+        for (Connection<?> connection : getConnections()) {
+            result += 1 + connection.getLoadScore();
+        }
+
+        return result;
+    }
+
     /**
      * Returns the queue of new selection registrations.
      * 
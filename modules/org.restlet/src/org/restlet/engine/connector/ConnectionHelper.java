@@ -38,13 +38,17 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketException;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.restlet.Application;
 import org.restlet.Connector;
 import org.restlet.Context;
 import org.restlet.Response;
+import org.restlet.engine.io.BufferPool;
 import org.restlet.routing.VirtualHost;
 
 /**
@@ -97,6 +101,15 @@ import org.restlet.routing.VirtualHost;
  * <td>Indicates if connections should be pooled to save instantiation time.</td>
  * </tr>
  * <tr>
+ * <td>pooledBuffers</td>
+ * <td>boolean</td>
+ * <td>false</td>
+ * <td>Indicates if the byte buffers of the connections should be borrowed from
+ * a pool shared by the connector only while bytes are received or sent. This
+ * saves memory for idle connections. See {@link #getBufferPool()} for the
+ * related statistics.</td>
+ * </tr>
+ * <tr>
  * <td>socketKeepAlive</td>
  * <td>boolean</td>
  * <td>true</td>
@@ -157,11 +170,14 @@ import org.restlet.routing.VirtualHost;
  */
 public abstract class ConnectionHelper<T extends Connector> extends
         BaseHelper<T> {
+    /** The byte buffer pool. */
+    private volatile BufferPool bufferPool;
+
     /** The connection pool. */
     private volatile ConnectionPool<T> connectionPool;
 
     /** The set of active connections. */
-    private final List<Connection<T>> connections;
+    private final Set<Connection<T>> connections;
 
     /**
      * Constructor.
@@ -173,7 +189,9 @@ public abstract class ConnectionHelper<T extends Connector> extends
      */
     public ConnectionHelper(T connector, boolean clientSide) {
         super(connector, clientSide);
-        this.connections = new CopyOnWriteArrayList<Connection<T>>();
+        this.connections = Collections
+                .newSetFromMap(new ConcurrentHashMap<Connection<T>, Boolean>());
+        this.bufferPool = null;
         this.connectionPool = null;
     }
 
@@ -290,6 +308,18 @@ public abstract class ConnectionHelper<T extends Connector> extends
         }
     }
 
+    /**
+     * Creates an additional controller owning its own NIO selector and a share
+     * of the connections. By default, it returns a plain
+     * {@link ConnectionController}.
+     * 
+     * @return A new additional controller.
+     */
+    @Override
+    protected ConnectionController createSecondaryController() {
+        return new ConnectionController(this);
+    }
+
     /**
      * Creates an inbound way for the given connection.
      * 
@@ -321,6 +351,8 @@ public abstract class ConnectionHelper<T extends Connector> extends
         if (isPooledConnection()) {
             this.connectionPool = null;
         }
+
+        this.bufferPool = null;
     }
 
     @Override
@@ -328,11 +360,31 @@ public abstract class ConnectionHelper<T extends Connector> extends
         super.doGracefulStop();
 
         // Gracefully close the open connections
-        for (Connection<T> connection : getConnections()) {
+        for (Connection<T> connection : getActiveConnections()) {
             connection.close(true);
         }
     }
 
+    /**
+     * Returns the modifiable set of active connections.
+     * 
+     * @return The modifiable set of active connections.
+     */
+    public Set<Connection<T>> getActiveConnections() {
+        return connections;
+    }
+
+    /**
+     * Returns the byte buffer pool shared by the connections, or null if the
+     * byte buffers aren't pooled. It exposes statistics such as the number of
+     * byte buffers in use, the high water mark and the number of misses.
+     * 
+     * @return The byte buffer pool.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Returns the connection pool.
      * 
@@ -343,12 +395,14 @@ public abstract class ConnectionHelper<T extends Connector> extends
     }
 
     /**
-     * Returns the set of active connections.
+     * Returns a snapshot of the active connections. Use
+     * {@link #getActiveConnections()} to update them.
      * 
-     * @return The set of active connections.
+     * @return A snapshot of the active connections.
      */
     public List<Connection<T>> getConnections() {
-        return connections;
+        return Collections.unmodifiableList(new ArrayList<Connection<T>>(
+                connections));
     }
 
     /**
@@ -457,6 +511,17 @@ public abstract class ConnectionHelper<T extends Connector> extends
                 "pipeliningConnections", "false"));
     }
 
+    /**
+     * Indicates if the byte buffers of the connections should be borrowed from
+     * a shared pool only while bytes are received or sent.
+     * 
+     * @return True if the byte buffers should be pooled.
+     */
+    public boolean isPooledBuffers() {
+        return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
+                "pooledBuffers", "false"));
+    }
+
     /**
      * Indicates if the connection objects should be pooled to save
      * instantiation time.
@@ -523,4 +588,14 @@ public abstract class ConnectionHelper<T extends Connector> extends
         return Boolean.parseBoolean(getHelpedParameters().getFirstValue(
                 "socketReuseAddress", "true"));
     }
+
+    @Override
+    public void start() throws Exception {
+        if (isPooledBuffers()) {
+            this.bufferPool = new BufferPool(isDirectBuffers());
+        }
+
+        super.start();
+    }
+
 }
@@ -85,7 +85,11 @@ public abstract class Controller {
      *            The maximum amount of sleep time.
      */
     protected void doRun(long sleepTime) throws IOException {
-        getHelper().control();
+        if (isMain()) {
+            getHelper().control();
+        } else {
+            getHelper().controlInbound();
+        }
     }
 
     /**
@@ -106,6 +110,16 @@ public abstract class Controller {
         return getHelper().getWorkerService();
     }
 
+    /**
+     * Indicates if it is the main controller of the parent helper, in charge of
+     * the helper's outbound messages and of the overload detection.
+     * 
+     * @return True if it is the main controller of the parent helper.
+     */
+    public boolean isMain() {
+        return getHelper().getController() == this;
+    }
+
     /**
      * Indicates if the controller is overloaded.
      * 
@@ -132,7 +146,8 @@ public abstract class Controller {
             doInit();
             setRunning(true);
             long sleepTime = getHelper().getControllerSleepTimeMs();
-            boolean hasWorkerThreads = getHelper().hasWorkerThreads();
+            boolean hasWorkerThreads = getHelper().hasWorkerThreads()
+                    && isMain();
             boolean isWorkerServiceOverloaded;
 
             while (isRunning()) {
@@ -116,6 +116,13 @@ public class HttpClientInboundWay extends ClientInboundWay {
     public void onMessageCompleted(boolean endDetected) throws IOException {
         getMessages().remove(getMessage());
         super.onMessageCompleted(endDetected);
+
+        // Read the response to the next pipelined request
+        if (!getMessages().isEmpty()
+                && (getConnection().getState() != ConnectionState.CLOSED)) {
+            setMessageState(MessageState.START);
+            getConnection().wakeup();
+        }
     }
 
     @Override
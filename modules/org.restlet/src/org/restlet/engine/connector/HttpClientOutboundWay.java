@@ -34,15 +34,20 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.data.Status;
+import org.restlet.engine.io.Buffer;
+import org.restlet.engine.io.IoState;
 
 /**
- * HTTP client outbound way.
+ * HTTP client outbound way. When the connection is pipelining, idempotent
+ * requests are sent without waiting for the responses of the previous ones,
+ * and the queued requests are batched into the same socket writes.
  * 
  * @author Jerome Louvel
  */
@@ -75,6 +80,15 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         return getMessages().size();
     }
 
+    /**
+     * Returns the client inbound way of the connection.
+     * 
+     * @return The client inbound way of the connection.
+     */
+    private HttpClientInboundWay getInboundWay() {
+        return (HttpClientInboundWay) getConnection().getInboundWay();
+    }
+
     /**
      * Returns the queue of messages.
      * 
@@ -94,6 +108,30 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
         return super.isEmpty() && getMessages().isEmpty();
     }
 
+    /**
+     * Indicates if a message can be sent before the responses to the previous
+     * requests are received. The connection must be persistent and pipelining,
+     * and the message and the previous requests must be idempotent.
+     * 
+     * @param message
+     *            The message to send.
+     * @return True if the message can be pipelined.
+     */
+    protected boolean isPipelinable(Response message) {
+        boolean result = (message != null)
+                && getConnection().isPipelining()
+                && getConnection().isPersistent()
+                && (getConnection().getState() == ConnectionState.OPEN)
+                && message.getRequest().getMethod().isIdempotent();
+
+        for (Iterator<Response> iter = getInboundWay().getMessages()
+                .iterator(); result && iter.hasNext();) {
+            result = iter.next().getRequest().getMethod().isIdempotent();
+        }
+
+        return result;
+    }
+
     @Override
     public void onError(Status status) {
         for (Response rsp : getMessages()) {
@@ -114,17 +152,52 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
             Request request = message.getRequest();
 
             if (request.isExpectingResponse()) {
-                Queue<Response> inboundMessages = ((HttpClientInboundWay) getConnection()
-                        .getInboundWay()).getMessages();
-                inboundMessages.add(message);
-                getConnection().getInboundWay().setMessageState(
-                        MessageState.START);
+                getInboundWay().getMessages().add(message);
+
+                // Responses to pipelined requests are read after the current
+                // one
+                if (getInboundWay().getMessageState() == MessageState.IDLE) {
+                    getInboundWay().setMessageState(MessageState.START);
+                }
             }
         }
 
         super.onHeadersCompleted();
     }
 
+    @Override
+    public int onFill(Buffer buffer, Object... args) throws IOException {
+        int result = super.onFill(buffer, args);
+
+        if ((getMessageState() == MessageState.END) && buffer.canFill()) {
+            // Batch the next pipelinable message into the same write. Queued
+            // messages are only seen here once the controller updated the
+            // connection, which ClientInboundWay#onReceived() ensures by
+            // waking it up while messages are waiting
+            Response next = null;
+            Iterator<Response> iter = getMessages().iterator();
+
+            while ((next == null) && iter.hasNext()) {
+                next = iter.next();
+
+                if (next == getMessage()) {
+                    next = null;
+                }
+            }
+
+            if (isPipelinable(next)) {
+                IoState ioState = getIoState();
+                onMessageCompleted(false);
+                setIoState(ioState);
+                setMessage(next);
+                setMessageState(MessageState.START);
+                result += super.onFill(buffer, args);
+            }
+        }
+
+        return result;
+    }
+
     @Override
     public void onMessageCompleted(boolean endDetected) throws IOException {
         Response message = getMessage();
@@ -151,8 +224,9 @@ public class HttpClientOutboundWay extends ClientOutboundWay {
     @Override
     public void updateState() {
         // Update the IO state if necessary
-        if (getMessage() == null
-                && getConnection().getInboundWay().isAvailable()) {
+        if ((getMessage() == null)
+                && (getInboundWay().isAvailable() || isPipelinable(getMessages()
+                        .peek()))) {
             setMessage(getMessages().peek());
         }
 
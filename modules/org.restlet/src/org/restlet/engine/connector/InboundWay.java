@@ -44,10 +44,12 @@ import org.restlet.engine.header.HeaderReader;
 import org.restlet.engine.header.HeaderUtils;
 import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.BufferState;
+import org.restlet.engine.io.ByteSlice;
 import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableChunkedChannel;
 import org.restlet.engine.io.ReadableSelectionChannel;
 import org.restlet.engine.io.ReadableSizedSelectionChannel;
+import org.restlet.engine.util.HeaderSeries;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.ReadableRepresentation;
 import org.restlet.representation.Representation;
@@ -68,6 +70,12 @@ public abstract class InboundWay extends Way {
     /** The NIO selection registration of the entity. */
     private volatile SelectionRegistration entityRegistration;
 
+    /** The current line read, either in place or via the line builder. */
+    private volatile CharSequence line;
+
+    /** The slice reading a complete line in place in the buffer. */
+    private final ByteSlice lineSlice;
+
     /**
      * Constructor.
      * 
@@ -79,6 +87,7 @@ public abstract class InboundWay extends Way {
     public InboundWay(Connection<?> connection, int bufferSize) {
         super(connection, bufferSize);
         this.builderIndex = 0;
+        this.lineSlice = new ByteSlice();
     }
 
     @Override
@@ -86,6 +95,13 @@ public abstract class InboundWay extends Way {
         super.clear();
         this.builderIndex = 0;
         this.entityRegistration = null;
+        this.line = null;
+    }
+
+    @Override
+    protected void clearLineBuilder() {
+        super.clearLineBuilder();
+        this.line = null;
     }
 
     /**
@@ -147,24 +163,36 @@ public abstract class InboundWay extends Way {
     }
 
     /**
-     * Read the current message line (start line or header line).
+     * Read the current message line (start line or header line). When the
+     * complete line is available in the buffer, it is read in place without
+     * copying its bytes. Otherwise, the line builder accumulates the line
+     * bytes until its end is received.
      * 
      * @return True if the line is ready for reading.
      * @throws IOException
+     * @see #getLine()
      */
     protected boolean fillLine() throws IOException {
         boolean result = false;
-        setLineBuilderState(getBuffer().drain(getLineBuilder(),
-                getLineBuilderState()));
 
-        if (getLineBuilderState() == BufferState.DRAINING) {
+        if ((getLineBuilderState() == BufferState.IDLE)
+                && getBuffer().drainLine(this.lineSlice)) {
+            this.line = this.lineSlice;
             result = true;
+        } else {
+            setLineBuilderState(getBuffer().drain(getLineBuilder(),
+                    getLineBuilderState()));
 
-            if (getLogger().isLoggable(Level.FINE)) {
-                getLogger().log(Level.FINE, getLineBuilder().toString());
+            if (getLineBuilderState() == BufferState.DRAINING) {
+                this.line = getLineBuilder();
+                result = true;
             }
         }
 
+        if (result && getLogger().isLoggable(Level.FINE)) {
+            getLogger().log(Level.FINE, getLine().toString());
+        }
+
         return result;
     }
 
@@ -177,6 +205,16 @@ public abstract class InboundWay extends Way {
         return builderIndex;
     }
 
+    /**
+     * Returns the current line read by {@link #fillLine()}, either in place
+     * in the buffer or via the line builder.
+     * 
+     * @return The current line read.
+     */
+    protected CharSequence getLine() {
+        return (this.line == null) ? getLineBuilder() : this.line;
+    }
+
     /**
      * Returns the NIO selection registration of the entity.
      * 
@@ -215,7 +253,7 @@ public abstract class InboundWay extends Way {
 
         // Wakeup the controller to update the registrations,
         // since this callback can be called asynchronous
-        getHelper().getController().wakeup();
+        getConnection().wakeup();
 
         if (getLogger().isLoggable(Level.FINER)) {
             getLogger().finer("Inbound message completed");
@@ -235,7 +273,7 @@ public abstract class InboundWay extends Way {
         while (continueReading && isLineReadable()) {
             // Parse next ready lines
             if (getMessageState() == MessageState.START) {
-                if (getLineBuilder().length() == 0) {
+                if (getLine().length() == 0) {
                     // Silently eat empty lines used for keep alive purpose
                     // sometimes (SIP)
                     continueReading = false;
@@ -253,7 +291,7 @@ public abstract class InboundWay extends Way {
 
                 if (header != null) {
                     if (getHeaders() == null) {
-                        setHeaders(new Series<Header>(Header.class));
+                        setHeaders(new HeaderSeries());
                     }
 
                     getHeaders().add(header);
@@ -370,7 +408,7 @@ public abstract class InboundWay extends Way {
      * @throws IOException
      */
     protected Header readHeader() throws IOException {
-        Header header = HeaderReader.readHeader(getLineBuilder());
+        Header header = HeaderReader.readHeader(getLine());
         clearLineBuilder();
         return header;
     }
@@ -431,6 +469,14 @@ public abstract class InboundWay extends Way {
                 getHelper().getLogger().log(Level.FINEST,
                         "New inbound way NIO interest: " + getRegistration());
             }
+        } else if ((getMessageState() == MessageState.START)
+                && ((getIoState() == IoState.IDLE)
+                        || (getIoState() == IoState.INTEREST))
+                && getBuffer().canDrain()) {
+            // The next pipelined message was already received, process it
+            // without waiting for a NIO selection
+            setIoState(IoState.READY);
+            getRegistration().setInterestOperations(getInterestOperations());
         } else {
             super.updateState();
         }
@@ -34,7 +34,9 @@
 package org.restlet.engine.connector;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
@@ -43,6 +45,7 @@ import java.util.logging.Level;
 import org.restlet.Message;
 import org.restlet.Request;
 import org.restlet.Response;
+import org.restlet.data.CharacterSet;
 import org.restlet.data.Protocol;
 import org.restlet.data.Status;
 import org.restlet.engine.ConnectorHelper;
@@ -54,14 +57,21 @@ import org.restlet.engine.io.Buffer;
 import org.restlet.engine.io.IoState;
 import org.restlet.engine.io.ReadableChunkingChannel;
 import org.restlet.engine.io.ReadableSizedChannel;
+import org.restlet.engine.util.HeaderSeries;
 import org.restlet.engine.util.StringUtils;
 import org.restlet.representation.Representation;
+import org.restlet.representation.StringRepresentation;
 import org.restlet.service.ConnectorService;
 import org.restlet.util.Series;
 
 /**
  * A network connection way though which messages are sent. Messages can be
- * either requests or responses.
+ * either requests or responses.<br>
+ * <br>
+ * The header lines are encoded directly into bytes, reusing the lines of
+ * constant headers. Small string entities are written along with the start
+ * line and the headers in a single gathering write, without being copied into
+ * the byte buffer.
  * 
  * @author Jerome Louvel
  */
@@ -81,6 +91,9 @@ public abstract class OutboundWay extends Way {
                 + ((protocolVersion == null) ? "1.1" : protocolVersion);
     }
 
+    /** The small entity bytes written along with the headers. */
+    private volatile ByteBuffer entityBytes;
+
     /** The entity as a NIO readable byte channel. */
     private volatile ReadableByteChannel entityChannel;
 
@@ -93,9 +106,15 @@ public abstract class OutboundWay extends Way {
      */
     private volatile SelectionKey entitySelectionKey;
 
+    /** Indicates if a gathering write of the entity bytes is pending. */
+    private volatile boolean gatheringWrite;
+
     /** The header index. */
     private volatile int headerIndex;
 
+    /** The encoded header line being written. */
+    private volatile ByteBuffer lineBytes;
+
     /**
      * Constructor.
      * 
@@ -106,9 +125,12 @@ public abstract class OutboundWay extends Way {
      */
     public OutboundWay(Connection<?> connection, int bufferSize) {
         super(connection, bufferSize);
+        this.entityBytes = null;
         this.entityChannel = null;
         this.entitySelectionKey = null;
+        this.gatheringWrite = false;
         this.headerIndex = 0;
+        this.lineBytes = null;
     }
 
     /**
@@ -152,9 +174,61 @@ public abstract class OutboundWay extends Way {
     @Override
     public void clear() {
         super.clear();
+        this.entityBytes = null;
         this.entityChannel = null;
         this.entitySelectionKey = null;
+        this.gatheringWrite = false;
         this.headerIndex = 0;
+        this.lineBytes = null;
+    }
+
+    /**
+     * Returns the bytes of a small entity that can be written along with the
+     * start line and the headers in a single gathering write. By default, only
+     * the {@link StringRepresentation} instances fitting in the byte buffer are
+     * supported, when the underlying channel supports gathering writes.
+     * 
+     * @param entity
+     *            The entity to write.
+     * @return The entity bytes or null if they should be read from the entity
+     *         channel.
+     * @throws IOException
+     */
+    protected ByteBuffer createEntityBytes(Representation entity)
+            throws IOException {
+        ByteBuffer result = null;
+
+        if ((entity instanceof StringRepresentation)
+                && !shouldBeChunked(entity)
+                && (getConnection().getWritableSelectionChannel() instanceof GatheringByteChannel)) {
+            String text = ((StringRepresentation) entity).getText();
+            long size = entity.getAvailableSize();
+
+            // The announced size is in bytes, which avoids encoding large
+            // texts only to discard them
+            if ((text != null) && (size >= 0)
+                    && (size <= getBuffer().capacity())) {
+                CharacterSet charset = (entity.getCharacterSet() == null) ? CharacterSet.ISO_8859_1
+                        : entity.getCharacterSet();
+                byte[] bytes = text.getBytes(charset.getName());
+
+                // The announced size must have been respected
+                if (bytes.length == size) {
+                    result = ByteBuffer.wrap(bytes);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the small entity bytes written along with the headers.
+     * 
+     * @return The small entity bytes written along with the headers.
+     */
+    protected ByteBuffer getEntityBytes() {
+        return entityBytes;
     }
 
     /**
@@ -218,6 +292,15 @@ public abstract class OutboundWay extends Way {
         return entitySelectionKey;
     }
 
+    /**
+     * Returns the encoded header line being written.
+     * 
+     * @return The encoded header line being written.
+     */
+    protected ByteBuffer getLineBytes() {
+        return lineBytes;
+    }
+
     /**
      * Returns the header index.
      * 
@@ -251,6 +334,15 @@ public abstract class OutboundWay extends Way {
                 || getBuffer().canDrain();
     }
 
+    /**
+     * Indicates if a gathering write of the entity bytes is pending.
+     * 
+     * @return True if a gathering write of the entity bytes is pending.
+     */
+    protected boolean isGatheringWrite() {
+        return gatheringWrite;
+    }
+
     /**
      * Callback invoked when a message has been sent. Note that only the start
      * line and the headers must have been sent, not the optional body.
@@ -272,39 +364,46 @@ public abstract class OutboundWay extends Way {
             }
 
             setMessageState(MessageState.BODY);
-            ReadableByteChannel rbc = getActualMessage().getEntity()
-                    .getChannel();
+            setEntityBytes(createEntityBytes(getActualMessage().getEntity()));
 
-            if (rbc instanceof FileChannel) {
-                setEntityChannelType(EntityType.TRANSFERABLE);
-            } else if (rbc instanceof BlockableChannel) {
-                BlockableChannel bc = (BlockableChannel) rbc;
+            if (getEntityBytes() != null) {
+                // Wait for the headers to be drained with the entity bytes
+                setGatheringWrite(true);
+            } else {
+                ReadableByteChannel rbc = getActualMessage().getEntity()
+                        .getChannel();
+
+                if (rbc instanceof FileChannel) {
+                    setEntityChannelType(EntityType.TRANSFERABLE);
+                } else if (rbc instanceof BlockableChannel) {
+                    BlockableChannel bc = (BlockableChannel) rbc;
+
+                    if (bc.isBlocking()) {
+                        setEntityChannelType(EntityType.BLOCKING);
+                    } else {
+                        setEntityChannelType(EntityType.NON_BLOCKING);
+                    }
+                } else if (rbc instanceof SelectableChannel) {
+                    SelectableChannel sc = (SelectableChannel) rbc;
 
-                if (bc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
+                    if (sc.isBlocking()) {
+                        setEntityChannelType(EntityType.BLOCKING);
+                    } else {
+                        setEntityChannelType(EntityType.NON_BLOCKING);
+                    }
                 } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
+                    setEntityChannelType(EntityType.BLOCKING);
                 }
-            } else if (rbc instanceof SelectableChannel) {
-                SelectableChannel sc = (SelectableChannel) rbc;
 
-                if (sc.isBlocking()) {
-                    setEntityChannelType(EntityType.BLOCKING);
+                if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
+                    setEntityChannel(new ReadableChunkingChannel(rbc,
+                            getBuffer().capacity()));
                 } else {
-                    setEntityChannelType(EntityType.NON_BLOCKING);
+                    setEntityChannel(new ReadableSizedChannel(rbc,
+                            getActualMessage().getEntity()
+                                    .getAvailableSize()));
                 }
-            } else {
-                setEntityChannelType(EntityType.BLOCKING);
             }
-
-            if (getActualMessage().getEntity().getAvailableSize() == Representation.UNKNOWN_SIZE) {
-                setEntityChannel(new ReadableChunkingChannel(rbc, getBuffer()
-                        .capacity()));
-            } else {
-                setEntityChannel(new ReadableSizedChannel(rbc,
-                        getActualMessage().getEntity().getAvailableSize()));
-            }
-
         } else {
             setMessageState(MessageState.END);
         }
@@ -334,6 +433,8 @@ public abstract class OutboundWay extends Way {
         }
 
         super.onMessageCompleted(endReached);
+        setEntityBytes(null);
+        setGatheringWrite(false);
         setHeaderIndex(0);
 
         if (getLogger().isLoggable(Level.FINER)) {
@@ -344,8 +445,18 @@ public abstract class OutboundWay extends Way {
     @Override
     public int onDrain(Buffer buffer, int maxDrained, Object... args)
             throws IOException {
-        int result = getBuffer().drain(
-                getConnection().getWritableSelectionChannel());
+        int result = 0;
+
+        if (isGatheringWrite()) {
+            // Write the headers and the small entity in a single system call
+            setGatheringWrite(false);
+            result = getBuffer().drain(
+                    (GatheringByteChannel) getConnection()
+                            .getWritableSelectionChannel(), getEntityBytes());
+        } else {
+            result = getBuffer().drain(
+                    getConnection().getWritableSelectionChannel());
+        }
 
         if (getLogger().isLoggable(Level.FINER)) {
             getLogger().log(Level.FINER, result + " bytes written");
@@ -383,7 +494,23 @@ public abstract class OutboundWay extends Way {
 
         // Write the message or part of it in the byte
         // buffer
-        if (getMessageState() == MessageState.BODY) {
+        if (getLineBytes() != null) {
+            // Complete the header line being written
+            buffer.fill(getLineBytes());
+
+            if (!getLineBytes().hasRemaining()) {
+                setLineBytes(null);
+            }
+        } else if (getEntityBytes() != null) {
+            if (!isGatheringWrite()) {
+                // Copy the entity bytes left by the gathering write
+                buffer.fill(getEntityBytes());
+
+                if (!getEntityBytes().hasRemaining()) {
+                    setMessageState(MessageState.END);
+                }
+            }
+        } else if (getMessageState() == MessageState.BODY) {
             try {
                 int filled = buffer.fill(getEntityChannel());
 
@@ -400,14 +527,20 @@ public abstract class OutboundWay extends Way {
                 throw ioe;
             }
         } else if (getMessageState() != MessageState.END) {
-            // Write the start line or the headers,
-            // relying on the line builder
+            // Write the start line or the headers, relying on the line
+            // builder or on the encoded header line
             if (getLineBuilder().length() == 0) {
                 // A new line can be written in the builder
                 writeLine();
             }
 
-            if (getLineBuilder().length() > 0) {
+            if (getLineBytes() != null) {
+                buffer.fill(getLineBytes());
+
+                if (!getLineBytes().hasRemaining()) {
+                    setLineBytes(null);
+                }
+            } else if (getLineBuilder().length() > 0) {
                 // We can fill the byte buffer with the
                 // remaining line builder
                 if (remaining >= getLineBuilder().length()) {
@@ -475,6 +608,16 @@ public abstract class OutboundWay extends Way {
         return result;
     }
 
+    /**
+     * Sets the small entity bytes written along with the headers.
+     * 
+     * @param entityBytes
+     *            The small entity bytes written along with the headers.
+     */
+    protected void setEntityBytes(ByteBuffer entityBytes) {
+        this.entityBytes = entityBytes;
+    }
+
     /**
      * Sets the entity as a NIO readable byte channel.
      * 
@@ -506,6 +649,16 @@ public abstract class OutboundWay extends Way {
         this.entitySelectionKey = entityKey;
     }
 
+    /**
+     * Indicates if a gathering write of the entity bytes is pending.
+     * 
+     * @param gatheringWrite
+     *            True if a gathering write of the entity bytes is pending.
+     */
+    protected void setGatheringWrite(boolean gatheringWrite) {
+        this.gatheringWrite = gatheringWrite;
+    }
+
     /**
      * Sets the header index.
      * 
@@ -516,6 +669,16 @@ public abstract class OutboundWay extends Way {
         this.headerIndex = headerIndex;
     }
 
+    /**
+     * Sets the encoded header line being written.
+     * 
+     * @param lineBytes
+     *            The encoded header line being written.
+     */
+    protected void setLineBytes(ByteBuffer lineBytes) {
+        this.lineBytes = lineBytes;
+    }
+
     /**
      * Indicates if the entity should be chunked because its length is unknown.
      * 
@@ -558,19 +721,20 @@ public abstract class OutboundWay extends Way {
 
         case HEADERS:
             if (getHeaders() == null) {
-                setHeaders(new Series<Header>(Header.class));
+                setHeaders(new HeaderSeries());
                 setHeaderIndex(0);
                 addHeaders(getHeaders());
             }
 
             if (getHeaderIndex() < getHeaders().size()) {
-                // Write header
+                // Write header, directly encoded
                 Header header = getHeaders().get(getHeaderIndex());
-                getLineBuilder().append(header.getName());
-                getLineBuilder().append(": ");
-                getLineBuilder().append(header.getValue());
-                getLineBuilder().append('\r'); // CR
-                getLineBuilder().append('\n'); // LF
+                setLineBytes(ByteBuffer.wrap(HeaderUtils.getLineBytes(header)));
+
+                if (getLogger().isLoggable(Level.FINE)) {
+                    getLogger().log(Level.FINE,
+                            header.getName() + ": " + header.getValue());
+                }
 
                 // Move to the next header
                 setHeaderIndex(getHeaderIndex() + 1);
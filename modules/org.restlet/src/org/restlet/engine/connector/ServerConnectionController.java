@@ -107,25 +107,35 @@ public class ServerConnectionController extends ConnectionController {
                     socketChannel.configureBlocking(false);
                     getHelper().configure(socketChannel.socket());
 
-                    int connectionsCount = getHelper().getConnections().size();
+                    int connectionsCount = getHelper().getActiveConnections()
+                            .size();
 
                     if ((getHelper().getMaxTotalConnections() == -1)
                             || (connectionsCount <= getHelper()
                                     .getMaxTotalConnections())) {
+                        ConnectionController controller = getHelper()
+                                .getBestController();
                         Connection<Server> connection = getHelper().checkout(
                                 socketChannel,
-                                this,
+                                controller,
                                 (InetSocketAddress) socketChannel.socket()
                                         .getRemoteSocketAddress());
+                        getHelper().getActiveConnections().add(connection);
+                        controller.getConnections().add(connection);
                         connection.open();
-                        getHelper().getConnections().add(connection);
+
+                        if (controller != this) {
+                            // Let the owning controller register the new
+                            // connection with its selector
+                            controller.wakeup();
+                        }
 
                         if (getHelper().getLogger().isLoggable(Level.FINE)) {
                             getHelper().getLogger().fine(
                                     "Connection from \""
                                             + connection.getSocketAddress()
                                             + "\" accepted. New count: "
-                                            + getHelper().getConnections()
+                                            + getHelper().getActiveConnections()
                                                     .size());
                         }
                     } else {
@@ -210,6 +210,13 @@ public abstract class ServerConnectionHelper extends ConnectionHelper<Server> {
                     if (canHandle(connection, response)) {
                         // Add the response to the outbound queue
                         connection.getOutboundWay().handle(response);
+
+                        if (connection.getController() == getController()) {
+                            connection.markDirty();
+                        } else {
+                            // Let the owning controller update the connection
+                            connection.wakeup();
+                        }
                     } else {
                         // Put the response at the end of the queue
                         getOutboundMessages().add(response);
@@ -147,9 +147,10 @@ public abstract class ServerInboundWay extends InboundWay {
         String requestUri = null;
         String protocol = null;
 
+        CharSequence line = getLine();
         int i = 0;
         int start = 0;
-        int size = getLineBuilder().length();
+        int size = line.length();
         char next;
 
         if (size == 0) {
@@ -157,10 +158,10 @@ public abstract class ServerInboundWay extends InboundWay {
         } else {
             // Parse the request method
             for (i = start; (requestMethod == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
 
                 if (HeaderUtils.isSpace(next)) {
-                    requestMethod = getLineBuilder().substring(start, i);
+                    requestMethod = line.subSequence(start, i).toString();
                     start = i + 1;
                 }
             }
@@ -172,10 +173,10 @@ public abstract class ServerInboundWay extends InboundWay {
 
             // Parse the request URI
             for (i = start; (requestUri == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
 
                 if (HeaderUtils.isSpace(next)) {
-                    requestUri = getLineBuilder().substring(start, i);
+                    requestUri = line.subSequence(start, i).toString();
                     start = i + 1;
                 }
             }
@@ -191,11 +192,11 @@ public abstract class ServerInboundWay extends InboundWay {
 
             // Parse the protocol version
             for (i = start; (protocol == null) && (i < size); i++) {
-                next = getLineBuilder().charAt(i);
+                next = line.charAt(i);
             }
 
             if (i == size) {
-                protocol = getLineBuilder().substring(start, i);
+                protocol = line.subSequence(start, i).toString();
                 start = i + 1;
             }
 
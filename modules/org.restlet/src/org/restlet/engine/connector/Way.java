@@ -86,6 +86,9 @@ public abstract class Way implements SelectionListener, CompletionListener,
     /** The message state. */
     private volatile MessageState messageState;
 
+    /** Indicates if the last IO processing made progress. */
+    private volatile boolean progressed;
+
     /** The NIO selection registration. */
     private volatile SelectionRegistration registration;
 
@@ -99,13 +102,16 @@ public abstract class Way implements SelectionListener, CompletionListener,
      */
     public Way(Connection<?> connection, int bufferSize) {
         this.connection = connection;
-        this.buffer = new Buffer(bufferSize, getHelper().isDirectBuffers());
+        this.buffer = (getHelper().getBufferPool() == null) ? new Buffer(
+                bufferSize, getHelper().isDirectBuffers()) : new Buffer(
+                bufferSize, getHelper().getBufferPool());
         this.headers = null;
         this.ioState = IoState.IDLE;
         this.lineBuilder = new StringBuilder();
         this.lineBuilderState = BufferState.IDLE;
         this.message = null;
         this.messageState = MessageState.IDLE;
+        this.progressed = false;
         this.registration = new SelectionRegistration(0, this, null);
     }
 
@@ -137,11 +143,13 @@ public abstract class Way implements SelectionListener, CompletionListener,
         }
 
         this.buffer.clear();
+        this.buffer.release();
         this.headers = null;
         this.ioState = IoState.IDLE;
         clearLineBuilder();
         this.message = null;
         this.messageState = MessageState.IDLE;
+        this.progressed = false;
         this.registration.clear();
     }
 
@@ -315,6 +323,16 @@ public abstract class Way implements SelectionListener, CompletionListener,
         return getIoState() != IoState.READY;
     }
 
+    /**
+     * Indicates if the last IO processing made progress, by draining bytes
+     * from the IO buffer or by changing the current message or its state.
+     * 
+     * @return True if the last IO processing made progress.
+     */
+    public boolean hasProgressed() {
+        return progressed;
+    }
+
     /**
      * Indicates if the way is available to handle new messages.
      * 
@@ -343,6 +361,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
         setMessage(null);
         setHeaders(null);
         getBuffer().clear();
+        getBuffer().release();
     }
 
     /**
@@ -425,6 +444,10 @@ public abstract class Way implements SelectionListener, CompletionListener,
      *            The selected registration.
      */
     public void onSelected(SelectionRegistration selectionRegistration) {
+        Response message = getMessage();
+        MessageState messageState = getMessageState();
+        this.progressed = false;
+
         try {
             // Restore thread local variables
             if (getMessage() != null) {
@@ -462,6 +485,9 @@ public abstract class Way implements SelectionListener, CompletionListener,
             } else if ((getIoState() == IoState.PROCESSING)) {
                 onPostProcessing();
             }
+
+            this.progressed = (drained > 0) || (getMessage() != message)
+                    || (getMessageState() != messageState);
         } catch (Exception e) {
             getConnection().onError("Error while processing a connection", e,
                     Status.CONNECTOR_ERROR_COMMUNICATION);
@@ -532,6 +558,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
             }
 
             this.ioState = ioState;
+            getConnection().markDirty();
         }
     }
 
@@ -564,6 +591,7 @@ public abstract class Way implements SelectionListener, CompletionListener,
     protected void setMessageState(MessageState messageState) {
         if (this.messageState != messageState) {
             this.messageState = messageState;
+            getConnection().markDirty();
 
             if (getLogger().isLoggable(Level.FINEST)) {
                 if (this instanceof OutboundWay) {
@@ -34,7 +34,9 @@
 package org.restlet.engine.converter;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -51,6 +53,75 @@ import org.restlet.resource.Resource;
  */
 public class ConverterUtils {
 
+    /**
+     * Cache of the best converter helpers, valid for a given list of
+     * registered converters.
+     */
+    private static final class BestHelpers extends
+            ConcurrentHashMap<List<Object>, ConverterHelper> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The registered converters when the cache was created. */
+        private final Object[] converters;
+
+        /**
+         * Constructor.
+         * 
+         * @param converters
+         *            The registered converters.
+         */
+        public BestHelpers(List<ConverterHelper> converters) {
+            this.converters = converters.toArray();
+        }
+
+        /**
+         * Indicates if the cache is still valid for the given list of
+         * registered converters.
+         * 
+         * @param converters
+         *            The registered converters.
+         * @return True if the cache is still valid.
+         */
+        public boolean isValid(List<ConverterHelper> converters) {
+            boolean result = (this.converters.length == converters.size());
+
+            for (int i = 0; result && (i < this.converters.length); i++) {
+                result = (this.converters[i] == converters.get(i));
+            }
+
+            return result;
+        }
+    }
+
+    /** The maximum number of cached best helpers. */
+    private static final int BEST_HELPERS_MAX_SIZE = 1024;
+
+    /** The best converter helpers, cached by source and target types. */
+    private static volatile BestHelpers bestHelpers;
+
+    /**
+     * Caches the best converter helper for the given key. Null helpers aren't
+     * cached.
+     * 
+     * @param cache
+     *            The cache to update.
+     * @param key
+     *            The key based on the source and target types.
+     * @param helper
+     *            The best helper.
+     */
+    private static void cacheBestHelper(BestHelpers cache, List<Object> key,
+            ConverterHelper helper) {
+        if (helper != null) {
+            if (cache.size() >= BEST_HELPERS_MAX_SIZE) {
+                cache.clear();
+            }
+
+            cache.put(key, helper);
+        }
+    }
+
     /**
      * Returns the best converter helper matching the given parameters.
      * 
@@ -64,27 +135,37 @@ public class ConverterUtils {
      */
     public static ConverterHelper getBestHelper(Object source, Variant target,
             Resource resource) {
-        ConverterHelper result = null;
-        float bestScore = -1.0F;
-        float currentScore;
+        List<ConverterHelper> converters = Engine.getInstance()
+                .getRegisteredConverters();
+        BestHelpers cache = getBestHelpers(converters);
+        List<Object> key = Arrays.asList(Variant.class,
+                (source == null) ? null : source.getClass(),
+                (target == null) ? null : target.getMediaType());
+        ConverterHelper result = cache.get(key);
 
-        for (ConverterHelper ch : Engine.getInstance()
-                .getRegisteredConverters()) {
-            if (ch != null) {
-                try {
-                    currentScore = ch.score(source, target, resource);
+        if (result == null) {
+            float bestScore = -1.0F;
+            float currentScore;
 
-                    if (currentScore > bestScore) {
-                        bestScore = currentScore;
-                        result = ch;
+            for (ConverterHelper ch : converters) {
+                if (ch != null) {
+                    try {
+                        currentScore = ch.score(source, target, resource);
+
+                        if (currentScore > bestScore) {
+                            bestScore = currentScore;
+                            result = ch;
+                        }
+                    } catch (Exception e) {
+                        Context.getCurrentLogger().log(
+                                Level.SEVERE,
+                                "Unable get the score of the " + ch
+                                        + " converter helper.", e);
                     }
-                } catch (Exception e) {
-                    Context.getCurrentLogger().log(
-                            Level.SEVERE,
-                            "Unable get the score of the " + ch
-                                    + " converter helper.", e);
                 }
             }
+
+            cacheBestHelper(cache, key, result);
         }
 
         return result;
@@ -105,20 +186,50 @@ public class ConverterUtils {
      */
     public static <T> ConverterHelper getBestHelper(Representation source,
             Class<T> target, Resource resource) {
-        ConverterHelper result = null;
-        float bestScore = -1.0F;
-        float currentScore;
+        List<ConverterHelper> converters = Engine.getInstance()
+                .getRegisteredConverters();
+        BestHelpers cache = getBestHelpers(converters);
+        List<Object> key = Arrays.asList(Representation.class,
+                (source == null) ? null : source.getClass(),
+                (source == null) ? null : source.getMediaType(), target);
+        ConverterHelper result = cache.get(key);
 
-        for (ConverterHelper ch : Engine.getInstance()
-                .getRegisteredConverters()) {
-            if (ch != null) {
-                currentScore = ch.score(source, target, resource);
+        if (result == null) {
+            float bestScore = -1.0F;
+            float currentScore;
 
-                if (currentScore > bestScore) {
-                    bestScore = currentScore;
-                    result = ch;
+            for (ConverterHelper ch : converters) {
+                if (ch != null) {
+                    currentScore = ch.score(source, target, resource);
+
+                    if (currentScore > bestScore) {
+                        bestScore = currentScore;
+                        result = ch;
+                    }
                 }
             }
+
+            cacheBestHelper(cache, key, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the cache of the best converter helpers, renewed when the list
+     * of registered converters has changed.
+     * 
+     * @param converters
+     *            The registered converters.
+     * @return The cache of the best converter helpers.
+     */
+    private static BestHelpers getBestHelpers(
+            List<ConverterHelper> converters) {
+        BestHelpers result = bestHelpers;
+
+        if ((result == null) || !result.isValid(converters)) {
+            result = new BestHelpers(converters);
+            bestHelpers = result;
         }
 
         return result;
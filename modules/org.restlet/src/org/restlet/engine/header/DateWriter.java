@@ -44,6 +44,35 @@ import org.restlet.engine.util.DateUtils;
  */
 public class DateWriter {
 
+    /**
+     * Formatted date reused for all the dates within the same second, as the
+     * default format has no sub-second precision.
+     */
+    private static final class FormattedDate {
+
+        /** The number of seconds since the epoch. */
+        private final long second;
+
+        /** The formatted value. */
+        private final String value;
+
+        /**
+         * Constructor.
+         * 
+         * @param second
+         *            The number of seconds since the epoch.
+         * @param value
+         *            The formatted value.
+         */
+        private FormattedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /** The last date formatted with the default format. */
+    private static volatile FormattedDate lastDate;
+
     /**
      * Writes a date header.
      * 
@@ -69,7 +98,21 @@ public class DateWriter {
             return DateUtils.format(date, DateUtils.FORMAT_RFC_1036.get(0));
         }
 
-        return DateUtils.format(date);
+        long time = date.getTime();
+
+        if (time < 0) {
+            return DateUtils.format(date);
+        }
+
+        // Typically the Date header of successive messages
+        FormattedDate last = lastDate;
+
+        if ((last == null) || (last.second != time / 1000)) {
+            last = new FormattedDate(time / 1000, DateUtils.format(date));
+            lastDate = last;
+        }
+
+        return last.value;
     }
 
 }
@@ -179,7 +179,15 @@ public class HeaderReader<V> {
                             "Unable to parse the header name. End of line reached too early.");
                 }
 
-                result.setName(header.subSequence(start, index - 1).toString());
+                // Reuse the standard header names
+                String name = HeaderUtils.getKnownHeaderName(header, start,
+                        index - 1);
+
+                if (name == null) {
+                    name = header.subSequence(start, index - 1).toString();
+                }
+
+                result.setName(name);
                 next = header.charAt(index++);
 
                 while (isSpace(next)) {
@@ -35,11 +35,16 @@ package org.restlet.engine.header;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import org.restlet.Context;
@@ -62,6 +67,7 @@ import org.restlet.data.Tag;
 import org.restlet.engine.Engine;
 import org.restlet.engine.util.CaseInsensitiveHashSet;
 import org.restlet.engine.util.DateUtils;
+import org.restlet.engine.util.HeaderSeries;
 import org.restlet.engine.util.StringUtils;
 import org.restlet.representation.EmptyRepresentation;
 import org.restlet.representation.Representation;
@@ -122,6 +128,84 @@ public class HeaderUtils {
                     HeaderConstants.HEADER_VARY, HeaderConstants.HEADER_VIA,
                     HeaderConstants.HEADER_WARNING,
                     HeaderConstants.HEADER_WWW_AUTHENTICATE)));
+
+    /**
+     * Standard header names from {@link HeaderConstants}, indexed by length.
+     */
+    private static final String[][] KNOWN_HEADER_NAMES = indexByLength(
+            new String[] {
+                HeaderConstants.HEADER_ACCEPT,
+                HeaderConstants.HEADER_ACCEPT_CHARSET,
+                HeaderConstants.HEADER_ACCEPT_ENCODING,
+                HeaderConstants.HEADER_ACCEPT_LANGUAGE,
+                HeaderConstants.HEADER_ACCEPT_PATCH,
+                HeaderConstants.HEADER_ACCEPT_RANGES,
+                HeaderConstants.HEADER_AGE, HeaderConstants.HEADER_ALLOW,
+                HeaderConstants.HEADER_AUTHENTICATION_INFO,
+                HeaderConstants.HEADER_AUTHORIZATION,
+                HeaderConstants.HEADER_CACHE_CONTROL,
+                HeaderConstants.HEADER_CONNECTION,
+                HeaderConstants.HEADER_CONTENT_DISPOSITION,
+                HeaderConstants.HEADER_CONTENT_ENCODING,
+                HeaderConstants.HEADER_CONTENT_LANGUAGE,
+                HeaderConstants.HEADER_CONTENT_LENGTH,
+                HeaderConstants.HEADER_CONTENT_LOCATION,
+                HeaderConstants.HEADER_CONTENT_MD5,
+                HeaderConstants.HEADER_CONTENT_RANGE,
+                HeaderConstants.HEADER_CONTENT_TYPE,
+                HeaderConstants.HEADER_COOKIE, HeaderConstants.HEADER_DATE,
+                HeaderConstants.HEADER_ETAG, HeaderConstants.HEADER_EXPECT,
+                HeaderConstants.HEADER_EXPIRES, HeaderConstants.HEADER_FROM,
+                HeaderConstants.HEADER_HOST, HeaderConstants.HEADER_IF_MATCH,
+                HeaderConstants.HEADER_IF_MODIFIED_SINCE,
+                HeaderConstants.HEADER_IF_NONE_MATCH,
+                HeaderConstants.HEADER_IF_RANGE,
+                HeaderConstants.HEADER_IF_UNMODIFIED_SINCE,
+                HeaderConstants.HEADER_LAST_MODIFIED,
+                HeaderConstants.HEADER_LOCATION,
+                HeaderConstants.HEADER_MAX_FORWARDS,
+                HeaderConstants.HEADER_PRAGMA,
+                HeaderConstants.HEADER_PROXY_AUTHENTICATE,
+                HeaderConstants.HEADER_PROXY_AUTHORIZATION,
+                HeaderConstants.HEADER_RANGE, HeaderConstants.HEADER_REFERRER,
+                HeaderConstants.HEADER_RETRY_AFTER,
+                HeaderConstants.HEADER_SERVER,
+                HeaderConstants.HEADER_SET_COOKIE,
+                HeaderConstants.HEADER_SET_COOKIE2, HeaderConstants.HEADER_SLUG,
+                HeaderConstants.HEADER_TRAILER,
+                HeaderConstants.HEADER_TRANSFER_ENCODING,
+                HeaderConstants.HEADER_TRANSFER_EXTENSION,
+                HeaderConstants.HEADER_UPGRADE,
+                HeaderConstants.HEADER_USER_AGENT, HeaderConstants.HEADER_VARY,
+                HeaderConstants.HEADER_VIA, HeaderConstants.HEADER_WARNING,
+                HeaderConstants.HEADER_WWW_AUTHENTICATE,
+                HeaderConstants.HEADER_X_FORWARDED_FOR,
+                HeaderConstants.HEADER_X_HTTP_METHOD_OVERRIDE });
+
+    /**
+     * Lower case versions of the standard header names, keyed by name.
+     */
+    private static final Map<String, String> LOWER_CASE_NAMES = indexLowerCase(
+            KNOWN_HEADER_NAMES);
+
+    // [ifndef gwt] member
+    /**
+     * Encoded lines of the headers whose values rarely change from one message
+     * to the next, keyed by header name and then by header value. The caches
+     * are shared by all connections, so they are lock free.
+     */
+    private static final Map<String, Map<String, byte[]>> ENCODED_LINES = indexEncodedLines(new String[] {
+            HeaderConstants.HEADER_ACCEPT_RANGES,
+            HeaderConstants.HEADER_CONNECTION,
+            HeaderConstants.HEADER_CONTENT_TYPE,
+            HeaderConstants.HEADER_HOST, HeaderConstants.HEADER_SERVER,
+            HeaderConstants.HEADER_TRANSFER_ENCODING,
+            HeaderConstants.HEADER_USER_AGENT, HeaderConstants.HEADER_VARY });
+
+    // [ifndef gwt] member
+    /** The maximum number of encoded lines cached for a given header name. */
+    private static final int MAX_ENCODED_LINES = 64;
+
     /**
      * Set of unsupported headers that will be covered in future versions.
      */
@@ -628,7 +712,7 @@ public class HeaderUtils {
             Series<Header> extensionHeaders = (Series<Header>) response
                     .getAttributes().get(HeaderConstants.ATTRIBUTE_HEADERS);
             if (extensionHeaders == null) {
-                extensionHeaders = new Series<Header>(Header.class);
+                extensionHeaders = new HeaderSeries();
                 response.getAttributes().put(HeaderConstants.ATTRIBUTE_HEADERS,
                         extensionHeaders);
             }
@@ -765,6 +849,40 @@ public class HeaderUtils {
         }
     }
 
+    // [ifndef gwt] method
+    /**
+     * Encodes a header line, including the trailing CRLF, using the ISO-8859-1
+     * character set like {@link #writeHeaderLine(Header, OutputStream)}.
+     * 
+     * @param name
+     *            The header name.
+     * @param value
+     *            The header value.
+     * @return The encoded header line.
+     */
+    private static byte[] encodeLine(String name, String value) {
+        byte[] result = new byte[name.length() + value.length() + 4];
+        int index = 0;
+        char next;
+
+        for (int i = 0; i < name.length(); i++) {
+            next = name.charAt(i);
+            result[index++] = (byte) ((next > 0xFF) ? '?' : next);
+        }
+
+        result[index++] = ':';
+        result[index++] = ' ';
+
+        for (int i = 0; i < value.length(); i++) {
+            next = value.charAt(i);
+            result[index++] = (byte) ((next > 0xFF) ? '?' : next);
+        }
+
+        result[index++] = 13; // CR
+        result[index] = 10; // LF
+        return result;
+    }
+
     /**
      * Extracts entity headers and updates a given representation or create an
      * empty one when at least one entity header is present.
@@ -894,6 +1012,161 @@ public class HeaderUtils {
         return contentLength;
     }
 
+    /**
+     * Returns the standard header name from {@link HeaderConstants} equal to
+     * the given part of a character sequence, without allocating a new string.
+     * The comparison is case sensitive.
+     * 
+     * @param source
+     *            The source character sequence.
+     * @param start
+     *            The start index, inclusive.
+     * @param end
+     *            The end index, exclusive.
+     * @return The standard header name or null if it isn't a known one.
+     */
+    public static String getKnownHeaderName(CharSequence source, int start,
+            int end) {
+        String result = null;
+        int length = end - start;
+
+        if ((length > 0) && (length < KNOWN_HEADER_NAMES.length)) {
+            String[] candidates = KNOWN_HEADER_NAMES[length];
+
+            for (int i = 0; (result == null) && (i < candidates.length); i++) {
+                String candidate = candidates[i];
+                boolean equal = true;
+
+                for (int j = 0; equal && (j < length); j++) {
+                    equal = (candidate.charAt(j) == source.charAt(start + j));
+                }
+
+                if (equal) {
+                    result = candidate;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Returns the encoded line of a header, including the trailing CRLF. The
+     * lines of headers such as Server or Content-Type are cached as their
+     * values rarely change from one message to the next. Once a cache is full,
+     * new values are encoded without being cached. The returned array must not
+     * be modified.
+     * 
+     * @param header
+     *            The header to encode.
+     * @return The encoded header line.
+     */
+    public static byte[] getLineBytes(Header header) {
+        String value = (header.getValue() == null) ? "" : header.getValue();
+        Map<String, byte[]> lines = ENCODED_LINES.get(header.getName());
+        byte[] result = (lines == null) ? null : lines.get(value);
+
+        if (result == null) {
+            result = encodeLine(header.getName(), value);
+
+            if ((lines != null) && (lines.size() < MAX_ENCODED_LINES)) {
+                lines.put(value, result);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the lower case version of a header name. The lower case
+     * versions of standard header names are computed once.
+     * 
+     * @param name
+     *            The header name.
+     * @return The lower case version of the header name.
+     */
+    public static String getLowerCaseName(String name) {
+        String result = LOWER_CASE_NAMES.get(name);
+
+        if (result == null) {
+            result = name.toLowerCase(Locale.ENGLISH);
+        }
+
+        return result;
+    }
+
+    /**
+     * Groups the given header names by length.
+     * 
+     * @param names
+     *            The header names.
+     * @return The header names indexed by length.
+     */
+    private static String[][] indexByLength(String[] names) {
+        int maxLength = 0;
+
+        for (String name : names) {
+            maxLength = Math.max(maxLength, name.length());
+        }
+
+        List<List<String>> lists = new ArrayList<List<String>>();
+
+        for (int i = 0; i <= maxLength; i++) {
+            lists.add(new ArrayList<String>());
+        }
+
+        for (String name : names) {
+            lists.get(name.length()).add(name);
+        }
+
+        String[][] result = new String[maxLength + 1][];
+
+        for (int i = 0; i <= maxLength; i++) {
+            result[i] = lists.get(i).toArray(new String[lists.get(i).size()]);
+        }
+
+        return result;
+    }
+
+    // [ifndef gwt] method
+    /**
+     * Creates an empty cache of encoded lines for each given header name.
+     * 
+     * @param names
+     *            The header names whose lines can be cached.
+     * @return The caches of encoded lines keyed by name.
+     */
+    private static Map<String, Map<String, byte[]>> indexEncodedLines(
+            String[] names) {
+        Map<String, Map<String, byte[]>> result = new HashMap<String, Map<String, byte[]>>();
+
+        for (String name : names) {
+            result.put(name, new ConcurrentHashMap<String, byte[]>());
+        }
+
+        return result;
+    }
+
+    /**
+     * Maps the given header names to their lower case version.
+     * 
+     * @param names
+     *            The header names indexed by length.
+     * @return The lower case header names keyed by name.
+     */
+    private static Map<String, String> indexLowerCase(String[][] names) {
+        Map<String, String> result = new HashMap<String, String>();
+
+        for (String[] candidates : names) {
+            for (String name : candidates) {
+                result.put(name, name.toLowerCase(Locale.ENGLISH));
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Indicates if the given character is alphabetical (a-z or A-Z).
      * 
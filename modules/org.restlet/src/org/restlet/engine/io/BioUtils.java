@@ -48,7 +48,6 @@ import org.restlet.Context;
 import org.restlet.data.CharacterSet;
 import org.restlet.data.Range;
 import org.restlet.engine.Edition;
-import org.restlet.engine.Engine;
 import org.restlet.representation.Representation;
 
 /**
@@ -329,11 +328,11 @@ public final class BioUtils {
         Reader result = null;
         if (Edition.CURRENT != Edition.GAE) {
             // [ifndef gae]
-            final java.io.PipedWriter pipedWriter = new java.io.PipedWriter();
-
-            @SuppressWarnings("resource")
-            java.io.PipedReader pipedReader = new java.io.PipedReader(
-                    pipedWriter);
+            final PipeStream pipe = new PipeStream();
+            final Writer pipedWriter = new OutputStreamWriter(
+                    pipe.getOutputStream(), CharacterSet.UTF_8.getName());
+            Reader pipedReader = new InputStreamReader(
+                    pipe.getInputStream(), CharacterSet.UTF_8.getName());
 
             // Gets a thread that will handle the task of continuously
             // writing the representation into the input side of the pipe
@@ -358,14 +357,7 @@ public final class BioUtils {
                 }
             };
 
-            org.restlet.Context context = org.restlet.Context.getCurrent();
-
-            if (context != null && context.getExecutorService() != null) {
-                context.getExecutorService().execute(task);
-            } else {
-                Engine.createThreadWithLocalVariables(task, "Restlet-BioUtils")
-                        .start();
-            }
+            IoUtils.executePipeTask(task, "Restlet-BioUtils");
 
             result = pipedReader;
             // [enddef]
@@ -462,14 +454,7 @@ public final class BioUtils {
                 }
             };
 
-            org.restlet.Context context = org.restlet.Context.getCurrent();
-
-            if (context != null && context.getExecutorService() != null) {
-                context.getExecutorService().execute(task);
-            } else {
-                Engine.createThreadWithLocalVariables(task, "Restlet-BioUtils")
-                        .start();
-            }
+            IoUtils.executePipeTask(task, "Restlet-BioUtils");
 
             result = pipe.getInputStream();
             // [enddef]
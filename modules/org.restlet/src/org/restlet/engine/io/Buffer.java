@@ -35,6 +35,7 @@ package org.restlet.engine.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.util.logging.Level;
@@ -43,7 +44,9 @@ import org.restlet.Context;
 import org.restlet.engine.header.HeaderUtils;
 
 /**
- * Wrapper around a byte buffer and its state.
+ * Wrapper around a byte buffer and its state. When created with a
+ * {@link BufferPool}, the byte buffer is only borrowed from the pool when bytes
+ * need to be filled and can be given back once empty via {@link #release()}.
  * 
  * @author Jerome Louvel
  */
@@ -70,12 +73,21 @@ public class Buffer {
         return result;
     }
 
-    /** The byte buffer. */
-    private final ByteBuffer bytes;
+    /** The byte buffer, or null if it was released to the pool. */
+    private volatile ByteBuffer bytes;
 
     /** The index of the buffer's beginning while filling. */
     private volatile int fillBegin;
 
+    /** The lock on which multiple thread can synchronize. */
+    private final Object lock;
+
+    /** The optional pool where the byte buffer is borrowed from. */
+    private final BufferPool pool;
+
+    /** The byte buffer size. */
+    private final int size;
+
     /** The byte buffer IO state. */
     private volatile BufferState state;
 
@@ -101,9 +113,30 @@ public class Buffer {
         super();
         this.fillBegin = 0;
         this.bytes = byteBuffer;
+        this.lock = new Object();
+        this.pool = null;
+        this.size = byteBuffer.capacity();
         this.state = byteBufferState;
     }
 
+    /**
+     * Constructor. The byte buffer is lazily borrowed from the given pool.
+     * 
+     * @param bufferSize
+     *            The byte buffer size.
+     * @param pool
+     *            The pool where the byte buffer is borrowed from.
+     */
+    public Buffer(int bufferSize, BufferPool pool) {
+        super();
+        this.fillBegin = 0;
+        this.bytes = null;
+        this.lock = new Object();
+        this.pool = pool;
+        this.size = bufferSize;
+        this.state = BufferState.FILLING;
+    }
+
     /**
      * Constructor. Allocates a new non-direct byte buffer.
      * 
@@ -154,7 +187,9 @@ public class Buffer {
      * @return True if a compacting operation can be beneficial.
      */
     public boolean canCompact() {
-        return isFilling() ? (this.fillBegin > 0) : (getBytes().position() > 0);
+        ByteBuffer bytes = this.bytes;
+        return isFilling() ? (this.fillBegin > 0)
+                : ((bytes != null) && (bytes.position() > 0));
     }
 
     /**
@@ -181,7 +216,7 @@ public class Buffer {
      * @return The maximum capacity of this buffer.
      */
     public final int capacity() {
-        return getBytes().capacity();
+        return this.size;
     }
 
     /**
@@ -189,7 +224,11 @@ public class Buffer {
      */
     public void clear() {
         this.fillBegin = 0;
-        this.bytes.clear();
+
+        if (this.bytes != null) {
+            this.bytes.clear();
+        }
+
         this.state = BufferState.FILLING;
     }
 
@@ -213,7 +252,9 @@ public class Buffer {
      * @return True if bytes could be drained.
      */
     public boolean couldDrain() {
-        return (isFilling() && (getBytes().position() > this.fillBegin));
+        ByteBuffer bytes = this.bytes;
+        return isFilling() && (bytes != null)
+                && (bytes.position() > this.fillBegin);
     }
 
     /**
@@ -222,8 +263,10 @@ public class Buffer {
      * @return True if more bytes could be filled in.
      */
     public boolean couldFill() {
-        return (isDraining() && (!hasRemaining() || (getBytes().limit() < getBytes()
-                .capacity())));
+        ByteBuffer bytes = this.bytes;
+        return isDraining()
+                && ((bytes == null) || !bytes.hasRemaining() || (bytes.limit() < bytes
+                        .capacity()));
     }
 
     /**
@@ -261,6 +304,22 @@ public class Buffer {
         return drain(targetBuffer, 0);
     }
 
+    /**
+     * Drains the byte buffer followed by the trailing bytes into the given
+     * channel, using a single gathering write.
+     * 
+     * @param gbc
+     *            The gathering byte channel to write to.
+     * @param trailingBytes
+     *            The bytes to write after the buffered ones.
+     * @return The total number of bytes written.
+     * @throws IOException
+     */
+    public int drain(GatheringByteChannel gbc, ByteBuffer trailingBytes)
+            throws IOException {
+        return (int) gbc.write(new ByteBuffer[] { getBytes(), trailingBytes });
+    }
+
     /**
      * Drains the byte buffer by copying as many bytes as possible to the target
      * buffer, with no modification.
@@ -328,6 +387,61 @@ public class Buffer {
         return builderState;
     }
 
+    /**
+     * Drains a complete line (start line or header line) ending with a CRLF
+     * sequence, without copying its bytes. The given slice is updated to read
+     * the line in place, excluding the CRLF sequence. If no complete line is
+     * available, the buffer is left untouched.
+     * 
+     * @param line
+     *            The slice to update.
+     * @return True if a complete line was drained.
+     * @throws IOException
+     */
+    public boolean drainLine(ByteSlice line) throws IOException {
+        boolean result = false;
+
+        if (canDrain()) {
+            ByteBuffer bytes = getBytes();
+            int start = bytes.position();
+            int end = bytes.limit() - 1;
+            int cr = -1;
+
+            if (bytes.hasArray()) {
+                byte[] array = bytes.array();
+                int arrayOffset = bytes.arrayOffset();
+
+                for (int i = start; (cr == -1) && (i < end); i++) {
+                    if (HeaderUtils.isCarriageReturn(array[arrayOffset + i])) {
+                        cr = i;
+                    }
+                }
+            } else {
+                for (int i = start; (cr == -1) && (i < end); i++) {
+                    if (HeaderUtils.isCarriageReturn(bytes.get(i))) {
+                        cr = i;
+                    }
+                }
+            }
+
+            if (cr != -1) {
+                if (!HeaderUtils.isLineFeed(bytes.get(cr + 1))) {
+                    throw new IOException(
+                            "Missing line feed character at the end of the line. Found character \""
+                                    + (char) bytes.get(cr + 1)
+                                    + "\" ("
+                                    + bytes.get(cr + 1) + ") instead");
+                }
+
+                line.set(bytes, start, cr - start);
+                bytes.position(cr + 2);
+                result = true;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Drains the byte buffer by attempting to write as much as possible on the
      * given channel.
@@ -431,12 +545,26 @@ public class Buffer {
     }
 
     /**
-     * Returns the byte buffer.
+     * Returns the byte buffer, borrowing it from the pool if it was released.
      * 
      * @return The byte buffer.
      */
     public ByteBuffer getBytes() {
-        return bytes;
+        ByteBuffer result = this.bytes;
+
+        if (result == null) {
+            synchronized (getLock()) {
+                result = this.bytes;
+
+                // Check again under the lock to borrow a single byte buffer
+                if (result == null) {
+                    result = this.pool.checkout(this.size);
+                    this.bytes = result;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -446,7 +574,16 @@ public class Buffer {
      * @return The lock on which multiple thread can synchronize.
      */
     public Object getLock() {
-        return this.bytes;
+        return this.lock;
+    }
+
+    /**
+     * Returns the optional pool where the byte buffer is borrowed from.
+     * 
+     * @return The optional pool where the byte buffer is borrowed from.
+     */
+    public BufferPool getPool() {
+        return pool;
     }
 
     /**
@@ -464,7 +601,8 @@ public class Buffer {
      * @return True if the buffer has remaining bytes to be read or written.
      */
     public final boolean hasRemaining() {
-        return getBytes().hasRemaining();
+        ByteBuffer bytes = this.bytes;
+        return (bytes == null) ? (this.size > 0) : bytes.hasRemaining();
     }
 
     /**
@@ -661,7 +799,35 @@ public class Buffer {
      * @return The number of bytes that can be read or written.
      */
     public final int remaining() {
-        return getBytes().remaining();
+        ByteBuffer bytes = this.bytes;
+        return (bytes == null) ? this.size : bytes.remaining();
+    }
+
+    /**
+     * Gives the byte buffer back to the pool if the buffer is empty. The next
+     * access to the byte buffer will borrow a new one from the pool. Does
+     * nothing if the buffer wasn't created with a pool.
+     * 
+     * @return True if the byte buffer was released.
+     */
+    public boolean release() {
+        boolean result = false;
+
+        if (this.pool != null) {
+            synchronized (getLock()) {
+                ByteBuffer bytes = this.bytes;
+
+                if ((bytes != null) && isEmpty()) {
+                    this.fillBegin = 0;
+                    this.state = BufferState.FILLING;
+                    this.bytes = null;
+                    this.pool.checkin(bytes);
+                    result = true;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -676,7 +842,9 @@ public class Buffer {
 
     @Override
     public String toString() {
-        return getBytes().toString() + ", " + getState() + ", " + isEmpty();
+        ByteBuffer bytes = this.bytes;
+        return ((bytes == null) ? "Released buffer" : bytes.toString()) + ", "
+                + getState() + ", " + isEmpty();
     }
 
 }
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of byte buffers shared by several {@link Buffer} instances. Byte
+ * buffers are grouped by size class, each class corresponding to a buffer
+ * capacity. Buffers borrow a byte buffer only while they have bytes to fill or
+ * drain and give it back once empty, which saves memory for idle connections.
+ * The number of idle byte buffers kept by size class is bounded, extra byte
+ * buffers checked in are left to the garbage collector.
+ * 
+ * @author Jerome Louvel
+ */
+public class BufferPool {
+
+    /** The default maximum number of idle byte buffers by size class. */
+    public static final int DEFAULT_MAX_IDLE_COUNT = 64;
+
+    /** Indicates if direct NIO buffers should be created. */
+    private final boolean direct;
+
+    /** The highest number of byte buffers in use at the same time. */
+    private final AtomicInteger highWaterCount;
+
+    /** The number of byte buffers in use. */
+    private final AtomicInteger inUseCount;
+
+    /** The maximum number of idle byte buffers by size class. */
+    private final int maxIdleCount;
+
+    /** The number of checkouts that required the creation of a byte buffer. */
+    private final AtomicLong missCount;
+
+    /** The stores of reusable byte buffers, by capacity. */
+    private final ConcurrentMap<Integer, Queue<ByteBuffer>> stores;
+
+    /**
+     * Constructor.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers should be created.
+     */
+    public BufferPool(boolean direct) {
+        this(direct, DEFAULT_MAX_IDLE_COUNT);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param direct
+     *            Indicates if direct NIO buffers should be created.
+     * @param maxIdleCount
+     *            The maximum number of idle byte buffers by size class.
+     */
+    public BufferPool(boolean direct, int maxIdleCount) {
+        this.direct = direct;
+        this.maxIdleCount = maxIdleCount;
+        this.highWaterCount = new AtomicInteger();
+        this.inUseCount = new AtomicInteger();
+        this.missCount = new AtomicLong();
+        this.stores = new ConcurrentHashMap<Integer, Queue<ByteBuffer>>();
+    }
+
+    /**
+     * Checks in a byte buffer into the pool. The byte buffer is dropped if the
+     * maximum number of idle byte buffers of its size class is reached.
+     * 
+     * @param byteBuffer
+     *            The byte buffer to check in.
+     */
+    public void checkin(ByteBuffer byteBuffer) {
+        if (byteBuffer != null) {
+            byteBuffer.clear();
+
+            if (getMaxIdleCount() > 0) {
+                getStore(byteBuffer.capacity()).offer(byteBuffer);
+            }
+
+            this.inUseCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Checks out a cleared byte buffer from the pool. Creates a new one if the
+     * store of the given capacity is empty.
+     * 
+     * @param capacity
+     *            The byte buffer capacity.
+     * @return A cleared byte buffer.
+     */
+    public ByteBuffer checkout(int capacity) {
+        ByteBuffer result = getStore(capacity).poll();
+
+        if (result == null) {
+            this.missCount.incrementAndGet();
+            result = createByteBuffer(capacity);
+        }
+
+        int inUse = this.inUseCount.incrementAndGet();
+        int highWater = this.highWaterCount.get();
+
+        while ((inUse > highWater)
+                && !this.highWaterCount.compareAndSet(highWater, inUse)) {
+            highWater = this.highWaterCount.get();
+        }
+
+        return result;
+    }
+
+    /**
+     * Clears the stores of reusable byte buffers.
+     */
+    public void clear() {
+        this.stores.clear();
+    }
+
+    /**
+     * Creates a new byte buffer using {@link ByteBuffer#allocate(int)} or
+     * {@link ByteBuffer#allocateDirect(int)} methods.
+     * 
+     * @param capacity
+     *            The byte buffer capacity.
+     * @return The created byte buffer.
+     */
+    protected ByteBuffer createByteBuffer(int capacity) {
+        return isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer
+                .allocate(capacity);
+    }
+
+    /**
+     * Returns the highest number of byte buffers in use at the same time.
+     * 
+     * @return The highest number of byte buffers in use at the same time.
+     */
+    public int getHighWaterCount() {
+        return this.highWaterCount.get();
+    }
+
+    /**
+     * Returns the number of idle byte buffers kept in the pool.
+     * 
+     * @return The number of idle byte buffers kept in the pool.
+     */
+    public int getIdleCount() {
+        int result = 0;
+
+        for (Queue<ByteBuffer> store : this.stores.values()) {
+            result += store.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of byte buffers in use.
+     * 
+     * @return The number of byte buffers in use.
+     */
+    public int getInUseCount() {
+        return this.inUseCount.get();
+    }
+
+    /**
+     * Returns the maximum number of idle byte buffers by size class.
+     * 
+     * @return The maximum number of idle byte buffers by size class.
+     */
+    public int getMaxIdleCount() {
+        return maxIdleCount;
+    }
+
+    /**
+     * Returns the number of checkouts that required the creation of a byte
+     * buffer because no reusable one was available.
+     * 
+     * @return The number of checkouts that required the creation of a byte
+     *         buffer.
+     */
+    public long getMissCount() {
+        return this.missCount.get();
+    }
+
+    /**
+     * Returns the store of reusable byte buffers of a given capacity, creating
+     * it if needed.
+     * 
+     * @param capacity
+     *            The byte buffer capacity.
+     * @return The store of reusable byte buffers.
+     */
+    protected Queue<ByteBuffer> getStore(int capacity) {
+        Integer key = Integer.valueOf(capacity);
+        Queue<ByteBuffer> result = this.stores.get(key);
+
+        if (result == null) {
+            result = new ArrayBlockingQueue<ByteBuffer>(Math.max(1,
+                    getMaxIdleCount()));
+            Queue<ByteBuffer> existing = this.stores.putIfAbsent(key, result);
+
+            if (existing != null) {
+                result = existing;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if direct NIO buffers are created.
+     * 
+     * @return True if direct NIO buffers are created.
+     */
+    public boolean isDirect() {
+        return direct;
+    }
+
+    @Override
+    public String toString() {
+        return "In use: " + getInUseCount() + ", high water: "
+                + getHighWaterCount() + ", misses: " + getMissCount()
+                + ", idle: " + getIdleCount();
+    }
+
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.io;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Character sequence reading a slice of a byte buffer in place, each byte being
+ * decoded as an ISO-8859-1 character. No bytes are copied until a string is
+ * requested via {@link #toString()} or {@link #subSequence(int, int)}. The
+ * slice is only valid as long as the underlying bytes aren't modified.
+ * 
+ * @author Jerome Louvel
+ */
+public class ByteSlice implements CharSequence {
+
+    /** The underlying byte buffer. */
+    private volatile ByteBuffer bytes;
+
+    /** The slice length. */
+    private volatile int length;
+
+    /** The slice offset in the byte buffer. */
+    private volatile int offset;
+
+    /**
+     * Default constructor.
+     */
+    public ByteSlice() {
+        this(null, 0, 0);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param bytes
+     *            The underlying byte buffer.
+     * @param offset
+     *            The slice offset in the byte buffer.
+     * @param length
+     *            The slice length.
+     */
+    public ByteSlice(ByteBuffer bytes, int offset, int length) {
+        set(bytes, offset, length);
+    }
+
+    /**
+     * Returns the character at the given index.
+     * 
+     * @param index
+     *            The index in the slice.
+     * @return The character at the given index.
+     */
+    public char charAt(int index) {
+        if ((index < 0) || (index >= this.length)) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index);
+        }
+
+        return (char) (this.bytes.get(this.offset + index) & 0xff);
+    }
+
+    /**
+     * Returns the slice length.
+     * 
+     * @return The slice length.
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Updates the slice.
+     * 
+     * @param bytes
+     *            The underlying byte buffer.
+     * @param offset
+     *            The slice offset in the byte buffer.
+     * @param length
+     *            The slice length.
+     */
+    public void set(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Returns the given part of the slice decoded as a string.
+     * 
+     * @param start
+     *            The start index, inclusive.
+     * @param end
+     *            The end index, exclusive.
+     * @return The decoded string.
+     */
+    public CharSequence subSequence(int start, int end) {
+        if ((start < 0) || (end > this.length) || (start > end)) {
+            throw new IndexOutOfBoundsException("Invalid range: " + start
+                    + " to " + end);
+        }
+
+        return toString(start, end);
+    }
+
+    @Override
+    public String toString() {
+        return toString(0, this.length);
+    }
+
+    /**
+     * Decodes the given part of the slice as a string.
+     * 
+     * @param start
+     *            The start index, inclusive.
+     * @param end
+     *            The end index, exclusive.
+     * @return The decoded string.
+     */
+    private String toString(int start, int end) {
+        char[] chars = new char[end - start];
+
+        if (this.bytes.hasArray()) {
+            byte[] array = this.bytes.array();
+            int arrayOffset = this.bytes.arrayOffset() + this.offset + start;
+
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (array[arrayOffset + i] & 0xff);
+            }
+        } else {
+            int bufferOffset = this.offset + start;
+
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = (char) (this.bytes.get(bufferOffset + i) & 0xff);
+            }
+        }
+
+        return new String(chars);
+    }
+
+}
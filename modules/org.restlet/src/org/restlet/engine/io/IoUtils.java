@@ -34,6 +34,14 @@
 package org.restlet.engine.io;
 
 import java.io.BufferedReader;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.restlet.Context;
+import org.restlet.engine.Engine;
+import org.restlet.engine.log.LoggingThreadFactory;
 
 /**
  * IO manipulation utilities.
@@ -59,6 +67,62 @@ public class IoUtils {
     public final static int TIMEOUT_MS = getProperty(
             "org.restlet.engine.io.timeoutMs", 60000);
 
+    /**
+     * The maximum number of threads shared by the tasks writing into pipes. It
+     * looks for the System property "org.restlet.engine.io.pipeThreads" and if
+     * not defined, uses the "32" default value.
+     */
+    public final static int PIPE_THREADS = getProperty(
+            "org.restlet.engine.io.pipeThreads", 32);
+
+    // [ifndef gwt] member
+    /** The shared executor of the tasks writing into pipes. */
+    private static volatile ThreadPoolExecutor pipeExecutor;
+
+    // [ifndef gae,gwt] method
+    /**
+     * Executes a task writing into a pipe, with the local Restlet thread
+     * variables properly set. The executor service of the current context is
+     * used if available. Otherwise, a shared pool of daemon threads is used,
+     * a new thread being created when all of them are busy so that the task
+     * never waits for another pipe to be consumed.
+     * 
+     * @param task
+     *            The task to execute.
+     * @param name
+     *            The name of the thread if a new one is created.
+     */
+    public static void executePipeTask(Runnable task, String name) {
+        Context context = Context.getCurrent();
+
+        if ((context != null) && (context.getExecutorService() != null)) {
+            context.getExecutorService().execute(task);
+        } else {
+            ThreadPoolExecutor executor = pipeExecutor;
+
+            if (executor == null) {
+                synchronized (IoUtils.class) {
+                    executor = pipeExecutor;
+
+                    if (executor == null) {
+                        executor = new ThreadPoolExecutor(0, PIPE_THREADS,
+                                60, TimeUnit.SECONDS,
+                                new SynchronousQueue<Runnable>(),
+                                new LoggingThreadFactory(
+                                        Context.getCurrentLogger(), true));
+                        pipeExecutor = executor;
+                    }
+                }
+            }
+
+            try {
+                executor.execute(Engine.createRunnableWithLocalVariables(task));
+            } catch (RejectedExecutionException ree) {
+                Engine.createThreadWithLocalVariables(task, name).start();
+            }
+        }
+    }
+
     private static int getProperty(String name, int defaultValue) {
         int result = defaultValue;
 
@@ -50,7 +50,6 @@ import java.util.logging.Level;
 
 import org.restlet.Context;
 import org.restlet.engine.Edition;
-import org.restlet.engine.Engine;
 import org.restlet.representation.Representation;
 
 /**
@@ -99,8 +98,25 @@ public class NioUtils {
      */
     public static void copy(FileChannel fileChannel,
             WritableByteChannel writableChannel) throws IOException {
-        long position = 0;
-        long count = fileChannel.size();
+        copy(fileChannel, 0, fileChannel.size(), writableChannel);
+    }
+
+    /**
+     * Writes a region of a file channel to a byte channel. Optimizes using the
+     * file channel transferTo method.
+     * 
+     * @param fileChannel
+     *            The readable file channel.
+     * @param position
+     *            The position in the file of the first byte to write.
+     * @param count
+     *            The number of bytes to write.
+     * @param writableChannel
+     *            A writable byte channel.
+     */
+    public static void copy(FileChannel fileChannel, long position,
+            long count, WritableByteChannel writableChannel)
+            throws IOException {
         long written = 0;
         SelectableChannel selectableChannel = null;
 
@@ -111,6 +127,12 @@ public class NioUtils {
         while (count > 0) {
             NioUtils.waitForState(selectableChannel, SelectionKey.OP_WRITE);
             written = fileChannel.transferTo(position, count, writableChannel);
+
+            if ((written == 0) && (position >= fileChannel.size())) {
+                throw new IOException(
+                        "The end of the file channel has been reached unexpectedly");
+            }
+
             position += written;
             count -= written;
         }
@@ -199,7 +221,7 @@ public class NioUtils {
 
         if (Edition.CURRENT != Edition.GAE) {
             // [ifndef gae]
-            final java.nio.channels.Pipe pipe = java.nio.channels.Pipe.open();
+            final PipeStream pipe = new PipeStream();
 
             // Get a thread that will handle the task of continuously
             // writing the representation into the input side of the pipe
@@ -208,7 +230,7 @@ public class NioUtils {
                     WritableByteChannel wbc = null;
 
                     try {
-                        wbc = pipe.sink();
+                        wbc = Channels.newChannel(pipe.getOutputStream());
                         representation.write(wbc);
                     } catch (IOException ioe) {
                         Context.getCurrentLogger().log(Level.FINE,
@@ -228,16 +250,9 @@ public class NioUtils {
                 }
             };
 
-            org.restlet.Context context = org.restlet.Context.getCurrent();
-
-            if (context != null && context.getExecutorService() != null) {
-                context.getExecutorService().execute(task);
-            } else {
-                Engine.createThreadWithLocalVariables(task, "Restlet-NioUtils")
-                        .start();
-            }
+            IoUtils.executePipeTask(task, "Restlet-NioUtils");
 
-            result = pipe.source();
+            result = Channels.newChannel(pipe.getInputStream());
             // [enddef]
         } else {
             Context.getCurrentLogger()
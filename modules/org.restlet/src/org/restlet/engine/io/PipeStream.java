@@ -36,28 +36,82 @@ package org.restlet.engine.io;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 // [excludes gwt]
 /**
  * Pipe stream that pipes output streams into input streams. Implementation
- * based on a shared synchronized queue.
+ * based on a ring buffer borrowed from a shared pool. The writer blocks when
+ * the ring buffer is full and the reader blocks when it is empty, until the
+ * {@link IoUtils#TIMEOUT_MS} delay is reached.
  * 
  * @author Jerome Louvel
  */
 public class PipeStream {
 
-    /** The queue timeout. */
-    private static final long QUEUE_TIMEOUT = 5;
+    /** The maximum number of ring buffers kept in the pool. */
+    private static final int MAX_POOLED_BUFFERS = 64;
 
-    /** The supporting synchronized queue. */
-    private final BlockingQueue<Integer> queue;
+    /** The pool of ring buffers shared by the pipes. */
+    private static final Queue<byte[]> POOLED_BUFFERS = new ConcurrentLinkedQueue<byte[]>();
+
+    /** The ring buffer, null once released. */
+    private byte[] buffer;
+
+    /** The number of bytes available in the ring buffer. */
+    private int count;
+
+    /** The lock guarding the ring buffer. */
+    private final Object lock;
+
+    /** Indicates if the input side was closed. */
+    private boolean readClosed;
+
+    /** The index of the first available byte in the ring buffer. */
+    private int start;
+
+    /** Indicates if the output side was closed. */
+    private boolean writeClosed;
 
     /** Constructor. */
     public PipeStream() {
-        this.queue = new ArrayBlockingQueue<Integer>(1024);
+        byte[] pooled = POOLED_BUFFERS.poll();
+        this.buffer = (pooled == null) ? new byte[IoUtils.BUFFER_SIZE]
+                : pooled;
+        this.count = 0;
+        this.lock = new Object();
+        this.readClosed = false;
+        this.start = 0;
+        this.writeClosed = false;
+    }
+
+    /**
+     * Closes the input side of the pipe, giving the ring buffer back to the
+     * pool.
+     */
+    private void closeRead() {
+        synchronized (this.lock) {
+            this.readClosed = true;
+
+            if ((this.buffer != null)
+                    && (POOLED_BUFFERS.size() < MAX_POOLED_BUFFERS)) {
+                POOLED_BUFFERS.offer(this.buffer);
+            }
+
+            this.buffer = null;
+            this.lock.notifyAll();
+        }
+    }
+
+    /**
+     * Closes the output side of the pipe, signaling the end of the stream.
+     */
+    private void closeWrite() {
+        synchronized (this.lock) {
+            this.writeClosed = true;
+            this.lock.notifyAll();
+        }
     }
 
     /**
@@ -67,29 +121,32 @@ public class PipeStream {
      */
     public InputStream getInputStream() {
         return new InputStream() {
-            private boolean endReached = false;
+            @Override
+            public int available() throws IOException {
+                synchronized (lock) {
+                    return count;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                closeRead();
+            }
 
             @Override
             public int read() throws IOException {
-                try {
-                    if (this.endReached) {
-                        return -1;
-                    }
-
-                    final Integer value = queue.poll(QUEUE_TIMEOUT,
-                            TimeUnit.SECONDS);
-                    this.endReached = (value == -1);
-
-                    if (value == null) {
-                        throw new IOException(
-                                "Timeout while reading from the queue-based input stream");
-                    } else {
-                        return value.intValue();
-                    }
-                } catch (InterruptedException ie) {
-                    throw new IOException(
-                            "Interruption occurred while writing in the queue");
+                byte[] single = new byte[1];
+                int result = read(single, 0, 1);
+                return (result == -1) ? -1 : (single[0] & 0xff);
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
                 }
+
+                return PipeStream.this.read(b, off, len);
             }
         };
     }
@@ -102,31 +159,130 @@ public class PipeStream {
     public OutputStream getOutputStream() {
         return new OutputStream() {
             @Override
-            public void write(int b) throws IOException {
-                try {
-                    if (!queue.offer(b & 0xff, QUEUE_TIMEOUT, TimeUnit.SECONDS)) {
-                        throw new IOException(
-                                "Timeout while writing to the queue-based output stream");
-                    }
-                } catch (InterruptedException ie) {
-                    throw new IOException(
-                            "Interruption occurred while writing in the queue");
-                }
+            public void close() throws IOException {
+                closeWrite();
             }
 
             @Override
-            public void close() throws IOException {
-                try {
-                    if (!queue.offer(-1, QUEUE_TIMEOUT, TimeUnit.SECONDS)) {
-                        throw new IOException(
-                                "Timeout while writing to the queue-based output stream");
-                    }
-                } catch (InterruptedException ie) {
-                    throw new IOException(
-                            "Interruption occurred while writing in the queue");
-                }
+            public void write(byte[] b, int off, int len) throws IOException {
+                PipeStream.this.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
             }
         };
     }
 
+    /**
+     * Reads available bytes from the ring buffer, waiting for the writer if it
+     * is empty.
+     * 
+     * @param b
+     *            The target byte array.
+     * @param off
+     *            The offset in the target array.
+     * @param len
+     *            The maximum number of bytes to read.
+     * @return The number of bytes read or -1 if the end was reached.
+     * @throws IOException
+     */
+    private int read(byte[] b, int off, int len) throws IOException {
+        synchronized (this.lock) {
+            if (this.readClosed) {
+                return -1;
+            }
+
+            waitFor(true);
+
+            if (this.count == 0) {
+                // End of stream reached
+                closeRead();
+                return -1;
+            }
+
+            int result = Math.min(len, this.count);
+            int first = Math.min(result, this.buffer.length - this.start);
+            System.arraycopy(this.buffer, this.start, b, off, first);
+            System.arraycopy(this.buffer, 0, b, off + first, result - first);
+            this.start = (this.start + result) % this.buffer.length;
+            this.count -= result;
+            this.lock.notifyAll();
+            return result;
+        }
+    }
+
+    /**
+     * Waits until the ring buffer can be read or written, or until the pipe is
+     * closed.
+     * 
+     * @param reading
+     *            True if waiting to read, false if waiting to write.
+     * @throws IOException
+     */
+    private void waitFor(boolean reading) throws IOException {
+        long deadline = System.currentTimeMillis() + IoUtils.TIMEOUT_MS;
+        long remaining = IoUtils.TIMEOUT_MS;
+
+        while (!this.readClosed
+                && (reading ? ((this.count == 0) && !this.writeClosed)
+                        : (this.count == this.buffer.length))) {
+            if (remaining <= 0) {
+                throw new IOException("Timeout while "
+                        + (reading ? "reading from" : "writing to")
+                        + " the pipe");
+            }
+
+            try {
+                this.lock.wait(remaining);
+            } catch (InterruptedException ie) {
+                throw new IOException("Interruption occurred while "
+                        + (reading ? "reading from" : "writing to")
+                        + " the pipe");
+            }
+
+            remaining = deadline - System.currentTimeMillis();
+        }
+
+        if (this.readClosed) {
+            throw new IOException("The pipe was closed by the reader");
+        }
+    }
+
+    /**
+     * Writes bytes into the ring buffer, waiting for the reader when it is
+     * full.
+     * 
+     * @param b
+     *            The source byte array.
+     * @param off
+     *            The offset in the source array.
+     * @param len
+     *            The number of bytes to write.
+     * @throws IOException
+     */
+    private void write(byte[] b, int off, int len) throws IOException {
+        synchronized (this.lock) {
+            if (this.writeClosed) {
+                throw new IOException("The pipe was closed by the writer");
+            }
+
+            while (len > 0) {
+                waitFor(false);
+
+                int end = (this.start + this.count) % this.buffer.length;
+                int written = Math.min(len, this.buffer.length - this.count);
+                int first = Math.min(written, this.buffer.length - end);
+                System.arraycopy(b, off, this.buffer, end, first);
+                System.arraycopy(b, off + first, this.buffer, 0, written
+                        - first);
+                this.count += written;
+                off += written;
+                len -= written;
+                this.lock.notifyAll();
+            }
+        }
+    }
+
 }
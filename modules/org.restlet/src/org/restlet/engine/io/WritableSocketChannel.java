@@ -35,6 +35,7 @@ package org.restlet.engine.io;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SocketChannel;
 
 import org.restlet.util.SelectionRegistration;
@@ -45,7 +46,7 @@ import org.restlet.util.SelectionRegistration;
  * partially read.
  */
 public class WritableSocketChannel extends WrapperSocketChannel implements
-        WritableSelectionChannel {
+        WritableSelectionChannel, GatheringByteChannel {
 
     /**
      * Constructor.
@@ -71,4 +72,33 @@ public class WritableSocketChannel extends WrapperSocketChannel implements
         return getWrappedChannel().write(src);
     }
 
+    /**
+     * Writes the given sequence of buffers to the wrapped socket channel,
+     * typically in a single system call.
+     * 
+     * @param srcs
+     *            The source byte buffers.
+     * @return The number of bytes written.
+     */
+    public long write(ByteBuffer[] srcs) throws IOException {
+        return write(srcs, 0, srcs.length);
+    }
+
+    /**
+     * Writes a subsequence of the given buffers to the wrapped socket channel,
+     * typically in a single system call.
+     * 
+     * @param srcs
+     *            The source byte buffers.
+     * @param offset
+     *            The index of the first buffer to write.
+     * @param length
+     *            The number of buffers to write.
+     * @return The number of bytes written.
+     */
+    public long write(ByteBuffer[] srcs, int offset, int length)
+            throws IOException {
+        return getWrappedChannel().write(srcs, offset, length);
+    }
+
 }
@@ -0,0 +1,386 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.IoUtils;
+
+/**
+ * On-disk cache of GZip compressed copies of files. Each file is compressed
+ * once, on first request, then its compressed copy is reused as long as the
+ * modification date and size of the original file don't change. The cache is
+ * bounded by the total size of the compressed copies, evicting the least
+ * recently used ones first. Copies larger than the maximum size are returned
+ * without being cached.<br>
+ * <br>
+ * As a returned copy might still be streamed by another request, the copies
+ * evicted, replaced, cleared or not cached are only deleted after a delay
+ * (see {@link #getDeletionDelayMs()}), and in any case when the JVM exits.
+ * 
+ * @author Jerome Louvel
+ */
+public class CompressedFileCache {
+
+    /**
+     * Compressed copy of a file.
+     */
+    private static class Entry {
+
+        /** The compressed copy. */
+        private final File compressedFile;
+
+        /** The size of the compressed copy. */
+        private final long compressedLength;
+
+        /** The size of the original file. */
+        private final long length;
+
+        /** The modification time of the original file. */
+        private final long lastModified;
+
+        /** The time at which the copy was removed from the cache. */
+        private long retirementTime;
+
+        /**
+         * Constructor.
+         * 
+         * @param compressedFile
+         *            The compressed copy.
+         * @param length
+         *            The size of the original file.
+         * @param lastModified
+         *            The modification time of the original file.
+         */
+        public Entry(File compressedFile, long length, long lastModified) {
+            this.compressedFile = compressedFile;
+            this.compressedLength = compressedFile.length();
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * The default delay before deleting a copy removed from the cache, in
+     * milliseconds.
+     */
+    public static final long DEFAULT_DELETION_DELAY_MS = 60000;
+
+    /** The default maximum size of the compressed copies. */
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Creates a new temporary directory.
+     * 
+     * @return The new temporary directory.
+     * @throws IOException
+     */
+    private static File createTempDirectory() throws IOException {
+        File result = File.createTempFile("restlet-compressed", "");
+
+        if (!result.delete() || !result.mkdir()) {
+            throw new IOException("Unable to create the directory " + result);
+        }
+
+        result.deleteOnExit();
+        return result;
+    }
+
+    /** The delay before deleting a copy removed from the cache. */
+    private volatile long deletionDelayMs;
+
+    /** The directory containing the compressed copies. */
+    private final File directory;
+
+    /** The compressed copies, indexed by original file path in access order. */
+    private final Map<String, Entry> entries;
+
+    /** The maximum total size of the compressed copies. */
+    private volatile long maxSize;
+
+    /** The copies removed from the cache, waiting to be deleted. */
+    private final Queue<Entry> retiredEntries;
+
+    /** The sequence used to name the compressed copies. */
+    private final AtomicLong sequence;
+
+    /** The total size of the compressed copies. */
+    private long size;
+
+    /**
+     * Constructor using a new temporary directory and the default maximum
+     * size.
+     * 
+     * @throws IOException
+     */
+    public CompressedFileCache() throws IOException {
+        this(createTempDirectory(), DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param directory
+     *            The directory containing the compressed copies.
+     * @param maxSize
+     *            The maximum total size of the compressed copies.
+     */
+    public CompressedFileCache(File directory, long maxSize) {
+        this.deletionDelayMs = DEFAULT_DELETION_DELAY_MS;
+        this.directory = directory;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+        this.maxSize = maxSize;
+        this.retiredEntries = new LinkedList<Entry>();
+        this.sequence = new AtomicLong();
+        this.size = 0;
+    }
+
+    /**
+     * Removes all the compressed copies from the cache. They are deleted after
+     * the deletion delay.
+     */
+    public synchronized void clear() {
+        for (Entry entry : this.entries.values()) {
+            retire(entry);
+        }
+
+        this.entries.clear();
+        this.size = 0;
+        purge();
+    }
+
+    /**
+     * Compresses a file into a new file of the cache directory.
+     * 
+     * @param file
+     *            The file to compress.
+     * @return The compressed copy.
+     * @throws IOException
+     */
+    private File compress(File file) throws IOException {
+        if (!this.directory.exists()) {
+            this.directory.mkdirs();
+        }
+
+        File result = new File(this.directory, this.sequence.incrementAndGet()
+                + "-" + file.getName() + ".gz");
+        result.deleteOnExit();
+        InputStream in = new FileInputStream(file);
+
+        try {
+            OutputStream out = new GZIPOutputStream(new FileOutputStream(
+                    result), IoUtils.BUFFER_SIZE);
+
+            try {
+                BioUtils.copy(in, out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            BioUtils.delete(result);
+            throw e;
+        } finally {
+            in.close();
+        }
+
+        return result;
+    }
+
+    /**
+     * Evicts the least recently used compressed copies until the total size
+     * doesn't exceed the maximum size.
+     */
+    private void evict() {
+        for (Iterator<Entry> iter = this.entries.values().iterator(); (this.size > getMaxSize())
+                && iter.hasNext();) {
+            Entry entry = iter.next();
+            this.size -= entry.compressedLength;
+            retire(entry);
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns the compressed copy of a file, compressing it if necessary.
+     * 
+     * @param file
+     *            The file to compress.
+     * @return The compressed copy.
+     * @throws IOException
+     */
+    public File get(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        File result = null;
+
+        synchronized (this) {
+            Entry entry = this.entries.get(key);
+
+            if ((entry != null) && (entry.length == length)
+                    && (entry.lastModified == lastModified)
+                    && entry.compressedFile.exists()) {
+                result = entry.compressedFile;
+            }
+        }
+
+        if (result == null) {
+            // Compress outside of the lock, concurrent compressions of the
+            // same file only keep the last copy
+            result = compress(file);
+            Entry created = new Entry(result, length, lastModified);
+
+            synchronized (this) {
+                purge();
+
+                if (created.compressedLength > getMaxSize()) {
+                    // Serve the copy without caching it
+                    retire(created);
+                } else {
+                    Entry previous = this.entries.put(key, created);
+
+                    if (previous != null) {
+                        this.size -= previous.compressedLength;
+                        retire(previous);
+                    }
+
+                    this.size += created.compressedLength;
+                    evict();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the delay before deleting a copy removed from the cache, in
+     * milliseconds. It should exceed the time needed to start streaming a
+     * returned copy.
+     * 
+     * @return The delay before deleting a copy removed from the cache.
+     */
+    public long getDeletionDelayMs() {
+        return deletionDelayMs;
+    }
+
+    /**
+     * Returns the directory containing the compressed copies.
+     * 
+     * @return The directory containing the compressed copies.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns the maximum total size of the compressed copies.
+     * 
+     * @return The maximum total size of the compressed copies.
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the total size of the compressed copies.
+     * 
+     * @return The total size of the compressed copies.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Deletes the copies removed from the cache for longer than the deletion
+     * delay.
+     */
+    private void purge() {
+        long limit = System.currentTimeMillis() - getDeletionDelayMs();
+
+        while (!this.retiredEntries.isEmpty()
+                && (this.retiredEntries.peek().retirementTime <= limit)) {
+            BioUtils.delete(this.retiredEntries.poll().compressedFile);
+        }
+    }
+
+    /**
+     * Schedules the deletion of a copy removed from the cache.
+     * 
+     * @param entry
+     *            The entry removed from the cache.
+     */
+    private void retire(Entry entry) {
+        entry.retirementTime = System.currentTimeMillis();
+        this.retiredEntries.add(entry);
+    }
+
+    /**
+     * Sets the delay before deleting a copy removed from the cache, in
+     * milliseconds.
+     * 
+     * @param deletionDelayMs
+     *            The delay before deleting a copy removed from the cache.
+     */
+    public void setDeletionDelayMs(long deletionDelayMs) {
+        this.deletionDelayMs = deletionDelayMs;
+    }
+
+    /**
+     * Sets the maximum total size of the compressed copies. Copies are evicted
+     * if necessary.
+     * 
+     * @param maxSize
+     *            The maximum total size of the compressed copies.
+     */
+    public synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+        purge();
+    }
+
+}
@@ -33,6 +33,7 @@
 
 package org.restlet.engine.local;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -44,12 +45,16 @@ import java.util.logging.Level;
 import org.restlet.Request;
 import org.restlet.Response;
 import org.restlet.Restlet;
+import org.restlet.data.Dimension;
+import org.restlet.data.Encoding;
 import org.restlet.data.MediaType;
 import org.restlet.data.Method;
 import org.restlet.data.Preference;
 import org.restlet.data.Reference;
 import org.restlet.data.ReferenceList;
 import org.restlet.data.Status;
+import org.restlet.data.Tag;
+import org.restlet.representation.FileRepresentation;
 import org.restlet.representation.Representation;
 import org.restlet.representation.Variant;
 import org.restlet.resource.Directory;
@@ -463,6 +468,101 @@ public class DirectoryServerResource extends ServerResource {
                 .getContext().getClientDispatcher();
     }
 
+    /**
+     * Returns a compressed variant of a file representation when the client
+     * accepts it. Precompressed siblings with a ".br" or ".gz" extension are
+     * looked up first if enabled, then the compressed file cache is used if
+     * set. Returns the original representation otherwise.
+     * 
+     * @param original
+     *            The original file representation.
+     * @return The compressed or the original representation.
+     */
+    private Representation getCompressedRepresentation(
+            FileRepresentation original) {
+        Representation result = original;
+        boolean identity = true;
+
+        for (Encoding encoding : original.getEncodings()) {
+            identity = identity && Encoding.IDENTITY.equals(encoding);
+        }
+
+        CompressedFileCache cache = getDirectory().getCompressedFileCache();
+
+        if (identity
+                && (getDirectory().isServingPrecompressed() || (cache != null))) {
+            // The response now varies on the accepted encodings
+            getResponse().getDimensions().add(Dimension.ENCODING);
+            File file = original.getFile();
+            File compressedFile = null;
+            Encoding encoding = null;
+
+            if (getDirectory().isServingPrecompressed()) {
+                if (isAccepted(Encoding.BROTLI)) {
+                    compressedFile = getPrecompressedFile(file, ".br");
+                    encoding = Encoding.BROTLI;
+                }
+
+                if ((compressedFile == null) && isAccepted(Encoding.GZIP)) {
+                    compressedFile = getPrecompressedFile(file, ".gz");
+                    encoding = Encoding.GZIP;
+                }
+            }
+
+            if ((compressedFile == null) && (cache != null)
+                    && isAccepted(Encoding.GZIP)
+                    && (getApplication() != null)
+                    && getApplication().getEncoderService().canEncode(original)) {
+                try {
+                    compressedFile = cache.get(file);
+                    encoding = Encoding.GZIP;
+                } catch (IOException ioe) {
+                    getLogger().log(Level.WARNING,
+                            "Unable to compress the file " + file, ioe);
+                }
+            }
+
+            if (compressedFile != null) {
+                FileRepresentation compressed = new FileRepresentation(
+                        compressedFile, original.getMediaType());
+                compressed.setCharacterSet(original.getCharacterSet());
+                compressed.getLanguages().addAll(original.getLanguages());
+                compressed.getEncodings().add(encoding);
+                compressed.setTag(getCompressedTag(original.getTag(),
+                        encoding));
+                compressed.setModificationDate(original.getModificationDate());
+                compressed.setExpirationDate(original.getExpirationDate());
+                compressed.setDisposition(original.getDisposition());
+                compressed.setLocationRef(original.getLocationRef());
+                result = compressed;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entity tag of a compressed variant, derived from the tag of
+     * the original file so that both variants can't be confused.
+     * 
+     * @param tag
+     *            The tag of the original file.
+     * @param encoding
+     *            The encoding of the compressed variant.
+     * @return The entity tag of the compressed variant.
+     */
+    private Tag getCompressedTag(Tag tag, Encoding encoding) {
+        Tag result = tag;
+
+        if ((tag != null) && (tag.getName() != null)
+                && !Tag.ALL.equals(tag)) {
+            result = new Tag(tag.getName() + "-" + encoding.getName(),
+                    tag.isWeak());
+        }
+
+        return result;
+    }
+
     /**
      * Returns the parent directory handler.
      * 
@@ -490,6 +590,26 @@ public class DirectoryServerResource extends ServerResource {
         return this.directoryUri;
     }
 
+    /**
+     * Returns the precompressed sibling of a file, with the given extension
+     * appended to its name, if it exists and isn't older than the file.
+     * 
+     * @param file
+     *            The original file.
+     * @param extension
+     *            The extension of the precompressed sibling.
+     * @return The precompressed sibling or null.
+     */
+    private File getPrecompressedFile(File file, String extension) {
+        File result = new File(file.getPath() + extension);
+
+        if (!result.isFile() || (result.lastModified() < file.lastModified())) {
+            result = null;
+        }
+
+        return result;
+    }
+
     /**
      * Returns a representation of the resource at the target URI. Leverages the
      * client dispatcher of the parent directory's context.
@@ -499,8 +619,7 @@ public class DirectoryServerResource extends ServerResource {
      * @return A response with the representation if success.
      */
     private Response getRepresentation(String resourceUri) {
-        return getClientDispatcher().handle(
-                new Request(Method.GET, resourceUri));
+        return getRepresentation(resourceUri, null);
     }
 
     /**
@@ -690,6 +809,20 @@ public class DirectoryServerResource extends ServerResource {
                     result.add(this.fileContent);
                 }
 
+                if ((result != null)
+                        && (Method.GET.equals(getMethod()) || Method.HEAD
+                                .equals(getMethod()))
+                        && getRanges().isEmpty()) {
+                    // Select the compressed variants before the conditions
+                    // are evaluated, so that they apply to their tags
+                    for (int i = 0; i < result.size(); i++) {
+                        if (result.get(i) instanceof FileRepresentation) {
+                            result.set(i, getCompressedRepresentation(
+                                    (FileRepresentation) result.get(i)));
+                        }
+                    }
+                }
+
                 this.variantsGet = result;
             }
         }
@@ -796,6 +929,26 @@ public class DirectoryServerResource extends ServerResource {
         return result;
     }
 
+    /**
+     * Indicates if the client accepts the given encoding.
+     * 
+     * @param encoding
+     *            The encoding to test.
+     * @return True if the client accepts the given encoding.
+     */
+    private boolean isAccepted(Encoding encoding) {
+        boolean result = false;
+
+        for (Preference<Encoding> pref : getClientInfo()
+                .getAcceptedEncodings()) {
+            result = result
+                    || ((pref.getQuality() > 0) && pref.getMetadata()
+                            .includes(encoding));
+        }
+
+        return result;
+    }
+
     /**
      * Indicates if the target resource is a directory.
      * 
@@ -0,0 +1,437 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Opened ZIP archive shared between calls. It keeps a sorted index of the
+ * entries for directory listings and locates the content of the entries
+ * stored without compression, so that they can be directly transferred from
+ * the archive file. Those transfers go through a file channel opened with the
+ * archive, so that the cached offsets always apply to the same file, even if
+ * it is replaced in the meantime. The archive is closed once it has been
+ * evicted from its cache and all the representations using it have been
+ * released.
+ * 
+ * @author Jerome Louvel
+ * @see ZipFileCache
+ */
+public class ZipArchive {
+
+    /** The signature of the central directory file headers. */
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+
+    /** The signature of the end of central directory record. */
+    private static final int END_SIGNATURE = 0x06054b50;
+
+    /** The signature of the local file headers. */
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+
+    /** The value of 32 bits fields replaced by ZIP64 extra fields. */
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * Reads a region of a file channel.
+     * 
+     * @param fileChannel
+     *            The file channel to read.
+     * @param position
+     *            The position of the region.
+     * @param size
+     *            The size of the region.
+     * @return The little-endian buffer containing the region.
+     * @throws IOException
+     */
+    private static ByteBuffer read(FileChannel fileChannel, long position,
+            int size) throws IOException {
+        ByteBuffer result = ByteBuffer.allocate(size).order(
+                ByteOrder.LITTLE_ENDIAN);
+
+        while (result.hasRemaining()) {
+            if (fileChannel.read(result, position + result.position()) == -1) {
+                throw new IOException("Unexpected end of the ZIP archive");
+            }
+        }
+
+        result.flip();
+        return result;
+    }
+
+    /** The offsets of the content of the stored entries, located on demand. */
+    private final ConcurrentMap<String, Long> dataOffsets;
+
+    /** The sorted index of the entries, built on demand. */
+    private volatile SortedMap<String, ZipEntry> entries;
+
+    /** Indicates if the archive has been evicted from its cache. */
+    private boolean evicted;
+
+    /** The archive file. */
+    private final File file;
+
+    /** The archive file opened for direct transfers. */
+    private final RandomAccessFile randomAccessFile;
+
+    /** The modification time of the archive file when opened. */
+    private final long lastModified;
+
+    /** The size of the archive file when opened. */
+    private final long length;
+
+    /** The offsets of the local headers of the stored entries. */
+    private volatile Map<String, Long> localHeaderOffsets;
+
+    /** The number of users of the archive. */
+    private int references;
+
+    /** The opened archive. */
+    private final ZipFile zipFile;
+
+    /**
+     * Constructor. Opens the archive.
+     * 
+     * @param file
+     *            The archive file.
+     * @throws IOException
+     */
+    public ZipArchive(File file) throws IOException {
+        this.dataOffsets = new ConcurrentHashMap<String, Long>();
+        this.entries = null;
+        this.evicted = false;
+        this.file = file;
+        this.lastModified = file.lastModified();
+        this.length = file.length();
+        this.localHeaderOffsets = null;
+        this.references = 0;
+        this.zipFile = new ZipFile(file);
+
+        try {
+            this.randomAccessFile = new RandomAccessFile(file, "r");
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Registers a new user of the archive.
+     * 
+     * @return True if the archive is still opened.
+     */
+    public synchronized boolean acquire() {
+        boolean result = !this.evicted || (this.references > 0);
+
+        if (result) {
+            this.references++;
+        }
+
+        return result;
+    }
+
+    /**
+     * Closes the archive.
+     */
+    private void close() {
+        try {
+            this.zipFile.close();
+        } catch (IOException e) {
+        }
+
+        if (this.randomAccessFile != null) {
+            try {
+                this.randomAccessFile.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Marks the archive as evicted from its cache. It is closed once all its
+     * users have released it.
+     */
+    public synchronized void evict() {
+        this.evicted = true;
+
+        if (this.references == 0) {
+            close();
+        }
+    }
+
+    /**
+     * Returns the offset in the archive file of the content of an entry
+     * stored without compression. Returns -1 if the entry is compressed or if
+     * its content can't be located.
+     * 
+     * @param entry
+     *            The entry.
+     * @return The offset of the content or -1.
+     */
+    public long getDataOffset(ZipEntry entry) {
+        if ((entry.getMethod() != ZipEntry.STORED) || entry.isDirectory()
+                || (entry.getSize() <= 0)) {
+            return -1;
+        }
+
+        Long result = this.dataOffsets.get(entry.getName());
+
+        if (result == null) {
+            result = -1L;
+
+            try {
+                Long headerOffset = getLocalHeaderOffsets().get(
+                        entry.getName());
+
+                if (headerOffset != null) {
+                    result = readDataOffset(headerOffset, entry);
+                }
+            } catch (IOException e) {
+                // Fall back to the inflating stream
+            }
+
+            this.dataOffsets.put(entry.getName(), result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the sorted index of the entries.
+     * 
+     * @return The sorted index of the entries.
+     */
+    private SortedMap<String, ZipEntry> getEntries() {
+        SortedMap<String, ZipEntry> result = this.entries;
+
+        if (result == null) {
+            result = new TreeMap<String, ZipEntry>();
+
+            for (Enumeration<? extends ZipEntry> iter = this.zipFile.entries(); iter
+                    .hasMoreElements();) {
+                ZipEntry entry = iter.nextElement();
+                result.put(entry.getName(), entry);
+            }
+
+            this.entries = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the entries whose name starts with the given prefix, excluding
+     * the entry named after the prefix, in the order of their names.
+     * 
+     * @param prefix
+     *            The prefix of the entry names, typically a directory name.
+     * @return The entries whose name starts with the prefix.
+     */
+    public List<ZipEntry> getEntries(String prefix) {
+        SortedMap<String, ZipEntry> subMap = getEntries().subMap(prefix,
+                prefix + Character.MAX_VALUE);
+        List<ZipEntry> result = new ArrayList<ZipEntry>(subMap.size());
+
+        for (ZipEntry entry : subMap.values()) {
+            if (entry.getName().length() != prefix.length()) {
+                result.add(entry);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the archive file.
+     * 
+     * @return The archive file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the channel of the archive file opened with the archive. It is
+     * shared by all the users of the archive, so only positional reads and
+     * transfers must be done on it, without changing its position or closing
+     * it.
+     * 
+     * @return The channel of the archive file.
+     */
+    public FileChannel getFileChannel() {
+        return this.randomAccessFile.getChannel();
+    }
+
+    /**
+     * Returns the offsets of the local headers of the stored entries, reading
+     * the central directory of the archive if necessary. ZIP64 archives aren't
+     * supported.
+     * 
+     * @return The offsets of the local headers of the stored entries.
+     * @throws IOException
+     */
+    private Map<String, Long> getLocalHeaderOffsets() throws IOException {
+        Map<String, Long> result = this.localHeaderOffsets;
+
+        if (result == null) {
+            result = new HashMap<String, Long>();
+            FileChannel fileChannel = getFileChannel();
+            long size = fileChannel.size();
+            int tailSize = (int) Math.min(size, 0xFFFF + 22);
+            ByteBuffer tail = read(fileChannel, size - tailSize, tailSize);
+            int end = -1;
+
+            for (int i = tailSize - 22; (end == -1) && (i >= 0); i--) {
+                if (tail.getInt(i) == END_SIGNATURE) {
+                    end = i;
+                }
+            }
+
+            if (end != -1) {
+                long cdSize = tail.getInt(end + 12) & ZIP64_MAGIC;
+                long cdOffset = tail.getInt(end + 16) & ZIP64_MAGIC;
+
+                if ((cdOffset != ZIP64_MAGIC)
+                        && (cdOffset + cdSize <= size)) {
+                    ByteBuffer cd = read(fileChannel, cdOffset,
+                            (int) cdSize);
+                    int pos = 0;
+
+                    while ((pos + 46 <= cdSize)
+                            && (cd.getInt(pos) == CENTRAL_SIGNATURE)) {
+                        int method = cd.getShort(pos + 10) & 0xFFFF;
+                        long compressedSize = cd.getInt(pos + 20)
+                                & ZIP64_MAGIC;
+                        int nameLength = cd.getShort(pos + 28) & 0xFFFF;
+                        int extraLength = cd.getShort(pos + 30) & 0xFFFF;
+                        int commentLength = cd.getShort(pos + 32) & 0xFFFF;
+                        long offset = cd.getInt(pos + 42) & ZIP64_MAGIC;
+
+                        if ((method == ZipEntry.STORED)
+                                && (compressedSize != ZIP64_MAGIC)
+                                && (offset != ZIP64_MAGIC)) {
+                            byte[] name = new byte[nameLength];
+                            cd.position(pos + 46);
+                            cd.get(name);
+                            result.put(new String(name, "UTF-8"), offset);
+                        }
+
+                        pos += 46 + nameLength + extraLength
+                                + commentLength;
+                    }
+                }
+            }
+
+            this.localHeaderOffsets = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the opened archive.
+     * 
+     * @return The opened archive.
+     */
+    public ZipFile getZipFile() {
+        return zipFile;
+    }
+
+    /**
+     * Indicates if the archive file is unchanged since it was opened.
+     * 
+     * @return True if the archive file is unchanged since it was opened.
+     */
+    public boolean isUpToDate() {
+        return (this.file.lastModified() == this.lastModified)
+                && (this.file.length() == this.length);
+    }
+
+    /**
+     * Reads the local header of a stored entry to compute the offset of its
+     * content.
+     * 
+     * @param headerOffset
+     *            The offset of the local header.
+     * @param entry
+     *            The entry.
+     * @return The offset of the content or -1.
+     * @throws IOException
+     */
+    private long readDataOffset(long headerOffset, ZipEntry entry)
+            throws IOException {
+        long result = -1;
+        FileChannel fileChannel = getFileChannel();
+        ByteBuffer header = read(fileChannel, headerOffset, 30);
+        int nameLength = header.getShort(26) & 0xFFFF;
+        int extraLength = header.getShort(28) & 0xFFFF;
+        long offset = headerOffset + 30 + nameLength + extraLength;
+
+        if ((header.getInt(0) == LOCAL_HEADER_SIGNATURE)
+                && (nameLength == entry.getName().getBytes("UTF-8").length)
+                && (offset + entry.getSize() <= fileChannel.size())) {
+            result = offset;
+        }
+
+        return result;
+    }
+
+    /**
+     * Unregisters a user of the archive. Closes it if it has been evicted and
+     * has no more users.
+     */
+    public synchronized void release() {
+        this.references--;
+
+        if (this.evicted && (this.references == 0)) {
+            close();
+        }
+    }
+
+}
@@ -62,12 +62,35 @@ import org.restlet.service.MetadataService;
  * files.<br>
  * <br>
  * Handles GET, HEAD and PUT request on resources referenced as :
- * zip:file://<file path>
+ * zip:file://<file path><br>
+ * <br>
+ * Archives are kept opened between calls in a {@link ZipFileCache}, and
+ * reopened when their file is modified. Here is the list of additional
+ * parameters that are supported. They should be set in the Client's context
+ * before it is started:
+ * <table>
+ * <tr>
+ * <th>Parameter name</th>
+ * <th>Value type</th>
+ * <th>Default value</th>
+ * <th>Description</th>
+ * </tr>
+ * <tr>
+ * <td>maxOpenedArchives</td>
+ * <td>int</td>
+ * <td>16</td>
+ * <td>Maximum number of archives kept opened between calls. If you set the
+ * value to '0', archives are opened for each call.</td>
+ * </tr>
+ * </table>
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipClientHelper extends LocalClientHelper {
 
+    /** The cache of opened archives. */
+    private volatile ZipFileCache zipFileCache;
+
     /**
      * Constructor.
      * 
@@ -78,6 +101,40 @@ public class ZipClientHelper extends LocalClientHelper {
         super(client);
         getProtocols().add(Protocol.ZIP);
         getProtocols().add(Protocol.JAR);
+        this.zipFileCache = null;
+    }
+
+    /**
+     * Returns the maximum number of archives kept opened between calls.
+     * 
+     * @return The maximum number of archives kept opened between calls.
+     */
+    public int getMaxOpenedArchives() {
+        return Integer.parseInt(getHelpedParameters().getFirstValue(
+                "maxOpenedArchives",
+                Integer.toString(ZipFileCache.DEFAULT_MAX_FILES)));
+    }
+
+    /**
+     * Returns the cache of opened archives, creating it if necessary.
+     * 
+     * @return The cache of opened archives.
+     */
+    public ZipFileCache getZipFileCache() {
+        ZipFileCache result = this.zipFileCache;
+
+        if (result == null) {
+            synchronized (this) {
+                result = this.zipFileCache;
+
+                if (result == null) {
+                    result = new ZipFileCache(getMaxOpenedArchives());
+                    this.zipFileCache = result;
+                }
+            }
+        }
+
+        return result;
     }
 
     /**
@@ -114,6 +171,7 @@ public class ZipClientHelper extends LocalClientHelper {
                         getMetadataService());
             } else if (Method.PUT.equals(request.getMethod())) {
                 handlePut(request, response, file, entryName);
+                getZipFileCache().invalidate(file);
             } else {
                 response.setStatus(Status.CLIENT_ERROR_METHOD_NOT_ALLOWED);
                 response.getAllowedMethods().add(Method.GET);
@@ -146,18 +204,19 @@ public class ZipClientHelper extends LocalClientHelper {
         if (!file.exists()) {
             response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
         } else {
-            ZipFile zipFile;
+            ZipArchive archive;
 
             try {
-                zipFile = new ZipFile(file);
+                archive = getZipFileCache().acquire(file);
             } catch (Exception e) {
                 response.setStatus(Status.SERVER_ERROR_INTERNAL, e);
                 return;
             }
 
-            Entity entity = new ZipEntryEntity(zipFile, entryName,
+            Entity entity = new ZipEntryEntity(archive, entryName,
                     metadataService);
             if (!entity.exists()) {
+                archive.release();
                 response.setStatus(Status.CLIENT_ERROR_NOT_FOUND);
             } else {
                 final Representation output;
@@ -176,12 +235,7 @@ public class ZipClientHelper extends LocalClientHelper {
                     }
 
                     output = rl.getTextRepresentation();
-
-                    try {
-                        zipFile.close();
-                    } catch (IOException e) {
-                        // Do something ???
-                    }
+                    archive.release();
                 } else {
                     // Return the file content
                     output = entity.getRepresentation(metadataService
@@ -342,6 +396,15 @@ public class ZipClientHelper extends LocalClientHelper {
         }
     }
 
+    @Override
+    public synchronized void stop() throws Exception {
+        if (this.zipFileCache != null) {
+            this.zipFileCache.clear();
+        }
+
+        super.stop();
+    }
+
     /**
      * Writes an entity to a given ZIP output stream with a given ZIP entry
      * name.
@@ -50,12 +50,71 @@ import org.restlet.service.MetadataService;
  */
 public class ZipEntryEntity extends Entity {
 
+    /**
+     * Returns the entry of a Zip file with the given name, preferring a
+     * directory entry.
+     * 
+     * @param zipFile
+     *            The Zip file.
+     * @param entryName
+     *            The Zip entry name.
+     * @return The Zip entry, or a new one if it doesn't exist.
+     */
+    private static ZipEntry getEntry(ZipFile zipFile, String entryName) {
+        ZipEntry entry = zipFile.getEntry(entryName);
+        if (entry == null)
+            return new ZipEntry(entryName);
+
+        // Checking we don't have a directory
+        ZipEntry entryDir = zipFile.getEntry(entryName + "/");
+        if (entryDir != null)
+            return entryDir;
+        return entry;
+    }
+
+    /** The shared archive, if any. */
+    private final ZipArchive archive;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
     /** The Zip entry. */
     protected final ZipEntry entry;
 
+    /**
+     * Constructor.
+     * 
+     * @param archive
+     *            The shared archive.
+     * @param entryName
+     *            The Zip entry name.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, String entryName,
+            MetadataService metadataService) {
+        this(archive, getEntry(archive.getZipFile(), entryName),
+                metadataService);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param archive
+     *            The shared archive.
+     * @param entry
+     *            The Zip entry.
+     * @param metadataService
+     *            The metadata service to use.
+     */
+    public ZipEntryEntity(ZipArchive archive, ZipEntry entry,
+            MetadataService metadataService) {
+        super(metadataService);
+        this.archive = archive;
+        this.zipFile = archive.getZipFile();
+        this.entry = entry;
+    }
+
     /**
      * Constructor.
      * 
@@ -68,19 +127,7 @@ public class ZipEntryEntity extends Entity {
      */
     public ZipEntryEntity(ZipFile zipFile, String entryName,
             MetadataService metadataService) {
-        super(metadataService);
-        this.zipFile = zipFile;
-        ZipEntry entry = zipFile.getEntry(entryName);
-        if (entry == null)
-            this.entry = new ZipEntry(entryName);
-        else {
-            // Checking we don't have a directory
-            ZipEntry entryDir = zipFile.getEntry(entryName + "/");
-            if (entryDir != null)
-                this.entry = entryDir;
-            else
-                this.entry = entry;
-        }
+        this(zipFile, getEntry(zipFile, entryName), metadataService);
     }
 
     /**
@@ -96,6 +143,7 @@ public class ZipEntryEntity extends Entity {
     public ZipEntryEntity(ZipFile zipFile, ZipEntry entry,
             MetadataService metadataService) {
         super(metadataService);
+        this.archive = null;
         this.zipFile = zipFile;
         this.entry = entry;
     }
@@ -113,7 +161,15 @@ public class ZipEntryEntity extends Entity {
     public List<Entity> getChildren() {
         List<Entity> result = null;
 
-        if (isDirectory()) {
+        if (isDirectory() && (archive != null)) {
+            List<ZipEntry> entries = archive.getEntries(entry.getName());
+            result = new ArrayList<Entity>(entries.size());
+
+            for (ZipEntry e : entries) {
+                result.add(new ZipEntryEntity(archive, e,
+                        getMetadataService()));
+            }
+        } else if (isDirectory()) {
             result = new ArrayList<Entity>();
             Enumeration<? extends ZipEntry> entries = zipFile.entries();
             String n = entry.getName();
@@ -141,6 +197,9 @@ public class ZipEntryEntity extends Entity {
 
         String n = entry.getName();
         String pn = n.substring(0, n.lastIndexOf('/') + 1);
+        if (archive != null)
+            return new ZipEntryEntity(archive, zipFile.getEntry(pn),
+                    getMetadataService());
         return new ZipEntryEntity(zipFile, zipFile.getEntry(pn),
                 getMetadataService());
     }
@@ -148,6 +207,8 @@ public class ZipEntryEntity extends Entity {
     @Override
     public Representation getRepresentation(MediaType defaultMediaType,
             int timeToLive) {
+        if (archive != null)
+            return new ZipEntryRepresentation(defaultMediaType, archive, entry);
         return new ZipEntryRepresentation(defaultMediaType, zipFile, entry);
     }
 
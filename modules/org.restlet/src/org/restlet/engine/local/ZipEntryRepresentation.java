@@ -36,25 +36,41 @@ package org.restlet.engine.local;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.restlet.data.Disposition;
 import org.restlet.data.MediaType;
 import org.restlet.engine.io.BioUtils;
+import org.restlet.engine.io.NioUtils;
 import org.restlet.representation.StreamRepresentation;
 
 /**
  * An entry in a Zip/JAR file.
  * 
  * It is very important {@link #release()} is called to close the underlying Zip
- * file.
+ * file. When created from a shared {@link ZipArchive}, the archive is released
+ * instead, and the content of entries stored without compression is directly
+ * transferred from the file channel opened with the archive, as long as the
+ * archive file hasn't changed.
  * 
  * @author Remi Dewitte <remi@gide.net>
  */
 public class ZipEntryRepresentation extends StreamRepresentation {
 
+    /** The shared archive, if any. */
+    private final ZipArchive archive;
+
+    /** Indicates if the shared archive has been released. */
+    private final AtomicBoolean archiveReleased;
+
     /** The Zip file. */
     protected final ZipFile zipFile;
 
@@ -73,7 +89,42 @@ public class ZipEntryRepresentation extends StreamRepresentation {
      */
     public ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
             ZipEntry entry) {
+        this(mediaType, zipFile, null, entry);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param archive
+     *            The shared archive, already acquired for this
+     *            representation.
+     * @param entry
+     *            The Zip entry.
+     */
+    public ZipEntryRepresentation(MediaType mediaType, ZipArchive archive,
+            ZipEntry entry) {
+        this(mediaType, archive.getZipFile(), archive, entry);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param mediaType
+     *            The entry media type.
+     * @param zipFile
+     *            The parent Zip archive file.
+     * @param archive
+     *            The shared archive or null.
+     * @param entry
+     *            The Zip entry.
+     */
+    private ZipEntryRepresentation(MediaType mediaType, ZipFile zipFile,
+            ZipArchive archive, ZipEntry entry) {
         super(mediaType);
+        this.archive = archive;
+        this.archiveReleased = new AtomicBoolean(false);
         this.zipFile = zipFile;
         this.entry = entry;
         Disposition disposition = new Disposition();
@@ -84,11 +135,69 @@ public class ZipEntryRepresentation extends StreamRepresentation {
     }
 
     @Override
-    public void release() {
-        try {
-            zipFile.close();
-        } catch (IOException e) {
+    public ReadableByteChannel getChannel() throws IOException {
+        final long offset = getDataOffset();
+
+        if (offset != -1) {
+            final FileChannel fileChannel = archive.getFileChannel();
+
+            // Positional reads leave the shared channel untouched
+            return new ReadableByteChannel() {
+                private volatile boolean open = true;
+
+                private volatile long position = offset;
+
+                public void close() {
+                    this.open = false;
+                }
+
+                public boolean isOpen() {
+                    return this.open;
+                }
+
+                public int read(ByteBuffer dst) throws IOException {
+                    long remaining = offset + entry.getSize() - this.position;
+
+                    if (!this.open) {
+                        throw new ClosedChannelException();
+                    } else if (remaining <= 0) {
+                        return -1;
+                    }
+
+                    int limit = dst.limit();
+
+                    if (remaining < dst.remaining()) {
+                        dst.limit((int) (dst.position() + remaining));
+                    }
+
+                    try {
+                        int result = fileChannel.read(dst, this.position);
+
+                        if (result > 0) {
+                            this.position += result;
+                        }
+
+                        return result;
+                    } finally {
+                        dst.limit(limit);
+                    }
+                }
+            };
         }
+
+        return super.getChannel();
+    }
+
+    /**
+     * Returns the offset of the content of the entry in the archive file, if
+     * it is stored without compression in a shared archive whose file hasn't
+     * changed since it was opened.
+     * 
+     * @return The offset of the content of the entry or -1.
+     */
+    private long getDataOffset() {
+        return ((archive == null) || !archive.isUpToDate()) ? -1 : archive
+                .getDataOffset(entry);
     }
 
     @Override
@@ -96,9 +205,35 @@ public class ZipEntryRepresentation extends StreamRepresentation {
         return zipFile.getInputStream(entry);
     }
 
+    @Override
+    public void release() {
+        if (archive != null) {
+            if (archiveReleased.compareAndSet(false, true)) {
+                archive.release();
+            }
+        } else {
+            try {
+                zipFile.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
     @Override
     public void write(OutputStream outputStream) throws IOException {
         BioUtils.copy(getStream(), outputStream);
     }
 
+    @Override
+    public void write(WritableByteChannel writableChannel) throws IOException {
+        long offset = getDataOffset();
+
+        if (offset != -1) {
+            NioUtils.copy(archive.getFileChannel(), offset, entry.getSize(),
+                    writableChannel);
+        } else {
+            super.write(writableChannel);
+        }
+    }
+
 }
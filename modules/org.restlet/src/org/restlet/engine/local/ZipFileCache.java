@@ -0,0 +1,196 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of opened ZIP archives, indexed by file path. An archive is
+ * reopened when the modification date or the size of its file changes. The
+ * least recently used archives are evicted first, and closed once released by
+ * all their users.
+ * 
+ * @author Jerome Louvel
+ */
+public class ZipFileCache {
+
+    /** The default maximum number of opened archives. */
+    public static final int DEFAULT_MAX_FILES = 16;
+
+    /** The opened archives, indexed by file path in access order. */
+    private final Map<String, ZipArchive> archives;
+
+    /** The maximum number of opened archives. */
+    private volatile int maxFiles;
+
+    /**
+     * Constructor using the default maximum number of opened archives.
+     */
+    public ZipFileCache() {
+        this(DEFAULT_MAX_FILES);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param maxFiles
+     *            The maximum number of opened archives.
+     */
+    public ZipFileCache(int maxFiles) {
+        this.archives = new LinkedHashMap<String, ZipArchive>(16, 0.75f, true);
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * Returns an opened archive for the given file, opening it if necessary.
+     * The archive is acquired for the caller, which must release it after
+     * use.
+     * 
+     * @param file
+     *            The archive file.
+     * @return The acquired archive.
+     * @throws IOException
+     */
+    public ZipArchive acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        ZipArchive result = null;
+
+        synchronized (this) {
+            ZipArchive archive = this.archives.get(key);
+
+            if (archive != null) {
+                if (archive.isUpToDate() && archive.acquire()) {
+                    result = archive;
+                } else {
+                    this.archives.remove(key);
+                    archive.evict();
+                }
+            }
+        }
+
+        if (result == null) {
+            // Open outside of the lock as the central directory is read
+            result = new ZipArchive(file);
+            result.acquire();
+
+            synchronized (this) {
+                if (getMaxFiles() > 0) {
+                    ZipArchive previous = this.archives.put(key, result);
+
+                    if (previous != null) {
+                        previous.evict();
+                    }
+
+                    evict();
+                } else {
+                    result.evict();
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Evicts all the archives.
+     */
+    public synchronized void clear() {
+        for (ZipArchive archive : this.archives.values()) {
+            archive.evict();
+        }
+
+        this.archives.clear();
+    }
+
+    /**
+     * Evicts the least recently used archives until their number doesn't
+     * exceed the maximum.
+     */
+    private void evict() {
+        for (Iterator<ZipArchive> iter = this.archives.values().iterator(); (this.archives
+                .size() > getMaxFiles()) && iter.hasNext();) {
+            iter.next().evict();
+            iter.remove();
+        }
+    }
+
+    /**
+     * Returns the maximum number of opened archives.
+     * 
+     * @return The maximum number of opened archives.
+     */
+    public int getMaxFiles() {
+        return maxFiles;
+    }
+
+    /**
+     * Returns the number of opened archives in the cache.
+     * 
+     * @return The number of opened archives in the cache.
+     */
+    public synchronized int getSize() {
+        return this.archives.size();
+    }
+
+    /**
+     * Evicts the archive of the given file, for example after an update.
+     * 
+     * @param file
+     *            The archive file.
+     */
+    public synchronized void invalidate(File file) {
+        ZipArchive archive = this.archives.remove(file.getAbsolutePath());
+
+        if (archive != null) {
+            archive.evict();
+        }
+    }
+
+    /**
+     * Sets the maximum number of opened archives. Archives are evicted if
+     * necessary.
+     * 
+     * @param maxFiles
+     *            The maximum number of opened archives.
+     */
+    public synchronized void setMaxFiles(int maxFiles) {
+        this.maxFiles = maxFiles;
+        evict();
+    }
+
+}
@@ -159,6 +159,9 @@ public class AnnotationInfo {
     /** The input part of the annotation value. */
     private final String input;
 
+    /** The input types of the Java method, resolved on demand. */
+    private volatile Class<?>[] javaInputTypes;
+
     /** The annotated Java method. */
     private final java.lang.reflect.Method javaMethod;
 
@@ -171,6 +174,9 @@ public class AnnotationInfo {
     /** The optional query part of the annotation value. */
     private final String query;
 
+    /** The parameters required by the query part, parsed on demand. */
+    private volatile Form queryParameters;
+
     /** The class that hosts the annotated Java method. */
     private final Class<?> resourceClass;
 
@@ -352,14 +358,21 @@ public class AnnotationInfo {
      * @return The input types of the Java method.
      */
     public Class<?>[] getJavaInputTypes() {
-        int count = getJavaMethod().getParameterTypes().length;
-        Class<?>[] classes = new Class[count];
+        Class<?>[] classes = this.javaInputTypes;
+
+        if (classes == null) {
+            // Resolve the generic types once
+            int count = getJavaMethod().getParameterTypes().length;
+            classes = new Class[count];
 
-        for (int i = 0; i < count; i++) {
-            classes[i] = getJavaInputType(i);
+            for (int i = 0; i < count; i++) {
+                classes[i] = getJavaInputType(i);
+            }
+
+            this.javaInputTypes = classes;
         }
 
-        return classes;
+        return classes.clone();
     }
 
     /**
@@ -399,6 +412,23 @@ public class AnnotationInfo {
         return query;
     }
 
+    /**
+     * Returns the parameters required by the query part of the annotation
+     * value, or null if there is no query part.
+     * 
+     * @return The parameters required by the query part.
+     */
+    private Form getQueryParameters() {
+        Form result = this.queryParameters;
+
+        if ((result == null) && (getQuery() != null)) {
+            result = new Form(getQuery());
+            this.queryParameters = result;
+        }
+
+        return result;
+    }
+
     // [ifndef gwt] method
     /**
      * Returns a list of request variants based on the annotation value.
@@ -587,21 +617,17 @@ public class AnnotationInfo {
             throws IOException {
         boolean result = true;
 
-        // Verify query parameters
-        if (getQuery() != null) {
-            Form requiredParams = new Form(getQuery());
+        // Verify HTTP method
+        result = getRestletMethod().equals(restletMethod);
 
-            for (Iterator<Parameter> iter = requiredParams.iterator(); iter
+        // Verify query parameters
+        if (result && (getQuery() != null)) {
+            for (Iterator<Parameter> iter = getQueryParameters().iterator(); iter
                     .hasNext() && result;) {
                 result = queryParams.contains(iter.next());
             }
         }
 
-        // Verify HTTP method
-        if (result) {
-            result = getRestletMethod().equals(restletMethod);
-        }
-
         // Verify request entity
         if (result) {
             result = isCompatibleRequestEntity(requestEntity, metadataService,
@@ -35,7 +35,11 @@ package org.restlet.engine.resource;
 
 import java.io.IOException;
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -57,6 +61,9 @@ public class AnnotationUtils {
     /** Annotation info cache. */
     private final ConcurrentMap<Class<?>, List<AnnotationInfo>> cache = new ConcurrentHashMap<Class<?>, List<AnnotationInfo>>();
 
+    /** Annotation info cache, grouped by Restlet method for dispatching. */
+    private final ConcurrentMap<Class<?>, Map<Method, List<AnnotationInfo>>> dispatchCache = new ConcurrentHashMap<Class<?>, Map<Method, List<AnnotationInfo>>>();
+
     /** Current instance. */
     private static AnnotationUtils instance = new AnnotationUtils();
 
@@ -185,6 +192,7 @@ public class AnnotationUtils {
      */
     public void clearCache() {
         cache.clear();
+        dispatchCache.clear();
     }
 
     /**
@@ -283,6 +291,53 @@ public class AnnotationUtils {
         return addAnnotationDescriptors(null, clazz, clazz, javaMethod);
     }
 
+    /**
+     * Returns the annotation descriptors of the given resource class that
+     * match a Restlet method, in declaration order. The descriptors are
+     * grouped once per class, so that dispatching a call only walks the
+     * candidate annotated methods.
+     * 
+     * @param clazz
+     *            The resource class to introspect.
+     * @param restletMethod
+     *            The Restlet method to match.
+     * @return The list of annotation descriptors, possibly empty.
+     */
+    public List<AnnotationInfo> getMethodAnnotations(Class<?> clazz,
+            Method restletMethod) {
+        Map<Method, List<AnnotationInfo>> table = dispatchCache.get(clazz);
+
+        if (table == null) {
+            table = new HashMap<Method, List<AnnotationInfo>>();
+            List<AnnotationInfo> annotations = getAnnotations(clazz);
+
+            if (annotations != null) {
+                for (AnnotationInfo annotationInfo : annotations) {
+                    List<AnnotationInfo> list = table.get(annotationInfo
+                            .getRestletMethod());
+
+                    if (list == null) {
+                        list = new ArrayList<AnnotationInfo>();
+                        table.put(annotationInfo.getRestletMethod(), list);
+                    }
+
+                    list.add(annotationInfo);
+                }
+            }
+
+            Map<Method, List<AnnotationInfo>> prev = dispatchCache
+                    .putIfAbsent(clazz, table);
+
+            if (prev != null) {
+                table = prev;
+            }
+        }
+
+        List<AnnotationInfo> result = table.get(restletMethod);
+        return (result == null) ? Collections.<AnnotationInfo> emptyList()
+                : result;
+    }
+
     /**
      * Returns an instance of {@link Method} according to the given annotations.
      * 
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.engine.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.restlet.engine.header.Header;
+import org.restlet.engine.header.HeaderUtils;
+import org.restlet.util.Series;
+
+/**
+ * Series of headers indexed by lower case name. The index preserves the
+ * insertion order and duplicate headers. It is lazily rebuilt after the list
+ * of headers is modified, making the repeated lookups done when reading the
+ * headers of a message independent from their count.
+ * 
+ * @author Jerome Louvel
+ */
+public class HeaderSeries extends Series<Header> {
+
+    /**
+     * Snapshot of the headers indexed by lower case name.
+     */
+    private static class Index {
+        /** The modification count of the list at indexing time. */
+        private final int modCount;
+
+        /** The headers keyed by lower case name. */
+        private final Map<String, List<Header>> headers;
+
+        /**
+         * Constructor.
+         * 
+         * @param modCount
+         *            The modification count of the list.
+         * @param headers
+         *            The headers keyed by lower case name.
+         */
+        private Index(int modCount, Map<String, List<Header>> headers) {
+            this.modCount = modCount;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * List of headers tracking its modifications.
+     */
+    private static class HeaderList extends ArrayList<Header> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** The number of entries replaced. */
+        private volatile int setCount;
+
+        /**
+         * Constructor.
+         * 
+         * @param initialCapacity
+         *            The initial list capacity.
+         */
+        private HeaderList(int initialCapacity) {
+            super(initialCapacity);
+        }
+
+        /**
+         * Returns the number of structural modifications and replacements.
+         * 
+         * @return The number of structural modifications and replacements.
+         */
+        private int getModCount() {
+            return this.modCount + this.setCount;
+        }
+
+        @Override
+        public Header set(int index, Header element) {
+            this.setCount++;
+            return super.set(index, element);
+        }
+    }
+
+    /** The current index. */
+    private volatile Index index;
+
+    /**
+     * Constructor.
+     */
+    public HeaderSeries() {
+        this(10);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param initialCapacity
+     *            The initial list capacity.
+     */
+    public HeaderSeries(int initialCapacity) {
+        super(Header.class, new HeaderList(initialCapacity));
+    }
+
+    /**
+     * Constructor. The given delegate list isn't indexed.
+     * 
+     * @param delegate
+     *            The delegate list.
+     */
+    public HeaderSeries(List<Header> delegate) {
+        super(Header.class, delegate);
+    }
+
+    /**
+     * Returns the headers with the given name, regardless of the case, or
+     * null if the delegate list can't be indexed.
+     * 
+     * @param name
+     *            The name to match.
+     * @return The headers with the given name or null.
+     */
+    private List<Header> getIndexed(String name) {
+        List<Header> result = null;
+
+        if ((name != null) && (getDelegate() instanceof HeaderList)) {
+            HeaderList list = (HeaderList) getDelegate();
+            Index current = this.index;
+            int modCount = list.getModCount();
+
+            if ((current == null) || (current.modCount != modCount)) {
+                current = new Index(modCount, createIndex(list));
+                this.index = current;
+            }
+
+            result = current.headers.get(HeaderUtils.getLowerCaseName(name));
+
+            if (result == null) {
+                result = Collections.emptyList();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indexes the given headers by lower case name.
+     * 
+     * @param list
+     *            The headers to index.
+     * @return The headers keyed by lower case name.
+     */
+    private Map<String, List<Header>> createIndex(List<Header> list) {
+        Map<String, List<Header>> result = new HashMap<String, List<Header>>(
+                list.size());
+
+        for (Header header : list) {
+            if (header.getName() != null) {
+                String key = HeaderUtils.getLowerCaseName(header.getName());
+                List<Header> headers = result.get(key);
+
+                if (headers == null) {
+                    headers = new ArrayList<Header>(1);
+                    result.put(key, headers);
+                }
+
+                headers.add(header);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public Header getFirst(String name, boolean ignoreCase) {
+        List<Header> headers = getIndexed(name);
+
+        if (headers == null) {
+            return super.getFirst(name, ignoreCase);
+        }
+
+        for (Header header : headers) {
+            if (ignoreCase || name.equals(header.getName())) {
+                return header;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public String getValues(String name, String separator, boolean ignoreCase) {
+        List<Header> headers = getIndexed(name);
+
+        if (headers == null) {
+            return super.getValues(name, separator, ignoreCase);
+        }
+
+        String result = null;
+        StringBuilder sb = null;
+
+        for (Header header : headers) {
+            if (ignoreCase || name.equals(header.getName())) {
+                if (sb == null) {
+                    if (result == null) {
+                        result = header.getValue();
+                    } else {
+                        sb = new StringBuilder();
+                        sb.append(result).append(separator)
+                                .append(header.getValue());
+                    }
+                } else {
+                    sb.append(separator).append(header.getValue());
+                }
+            }
+        }
+
+        if (sb != null) {
+            result = sb.toString();
+        }
+
+        return result;
+    }
+
+    @Override
+    public Series<Header> subList(String name, boolean ignoreCase) {
+        List<Header> headers = getIndexed(name);
+
+        if (headers == null) {
+            return super.subList(name, ignoreCase);
+        }
+
+        HeaderSeries result = new HeaderSeries(headers.size());
+
+        for (Header header : headers) {
+            if (ignoreCase || name.equals(header.getName())) {
+                result.add(header);
+            }
+        }
+
+        return result;
+    }
+
+}
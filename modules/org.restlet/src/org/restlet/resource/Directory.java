@@ -43,6 +43,7 @@ import org.restlet.Response;
 import org.restlet.data.MediaType;
 import org.restlet.data.Reference;
 import org.restlet.data.ReferenceList;
+import org.restlet.engine.local.CompressedFileCache;
 import org.restlet.engine.local.DirectoryServerResource;
 import org.restlet.engine.util.AlphaNumericComparator;
 import org.restlet.engine.util.AlphabeticalComparator;
@@ -79,6 +80,14 @@ import org.restlet.representation.Variant;
  * idea</a>, using a different and faster implementation contributed by Rob
  * Heittman.<br>
  * <br>
+ * Files can be served compressed to clients accepting it, without compressing
+ * them again on each request. When the "servingPrecompressed" property is
+ * turned on, a sibling file with a ".br" or ".gz" extension is served instead
+ * of the requested file, if present and up to date. When a
+ * {@link CompressedFileCache} is set, files are compressed once with GZip and
+ * their compressed copy is served until they are modified. Both only apply to
+ * files exposed by the "file" scheme.<br>
+ * <br>
  * Concurrency note: instances of this class or its subclasses can be invoked by
  * several threads at the same time and therefore must be thread-safe. You
  * should be especially careful when storing state in member variables.
@@ -92,6 +101,9 @@ public class Directory extends Finder {
     /** The reference comparator to sort index pages. */
     private volatile Comparator<Reference> comparator;
 
+    /** The cache of compressed copies of files. */
+    private volatile CompressedFileCache compressedFileCache;
+
     /**
      * Indicates if the sub-directories are deeply accessible (true by default).
      */
@@ -118,6 +130,9 @@ public class Directory extends Finder {
     /** The absolute root reference (file, clap URI). */
     private volatile Reference rootRef;
 
+    /** Indicates if precompressed siblings of files are served. */
+    private volatile boolean servingPrecompressed;
+
     /**
      * Constructor.
      * 
@@ -143,11 +158,13 @@ public class Directory extends Finder {
         }
 
         this.comparator = new AlphaNumericComparator();
+        this.compressedFileCache = null;
         this.deeplyAccessible = true;
         this.indexName = "index";
         this.listingAllowed = false;
         this.modifiable = false;
         this.negotiatingContent = true;
+        this.servingPrecompressed = false;
         setTargetClass(DirectoryServerResource.class);
     }
 
@@ -184,6 +201,16 @@ public class Directory extends Finder {
         return this.comparator;
     }
 
+    /**
+     * Returns the cache of compressed copies of files. Returns null by default,
+     * meaning that files aren't compressed by the directory.
+     * 
+     * @return The cache of compressed copies of files.
+     */
+    public CompressedFileCache getCompressedFileCache() {
+        return compressedFileCache;
+    }
+
     /**
      * Returns the index name, without extensions. Returns "index" by default.
      * 
@@ -287,6 +314,17 @@ public class Directory extends Finder {
         return this.negotiatingContent;
     }
 
+    /**
+     * Indicates if precompressed siblings of files, with a ".br" or ".gz"
+     * extension, are served to the clients accepting the matching encoding.
+     * Default value is false.
+     * 
+     * @return True if precompressed siblings of files are served.
+     */
+    public boolean isServingPrecompressed() {
+        return servingPrecompressed;
+    }
+
     /**
      * Sets the reference comparator used to sort index pages.
      * 
@@ -297,6 +335,16 @@ public class Directory extends Finder {
         this.comparator = comparator;
     }
 
+    /**
+     * Sets the cache of compressed copies of files.
+     * 
+     * @param compressedFileCache
+     *            The cache of compressed copies of files.
+     */
+    public void setCompressedFileCache(CompressedFileCache compressedFileCache) {
+        this.compressedFileCache = compressedFileCache;
+    }
+
     /**
      * Indicates if the sub-directories are deeply accessible (true by default).
      * 
@@ -361,6 +409,17 @@ public class Directory extends Finder {
         this.rootRef = rootRef;
     }
 
+    /**
+     * Indicates if precompressed siblings of files, with a ".br" or ".gz"
+     * extension, are served to the clients accepting the matching encoding.
+     * 
+     * @param servingPrecompressed
+     *            True if precompressed siblings of files are served.
+     */
+    public void setServingPrecompressed(boolean servingPrecompressed) {
+        this.servingPrecompressed = servingPrecompressed;
+    }
+
     /**
      * Sets the reference comparator based on classic alphabetical order.
      * 
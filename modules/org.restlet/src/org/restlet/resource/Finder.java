@@ -34,6 +34,8 @@
 package org.restlet.resource;
 
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -104,6 +106,9 @@ public class Finder extends Restlet {
     /** Target {@link ServerResource} subclass. */
     private volatile Class<? extends ServerResource> targetClass;
 
+    /** The cached default constructor of the last instantiated class. */
+    private volatile Constructor<? extends ServerResource> targetConstructor;
+
     /**
      * Constructor.
      */
@@ -154,7 +159,16 @@ public class Finder extends Restlet {
         if (targetClass != null) {
             try {
                 // Invoke the default constructor
-                result = targetClass.newInstance();
+                result = getConstructor(targetClass).newInstance();
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+
+                getLogger()
+                        .log(Level.WARNING,
+                                "Exception while instantiating the target server resource.",
+                                e.getCause());
             } catch (Exception e) {
                 getLogger()
                         .log(Level.WARNING,
@@ -203,6 +217,43 @@ public class Finder extends Restlet {
         return create(request, response);
     }
 
+    /**
+     * Returns the default constructor of the given {@link ServerResource}
+     * subclass. The constructor is resolved once, then reused for each call as
+     * long as the same class is instantiated.
+     * 
+     * @param targetClass
+     *            The target {@link ServerResource} subclass.
+     * @return The default constructor.
+     * @throws NoSuchMethodException
+     */
+    private Constructor<? extends ServerResource> getConstructor(
+            Class<? extends ServerResource> targetClass)
+            throws NoSuchMethodException {
+        Constructor<? extends ServerResource> result = this.targetConstructor;
+
+        if ((result == null) || (result.getDeclaringClass() != targetClass)) {
+            result = targetClass.getDeclaredConstructor();
+
+            // Skip the access checks on each instantiation, only when they
+            // would pass anyway. Non-public constructors are still checked.
+            if (Modifier.isPublic(targetClass.getModifiers())
+                    && Modifier.isPublic(result.getModifiers())) {
+                try {
+                    result.setAccessible(true);
+                } catch (SecurityException e) {
+                    getLogger().log(Level.FINE,
+                            "Unable to suppress the constructor access checks",
+                            e);
+                }
+            }
+
+            this.targetConstructor = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the target resource class which must be either a subclass of
      * {@link ServerResource}.
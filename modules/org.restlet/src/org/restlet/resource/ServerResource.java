@@ -109,6 +109,9 @@ public abstract class ServerResource extends Resource {
     /** Indicates if conditional handling is enabled. */
     private volatile boolean conditional;
 
+    /** Copies of the variants cached by the conneg service. */
+    private volatile List<Variant> cachedVariants;
+
     /** Indicates if the identified resource exists. */
     private volatile boolean existing;
 
@@ -118,16 +121,21 @@ public abstract class ServerResource extends Resource {
     /** Modifiable list of variants. */
     private volatile List<Variant> variants;
 
+    /** Key of the variants cached by the conneg service. */
+    private volatile String variantsKey;
+
     /**
      * Initializer block to ensure that the basic properties are initialized
      * consistently across constructors.
      */
     {
         this.annotated = true;
+        this.cachedVariants = null;
         this.conditional = true;
         this.existing = true;
         this.negotiated = true;
         this.variants = null;
+        this.variantsKey = null;
     }
 
     /**
@@ -146,6 +154,65 @@ public abstract class ServerResource extends Resource {
         getResponse().abort();
     }
 
+    /**
+     * Adds the variants exposed by the annotated methods compatible with the
+     * given method.
+     * 
+     * @param variants
+     *            The list of variants to update.
+     * @param method
+     *            The method.
+     */
+    private void addAnnotationVariants(List<Variant> variants, Method method) {
+        List<Variant> annoVariants = null;
+
+        for (AnnotationInfo annotationInfo : AnnotationUtils.getInstance()
+                .getMethodAnnotations(getClass(), method)) {
+            try {
+                if (annotationInfo.isCompatible(method, getQuery(),
+                        getRequestEntity(), getMetadataService(),
+                        getConverterService())) {
+                    annoVariants = annotationInfo.getResponseVariants(
+                            getMetadataService(), getConverterService());
+
+                    if (annoVariants != null) {
+                        // Compute an affinity score between this annotation
+                        // and the input entity.
+                        float score = 0.5f;
+                        if ((getRequest().getEntity() != null)
+                                && getRequest().getEntity().isAvailable()) {
+                            MediaType emt = getRequest().getEntity()
+                                    .getMediaType();
+                            List<MediaType> amts = getMetadataService()
+                                    .getAllMediaTypes(
+                                            annotationInfo.getInput());
+                            if (amts != null) {
+                                for (MediaType amt : amts) {
+                                    if (amt.equals(emt)) {
+                                        score = 1.0f;
+                                    } else if (amt.includes(emt)) {
+                                        score = Math.max(0.8f, score);
+                                    } else if (amt.isCompatible(emt)) {
+                                        score = Math.max(0.6f, score);
+                                    }
+                                }
+                            }
+                        }
+
+                        for (Variant v : annoVariants) {
+                            VariantInfo vi = new VariantInfo(v, annotationInfo);
+                            vi.setInputScore(score);
+                            variants.add(vi);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                getLogger().log(Level.FINE,
+                        "Unable to get variants from annotation", e);
+            }
+        }
+    }
+
     /**
      * Asks the response to immediately commit making it ready to be sent back
      * to the client. Note that all server connectors don't necessarily support
@@ -490,12 +557,14 @@ public abstract class ServerResource extends Resource {
 
         try {
             if (parameterTypes.length > 0) {
-                List<Object> parameters = new ArrayList<Object>();
+                Object[] parameters = new Object[parameterTypes.length];
                 Object parameter = null;
 
-                for (Class<?> parameterType : parameterTypes) {
+                for (int i = 0; i < parameterTypes.length; i++) {
+                    Class<?> parameterType = parameterTypes[i];
+
                     if (Variant.class.equals(parameterType)) {
-                        parameters.add(variant);
+                        parameters[i] = variant;
                     } else {
                         if (getRequestEntity() != null
                                 && getRequestEntity().isAvailable()
@@ -514,12 +583,12 @@ public abstract class ServerResource extends Resource {
                             parameter = null;
                         }
 
-                        parameters.add(parameter);
+                        parameters[i] = parameter;
                     }
                 }
 
                 resultObject = annotationInfo.getJavaMethod().invoke(this,
-                        parameters.toArray());
+                        parameters);
             } else {
                 resultObject = annotationInfo.getJavaMethod().invoke(this);
             }
@@ -777,7 +846,8 @@ public abstract class ServerResource extends Resource {
             Representation entity) throws IOException {
         if (isAnnotated()) {
             return AnnotationUtils.getInstance().getAnnotation(
-                    getAnnotations(), method, query, entity,
+                    AnnotationUtils.getInstance().getMethodAnnotations(
+                            getClass(), method), method, query, entity,
                     getMetadataService(), getConverterService());
         }
 
@@ -873,8 +943,15 @@ public abstract class ServerResource extends Resource {
 
         // If variants were found, select the best matching one
         if ((variants != null) && (!variants.isEmpty())) {
-            result = getConnegService().getPreferredVariant(variants,
-                    getRequest(), getMetadataService());
+            if (isCachedVariants(variants)) {
+                // Reuse previous negotiations on the same variants
+                result = getConnegService().getPreferredVariant(
+                        this.variantsKey, variants, getRequest(),
+                        getMetadataService());
+            } else {
+                result = getConnegService().getPreferredVariant(variants,
+                        getRequest(), getMetadataService());
+            }
         }
 
         return result;
@@ -924,58 +1001,25 @@ public abstract class ServerResource extends Resource {
 
             // Add annotation-based variants in priority
             if (isAnnotated() && hasAnnotations()) {
-                List<Variant> annoVariants = null;
                 method = (Method.HEAD.equals(method)) ? Method.GET : method;
+                String key = getVariantsKey(method);
+                List<Variant> cached = (key == null) ? null
+                        : getConnegService().getVariants(key);
 
-                for (AnnotationInfo annotationInfo : getAnnotations()) {
-                    try {
-                        if (annotationInfo.isCompatible(method, getQuery(),
-                                getRequestEntity(), getMetadataService(),
-                                getConverterService())) {
-                            annoVariants = annotationInfo
-                                    .getResponseVariants(getMetadataService(),
-                                            getConverterService());
-
-                            if (annoVariants != null) {
-                                // Compute an affinity score between this
-                                // annotation
-                                // and the input entity.
-                                float score = 0.5f;
-                                if ((getRequest().getEntity() != null)
-                                        && getRequest().getEntity()
-                                                .isAvailable()) {
-                                    MediaType emt = getRequest().getEntity()
-                                            .getMediaType();
-                                    List<MediaType> amts = getMetadataService()
-                                            .getAllMediaTypes(
-                                                    annotationInfo.getInput());
-                                    if (amts != null) {
-                                        for (MediaType amt : amts) {
-                                            if (amt.equals(emt)) {
-                                                score = 1.0f;
-                                            } else if (amt.includes(emt)) {
-                                                score = Math.max(0.8f, score);
-                                            } else if (amt.isCompatible(emt)) {
-                                                score = Math.max(0.6f, score);
-                                            }
-                                        }
-                                    }
-                                }
-
-                                for (Variant v : annoVariants) {
-                                    VariantInfo vi = new VariantInfo(v,
-                                            annotationInfo);
-                                    vi.setInputScore(score);
-                                    result.add(vi);
-                                }
-                            }
-                        }
-                    } catch (IOException e) {
-                        getLogger().log(Level.FINE,
-                                "Unable to get variants from annotation", e);
+                if (cached == null) {
+                    addAnnotationVariants(result, method);
 
+                    if (key != null) {
+                        getConnegService().setVariants(key, result);
                     }
+                } else {
+                    result.addAll(cached);
                 }
+
+                // Keep separate copies to detect changes to the variants
+                this.cachedVariants = (key == null) ? null
+                        : getConnegService().getVariants(key);
+                this.variantsKey = key;
             }
 
             this.variants = result;
@@ -984,6 +1028,33 @@ public abstract class ServerResource extends Resource {
         return result;
     }
 
+    /**
+     * Returns the key identifying the annotation-based variants of this
+     * resource class for the given method. The variants can only be cached
+     * when they don't depend on the request entity or on a query constraint.
+     * 
+     * @param method
+     *            The method.
+     * @return The variants key or null if they can't be cached.
+     */
+    private String getVariantsKey(Method method) {
+        String result = null;
+
+        if ((getRequestEntity() == null) || !getRequestEntity().isAvailable()) {
+            result = getClass().getName() + ' ' + method.getName();
+
+            for (AnnotationInfo annotationInfo : AnnotationUtils.getInstance()
+                    .getMethodAnnotations(getClass(), method)) {
+                if (annotationInfo.getQuery() != null) {
+                    result = null;
+                    break;
+                }
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Handles any call to this resource. The default implementation check the
      * {@link #isConditional()} and {@link #isNegotiated()} method to determine
@@ -1115,6 +1186,27 @@ public abstract class ServerResource extends Resource {
         return getResponse().isAutoCommitting();
     }
 
+    /**
+     * Indicates if the given variants are still equal to the ones cached by
+     * the conneg service for this resource.
+     * 
+     * @param variants
+     *            The variants to test.
+     * @return True if the variants are still the cached ones.
+     */
+    private boolean isCachedVariants(List<Variant> variants) {
+        List<Variant> cached = this.cachedVariants;
+        boolean result = (this.variantsKey != null) && (cached != null)
+                && (variants == this.variants)
+                && (variants.size() == cached.size());
+
+        for (int i = 0; result && (i < cached.size()); i++) {
+            result = cached.get(i).equals(variants.get(i));
+        }
+
+        return result;
+    }
+
     /**
      * Indicates if the response has already been committed.
      * 
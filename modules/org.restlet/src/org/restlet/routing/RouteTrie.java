@@ -0,0 +1,549 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.restlet.Request;
+import org.restlet.Response;
+import org.restlet.data.Reference;
+
+/**
+ * Trie compiling the URI templates of a list of routes. Each node of the trie
+ * matches one segment of the remaining part of the resource reference, either
+ * as a literal segment or as a variable whose type can't match the "/"
+ * separator. This allows the selection of the best route with a single pass
+ * over the URI segments instead of matching each template against the whole
+ * URI. Routes whose template can't be expressed this way are scored as
+ * usual.<br>
+ * <br>
+ * The templates are compiled when the trie is created, in the same way
+ * templates compile their regular expression once. The trie can detect
+ * changes to the list of routes or to their template pattern, matching mode
+ * and matching query setting.
+ * 
+ * @see Router#MODE_COMPILED_BEST_MATCH
+ * @author Jerome Louvel
+ */
+public class RouteTrie {
+
+    /**
+     * Node of the trie, matching a URI segment.
+     */
+    private static class Node {
+        /** The child nodes of literal segments, keyed by segment. */
+        private final Map<String, Node> literals = new HashMap<String, Node>();
+
+        /** The templates ending with the current segment. */
+        private final List<Terminal> terminals = new ArrayList<Terminal>();
+
+        /** The child nodes of variable segments. */
+        private final List<VariableEdge> variables = new ArrayList<VariableEdge>();
+    }
+
+    /**
+     * Last segment of a template.
+     */
+    private static class Terminal {
+        /** The index of the route in the list of routes. */
+        private final int index;
+
+        /** The literal segment or null for a variable segment. */
+        private final String literal;
+
+        /** The matching mode of the template. */
+        private final int matchingMode;
+
+        /** Indicates if the variable is required. */
+        private final boolean required;
+
+        /** The type of variable. */
+        private final int type;
+
+        /**
+         * Constructor.
+         * 
+         * @param index
+         *            The index of the route in the list of routes.
+         * @param literal
+         *            The literal segment or null for a variable segment.
+         * @param variable
+         *            The variable or null for a literal segment.
+         * @param matchingMode
+         *            The matching mode of the template.
+         */
+        private Terminal(int index, String literal, Variable variable,
+                int matchingMode) {
+            this.index = index;
+            this.literal = literal;
+            this.matchingMode = matchingMode;
+            this.required = (variable != null) && variable.isRequired();
+            this.type = (variable == null) ? 0 : variable.getType();
+        }
+    }
+
+    /**
+     * Variable segment leading to a child node.
+     */
+    private static class VariableEdge {
+        /** The child node. */
+        private final Node node;
+
+        /** Indicates if the variable is required. */
+        private final boolean required;
+
+        /** The type of variable. */
+        private final int type;
+
+        /**
+         * Constructor.
+         * 
+         * @param variable
+         *            The variable.
+         */
+        private VariableEdge(Variable variable) {
+            this.node = new Node();
+            this.required = variable.isRequired();
+            this.type = variable.getType();
+        }
+    }
+
+    /** Indicates for each route if its template was compiled. */
+    private final boolean[] compiled;
+
+    /** The matching mode of each route template. */
+    private final int[] matchingModes;
+
+    /** The matching query setting of each route. */
+    private final boolean[] matchingQueries;
+
+    /** The pattern of each route template. */
+    private final String[] patterns;
+
+    /** The root node. */
+    private final Node root;
+
+    /** The parent router. */
+    private final Router router;
+
+    /** The compiled routes. */
+    private final Route[] routes;
+
+    /** The template of each route. */
+    private final Template[] templates;
+
+    /**
+     * Constructor.
+     * 
+     * @param router
+     *            The parent router.
+     * @param routes
+     *            The routes to compile.
+     */
+    public RouteTrie(Router router, List<Route> routes) {
+        this.router = router;
+        this.routes = routes.toArray(new Route[0]);
+        this.compiled = new boolean[this.routes.length];
+        this.matchingModes = new int[this.routes.length];
+        this.matchingQueries = new boolean[this.routes.length];
+        this.patterns = new String[this.routes.length];
+        this.templates = new Template[this.routes.length];
+        this.root = new Node();
+
+        for (int i = 0; i < this.routes.length; i++) {
+            Route route = this.routes[i];
+
+            if (route instanceof TemplateRoute) {
+                TemplateRoute templateRoute = (TemplateRoute) route;
+                Template template = templateRoute.getTemplate();
+                this.templates[i] = template;
+                this.matchingQueries[i] = templateRoute.isMatchingQuery();
+
+                if (template != null) {
+                    this.patterns[i] = template.getPattern();
+                    this.matchingModes[i] = template.getMatchingMode();
+                }
+            }
+
+            this.compiled[i] = compile(i);
+        }
+    }
+
+    /**
+     * Compiles the template of a route into the trie if possible.
+     * 
+     * @param index
+     *            The index of the route.
+     * @return True if the template could be compiled.
+     */
+    private boolean compile(int index) {
+        Route route = this.routes[index];
+        Template template = this.templates[index];
+        String pattern = this.patterns[index];
+        int matchingMode = this.matchingModes[index];
+
+        // Only the default scoring and matching logic can be compiled
+        if ((route.getClass() != TemplateRoute.class) || (template == null)
+                || (template.getClass() != Template.class)
+                || (pattern == null) || (route.getRouter() != this.router)
+                || this.matchingQueries[index]) {
+            return false;
+        }
+
+        if ((matchingMode != Template.MODE_EQUALS)
+                && (matchingMode != Template.MODE_STARTS_WITH)) {
+            return false;
+        }
+
+        // Parse the segments of the pattern
+        List<Object> segments = new ArrayList<Object>();
+        Set<String> names = new HashSet<String>();
+        int start = 0;
+
+        while (start >= 0) {
+            int end = pattern.indexOf('/', start);
+            String segment = pattern.substring(start,
+                    (end == -1) ? pattern.length() : end);
+            Object parsed = parseSegment(template, segment, names);
+
+            if (parsed == null) {
+                return false;
+            }
+
+            segments.add(parsed);
+            start = (end == -1) ? -1 : end + 1;
+        }
+
+        // Insert the segments into the trie
+        Node node = this.root;
+
+        for (int i = 0; i < segments.size() - 1; i++) {
+            Object segment = segments.get(i);
+
+            if (segment instanceof String) {
+                Node child = node.literals.get(segment);
+
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put((String) segment, child);
+                }
+
+                node = child;
+            } else {
+                Variable variable = (Variable) segment;
+                VariableEdge edge = null;
+
+                for (VariableEdge current : node.variables) {
+                    if ((current.type == variable.getType())
+                            && (current.required == variable.isRequired())) {
+                        edge = current;
+                    }
+                }
+
+                if (edge == null) {
+                    edge = new VariableEdge(variable);
+                    node.variables.add(edge);
+                }
+
+                node = edge.node;
+            }
+        }
+
+        Object last = segments.get(segments.size() - 1);
+
+        if (last instanceof String) {
+            node.terminals.add(new Terminal(index, (String) last, null,
+                    matchingMode));
+        } else {
+            node.terminals.add(new Terminal(index, null, (Variable) last,
+                    matchingMode));
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the route with the best score, if the required score is reached.
+     * Has the same behavior as {@link org.restlet.util.RouteList#getBest(
+     * Request, Response, float)} with the list of compiled routes.
+     * 
+     * @param request
+     *            The request to score.
+     * @param response
+     *            The response to score.
+     * @param requiredScore
+     *            The minimum score required to have a match.
+     * @return The route with the best score.
+     */
+    public Route getBest(Request request, Response response,
+            float requiredScore) {
+        String remainingPart = (request.getResourceRef() == null) ? null
+                : request.getResourceRef().getRemainingPart(false, false);
+        int[] matchedLengths = new int[this.routes.length];
+
+        for (int i = 0; i < matchedLengths.length; i++) {
+            matchedLengths[i] = -1;
+        }
+
+        if (remainingPart != null) {
+            match(this.root, remainingPart, 0, matchedLengths);
+        }
+
+        Route result = null;
+        float bestScore = 0F;
+        float score;
+
+        for (int i = 0; i < this.routes.length; i++) {
+            if (this.compiled[i]) {
+                score = getScore(remainingPart, matchedLengths[i]);
+            } else {
+                score = this.routes[i].score(request, response);
+            }
+
+            if ((score > bestScore) && (score >= requiredScore)) {
+                bestScore = score;
+                result = this.routes[i];
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the score of a compiled route, like
+     * {@link TemplateRoute#score(Request, Response)}.
+     * 
+     * @param remainingPart
+     *            The remaining part of the resource reference.
+     * @param matchedLength
+     *            The number of characters matched or -1.
+     * @return The score.
+     */
+    private float getScore(String remainingPart, int matchedLength) {
+        float result = 0F;
+
+        if ((remainingPart != null) && (matchedLength != -1)) {
+            final float totalLength = remainingPart.length();
+
+            if (totalLength > 0.0F) {
+                result = this.router.getRequiredScore()
+                        + (1.0F - this.router.getRequiredScore())
+                        * (matchedLength / totalLength);
+            } else {
+                result = 1.0F;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Indicates if the route at the given index was compiled.
+     * 
+     * @param index
+     *            The index of the route.
+     * @return True if the route at the given index was compiled.
+     */
+    public boolean isCompiled(int index) {
+        return this.compiled[index];
+    }
+
+    /**
+     * Indicates if the trie still reflects the given list of routes. Checks
+     * the routes, their template pattern, matching mode and matching query
+     * setting.
+     * 
+     * @param routes
+     *            The list of routes to check.
+     * @return True if the trie still reflects the given list of routes.
+     */
+    public boolean isUpToDate(List<Route> routes) {
+        boolean result = true;
+        int i = 0;
+
+        // The iterator is safe against concurrent changes of the routes
+        for (Iterator<Route> iter = routes.iterator(); result
+                && iter.hasNext(); i++) {
+            Route route = iter.next();
+            result = (i < this.routes.length) && (route == this.routes[i]);
+
+            if (result && this.compiled[i]) {
+                result = (route.getRouter() == this.router);
+            }
+
+            if (result && (route instanceof TemplateRoute)) {
+                TemplateRoute templateRoute = (TemplateRoute) route;
+                Template template = templateRoute.getTemplate();
+                result = (template == this.templates[i])
+                        && (templateRoute.isMatchingQuery() == this.matchingQueries[i]);
+
+                if (result && (template != null)) {
+                    result = (template.getPattern() == this.patterns[i])
+                            && (template.getMatchingMode() == this.matchingModes[i]);
+                }
+            }
+        }
+
+        return result && (i == this.routes.length);
+    }
+
+    /**
+     * Matches the compiled templates against the remaining part of a
+     * reference, starting at the given node and segment.
+     * 
+     * @param node
+     *            The current node.
+     * @param source
+     *            The remaining part of the reference.
+     * @param start
+     *            The start index of the current segment.
+     * @param matchedLengths
+     *            The number of characters matched for each route, updated.
+     */
+    private void match(Node node, String source, int start,
+            int[] matchedLengths) {
+        int end = source.indexOf('/', start);
+        boolean last = (end == -1);
+
+        if (last) {
+            end = source.length();
+        }
+
+        // Match the templates ending with this segment
+        for (Terminal terminal : node.terminals) {
+            int matchedLength = -1;
+
+            if (terminal.literal != null) {
+                if (terminal.matchingMode == Template.MODE_EQUALS) {
+                    if (last
+                            && (end - start == terminal.literal.length())
+                            && source.startsWith(terminal.literal, start)) {
+                        matchedLength = end;
+                    }
+                } else if (source.startsWith(terminal.literal, start)) {
+                    matchedLength = start + terminal.literal.length();
+                }
+            } else {
+                int runEnd = Template.matchVariable(terminal.type, source,
+                        start, end);
+
+                if ((runEnd > start) || !terminal.required) {
+                    if (terminal.matchingMode == Template.MODE_EQUALS) {
+                        if (last && (runEnd == end)) {
+                            matchedLength = end;
+                        }
+                    } else {
+                        matchedLength = runEnd;
+                    }
+                }
+            }
+
+            matchedLengths[terminal.index] = matchedLength;
+        }
+
+        // Match the longer templates with the next segments
+        if (!last) {
+            if (!node.literals.isEmpty()) {
+                Node child = node.literals.get(source.substring(start, end));
+
+                if (child != null) {
+                    match(child, source, end + 1, matchedLengths);
+                }
+            }
+
+            for (VariableEdge edge : node.variables) {
+                int runEnd = Template.matchVariable(edge.type, source,
+                        start, end);
+
+                if ((runEnd == end) && ((runEnd > start) || !edge.required)) {
+                    match(edge.node, source, end + 1, matchedLengths);
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a segment of a template pattern.
+     * 
+     * @param template
+     *            The template.
+     * @param segment
+     *            The segment to parse.
+     * @param names
+     *            The names of the variables already parsed, updated.
+     * @return The literal segment, the variable or null if the segment can't
+     *         be compiled.
+     */
+    private Object parseSegment(Template template, String segment,
+            Set<String> names) {
+        Object result = null;
+
+        if ((segment.indexOf('{') == -1) && (segment.indexOf('}') == -1)) {
+            // The "+" character isn't quoted in the regular expression
+            if (segment.indexOf('+') == -1) {
+                result = segment;
+            }
+        } else if ((segment.length() > 2) && (segment.charAt(0) == '{')
+                && (segment.charAt(segment.length() - 1) == '}')) {
+            String name = segment.substring(1, segment.length() - 1);
+            boolean valid = names.add(name);
+
+            for (int i = 0; valid && (i < name.length()); i++) {
+                valid = Reference.isUnreserved(name.charAt(i));
+            }
+
+            if (valid) {
+                Variable variable = template.getVariables().get(name);
+
+                if (variable == null) {
+                    variable = template.getDefaultVariable();
+                }
+
+                if ((variable != null) && !variable.isFixed()
+                        && Template.isScannable(variable.getType())) {
+                    result = variable;
+                }
+            }
+        }
+
+        return result;
+    }
+
+}
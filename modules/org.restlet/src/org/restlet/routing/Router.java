@@ -55,6 +55,7 @@ import org.restlet.util.RouteList;
  * algorithms:
  * <ul>
  * <li>Best match</li>
+ * <li>Compiled best match</li>
  * <li>First match (default)</li>
  * <li>Last match</li>
  * <li>Random match</li>
@@ -86,6 +87,15 @@ public class Router extends Restlet {
      */
     public static final int MODE_BEST_MATCH = 1;
 
+    /**
+     * Each call will be routed to the route with the best score, like the
+     * {@link #MODE_BEST_MATCH} mode. The URI templates of the routes are
+     * compiled into a trie of URI segments so that the best route is found
+     * with a single pass over the URI. Routes that can't be compiled are
+     * scored as usual. See {@link RouteTrie} class for implementation details.
+     */
+    public static final int MODE_COMPILED_BEST_MATCH = 7;
+
     /**
      * Each call will be routed according to a custom mode. Override the
      * {@link #getCustom(Request, Response)} method to provide your own logic.
@@ -157,6 +167,9 @@ public class Router extends Restlet {
     /** The delay (in milliseconds) before a new attempt. */
     private volatile long retryDelay;
 
+    /** The trie compiling the routes. */
+    private volatile RouteTrie routeTrie;
+
     /** The modifiable list of routes. */
     private volatile RouteList routes;
 
@@ -545,6 +558,11 @@ public class Router extends Restlet {
                             getRequiredScore());
                     break;
 
+                case MODE_COMPILED_BEST_MATCH:
+                    result = getRouteTrie().getBest(request, response,
+                            getRequiredScore());
+                    break;
+
                 case MODE_FIRST_MATCH:
                     result = getRoutes().getFirst(request, response,
                             getRequiredScore());
@@ -611,6 +629,23 @@ public class Router extends Restlet {
         return this.retryDelay;
     }
 
+    /**
+     * Returns the trie compiling the current list of routes. A new trie is
+     * compiled if the list of routes or their templates changed.
+     * 
+     * @return The trie compiling the current list of routes.
+     */
+    protected RouteTrie getRouteTrie() {
+        RouteTrie result = this.routeTrie;
+
+        if ((result == null) || !result.isUpToDate(getRoutes())) {
+            result = new RouteTrie(this, getRoutes());
+            this.routeTrie = result;
+        }
+
+        return result;
+    }
+
     /**
      * Returns the modifiable list of routes. Creates a new instance if no one
      * has been set.
@@ -34,8 +34,10 @@
 package org.restlet.routing;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
@@ -75,6 +77,42 @@ public class Template {
     /** Mode where characters at the beginning must match the template. */
     public static final int MODE_STARTS_WITH = 1;
 
+    /**
+     * Token of a compiled pattern, either a literal or a variable.
+     */
+    private static class Token {
+        /** The literal text or null for a variable. */
+        private final String literal;
+
+        /** The variable name or null for a literal. */
+        private final String name;
+
+        /** Indicates if the variable is required. */
+        private final boolean required;
+
+        /** The variable type. */
+        private final int type;
+
+        /**
+         * Constructor.
+         * 
+         * @param literal
+         *            The literal text or null for a variable.
+         * @param name
+         *            The variable name or null for a literal.
+         * @param type
+         *            The variable type.
+         * @param required
+         *            Indicates if the variable is required.
+         */
+        private Token(String literal, String name, int type, boolean required) {
+            this.literal = literal;
+            this.name = name;
+            this.type = type;
+            this.required = required;
+        }
+    }
+
     /**
      * Appends to a pattern a repeating group of a given content based on a
      * class of characters.
@@ -240,6 +278,178 @@ public class Template {
         return result;
     }
 
+    /**
+     * Indicates if the given character is alphabetical (a-z or A-Z).
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the given character is alphabetical (a-z or A-Z).
+     */
+    private static boolean isAlpha(int character) {
+        return ((character >= 'a') && (character <= 'z'))
+                || ((character >= 'A') && (character <= 'Z'));
+    }
+
+    /**
+     * Indicates if the given character is a digit (0-9).
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the given character is a digit (0-9).
+     */
+    private static boolean isDigit(int character) {
+        return (character >= '0') && (character <= '9');
+    }
+
+    /**
+     * Indicates if the given character is hexadecimal.
+     * 
+     * @param character
+     *            The character to test.
+     * @return True if the given character is hexadecimal.
+     */
+    private static boolean isHexa(int character) {
+        return isDigit(character)
+                || ((character >= 'a') && (character <= 'f'))
+                || ((character >= 'A') && (character <= 'F'));
+    }
+
+    /**
+     * Indicates if the given variable type can be matched without regular
+     * expression. Those types can't match the "/" character.
+     * 
+     * @param type
+     *            The variable type.
+     * @return True if the given variable type can be matched without regular
+     *         expression.
+     */
+    static boolean isScannable(int type) {
+        return (type == Variable.TYPE_URI_SEGMENT)
+                || (type == Variable.TYPE_ALPHA)
+                || (type == Variable.TYPE_DIGIT)
+                || (type == Variable.TYPE_ALPHA_DIGIT)
+                || (type == Variable.TYPE_URI_UNRESERVED)
+                || (type == Variable.TYPE_WORD);
+    }
+
+    /**
+     * Matches the longest run of characters accepted by a scannable variable
+     * type, like the greedy regular expression of the variable.
+     * 
+     * @param type
+     *            The variable type.
+     * @param source
+     *            The source string.
+     * @param start
+     *            The start index.
+     * @param end
+     *            The end index.
+     * @return The end index of the matched run.
+     * @see #isScannable(int)
+     */
+    static int matchVariable(int type, String source, int start, int end) {
+        int i = start;
+        boolean accepted = true;
+
+        while (accepted && (i < end)) {
+            char next = source.charAt(i);
+
+            switch (type) {
+            case Variable.TYPE_ALPHA:
+                accepted = isAlpha(next);
+                break;
+            case Variable.TYPE_DIGIT:
+                accepted = isDigit(next);
+                break;
+            case Variable.TYPE_ALPHA_DIGIT:
+                accepted = isAlpha(next) || isDigit(next);
+                break;
+            case Variable.TYPE_WORD:
+                accepted = isAlpha(next) || isDigit(next) || (next == '_');
+                break;
+            case Variable.TYPE_URI_UNRESERVED:
+                accepted = Reference.isUnreserved(next);
+                break;
+            default:
+                // Variable.TYPE_URI_SEGMENT
+                if ((next == '%') && (i + 2 < end)) {
+                    accepted = isHexa(source.charAt(i + 1))
+                            && isHexa(source.charAt(i + 2));
+
+                    if (accepted) {
+                        i += 2;
+                    }
+                } else {
+                    accepted = Reference.isUnreserved(next)
+                            || Reference.isSubDelimiter(next)
+                            || (next == ':') || (next == '@');
+                }
+                break;
+            }
+
+            if (accepted) {
+                i++;
+            }
+        }
+
+        return i;
+    }
+
+    /**
+     * Splits a pattern into literal and variable tokens.
+     * 
+     * @param pattern
+     *            The pattern to split.
+     * @return The tokens or null if the pattern is malformed.
+     */
+    private static Token[] tokenize(String pattern) {
+        if (pattern == null) {
+            return null;
+        }
+
+        List<Token> result = new ArrayList<Token>();
+        StringBuilder buffer = new StringBuilder();
+        boolean inVariable = false;
+        char next;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            next = pattern.charAt(i);
+
+            if (inVariable) {
+                if (Reference.isUnreserved(next)) {
+                    buffer.append(next);
+                } else if ((next == '}') && (buffer.length() > 0)) {
+                    result.add(new Token(null, buffer.toString(), 0, false));
+                    buffer = new StringBuilder();
+                    inVariable = false;
+                } else {
+                    return null;
+                }
+            } else if (next == '{') {
+                if (buffer.length() > 0) {
+                    result.add(new Token(buffer.toString(), null, 0, false));
+                    buffer = new StringBuilder();
+                }
+
+                inVariable = true;
+            } else if (next == '}') {
+                return null;
+            } else {
+                buffer.append(next);
+            }
+        }
+
+        if (inVariable) {
+            return null;
+        }
+
+        if (buffer.length() > 0) {
+            result.add(new Token(buffer.toString(), null, 0, false));
+        }
+
+        return result.toArray(new Token[result.size()]);
+    }
+
     /** The default variable to use when no matching variable descriptor exists. */
     private volatile Variable defaultVariable;
 
@@ -261,6 +471,18 @@ public class Template {
     /** The sequence of Regex variable names as found in the pattern string. */
     private volatile List<String> regexVariables;
 
+    /**
+     * The tokens used to match and parse without regular expression or null
+     * if the regular expression is needed.
+     */
+    private volatile Token[] scanner;
+
+    /** Indicates if the scanner tokens were compiled. */
+    private volatile boolean scannerCompiled;
+
+    /** The tokens of the pattern or null if the pattern is malformed. */
+    private volatile Token[] tokens;
+
     /** The map of variables associated to the route's template. */
     private final Map<String, Variable> variables;
 
@@ -341,9 +563,116 @@ public class Template {
         this.matchingMode = matchingMode;
         this.variables = new ConcurrentHashMap<String, Variable>();
         this.regexPattern = null;
+        this.tokens = tokenize(pattern);
         this.encodingVariables = encodingVariables;
     }
 
+    /**
+     * Appends the formatted value of a variable.
+     * 
+     * @param buffer
+     *            The buffer to append to.
+     * @param varName
+     *            The variable name.
+     * @param resolver
+     *            The variable resolver to use.
+     */
+    private void appendVariable(StringBuilder buffer, String varName,
+            Resolver<?> resolver) {
+        Object varValue = resolver.resolve(varName);
+        Variable var = getVariables().get(varName);
+
+        // Use the default values instead
+        if (varValue == null) {
+            if (var == null) {
+                var = getDefaultVariable();
+            }
+
+            if (var != null) {
+                varValue = var.getDefaultValue();
+            }
+        }
+
+        String varValueString = (varValue == null) ? null : varValue
+                .toString();
+
+        if (this.encodingVariables) {
+            // In case the values must be encoded.
+            if (var != null) {
+                buffer.append(var.encode(varValueString));
+            } else {
+                buffer.append(Reference.encode(varValueString));
+            }
+        } else {
+            if ((var != null) && var.isEncodingOnFormat()) {
+                buffer.append(Reference.encode(varValueString));
+            } else {
+                buffer.append(varValueString);
+            }
+        }
+    }
+
+    /**
+     * Compiles the scanner tokens. The template can be scanned without regular
+     * expression when all its variables are scannable, used once and not
+     * fixed, and when each variable can't match the first character of the
+     * following literal. The greedy regular expression can't backtrack in this
+     * case.
+     * 
+     * @return The scanner tokens or null if the regular expression is needed.
+     * @see #isScannable(int)
+     */
+    private Token[] compileScanner() {
+        Token[] tokens = this.tokens;
+
+        if (tokens == null) {
+            return null;
+        }
+
+        Token[] result = new Token[tokens.length];
+        Set<String> names = new HashSet<String>();
+
+        for (int i = 0; i < tokens.length; i++) {
+            Token token = tokens[i];
+
+            if (token.literal != null) {
+                // The "+" character isn't quoted in the regular expression
+                if (token.literal.indexOf('+') != -1) {
+                    return null;
+                }
+
+                result[i] = token;
+            } else {
+                Variable var = getVariables().get(token.name);
+
+                if (var == null) {
+                    var = getDefaultVariable();
+                }
+
+                if ((var == null) || var.isFixed()
+                        || !isScannable(var.getType())
+                        || !names.add(token.name)) {
+                    return null;
+                }
+
+                if (i + 1 < tokens.length) {
+                    String literal = tokens[i + 1].literal;
+
+                    if ((literal == null) || (literal.charAt(0) == '%')
+                            || (matchVariable(var.getType(), literal, 0,
+                                    1) > 0)) {
+                        return null;
+                    }
+                }
+
+                result[i] = new Token(null, token.name, var.getType(),
+                        var.isRequired());
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Creates a formatted string based on the given map of values.
      * 
@@ -379,6 +708,20 @@ public class Template {
      */
     public String format(Resolver<?> resolver) {
         final StringBuilder result = new StringBuilder();
+        final Token[] tokens = this.tokens;
+
+        if (tokens != null) {
+            for (Token token : tokens) {
+                if (token.literal != null) {
+                    result.append(token.literal);
+                } else {
+                    appendVariable(result, token.name, resolver);
+                }
+            }
+
+            return result.toString();
+        }
+
         StringBuilder varBuffer = null;
         char next;
         boolean inVariable = false;
@@ -397,39 +740,7 @@ public class Template {
                                 "Empty pattern variables are not allowed : "
                                         + this.regexPattern);
                     } else {
-                        final String varName = varBuffer.toString();
-                        Object varValue = resolver.resolve(varName);
-
-                        Variable var = getVariables().get(varName);
-
-                        // Use the default values instead
-                        if (varValue == null) {
-                            if (var == null) {
-                                var = getDefaultVariable();
-                            }
-
-                            if (var != null) {
-                                varValue = var.getDefaultValue();
-                            }
-                        }
-
-                        String varValueString = (varValue == null) ? null
-                                : varValue.toString();
-
-                        if (this.encodingVariables) {
-                            // In case the values must be encoded.
-                            if (var != null) {
-                                result.append(var.encode(varValueString));
-                            } else {
-                                result.append(Reference.encode(varValueString));
-                            }
-                        } else {
-                            if ((var != null) && var.isEncodingOnFormat()) {
-                                result.append(Reference.encode(varValueString));
-                            } else {
-                                result.append(varValueString);
-                            }
-                        }
+                        appendVariable(result, varBuffer.toString(), resolver);
 
                         // Reset the variable name buffer
                         varBuffer = new StringBuilder();
@@ -597,6 +908,25 @@ public class Template {
         return rv;
     }
 
+    /**
+     * Returns the scanner tokens, compiling them on the first call like the
+     * regular expression.
+     * 
+     * @return The scanner tokens or null if the regular expression is needed.
+     */
+    private Token[] getScanner() {
+        if (!this.scannerCompiled) {
+            synchronized (this) {
+                if (!this.scannerCompiled) {
+                    this.scanner = compileScanner();
+                    this.scannerCompiled = true;
+                }
+            }
+        }
+
+        return this.scanner;
+    }
+
     /**
      * Returns the list of variable names in the template.
      * 
@@ -681,6 +1011,11 @@ public class Template {
      */
     public int match(String formattedString) {
         int result = -1;
+        Token[] scanner = getScanner();
+
+        if ((formattedString != null) && (scanner != null)) {
+            return scan(formattedString, scanner, null);
+        }
 
         try {
             if (formattedString != null) {
@@ -740,8 +1075,21 @@ public class Template {
     public int parse(String formattedString, Map<String, Object> variables,
             boolean loggable) {
         int result = -1;
+        Token[] scanner = getScanner();
 
-        if (formattedString != null) {
+        if ((formattedString != null) && (scanner != null)) {
+            String[] values = new String[scanner.length];
+            result = scan(formattedString, scanner, values);
+
+            if (result != -1) {
+                for (int i = 0; i < scanner.length; i++) {
+                    if (scanner[i].name != null) {
+                        putVariable(variables, scanner[i].name, values[i],
+                                loggable);
+                    }
+                }
+            }
+        } else if (formattedString != null) {
             try {
                 Matcher matcher = getRegexPattern().matcher(formattedString);
                 boolean matched = ((getMatchingMode() == MODE_EQUALS) && matcher
@@ -754,26 +1102,9 @@ public class Template {
                     result = matcher.end();
 
                     // Update the attributes with the variables value
-                    String attributeName = null;
-                    String attributeValue = null;
-
                     for (int i = 0; i < getRegexVariables().size(); i++) {
-                        attributeName = getRegexVariables().get(i);
-                        attributeValue = matcher.group(i + 1);
-                        Variable var = getVariables().get(attributeName);
-
-                        if ((var != null) && var.isDecodingOnParse()) {
-                            attributeValue = Reference.decode(attributeValue);
-                        }
-
-                        if (loggable) {
-                            getLogger().fine(
-                                    "Template variable \"" + attributeName
-                                            + "\" matched with value \""
-                                            + attributeValue + "\"");
-                        }
-
-                        variables.put(attributeName, attributeValue);
+                        putVariable(variables, getRegexVariables().get(i),
+                                matcher.group(i + 1), loggable);
                     }
                 }
             } catch (StackOverflowError soe) {
@@ -805,6 +1136,37 @@ public class Template {
                 request.isLoggable());
     }
 
+    /**
+     * Puts the value of a parsed variable into the given map, decoding it if
+     * needed.
+     * 
+     * @param variables
+     *            The map of variables to update.
+     * @param attributeName
+     *            The variable name.
+     * @param attributeValue
+     *            The parsed value.
+     * @param loggable
+     *            True if the parsing should be logged.
+     */
+    private void putVariable(Map<String, Object> variables,
+            String attributeName, String attributeValue, boolean loggable) {
+        Variable var = getVariables().get(attributeName);
+
+        if ((var != null) && var.isDecodingOnParse()) {
+            attributeValue = Reference.decode(attributeValue);
+        }
+
+        if (loggable) {
+            getLogger().fine(
+                    "Template variable \"" + attributeName
+                            + "\" matched with value \"" + attributeValue
+                            + "\"");
+        }
+
+        variables.put(attributeName, attributeValue);
+    }
+
     /**
      * Quotes special characters that could be taken for special Regex
      * characters.
@@ -852,6 +1214,56 @@ public class Template {
         }
     }
 
+    /**
+     * Matches the scanner tokens against a formatted string.
+     * 
+     * @param formattedString
+     *            The formatted string to match.
+     * @param scanner
+     *            The scanner tokens.
+     * @param values
+     *            The values of the variables, updated if not null.
+     * @return The number of matched characters or -1 if the match failed.
+     */
+    private int scan(String formattedString, Token[] scanner, String[] values) {
+        int result = 0;
+
+        for (int i = 0; (result != -1) && (i < scanner.length); i++) {
+            Token token = scanner[i];
+
+            if (token.literal != null) {
+                if (formattedString.startsWith(token.literal, result)) {
+                    result += token.literal.length();
+                } else {
+                    result = -1;
+                }
+            } else {
+                int end = matchVariable(token.type, formattedString, result,
+                        formattedString.length());
+
+                if ((end == result) && token.required) {
+                    result = -1;
+                } else {
+                    if (values != null) {
+                        values[i] = formattedString.substring(result, end);
+                    }
+
+                    result = end;
+                }
+            }
+        }
+
+        if (getMatchingMode() == MODE_EQUALS) {
+            if (result != formattedString.length()) {
+                result = -1;
+            }
+        } else if (getMatchingMode() != MODE_STARTS_WITH) {
+            result = -1;
+        }
+
+        return result;
+    }
+
     /**
      * Sets the variable to use, if no variable is given.
      * 
@@ -901,6 +1313,9 @@ public class Template {
     public void setPattern(String pattern) {
         this.pattern = pattern;
         this.regexPattern = null;
+        this.tokens = tokenize(pattern);
+        this.scanner = null;
+        this.scannerCompiled = false;
     }
 
     /**
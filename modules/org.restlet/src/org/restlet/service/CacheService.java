@@ -0,0 +1,187 @@
+/**
+ * Copyright 2005-2013 Restlet S.A.S.
+ * 
+ * The contents of this file are subject to the terms of one of the following
+ * open source licenses: Apache 2.0 or LGPL 3.0 or LGPL 2.1 or CDDL 1.0 or EPL
+ * 1.0 (the "Licenses"). You can select the license that you prefer but you may
+ * not use this file except in compliance with one of these Licenses.
+ * 
+ * You can obtain a copy of the Apache 2.0 license at
+ * http://www.opensource.org/licenses/apache-2.0
+ * 
+ * You can obtain a copy of the LGPL 3.0 license at
+ * http://www.opensource.org/licenses/lgpl-3.0
+ * 
+ * You can obtain a copy of the LGPL 2.1 license at
+ * http://www.opensource.org/licenses/lgpl-2.1
+ * 
+ * You can obtain a copy of the CDDL 1.0 license at
+ * http://www.opensource.org/licenses/cddl1
+ * 
+ * You can obtain a copy of the EPL 1.0 license at
+ * http://www.opensource.org/licenses/eclipse-1.0
+ * 
+ * See the Licenses for the specific language governing permissions and
+ * limitations under the Licenses.
+ * 
+ * Alternatively, you can obtain a royalty free commercial license with less
+ * limitations, transferable or non-transferable, directly at
+ * http://www.restlet.com/products/restlet-framework
+ * 
+ * Restlet is a registered trademark of Restlet S.A.S.
+ */
+
+package org.restlet.service;
+
+import org.restlet.Context;
+import org.restlet.engine.application.CacheFilter;
+import org.restlet.engine.application.ResponseCache;
+import org.restlet.routing.Filter;
+
+/**
+ * Application service caching responses in memory. Responses to GET requests
+ * are stored when their "Cache-Control" directives or the expiration date of
+ * their entity make them cacheable, then used to answer the subsequent GET and
+ * HEAD requests for the same URI and matching the request properties the
+ * response varies on, until they expire. Conditional requests are answered by
+ * a "304 Not modified" status when possible. Successful requests with unsafe
+ * methods invalidate the cached responses of their URI.<br>
+ * <br>
+ * The cache is shared by all the clients of the application, so "private" or
+ * "no-store" responses and requests with credentials are never cached and the
+ * "s-maxage" directive has precedence. The cache is bounded by the total size
+ * of the cached entities, evicting the least recently used URIs first.<br>
+ * <br>
+ * Note that responses are cached before reaching the application root, so
+ * authorization done inside the root Restlet doesn't apply to cached responses
+ * unless they are marked as "private". The service is disabled by default.
+ * 
+ * @author Jerome Louvel
+ */
+public class CacheService extends Service {
+
+    /** The default maximum size of a cached entry. */
+    public static final long DEFAULT_MAX_ENTRY_SIZE = 1024 * 1024;
+
+    /** The default maximum total size of the cached entries. */
+    public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+    /** The response cache. */
+    private final ResponseCache responseCache;
+
+    /**
+     * Constructor.
+     */
+    public CacheService() {
+        this(true);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param enabled
+     *            True if the service has been enabled.
+     */
+    public CacheService(boolean enabled) {
+        super(enabled);
+        this.responseCache = new ResponseCache(DEFAULT_MAX_SIZE,
+                DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * Removes all the cached responses.
+     */
+    public void clear() {
+        getResponseCache().clear();
+    }
+
+    @Override
+    public Filter createInboundFilter(Context context) {
+        return new CacheFilter(context);
+    }
+
+    /**
+     * Returns the number of cached responses.
+     * 
+     * @return The number of cached responses.
+     */
+    public int getEntryCount() {
+        return getResponseCache().getEntryCount();
+    }
+
+    /**
+     * Returns the number of requests answered by the cache.
+     * 
+     * @return The number of requests answered by the cache.
+     */
+    public long getHitCount() {
+        return getResponseCache().getHitCount();
+    }
+
+    /**
+     * Returns the maximum size of a cached entity. Defaults to 1 MB.
+     * 
+     * @return The maximum size of a cached entity.
+     */
+    public long getMaxEntrySize() {
+        return getResponseCache().getMaxEntrySize();
+    }
+
+    /**
+     * Returns the maximum total size of the cached entities. Defaults to 16
+     * MB.
+     * 
+     * @return The maximum total size of the cached entities.
+     */
+    public long getMaxSize() {
+        return getResponseCache().getMaxSize();
+    }
+
+    /**
+     * Returns the number of cacheable requests not answered by the cache.
+     * 
+     * @return The number of cacheable requests not answered by the cache.
+     */
+    public long getMissCount() {
+        return getResponseCache().getMissCount();
+    }
+
+    /**
+     * Returns the response cache.
+     * 
+     * @return The response cache.
+     */
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    /**
+     * Returns the total size of the cached entities.
+     * 
+     * @return The total size of the cached entities.
+     */
+    public long getSize() {
+        return getResponseCache().getSize();
+    }
+
+    /**
+     * Sets the maximum size of a cached entity.
+     * 
+     * @param maxEntrySize
+     *            The maximum size of a cached entity.
+     */
+    public void setMaxEntrySize(long maxEntrySize) {
+        getResponseCache().setMaxEntrySize(maxEntrySize);
+    }
+
+    /**
+     * Sets the maximum total size of the cached entities.
+     * 
+     * @param maxSize
+     *            The maximum total size of the cached entities.
+     */
+    public void setMaxSize(long maxSize) {
+        getResponseCache().setMaxSize(maxSize);
+    }
+
+}
@@ -33,12 +33,18 @@
 
 package org.restlet.service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.restlet.Request;
+import org.restlet.data.ClientInfo;
 import org.restlet.engine.application.Conneg;
 import org.restlet.engine.application.FlexibleConneg;
 import org.restlet.engine.application.StrictConneg;
+import org.restlet.engine.resource.VariantInfo;
 import org.restlet.representation.Variant;
 
 /**
@@ -50,12 +56,89 @@ import org.restlet.representation.Variant;
  */
 public class ConnegService extends Service {
 
+    /** The maximum number of entries kept by each cache. */
+    private static final int CACHE_MAX_SIZE = 1024;
+
+    /** Index cached for negotiations without preferred variant. */
+    private static final Integer NO_VARIANT = Integer.valueOf(-1);
+
+    /**
+     * Copies a variant, so that the cached variants are never shared.
+     * 
+     * @param variant
+     *            The variant to copy.
+     * @return The copy.
+     */
+    private static Variant copy(Variant variant) {
+        Variant result;
+
+        if (variant instanceof VariantInfo) {
+            VariantInfo variantInfo = (VariantInfo) variant;
+            VariantInfo copy = new VariantInfo(variant.getMediaType(),
+                    variantInfo.getAnnotationInfo());
+            copy.setInputScore(variantInfo.getInputScore());
+            result = copy;
+        } else {
+            result = new Variant(variant.getMediaType());
+        }
+
+        result.setCharacterSet(variant.getCharacterSet());
+        result.getEncodings().addAll(variant.getEncodings());
+        result.getLanguages().addAll(variant.getLanguages());
+        result.setLocationRef(variant.getLocationRef());
+        return result;
+    }
+
+    /**
+     * Copies a list of variants.
+     * 
+     * @param variants
+     *            The variants to copy.
+     * @return The modifiable list of copies.
+     */
+    private static List<Variant> copy(List<? extends Variant> variants) {
+        List<Variant> result = new ArrayList<Variant>(variants.size());
+
+        for (Variant variant : variants) {
+            result.add(copy(variant));
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a cache evicting its least recently used entries once its
+     * maximum size is reached.
+     * 
+     * @return The new cache.
+     */
+    private static <V> Map<String, V> createCache() {
+        return Collections.synchronizedMap(new LinkedHashMap<String, V>(16,
+                0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > CACHE_MAX_SIZE;
+            }
+        });
+    }
+
+    /**
+     * The indexes of the preferred variants, cached by variant list key and by
+     * client preferences.
+     */
+    private final Map<String, Integer> preferredVariants;
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible.
      */
     private volatile boolean strict;
 
+    /** The unmodifiable lists of variants, cached by key. */
+    private final Map<String, List<Variant>> variantsCache;
+
     /**
      * Constructor.
      */
@@ -72,6 +155,49 @@ public class ConnegService extends Service {
     public ConnegService(boolean enabled) {
         super(enabled);
         this.strict = false;
+        this.preferredVariants = createCache();
+        this.variantsCache = createCache();
+    }
+
+    /**
+     * Appends the client preferences and default metadata used by the conneg
+     * algorithms to a cache key.
+     * 
+     * @param sb
+     *            The key builder.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     */
+    private void appendPreferences(StringBuilder sb, Request request,
+            MetadataService metadataService) {
+        ClientInfo clientInfo = request.getClientInfo();
+        sb.append(isStrict()).append('|');
+        sb.append((request.getResourceRef() != null)
+                && (request.getResourceRef().getQuery() != null));
+
+        if (clientInfo != null) {
+            sb.append('|').append(clientInfo.getAcceptedMediaTypes());
+            sb.append('|').append(clientInfo.getAcceptedLanguages());
+            sb.append('|').append(clientInfo.getAcceptedCharacterSets());
+            sb.append('|').append(clientInfo.getAcceptedEncodings());
+        }
+
+        if (!isStrict() && (metadataService != null)) {
+            sb.append('|').append(metadataService.getDefaultMediaType());
+            sb.append('|').append(metadataService.getDefaultLanguage());
+            sb.append('|').append(metadataService.getDefaultCharacterSet());
+            sb.append('|').append(metadataService.getDefaultEncoding());
+        }
+    }
+
+    /**
+     * Clears the cached variant lists and negotiation results.
+     */
+    public void clearCache() {
+        this.preferredVariants.clear();
+        this.variantsCache.clear();
     }
 
     /**
@@ -98,6 +224,61 @@ public class ConnegService extends Service {
         return conneg.getPreferredVariant(variants);
     }
 
+    /**
+     * Returns the best variant representation for a given resource according
+     * the the client preferences. The index of the result is cached, so the
+     * given key must identify a list of variants that never changes, such as
+     * the copies returned by {@link #getVariants(String)}.
+     * 
+     * @param variantsKey
+     *            The key identifying the list of variants.
+     * @param variants
+     *            The list of variants to compare.
+     * @param request
+     *            The request including client preferences.
+     * @param metadataService
+     *            The metadata service used to get default metadata values.
+     * @return The preferred variant.
+     * @see #getPreferredVariant(List, Request, MetadataService)
+     */
+    public Variant getPreferredVariant(String variantsKey,
+            List<? extends Variant> variants, Request request,
+            MetadataService metadataService) {
+        StringBuilder sb = new StringBuilder(variantsKey).append('|');
+        appendPreferences(sb, request, metadataService);
+        String key = sb.toString();
+        Integer index = this.preferredVariants.get(key);
+        Variant result = null;
+
+        if ((index == null) || (index.intValue() >= variants.size())) {
+            result = getPreferredVariant(variants, request, metadataService);
+            index = (result == null) ? NO_VARIANT : Integer.valueOf(variants
+                    .indexOf(result));
+
+            if ((result == null) || (index.intValue() >= 0)) {
+                this.preferredVariants.put(key, index);
+            }
+        } else if (index.intValue() >= 0) {
+            result = variants.get(index.intValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns copies of the variants cached for the given key. As the cached
+     * variants are never shared, the copies can be freely modified.
+     * 
+     * @param variantsKey
+     *            The key identifying the list of variants, typically based on
+     *            a resource class and a method.
+     * @return The modifiable list of copied variants or null.
+     */
+    public List<Variant> getVariants(String variantsKey) {
+        List<Variant> cached = this.variantsCache.get(variantsKey);
+        return (cached == null) ? null : copy(cached);
+    }
+
     /**
      * Indicates if the conneg algorithm should strictly respect client
      * preferences or be more flexible. Value is false by default.
@@ -121,4 +302,25 @@ public class ConnegService extends Service {
         this.strict = strict;
     }
 
+    /**
+     * Caches copies of a list of variants, for example computed from the
+     * annotations of a resource class. The negotiation results previously
+     * cached for the same key are discarded.
+     * 
+     * @param variantsKey
+     *            The key identifying the list of variants, typically based on
+     *            a resource class and a method.
+     * @param variants
+     *            The list of variants.
+     */
+    public void setVariants(String variantsKey,
+            List<? extends Variant> variants) {
+        List<Variant> cached = Collections.unmodifiableList(copy(variants));
+
+        if (this.variantsCache.put(variantsKey, cached) != null) {
+            // Previous negotiation results might refer to other variants
+            this.preferredVariants.clear();
+        }
+    }
+
 }
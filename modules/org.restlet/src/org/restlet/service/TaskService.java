@@ -33,6 +33,7 @@
 
 package org.restlet.service;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -41,10 +42,13 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
@@ -69,7 +73,12 @@ import org.restlet.routing.VirtualHost;
  * Resources that are part of your context. In general this context corresponds
  * to a parent Application's context. If you want to have your own service
  * instance, you can use the {@link TaskService#wrap(ScheduledExecutorService)}
- * method to ensure that thread local variables are correctly set.
+ * method to ensure that thread local variables are correctly set.<br>
+ * <br>
+ * When tasks block on I/O, such as JDBC or outbound client calls, the
+ * {@link #setThreadPerTask(boolean)} mode runs each task executed immediately
+ * on its own short-lived thread, up to {@link #getMaxConcurrentTasks()}, while
+ * scheduled tasks keep relying on the core pool.
  * 
  * @author Jerome Louvel
  * @author Doug Lea (docs of ExecutorService in public domain)
@@ -96,6 +105,92 @@ public class TaskService extends Service implements ScheduledExecutorService {
         }
     }
 
+    /**
+     * Scheduled executor running each task executed immediately on its own
+     * short-lived thread, up to a maximum number of concurrent tasks, further
+     * tasks being queued. The scheduled tasks are still run by the core pool.
+     * 
+     * @author Jerome Louvel
+     */
+    private static class ThreadPerTaskExecutor extends
+            ScheduledThreadPoolExecutor {
+
+        /** The executor of the tasks executed immediately. */
+        private final ThreadPoolExecutor immediateExecutor;
+
+        /**
+         * Constructor.
+         * 
+         * @param corePoolSize
+         *            The number of threads running the scheduled tasks.
+         * @param maxConcurrentTasks
+         *            The maximum number of tasks executed concurrently.
+         * @param threadFactory
+         *            The thread factory.
+         */
+        public ThreadPerTaskExecutor(int corePoolSize, int maxConcurrentTasks,
+                ThreadFactory threadFactory) {
+            super(corePoolSize, threadFactory);
+
+            // A new thread is started for each task until the maximum is
+            // reached, each thread being collected right after its task
+            this.immediateExecutor = new ThreadPoolExecutor(
+                    maxConcurrentTasks, maxConcurrentTasks, 1,
+                    TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(),
+                    threadFactory);
+            this.immediateExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit)
+                throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            return this.immediateExecutor.awaitTermination(timeout, unit)
+                    && super.awaitTermination(deadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            this.immediateExecutor.execute(command);
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return this.immediateExecutor.isTerminated()
+                    && super.isTerminated();
+        }
+
+        @Override
+        public void shutdown() {
+            this.immediateExecutor.shutdown();
+            super.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> result = new ArrayList<Runnable>(
+                    this.immediateExecutor.shutdownNow());
+            result.addAll(super.shutdownNow());
+            return result;
+        }
+
+        @Override
+        public <T> Future<T> submit(Callable<T> task) {
+            return this.immediateExecutor.submit(task);
+        }
+
+        @Override
+        public Future<?> submit(Runnable task) {
+            return this.immediateExecutor.submit(task);
+        }
+
+        @Override
+        public <T> Future<T> submit(Runnable task, T result) {
+            return this.immediateExecutor.submit(task, result);
+        }
+    }
+
     /**
      * Wraps a JDK executor service to ensure that the threads executing the
      * tasks will have the thread local variables copied from the calling
@@ -228,6 +323,12 @@ public class TaskService extends Service implements ScheduledExecutorService {
     /** The core pool size defining the maximum number of threads. */
     private volatile int corePoolSize;
 
+    /** The maximum number of tasks executed concurrently, one per thread. */
+    private volatile int maxConcurrentTasks;
+
+    /** Indicates if each task executed immediately has its own thread. */
+    private volatile boolean threadPerTask;
+
     /**
      * Constructor. Enables the service and set the core pool size to 4 by
      * default.
@@ -257,7 +358,9 @@ public class TaskService extends Service implements ScheduledExecutorService {
     public TaskService(boolean enabled, int corePoolSize) {
         super(enabled);
         this.corePoolSize = corePoolSize;
+        this.maxConcurrentTasks = 1000;
         this.shutdownAllowed = false;
+        this.threadPerTask = false;
     }
 
     /**
@@ -291,13 +394,20 @@ public class TaskService extends Service implements ScheduledExecutorService {
     /**
      * Creates a new JDK executor service that will be wrapped. By default it
      * calls {@link Executors#newCachedThreadPool(ThreadFactory)}, passing the
-     * result of {@link #createThreadFactory()} as a parameter.
+     * result of {@link #createThreadFactory()} as a parameter. In the
+     * {@link #isThreadPerTask()} mode, the tasks executed immediately run on
+     * their own thread instead.
      * 
      * @param corePoolSize
      *            The core pool size defining the maximum number of threads.
      * @return A new JDK executor service.
      */
     protected ScheduledExecutorService createExecutorService(int corePoolSize) {
+        if (isThreadPerTask()) {
+            return new ThreadPerTaskExecutor(corePoolSize,
+                    getMaxConcurrentTasks(), createThreadFactory());
+        }
+
         return Executors.newScheduledThreadPool(corePoolSize,
                 createThreadFactory());
     }
@@ -332,6 +442,16 @@ public class TaskService extends Service implements ScheduledExecutorService {
         return corePoolSize;
     }
 
+    /**
+     * Returns the maximum number of tasks executed concurrently in the
+     * {@link #isThreadPerTask()} mode. Default value is 1000.
+     * 
+     * @return The maximum number of tasks executed concurrently.
+     */
+    public int getMaxConcurrentTasks() {
+        return maxConcurrentTasks;
+    }
+
     /**
      * Returns the wrapped JDK executor service.
      * 
@@ -470,6 +590,17 @@ public class TaskService extends Service implements ScheduledExecutorService {
         return (getWrapped() == null) || getWrapped().isTerminated();
     }
 
+    /**
+     * Indicates if each task executed immediately runs on its own short-lived
+     * thread, up to {@link #getMaxConcurrentTasks()}, instead of the core pool
+     * shared with the scheduled tasks. Default value is false.
+     * 
+     * @return True if each task executed immediately has its own thread.
+     */
+    public boolean isThreadPerTask() {
+        return threadPerTask;
+    }
+
     /**
      * Creates and executes a ScheduledFuture that becomes enabled after the
      * given delay.
@@ -591,6 +722,18 @@ public class TaskService extends Service implements ScheduledExecutorService {
         this.corePoolSize = corePoolSize;
     }
 
+    /**
+     * Sets the maximum number of tasks executed concurrently in the
+     * {@link #isThreadPerTask()} mode. Must be set before the service is
+     * started.
+     * 
+     * @param maxConcurrentTasks
+     *            The maximum number of tasks executed concurrently.
+     */
+    public void setMaxConcurrentTasks(int maxConcurrentTasks) {
+        this.maxConcurrentTasks = maxConcurrentTasks;
+    }
+
     /**
      * Indicates if the {@link #shutdown()} and {@link #shutdownNow()} methods
      * are allowed to effectively shutdown the wrapped executor service.
@@ -602,6 +745,17 @@ public class TaskService extends Service implements ScheduledExecutorService {
         this.shutdownAllowed = allowShutdown;
     }
 
+    /**
+     * Indicates if each task executed immediately should run on its own
+     * short-lived thread. Must be set before the service is started.
+     * 
+     * @param threadPerTask
+     *            True if each task executed immediately has its own thread.
+     */
+    public void setThreadPerTask(boolean threadPerTask) {
+        this.threadPerTask = threadPerTask;
+    }
+
     /**
      * Sets the wrapped JDK executor service.
      * 